@@ -0,0 +1,68 @@
+package Analysis;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 用 JMH 运行 Analysis 包中的 Suite：对每个 Suite 展开 benchmarks() 和
+ * parameters() 的笛卡尔积，作为 JmhSuite 的参数交给 JMH。
+ *
+ *   java -cp target/benchmarks.jar Analysis.JmhRunner BTreeMapAnalysis \
+ *        [更多 Suite] [-- JMH 命令行选项，例如 -f 2 -wi 3 -prof gc]
+ *
+ * 与 MicroBenchmark 相同，-Dbench.filter=get 只运行名称包含 get 的测试。
+ * 覆盖了 prepare 的测试交给 JmhSuite.runPrepared，其余的交给 JmhSuite.run，
+ * 见 JmhSuite 的说明。
+ */
+public final class JmhRunner {
+
+    private JmhRunner() {}
+
+    public static void main(String[] args) throws Exception {
+        int sep = Arrays.asList(args).indexOf("--");
+        String[] suites = (sep < 0) ? args : Arrays.copyOfRange(args, 0, sep);
+        String[] jmhArgs = (sep < 0) ? new String[0] : Arrays.copyOfRange(args, sep + 1, args.length);
+        if (suites.length == 0) {
+            System.err.println("Usage: JmhRunner <Suite>... [-- <JMH options>]");
+            System.exit(1);
+        }
+        String filter = MicroBenchmark.FILTER;
+        for (String name : suites) {
+            String cls = name.indexOf('.') >= 0 ? name : "Analysis." + name;
+            MicroBenchmark.Suite suite = (MicroBenchmark.Suite)
+                Class.forName(cls).getDeclaredConstructor().newInstance();
+            List<String> params = new ArrayList<>();
+            for (MicroBenchmark.Params p : MicroBenchmark.expand(suite.parameters()))
+                params.add(p.encode().replace(',', ';'));
+            List<String> plain = new ArrayList<>();
+            List<String> prepared = new ArrayList<>();
+            for (String b : suite.benchmarks()) {
+                if (filter != null && !b.contains(filter))
+                    continue;
+                MicroBenchmark.Workload w = JmhSuite.create(cls, b, params.get(0));
+                (JmhSuite.needsPrepare(w) ? prepared : plain).add(b);
+            }
+            run(jmhArgs, cls, "run", plain, params);
+            run(jmhArgs, cls, "runPrepared", prepared, params);
+        }
+    }
+
+    private static void run(String[] jmhArgs, String cls, String method,
+                            List<String> benchmarks, List<String> params) throws Exception {
+        if (benchmarks.isEmpty())
+            return;
+        ChainedOptionsBuilder opt = new OptionsBuilder()
+            .parent(new CommandLineOptions(jmhArgs))
+            .include(JmhSuite.class.getName() + "." + method + "$")
+            .param("suite", cls)
+            .param("benchmark", benchmarks.toArray(new String[0]))
+            .param("params", params.toArray(new String[0]));
+        new Runner(opt.build()).run();
+    }
+}
@@ -0,0 +1,153 @@
+package Analysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在 JMH 中运行 MicroBenchmark.Suite 的一个测试负载。suite、benchmark、
+ * params 三个参数确定一个负载，params 中的参数用分号分隔
+ * （map=BTreeMap;n=10000），因为 JMH 的命令行用逗号分隔多个取值。
+ * 通常由 JmhRunner 展开参数空间，也可以直接用 JMH 的命令行指定：
+ *
+ *   java -jar target/benchmarks.jar JmhSuite -p suite=BTreeMapAnalysis \
+ *        -p benchmark=get -p params='map=BTreeMap;n=10000'
+ *
+ * 与 MicroBenchmark 的对应关系：
+ *   setup / tearDown     @Setup / @TearDown(Level.Trial)
+ *   prepare              Prepared 的 @Setup(Level.Invocation)，不计入耗时
+ *   beginMeasurement     第一轮测量迭代开始之前
+ *   report               测试结束时打印到标准输出
+ *   Blackhole            转交给 JMH 的 Blackhole
+ *
+ * 只要存在 Level.Invocation 的 @Setup，JMH 就要对每次调用单独计时，
+ * 对亚微秒的操作这部分开销会淹没结果。所以有两个测试方法：run 没有
+ * 每次调用的 @Setup，用于没有覆盖 prepare 的负载；runPrepared 每次调用
+ * 之前执行 prepare，只用于覆盖了 prepare 的负载。这些负载的一次 run
+ * 都是成批的操作（例如出栈 n 个元素、一轮多线程交换），单次调用在
+ * 微秒以上，计时开销可以忽略。JmhRunner 按负载选择测试方法，直接用
+ * JMH 运行时选错了会在 setup 中报错。
+ *
+ * 同时给出吞吐量和平均耗时，单位可以用 JMH 的 -tu 修改。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JmhSuite {
+
+    /**
+     * Analysis 包中 Suite 的类名，例如 BTreeMapAnalysis。
+     */
+    @Param("")
+    public String suite;
+
+    @Param("")
+    public String benchmark;
+
+    @Param("")
+    public String params;
+
+    private MicroBenchmark.Workload workload;
+    private JmhSink sink;
+    private MicroBenchmark.Blackhole bh;
+    private boolean measuring;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkParams bp) throws Exception {
+        workload = create(suite, benchmark, params);
+        boolean prepared = bp.getBenchmark().endsWith(".runPrepared");
+        if (needsPrepare(workload) != prepared)
+            throw new IllegalStateException(suite + "." + benchmark + " 应当使用 "
+                + (prepared ? "run" : "runPrepared"));
+        sink = new JmhSink();
+        bh = new MicroBenchmark.Blackhole(sink);
+        workload.setup();
+    }
+
+    @Setup(Level.Iteration)
+    public void iteration(IterationParams ip) {
+        if (!measuring && ip.getType() == IterationType.MEASUREMENT) {
+            measuring = true;
+            workload.beginMeasurement();
+        }
+    }
+
+    @Benchmark
+    public void run(Blackhole jmh) throws Exception {
+        sink.target = jmh;
+        workload.run(bh);
+    }
+
+    @Benchmark
+    public void runPrepared(Prepared p, Blackhole jmh) throws Exception {
+        sink.target = jmh;
+        workload.run(bh);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        String r = workload.report();
+        workload.tearDown();
+        if (r != null)
+            System.out.println(suite + "." + benchmark + " (" + params + ") " + r);
+    }
+
+    static MicroBenchmark.Workload create(String suite, String benchmark, String params)
+            throws Exception {
+        String name = suite.indexOf('.') >= 0 ? suite : "Analysis." + suite;
+        MicroBenchmark.Suite s = (MicroBenchmark.Suite)
+            Class.forName(name).getDeclaredConstructor().newInstance();
+        return s.create(benchmark, MicroBenchmark.Params.decode(params.replace(';', ',')));
+    }
+
+    /**
+     * 负载是否覆盖了 Workload.prepare。
+     */
+    static boolean needsPrepare(MicroBenchmark.Workload w) throws NoSuchMethodException {
+        return w.getClass().getMethod("prepare").getDeclaringClass()
+            != MicroBenchmark.Workload.class;
+    }
+
+    /**
+     * 每次调用之前执行负载的 prepare，只有 runPrepared 使用。
+     */
+    @State(Scope.Benchmark)
+    public static class Prepared {
+        @Setup(Level.Invocation)
+        public void prepare(JmhSuite s) throws Exception {
+            s.workload.prepare();
+        }
+    }
+
+    /**
+     * 把结果交给当前调用的 JMH Blackhole。
+     */
+    static final class JmhSink implements MicroBenchmark.Blackhole.Sink {
+        Blackhole target;
+
+        public void consume(Object o)  { target.consume(o); }
+        public void consume(int i)     { target.consume(i); }
+        public void consume(long l)    { target.consume(l); }
+        public void consume(double d)  { target.consume(d); }
+        public void consume(boolean b) { target.consume(b); }
+    }
+}
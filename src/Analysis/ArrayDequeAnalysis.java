@@ -1,157 +1,129 @@
 package Analysis;
 
-import java.util.*;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Stack;
 
-public class ArrayDequeAnalysis {
+/**
+ * ArrayDeque 和 Stack 作为栈时的性能对比：压栈 n 次、查看栈顶 n 次、
+ * 出栈 n 次，以及三者依次执行的组合操作。参数为栈的类型、元素个数和
+ * 元素类型。
+ *
+ * 运行：java -cp out Analysis.ArrayDequeAnalysis
+ */
+public class ArrayDequeAnalysis implements MicroBenchmark.Suite {
 
     public static void main(String[] args) {
-        ArrayDequeAnalysis ada = new ArrayDequeAnalysis();
-        ada.testForArrayDequeAndStackAsStack();
+        MicroBenchmark.run(new ArrayDequeAnalysis());
     }
 
-//    // ArrayDeque 和 LinkedList 作为队列时的性能测试
-//    public void testForArrayDequeAndLinkedListAsQueue() {
-//        int n = 10000;
-//        ArrayDeque<Integer> deque = new ArrayDeque<>();
-//        LinkedList<Integer> l = new LinkedList<>();
-//
-//        long startTimeA = 0L;
-//        long endTimeA = 0L;
-//        long startTimeL = 0L;
-//        long endTimeL = 0L;
-//
-//        // 插入
-//        startTimeA = System.nanoTime();
-//        insertNTimes(deque, n);
-//        endTimeA = System.nanoTime();
-//        System.out.println("在 ArrayDeque 插入 " + n + " 个数的时间消耗: " + (endTimeA - startTimeA) + "ns");
-//
-//        startTimeL = System.nanoTime();
-//        insertNTimes(l, n);
-//        endTimeL = System.nanoTime();
-//        System.out.println("在 LinkedList 插入 " + n + " 个数的时间消耗: " + (endTimeL - startTimeL) + "ns");
-//
-//        // 删除
-//        startTimeA = System.nanoTime();
-//        removeNTimes(deque, n);
-//        endTimeA = System.nanoTime();
-//        System.out.println("在 ArrayDeque 删除 " + n + " 个数的时间消耗: " + (endTimeA - startTimeA) + "ns");
-//
-//        startTimeL = System.nanoTime();
-//        removeNTimes(l, n);
-//        endTimeL = System.nanoTime();
-//        System.out.println("在 LinkedList 删除 " + n + " 个数的时间消耗: " + (endTimeL - startTimeL) + "ns");
-//
-//        // 在队列尾部插入 n 次、获取 n 次、队列头部删除 n 次，重复进行以上步骤 n 次
-//        //向下取整
-//        n = (int)(Math.sqrt(n));
-////        int n = 10000;
-//        deque.clear();
-//        l.clear();
-//        startTimeA = System.nanoTime();
-//        insertGetRemoveNTimes(deque, n);
-//        endTimeA = System.nanoTime();
-//        System.out.println("在 ArrayDeque 插入，查询，删除 " + n + " 个数 " + n + " 次的时间消耗: " + (endTimeA - startTimeA) + "ns");
-//        startTimeL = System.nanoTime();
-//        insertGetRemoveNTimes(l, n);
-//        endTimeL = System.nanoTime();
-//        System.out.println("在 LinkedList 插入，查询，删除 " + n + " 个数 " + n + " 次的时间消耗: " + (endTimeL - startTimeL) + "ns");
-//    }
-//
-//    // 在队列头部插入 n 个数
-//    private void insertNTimes(Deque<Integer> dq, int n) {
-//        for (int i = 0; i < n; i++) {
-//            dq.addFirst(n);
-//        }
-//    }
-//
-//    // 在队列头部删除 n 个数
-//    private void removeNTimes(Deque<Integer> dq, int n) {
-//        for (int i = 0; i < n; i++) {
-//            dq.removeFirst();
-//        }
-//    }
-//
-//    // 在队列尾部插入 n 次、获取 n 次、队列头部删除 n 次，重复进行以上步骤 n 次
-//    private void insertGetRemoveNTimes(Deque<Integer> dq, int n) {
-//        for (int k = 0; k < n; k++) {
-//            for (int i = 0; i < n; i++)
-//                dq.addFirst(i);
-//            for (int i = 0; i < n; i++)
-//                dq.getFirst();
-//            for (int i = 0; i < n; i++)
-//                dq.removeFirst();
-//        }
-//    }
+    /**
+     * 统一 ArrayDeque 和 Stack 的栈操作。
+     */
+    interface StackOps {
+        void push(Object o);
+        Object peek();
+        Object pop();
+    }
 
+    public enum StackType {
+        ARRAYDEQUE {
+            StackOps create() {
+                ArrayDeque<Object> deque = new ArrayDeque<>();
+                return new StackOps() {
+                    public void push(Object o) { deque.addLast(o); }
+                    public Object peek() { return deque.getLast(); }
+                    public Object pop() { return deque.removeLast(); }
+                };
+            }
+        },
+        STACK {
+            StackOps create() {
+                Stack<Object> st = new Stack<>();
+                return new StackOps() {
+                    public void push(Object o) { st.push(o); }
+                    public Object peek() { return st.peek(); }
+                    public Object pop() { return st.pop(); }
+                };
+            }
+        };
 
-    // ArrayDeque 和 Stack 作为栈时的性能测试
-    public void testForArrayDequeAndStackAsStack() {
-        int n = 100000000;
-        ArrayDeque<Integer> deque = new ArrayDeque<>();
-        Stack<Integer> st = new Stack<>();
+        abstract StackOps create();
+    }
 
-        long startTimeA = 0L;
-        long endTimeA = 0L;
-        long startTimeL = 0L;
-        long endTimeL = 0L;
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"push", "peek", "pop", "pushPeekPop"};
+    }
 
-//        // 插入
-//        startTimeA = System.nanoTime();
-//        for (int i = 0; i < n; i++) {
-//            deque.addLast(n);
-//        }
-//        endTimeA = System.nanoTime();
-//        System.out.println("在 ArrayDeque 插入 " + n + " 个数的时间消耗: " + (endTimeA - startTimeA) + "ns");
-//
-//        startTimeL = System.nanoTime();
-//        for (int i = 0; i < n; i++) {
-//            st.push(n);
-//        }
-//        endTimeL = System.nanoTime();
-//        System.out.println("在 Stack 插入 " + n + " 个数的时间消耗: " + (endTimeL - startTimeL) + "ns");
-//
-//        // 删除
-//        startTimeA = System.nanoTime();
-//        for (int i = 0; i < n; i++) {
-//            deque.removeLast();
-//        }
-//        endTimeA = System.nanoTime();
-//        System.out.println("在 ArrayDeque 删除 " + n + " 个数的时间消耗: " + (endTimeA - startTimeA) + "ns");
-//
-//        startTimeL = System.nanoTime();
-//        for (int i = 0; i < n; i++) {
-//            st.pop();
-//        }
-//        endTimeL = System.nanoTime();
-//        System.out.println("在 Stack 删除 " + n + " 个数的时间消耗: " + (endTimeL - startTimeL) + "ns");
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("stack", new String[] {"ArrayDeque", "Stack"});
+        m.put("n", new String[] {"1000", "100000"});
+        m.put("type", new String[] {"Integer", "String"});
+        return m;
+    }
 
-        // 在队列尾部插入 n 次、获取 n 次、队列头部删除 n 次，重复进行以上步骤 n 次
-        // 向下取整
-        n = (int)(Math.sqrt(n));
-        deque.clear();
-        st.clear();
-        startTimeA = System.nanoTime();
-        for (int k = 0; k < n; k++) {
-            for (int i = 0; i < n; i++)
-                deque.addLast(i);
-            for (int i = 0; i < n; i++)
-                deque.getLast();
-            for (int i = 0; i < n; i++)
-                deque.removeLast();
-        }
-        endTimeA = System.nanoTime();
-        System.out.println("在 ArrayDeque 插入，查询，删除 " + n + " 个数 " + n + " 次的时间消耗: " + (endTimeA - startTimeA) + "ns");
-        startTimeL = System.nanoTime();
-        for (int k = 0; k < n; k++) {
-            for (int i = 0; i < n; i++)
-                st.push(i);
-            for (int i = 0; i < n; i++)
-                st.peek();
-            for (int i = 0; i < n; i++)
-                st.pop();
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        StackType stackType = p.getEnum("stack", StackType.class);
+        int n = p.getInt("n");
+        Object[] elements = p.getEnum("type", MicroBenchmark.ElementType.class).generate(n);
+        switch (benchmark) {
+            case "push":
+                return new MicroBenchmark.Workload() {
+                    StackOps st;
+                    public void prepare() { st = stackType.create(); }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        for (int i = 0; i < n; i++)
+                            st.push(elements[i]);
+                        bh.consume(st);
+                    }
+                };
+            case "peek":
+                return new MicroBenchmark.Workload() {
+                    StackOps st;
+                    public void setup() {
+                        st = stackType.create();
+                        for (int i = 0; i < n; i++)
+                            st.push(elements[i]);
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        for (int i = 0; i < n; i++)
+                            bh.consume(st.peek());
+                    }
+                };
+            case "pop":
+                return new MicroBenchmark.Workload() {
+                    StackOps st;
+                    public void setup() { st = stackType.create(); }
+                    public void prepare() {
+                        for (int i = 0; i < n; i++)
+                            st.push(elements[i]);
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        for (int i = 0; i < n; i++)
+                            bh.consume(st.pop());
+                    }
+                };
+            case "pushPeekPop":
+                // 在栈顶插入 n 次、获取 n 次、删除 n 次
+                return new MicroBenchmark.Workload() {
+                    StackOps st;
+                    public void setup() { st = stackType.create(); }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        for (int i = 0; i < n; i++)
+                            st.push(elements[i]);
+                        for (int i = 0; i < n; i++)
+                            bh.consume(st.peek());
+                        for (int i = 0; i < n; i++)
+                            bh.consume(st.pop());
+                    }
+                };
+            default:
+                throw new IllegalArgumentException(benchmark);
         }
-        endTimeL = System.nanoTime();
-        System.out.println("在 Stack 插入，查询，删除 " + n + " 个数 " + n + " 次的时间消耗: " + (endTimeL - startTimeL) + "ns");
     }
 }
@@ -0,0 +1,144 @@
+package Analysis;
+
+import Collections.BTreeMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * TreeMap 和 BTreeMap 的对比，key 为 n 个随机的 Long。
+ *
+ *   get           LOOKUPS 次随机查找已经存在的 key；
+ *   rangeScan     SCANS 次范围查询，每次用 subMap 取出连续的
+ *                 SCAN_LENGTH 个映射并遍历 entrySet；
+ *   rangeForEach  同 rangeScan，用 subMap 的 forEach 遍历。TreeMap 的
+ *                 子映射使用 Map.forEach 的默认实现，BTreeMap 不创建
+ *                 entry；
+ *   iterate       遍历整个 map 的 entrySet；
+ *   put           从空 map 开始插入 n 个随机的 key。
+ *
+ * 除了 put，map 都预先构造好，run 只做查询。
+ *
+ *   TreeMap      java.util.TreeMap，红黑树；
+ *   BTreeMap     节点容量 64；
+ *   BTreeMap16   节点容量 16。
+ *
+ * 运行：java -cp out Analysis.BTreeMapAnalysis
+ */
+public class BTreeMapAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new BTreeMapAnalysis());
+    }
+
+    static final int LOOKUPS = 1 << 20;
+    static final int SCANS = 1 << 12;
+    static final int SCAN_LENGTH = 100;
+
+    public enum MapType {
+        TREEMAP {
+            NavigableMap<Long, Long> create() {
+                return new TreeMap<>();
+            }
+        },
+        BTREEMAP {
+            NavigableMap<Long, Long> create() {
+                return new BTreeMap<>();
+            }
+        },
+        BTREEMAP16 {
+            NavigableMap<Long, Long> create() {
+                return new BTreeMap<>(16, null);
+            }
+        };
+
+        abstract NavigableMap<Long, Long> create();
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"get", "rangeScan", "rangeForEach", "iterate", "put"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("map", new String[] {"TreeMap", "BTreeMap", "BTreeMap16"});
+        m.put("n", new String[] {"10000", "1000000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        MapType type = p.getEnum("map", MapType.class);
+        int n = p.getInt("n");
+        Random r = new Random(42);
+        Long[] keys = new Long[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = r.nextLong();
+        switch (benchmark) {
+            case "get": {
+                Long[] probes = new Long[LOOKUPS];
+                for (int i = 0; i < LOOKUPS; i++)
+                    probes[i] = keys[r.nextInt(n)];
+                NavigableMap<Long, Long> m = build(type, keys);
+                return bh -> {
+                    long sum = 0;
+                    for (Long k : probes)
+                        sum += m.get(k);
+                    bh.consume(sum);
+                };
+            }
+            case "rangeScan":
+            case "rangeForEach": {
+                NavigableMap<Long, Long> m = build(type, keys);
+                Long[] sorted = m.keySet().toArray(new Long[0]);
+                Long[] from = new Long[SCANS], to = new Long[SCANS];
+                for (int i = 0; i < SCANS; i++) {
+                    int s = r.nextInt(n - SCAN_LENGTH);
+                    from[i] = sorted[s];
+                    to[i] = sorted[s + SCAN_LENGTH];
+                }
+                if (benchmark.equals("rangeForEach")) {
+                    long[] sum = new long[1];
+                    return bh -> {
+                        sum[0] = 0;
+                        for (int i = 0; i < SCANS; i++)
+                            m.subMap(from[i], true, to[i], false).forEach((k, v) -> sum[0] += v);
+                        bh.consume(sum[0]);
+                    };
+                }
+                return bh -> {
+                    long sum = 0;
+                    for (int i = 0; i < SCANS; i++)
+                        for (Map.Entry<Long, Long> e : m.subMap(from[i], true, to[i], false).entrySet())
+                            sum += e.getValue();
+                    bh.consume(sum);
+                };
+            }
+            case "iterate": {
+                NavigableMap<Long, Long> m = build(type, keys);
+                return bh -> {
+                    long sum = 0;
+                    for (Map.Entry<Long, Long> e : m.entrySet())
+                        sum += e.getValue();
+                    bh.consume(sum);
+                };
+            }
+            case "put":
+                return bh -> bh.consume(build(type, keys));
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+
+    static NavigableMap<Long, Long> build(MapType type, Long[] keys) {
+        NavigableMap<Long, Long> m = type.create();
+        for (Long k : keys)
+            m.put(k, k);
+        return m;
+    }
+}
@@ -0,0 +1,110 @@
+package Analysis;
+
+import Collections.BigArrayList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * ArrayList 和分块的 BigArrayList 的追加、顺序读、随机读性能对比。
+ *
+ *   add         从空列表开始逐个添加 n 个元素。分配速率一列（B/op）
+ *               包括 ArrayList 每次扩容丢弃的旧数组，BigArrayList 只
+ *               分配块本身；
+ *   get         按下标顺序读取全部元素；
+ *   randomGet   按预先生成的随机下标读取 n 次，块目录带来的额外访问在
+ *               这里最明显。
+ *
+ * 运行：java -cp out Analysis.BigArrayListAnalysis
+ */
+public class BigArrayListAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new BigArrayListAnalysis());
+    }
+
+    /**
+     * 统一两种列表的操作。
+     */
+    interface IndexedList {
+        void add(Object e);
+        Object get(int index);
+    }
+
+    public enum ListType {
+        ARRAYLIST {
+            IndexedList create() {
+                ArrayList<Object> l = new ArrayList<>();
+                return new IndexedList() {
+                    public void add(Object e) { l.add(e); }
+                    public Object get(int index) { return l.get(index); }
+                };
+            }
+        },
+        BIGARRAYLIST {
+            IndexedList create() {
+                BigArrayList<Object> l = new BigArrayList<>();
+                return new IndexedList() {
+                    public void add(Object e) { l.add(e); }
+                    public Object get(int index) { return l.get(index); }
+                };
+            }
+        };
+
+        abstract IndexedList create();
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"add", "get", "randomGet"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("list", new String[] {"ArrayList", "BigArrayList"});
+        m.put("n", new String[] {"1000000", "10000000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        ListType type = p.getEnum("list", ListType.class);
+        int n = p.getInt("n");
+        Object value = new Object();
+        switch (benchmark) {
+            case "add":
+                return new MicroBenchmark.Workload() {
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        IndexedList l = type.create();
+                        for (int i = 0; i < n; i++)
+                            l.add(value);
+                        bh.consume(l);
+                    }
+                };
+            case "get":
+            case "randomGet":
+                int[] indexes = new int[n];
+                Random r = new Random(42);
+                for (int i = 0; i < n; i++)
+                    indexes[i] = "get".equals(benchmark) ? i : r.nextInt(n);
+                return new MicroBenchmark.Workload() {
+                    IndexedList l;
+                    public void setup() {
+                        l = type.create();
+                        for (int i = 0; i < n; i++)
+                            l.add(i);
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        IndexedList l = this.l;
+                        for (int i : indexes)
+                            bh.consume(l.get(i));
+                    }
+                };
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package Analysis;
+
+import JUC.JUCCollections.ArrayBlockingQueue;
+import JUC.JUCCollections.LinkedBlockingDeque;
+import JUC.JUCCollections.LinkedBlockingQueue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUCCollections 中各个阻塞队列（以及非阻塞的 ConcurrentLinkedQueue）在
+ * 多生产者多消费者（MPMC）场景下的吞吐量和交接延迟对比。
+ *
+ * 每次调用由 producers 个生产者线程一共发送 messages 条消息，consumers
+ * 个消费者线程全部取走后结束。生产者和消费者线程在 setup 中创建，之后
+ * 每次调用通过 CyclicBarrier 同时开始，避免把创建线程的时间计入测量。
+ *
+ * 三种模式：
+ *   put      生产者 put，消费者 take，队列满或空时阻塞；
+ *   offer    生产者 offer，消费者 poll，都带有很短的超时，失败时重试。
+ *            SynchronousQueue 没有容量，不带超时的 offer 和 poll 只有在
+ *            对方已经阻塞等待时才能成功，双方都不阻塞时会活锁；
+ *   drainTo  生产者 put，消费者 take 到一条消息后再用 drainTo 批量取走。
+ *
+ * 消息在发送前记录 System.nanoTime()，消费者取到后计算交接延迟，记录
+ * 在每个消费者自己的 LatencyHistogram 中。结果表格中 1 op 等于传递
+ * messages 条消息；消息速率和 p50/p99/p99.9 延迟在附加结果中给出。
+ *
+ * ArrayBlockingQueue、LinkedBlockingQueue、LinkedBlockingDeque 使用
+ * JUCCollections 中的实现。LinkedTransferQueue、SynchronousQueue 和
+ * ConcurrentLinkedQueue 使用 java.util.concurrent 中的实现：JUCCollections
+ * 中的这三个类通过 sun.misc.Unsafe.getUnsafe() 做 CAS，而 getUnsafe 只
+ * 允许启动类加载器加载的类调用，从 classpath 加载时类初始化就会抛出
+ * SecurityException。这三个队列的结果反映的是运行测试的 JDK 版本的
+ * 实现，不一定与 JUCCollections 中的 JDK 8 源码相同。
+ *
+ * 运行：java -cp out Analysis.BlockingQueueAnalysis
+ *      -Dbench.filter=put 只测 put/take 模式
+ */
+public class BlockingQueueAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new BlockingQueueAnalysis());
+    }
+
+    // 有界队列的容量
+    static final int CAPACITY = 1024;
+
+    // 通知消费者退出的消息
+    static final Message POISON = new Message();
+
+    static final class Message {
+        long sentAt;
+    }
+
+    /**
+     * 统一各种队列的操作。ConcurrentLinkedQueue 不是阻塞队列，它的 put
+     * 和 take 用自旋的 offer 和 poll 实现。
+     */
+    interface QueueOps {
+        void put(Message m) throws InterruptedException;
+        Message take() throws InterruptedException;
+        boolean offer(Message m) throws InterruptedException;
+        Message poll() throws InterruptedException;
+        int drainTo(List<Message> buf, int max);
+    }
+
+    // offer 模式下 offer 和 poll 的超时时间
+    static final long TIMEOUT_NANOS = 100_000L;
+
+    static QueueOps blocking(BlockingQueue<Message> q) {
+        return new QueueOps() {
+            public void put(Message m) throws InterruptedException { q.put(m); }
+            public Message take() throws InterruptedException { return q.take(); }
+            public boolean offer(Message m) throws InterruptedException {
+                return q.offer(m, TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+            }
+            public Message poll() throws InterruptedException {
+                return q.poll(TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+            }
+            public int drainTo(List<Message> buf, int max) { return q.drainTo(buf, max); }
+        };
+    }
+
+    static QueueOps nonBlocking(Queue<Message> q) {
+        return new QueueOps() {
+            public void put(Message m) { q.offer(m); }
+            public Message take() {
+                Message m;
+                while ((m = q.poll()) == null)
+                    Thread.yield();
+                return m;
+            }
+            public boolean offer(Message m) { return q.offer(m); }
+            public Message poll() { return q.poll(); }
+            public int drainTo(List<Message> buf, int max) {
+                int n = 0;
+                Message m;
+                while (n < max && (m = q.poll()) != null) {
+                    buf.add(m);
+                    n++;
+                }
+                return n;
+            }
+        };
+    }
+
+    public enum QueueType {
+        ARRAYBLOCKINGQUEUE {
+            QueueOps create() { return blocking(new ArrayBlockingQueue<Message>(CAPACITY)); }
+        },
+        LINKEDBLOCKINGQUEUE {
+            QueueOps create() { return blocking(new LinkedBlockingQueue<Message>(CAPACITY)); }
+        },
+        LINKEDBLOCKINGDEQUE {
+            QueueOps create() { return blocking(new LinkedBlockingDeque<Message>(CAPACITY)); }
+        },
+        LINKEDTRANSFERQUEUE {
+            QueueOps create() { return blocking(new LinkedTransferQueue<Message>()); }
+        },
+        SYNCHRONOUSQUEUE {
+            QueueOps create() { return blocking(new SynchronousQueue<Message>()); }
+        },
+        CONCURRENTLINKEDQUEUE {
+            QueueOps create() { return nonBlocking(new ConcurrentLinkedQueue<Message>()); }
+        };
+
+        abstract QueueOps create();
+    }
+
+    public enum Mode { PUT, OFFER, DRAINTO }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"put", "offer", "drainTo"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("queue", new String[] {"ArrayBlockingQueue", "LinkedBlockingQueue",
+                                     "LinkedBlockingDeque", "LinkedTransferQueue",
+                                     "SynchronousQueue", "ConcurrentLinkedQueue"});
+        m.put("producers", new String[] {"1", "4"});
+        m.put("consumers", new String[] {"1", "4"});
+        m.put("messages", new String[] {"100000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        return new Exchange(p.getEnum("queue", QueueType.class).create(),
+                            Mode.valueOf(benchmark.toUpperCase()),
+                            p.getInt("producers"), p.getInt("consumers"),
+                            p.getInt("messages"));
+    }
+
+    /**
+     * 一次调用就是一轮完整的消息交换。
+     */
+    static final class Exchange implements MicroBenchmark.Workload {
+        final QueueOps q;
+        final Mode mode;
+        final int producers, consumers, messages;
+        final CyclicBarrier start;
+        final List<Thread> threads = new ArrayList<>();
+        final LatencyHistogram[] histograms;
+        volatile CountDownLatch producersDone, consumersDone;
+        volatile boolean stopped;
+        boolean measuring;
+        long measuredNanos, measuredMessages;
+
+        Exchange(QueueOps q, Mode mode, int producers, int consumers, int messages) {
+            this.q = q;
+            this.mode = mode;
+            this.producers = producers;
+            this.consumers = consumers;
+            this.messages = messages;
+            this.start = new CyclicBarrier(producers + consumers + 1);
+            this.histograms = new LatencyHistogram[consumers];
+        }
+
+        @Override
+        public void setup() {
+            int share = messages / producers;
+            for (int i = 0; i < producers; i++) {
+                // 最后一个生产者负责除不尽的部分；消息对象在各轮之间复用
+                Message[] batch = new Message[i == producers - 1 ? messages - share * i : share];
+                for (int k = 0; k < batch.length; k++)
+                    batch[k] = new Message();
+                threads.add(new Thread(() -> producerLoop(batch), "producer-" + i));
+            }
+            for (int i = 0; i < consumers; i++) {
+                LatencyHistogram h = histograms[i] = new LatencyHistogram();
+                threads.add(new Thread(() -> consumerLoop(h), "consumer-" + i));
+            }
+            for (Thread t : threads) {
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+
+        @Override
+        public void prepare() {
+            producersDone = new CountDownLatch(producers);
+            consumersDone = new CountDownLatch(consumers);
+        }
+
+        @Override
+        public void run(MicroBenchmark.Blackhole bh) throws Exception {
+            long t0 = System.nanoTime();
+            start.await();
+            producersDone.await();
+            // 所有消息都已入队，再给每个消费者一条退出消息。队列是 FIFO 的，
+            // 退出消息一定排在所有普通消息之后
+            for (int i = 0; i < consumers; i++)
+                send(POISON);
+            consumersDone.await();
+            if (measuring) {
+                measuredNanos += System.nanoTime() - t0;
+                measuredMessages += messages;
+            }
+        }
+
+        @Override
+        public void tearDown() {
+            stopped = true;
+            for (Thread t : threads)
+                t.interrupt();
+        }
+
+        @Override
+        public void beginMeasurement() {
+            // 测量开始时消费者都已在 start 上等待，不会并发修改直方图
+            for (LatencyHistogram h : histograms)
+                h.reset();
+            measuring = true;
+        }
+
+        @Override
+        public String report() {
+            LatencyHistogram all = new LatencyHistogram();
+            for (LatencyHistogram h : histograms)
+                all.add(h);
+            return String.format("msgs/s=%.0f %s",
+                measuredMessages * 1e9 / measuredNanos, all.summary());
+        }
+
+        private void send(Message m) throws InterruptedException {
+            if (mode == Mode.OFFER) {
+                while (!q.offer(m))
+                    Thread.yield();
+            } else {
+                q.put(m);
+            }
+        }
+
+        private void producerLoop(Message[] batch) {
+            try {
+                while (!stopped) {
+                    start.await();
+                    for (Message m : batch) {
+                        m.sentAt = System.nanoTime();
+                        send(m);
+                    }
+                    producersDone.countDown();
+                }
+            } catch (Exception ignore) {
+                // tearDown 中断线程后退出
+            }
+        }
+
+        private void consumerLoop(LatencyHistogram h) {
+            List<Message> buf = new ArrayList<>(CAPACITY);
+            try {
+                while (!stopped) {
+                    start.await();
+                    for (boolean done = false; !done; ) {
+                        Message m;
+                        if (mode == Mode.OFFER) {
+                            while ((m = q.poll()) == null)
+                                Thread.yield();
+                        } else {
+                            m = q.take();
+                        }
+                        buf.add(m);
+                        if (mode == Mode.DRAINTO)
+                            q.drainTo(buf, CAPACITY - 1);
+                        long now = System.nanoTime();
+                        for (int i = 0, n = buf.size(); i < n; i++) {
+                            Message x = buf.get(i);
+                            if (x == POISON) {
+                                // drainTo 可能同时取走了其它消费者的退出消息，放回队列
+                                for (int j = i + 1; j < n; j++)
+                                    send(buf.get(j));
+                                done = true;
+                                break;
+                            }
+                            h.record(now - x.sentAt);
+                        }
+                        buf.clear();
+                    }
+                    consumersDone.countDown();
+                }
+            } catch (Exception ignore) {
+                // tearDown 中断线程后退出
+            }
+        }
+    }
+}
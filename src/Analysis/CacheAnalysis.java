@@ -0,0 +1,169 @@
+package Analysis;
+
+import Collections.BoundedCache;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 有界缓存的命中率和单次访问开销对比。每次访问先 get，未命中时 put，
+ * 与应用中“查缓存，未命中再加载”的用法相同。
+ *
+ *   zipf  key 服从 Zipf 分布（s = 0.99，100000 个 key）；
+ *   scan  每 15000 次 Zipf 访问之后插入一段 5000 个只访问一次的 key，
+ *         模拟批量任务、全表扫描造成的缓存污染。
+ *
+ * 参与对比的缓存：
+ *   LinkedHashMapLRU  重写 removeEldestEntry 的访问顺序 LinkedHashMap；
+ *   LRU               BoundedCache 的纯 LRU 模式；
+ *   TinyLFU           BoundedCache 的 W-TinyLFU 准入模式。
+ *
+ * 附加结果中给出测量迭代中的命中率。
+ *
+ * 运行：java -cp out Analysis.CacheAnalysis
+ */
+public class CacheAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new CacheAnalysis());
+    }
+
+    static final int KEY_SPACE = 100000;
+    static final int TRACE_LENGTH = 1000000;
+
+    /**
+     * 统一几种缓存的操作。
+     */
+    interface Cache {
+        Object get(Object key);
+        void put(Object key, Object value);
+    }
+
+    public enum CacheType {
+        LINKEDHASHMAPLRU {
+            Cache create(int maximumSize) {
+                Collections.LinkedHashMap<Object, Object> m =
+                    new Collections.LinkedHashMap<Object, Object>(16, 0.75f, true) {
+                        protected boolean removeEldestEntry(Collections.Map.Entry<Object, Object> eldest) {
+                            return size() > maximumSize;
+                        }
+                    };
+                return new Cache() {
+                    public Object get(Object key) { return m.get(key); }
+                    public void put(Object key, Object value) { m.put(key, value); }
+                };
+            }
+        },
+        LRU {
+            Cache create(int maximumSize) {
+                return wrap(new BoundedCache<>(maximumSize));
+            }
+        },
+        TINYLFU {
+            Cache create(int maximumSize) {
+                return wrap(new BoundedCache<>(maximumSize, (k, v) -> 1, true));
+            }
+        };
+
+        abstract Cache create(int maximumSize);
+
+        static Cache wrap(BoundedCache<Object, Object> c) {
+            return new Cache() {
+                public Object get(Object key) { return c.get(key); }
+                public void put(Object key, Object value) { c.put(key, value); }
+            };
+        }
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"zipf", "scan"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("cache", new String[] {"LinkedHashMapLRU", "LRU", "TinyLFU"});
+        m.put("size", new String[] {"1000", "10000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        CacheType type = p.getEnum("cache", CacheType.class);
+        int size = p.getInt("size");
+        Object[] trace;
+        switch (benchmark) {
+            case "zipf":
+                trace = trace(0, 0);
+                break;
+            case "scan":
+                trace = trace(15000, 5000);
+                break;
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+        return new MicroBenchmark.Workload() {
+            Cache c;
+            long hits, requests;
+
+            public void setup() {
+                c = type.create(size);
+            }
+
+            public void run(MicroBenchmark.Blackhole bh) {
+                Cache c = this.c;
+                long hits = 0;
+                for (Object k : trace) {
+                    Object v = c.get(k);
+                    if (v == null)
+                        c.put(k, k);
+                    else
+                        hits++;
+                }
+                this.hits += hits;
+                requests += trace.length;
+                bh.consume(hits);
+            }
+
+            public void beginMeasurement() {
+                hits = requests = 0;
+            }
+
+            public String report() {
+                return String.format("hitRate=%.2f%%", 100.0 * hits / requests);
+            }
+        };
+    }
+
+    /**
+     * 生成访问序列。zipfRun 为 0 时全部是 Zipf 访问，否则每 zipfRun 次
+     * Zipf 访问之后插入 scanRun 个互不相同、不在 Zipf key 范围内的 key。
+     */
+    static Object[] trace(int zipfRun, int scanRun) {
+        Random r = new Random(42);
+        Integer[] keys = new Integer[KEY_SPACE];
+        double[] cdf = new double[KEY_SPACE];
+        double sum = 0;
+        for (int i = 0; i < KEY_SPACE; i++) {
+            keys[i] = i;
+            sum += 1.0 / Math.pow(i + 1, 0.99);
+            cdf[i] = sum;
+        }
+        // 热点 key 随机分布在整数范围内，不和 hash 表的低位对齐
+        MicroBenchmark.shuffle(keys);
+        Object[] trace = new Object[TRACE_LENGTH];
+        int scanKey = KEY_SPACE;
+        for (int i = 0; i < TRACE_LENGTH; ) {
+            for (int j = 0; (zipfRun == 0 || j < zipfRun) && i < TRACE_LENGTH; j++) {
+                int rank = Arrays.binarySearch(cdf, r.nextDouble() * sum);
+                trace[i++] = keys[Math.min(rank < 0 ? -rank - 1 : rank, KEY_SPACE - 1)];
+            }
+            for (int j = 0; j < scanRun && i < TRACE_LENGTH; j++)
+                trace[i++] = scanKey++;
+        }
+        return trace;
+    }
+}
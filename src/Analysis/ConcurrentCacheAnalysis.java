@@ -0,0 +1,177 @@
+package Analysis;
+
+import JUC.JUCCollections.ConcurrentLruCache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * 多线程访问下加全局锁的 LinkedHashMap LRU 和分段的 ConcurrentLruCache
+ * 的吞吐量对比。
+ *
+ * 每次调用由 threads 个线程一共完成 CacheAnalysis.TRACE_LENGTH 次访问
+ * （Zipf 分布，见 CacheAnalysis），每个线程负责访问序列中连续的一段。
+ * 每次访问先 get，未命中时 put。线程在 setup 中创建，之后每次调用通过
+ * CyclicBarrier 同时开始。结果表格中 1 op 等于完成全部访问，访问速率和
+ * 命中率在附加结果中给出。
+ *
+ *   SynchronizedLinkedHashMap  CacheAnalysis 中的 LinkedHashMapLRU，
+ *                              get 和 put 都在同一把锁内完成；
+ *   ConcurrentLruCache         16 段，get 不加锁。
+ *
+ * 运行：java -cp out Analysis.ConcurrentCacheAnalysis
+ */
+public class ConcurrentCacheAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new ConcurrentCacheAnalysis());
+    }
+
+    public enum CacheType {
+        SYNCHRONIZEDLINKEDHASHMAP {
+            CacheAnalysis.Cache create(int maximumSize) {
+                CacheAnalysis.Cache c = CacheAnalysis.CacheType.LINKEDHASHMAPLRU.create(maximumSize);
+                return new CacheAnalysis.Cache() {
+                    public synchronized Object get(Object key) { return c.get(key); }
+                    public synchronized void put(Object key, Object value) { c.put(key, value); }
+                };
+            }
+        },
+        CONCURRENTLRUCACHE {
+            CacheAnalysis.Cache create(int maximumSize) {
+                ConcurrentLruCache<Object, Object> c = new ConcurrentLruCache<>(maximumSize);
+                return new CacheAnalysis.Cache() {
+                    public Object get(Object key) { return c.get(key); }
+                    public void put(Object key, Object value) { c.put(key, value); }
+                };
+            }
+        };
+
+        abstract CacheAnalysis.Cache create(int maximumSize);
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"getOrPut"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("cache", new String[] {"SynchronizedLinkedHashMap", "ConcurrentLruCache"});
+        m.put("threads", new String[] {"1", "2", "4", "8", "16", "32", "64"});
+        m.put("size", new String[] {"10000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        if (!"getOrPut".equals(benchmark))
+            throw new IllegalArgumentException(benchmark);
+        return new Access(p.getEnum("cache", CacheType.class).create(p.getInt("size")),
+                          p.getInt("threads"));
+    }
+
+    static final class Access implements MicroBenchmark.Workload {
+        final CacheAnalysis.Cache c;
+        final int threads;
+        final CyclicBarrier start;
+        final List<Thread> workers = new ArrayList<>();
+        final long[] hits;
+        volatile CountDownLatch done;
+        volatile boolean stopped;
+        boolean measuring;
+        long measuredNanos, measuredAccesses, hitsAtStart;
+
+        Access(CacheAnalysis.Cache c, int threads) {
+            this.c = c;
+            this.threads = threads;
+            this.start = new CyclicBarrier(threads + 1);
+            // 每个线程的命中数相隔 16 个 long，避免伪共享
+            this.hits = new long[threads * 16];
+        }
+
+        @Override
+        public void setup() {
+            Object[] trace = CacheAnalysis.trace(0, 0);
+            int share = trace.length / threads;
+            for (int i = 0; i < threads; i++) {
+                int from = i * share, to = (i == threads - 1) ? trace.length : from + share, slot = i * 16;
+                workers.add(new Thread(() -> workerLoop(trace, from, to, slot), "worker-" + i));
+            }
+            for (Thread t : workers) {
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+
+        @Override
+        public void prepare() {
+            done = new CountDownLatch(threads);
+        }
+
+        @Override
+        public void run(MicroBenchmark.Blackhole bh) throws Exception {
+            long t0 = System.nanoTime();
+            start.await();
+            done.await();
+            if (measuring) {
+                measuredNanos += System.nanoTime() - t0;
+                measuredAccesses += CacheAnalysis.TRACE_LENGTH;
+            }
+        }
+
+        @Override
+        public void tearDown() {
+            stopped = true;
+            for (Thread t : workers)
+                t.interrupt();
+        }
+
+        @Override
+        public void beginMeasurement() {
+            // 测量开始时工作线程都已在 start 上等待
+            hitsAtStart = totalHits();
+            measuring = true;
+        }
+
+        @Override
+        public String report() {
+            return String.format("accesses/s=%.0f hitRate=%.2f%%",
+                measuredAccesses * 1e9 / measuredNanos,
+                100.0 * (totalHits() - hitsAtStart) / measuredAccesses);
+        }
+
+        private long totalHits() {
+            long sum = 0;
+            for (int i = 0; i < threads; i++)
+                sum += hits[i * 16];
+            return sum;
+        }
+
+        private void workerLoop(Object[] trace, int from, int to, int slot) {
+            CacheAnalysis.Cache c = this.c;
+            try {
+                while (!stopped) {
+                    start.await();
+                    long h = 0;
+                    for (int i = from; i < to; i++) {
+                        Object k = trace[i];
+                        if (c.get(k) == null)
+                            c.put(k, k);
+                        else
+                            h++;
+                    }
+                    hits[slot] += h;
+                    done.countDown();
+                }
+            } catch (Exception ignore) {
+                // tearDown 中断线程后退出
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package Analysis;
+
+import JUC.JUCCollections.ConcurrentStack;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * 多线程共享一个栈时的吞吐量对比。
+ *
+ * 每次调用由 threads 个线程一共完成 OPERATIONS 次 push、pop 对，每个
+ * 线程交替地压入一个元素、再弹出一个元素，所有线程都在同一个栈顶上
+ * 竞争。线程的创建和同步方式与 ConcurrentCacheAnalysis 相同。每个线程
+ * 的 pop 之前总有它自己的 push，栈在 pop 时不会为空。
+ *
+ *   Stack                      java.util.Stack，push、pop 加监视器锁；
+ *   ConcurrentLinkedDeque      java.util.concurrent.ConcurrentLinkedDeque
+ *                              的 push、pop；
+ *   ConcurrentStack            不使用消除数组的 Treiber 栈；
+ *   EliminationStack           使用消除数组的 ConcurrentStack。
+ *
+ * 只有一个 CPU 时 EliminationStack 和 ConcurrentStack 相同。
+ *
+ * 运行：java -cp out Analysis.ConcurrentStackAnalysis
+ */
+public class ConcurrentStackAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new ConcurrentStackAnalysis());
+    }
+
+    static final int OPERATIONS = 1 << 20;
+
+    /**
+     * 统一几种栈的操作。
+     */
+    interface StackOps {
+        void push(Object o);
+        Object pop();
+    }
+
+    public enum StackType {
+        STACK {
+            StackOps create() {
+                Stack<Object> st = new Stack<>();
+                return new StackOps() {
+                    public void push(Object o) { st.push(o); }
+                    public Object pop() { return st.pop(); }
+                };
+            }
+        },
+        CONCURRENTLINKEDDEQUE {
+            StackOps create() {
+                ConcurrentLinkedDeque<Object> deque = new ConcurrentLinkedDeque<>();
+                return new StackOps() {
+                    public void push(Object o) { deque.push(o); }
+                    public Object pop() { return deque.pop(); }
+                };
+            }
+        },
+        CONCURRENTSTACK {
+            StackOps create() {
+                ConcurrentStack<Object> st = new ConcurrentStack<>(false);
+                return new StackOps() {
+                    public void push(Object o) { st.push(o); }
+                    public Object pop() { return st.pop(); }
+                };
+            }
+        },
+        ELIMINATIONSTACK {
+            StackOps create() {
+                ConcurrentStack<Object> st = new ConcurrentStack<>(true);
+                return new StackOps() {
+                    public void push(Object o) { st.push(o); }
+                    public Object pop() { return st.pop(); }
+                };
+            }
+        };
+
+        abstract StackOps create();
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"pushPop"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("stack", new String[] {"Stack", "ConcurrentLinkedDeque", "ConcurrentStack", "EliminationStack"});
+        m.put("threads", new String[] {"1", "2", "4", "8", "16", "32"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        if (!"pushPop".equals(benchmark))
+            throw new IllegalArgumentException(benchmark);
+        return new PushPop(p.getEnum("stack", StackType.class).create(), p.getInt("threads"));
+    }
+
+    static final class PushPop implements MicroBenchmark.Workload {
+        final StackOps st;
+        final int threads;
+        final CyclicBarrier start;
+        final List<Thread> workers = new ArrayList<>();
+        volatile CountDownLatch done;
+        volatile boolean stopped;
+        boolean measuring;
+        long measuredNanos, measuredOperations;
+
+        PushPop(StackOps st, int threads) {
+            this.st = st;
+            this.threads = threads;
+            this.start = new CyclicBarrier(threads + 1);
+        }
+
+        @Override
+        public void setup() {
+            int share = OPERATIONS / threads;
+            for (int i = 0; i < threads; i++) {
+                int n = (i == threads - 1) ? OPERATIONS - share * (threads - 1) : share;
+                Integer item = i;
+                workers.add(new Thread(() -> workerLoop(item, n), "worker-" + i));
+            }
+            for (Thread t : workers) {
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+
+        @Override
+        public void prepare() {
+            done = new CountDownLatch(threads);
+        }
+
+        @Override
+        public void run(MicroBenchmark.Blackhole bh) throws Exception {
+            long t0 = System.nanoTime();
+            start.await();
+            done.await();
+            if (measuring) {
+                measuredNanos += System.nanoTime() - t0;
+                measuredOperations += OPERATIONS;
+            }
+        }
+
+        @Override
+        public void tearDown() {
+            stopped = true;
+            for (Thread t : workers)
+                t.interrupt();
+        }
+
+        @Override
+        public void beginMeasurement() {
+            measuring = true;
+        }
+
+        @Override
+        public String report() {
+            return String.format("pushPop/s=%.0f", measuredOperations * 1e9 / measuredNanos);
+        }
+
+        private void workerLoop(Object item, int n) {
+            StackOps st = this.st;
+            try {
+                while (!stopped) {
+                    start.await();
+                    for (int i = 0; i < n; i++) {
+                        st.push(item);
+                        st.pop();
+                    }
+                    done.countDown();
+                }
+            } catch (Exception ignore) {
+                // tearDown 中断线程后退出
+            }
+        }
+    }
+}
@@ -1,67 +1,104 @@
 package Analysis;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-public class FixedThreadPoolAnalysis {
+/**
+ * 单线程和固定大小线程池计算 n 个数之和的性能对比。参数为元素个数和
+ * 元素类型（long 表示 long[] 数组，其余表示对应包装类型的 Object[]
+ * 数组）。
+ *
+ * 线程池的任务通过 Future 取回部分和，保证测量的是计算本身，而不是
+ * 仅仅提交任务的时间。
+ *
+ * 运行：java -cp out Analysis.FixedThreadPoolAnalysis
+ */
+public class FixedThreadPoolAnalysis implements MicroBenchmark.Suite {
 
     public static void main(String[] args) {
-        int n = 1000000000;
-        long startTime = System.nanoTime();
-        test.singleThread(n);
-        long endTime = System.nanoTime();
-        System.out.println("单线程计算 10 次 1 + 2 + ... + " + n + " 的时间消耗: " + (endTime - startTime) + "ns");
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        startTime = System.nanoTime();
-        test.multiThread(n);
-        endTime = System.nanoTime();
-        System.out.println("多线程计算 10 次 1 + 2 + ... + " + n + " 的时间消耗: " + (endTime - startTime) + "ns");
+        MicroBenchmark.run(new FixedThreadPoolAnalysis());
     }
 
-    private static FixedThreadPoolAnalysis test = new FixedThreadPoolAnalysis();
-
-    private void singleThread(int n) {
-        long sum = 0L;
-        for (int k = 0; k < 10; k++) {
-            for (int i = 1; i <= n; i++)
-                sum += i;
-        }
-        System.out.println(Thread.currentThread().getName() + " -> " + sum);
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"singleThread", "multiThread"};
     }
 
-    private void multiThread(int n) {
-        int cpus = Runtime.getRuntime().availableProcessors();
-        ExecutorService fixedThreadPool = Executors.newFixedThreadPool(cpus + 1);
-        int interval = n / (cpus + 1);
-        for (int k = 0; k < 10; k++) {
-            for (int i = 0; i < cpus; i++) {
-                int left = i * interval + 1;
-                int right = (i + 1) * interval;
-                Runnable task = new Run(left, right);
-                fixedThreadPool.execute(task);
-            }
-        }
-        fixedThreadPool.shutdown();
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("n", new String[] {"100000", "10000000"});
+        m.put("type", new String[] {"long", "Long", "Integer"});
+        return m;
     }
 
-    class Run implements Runnable{
-        private int left;
-        private int right;
-        Run(int left, int right) {
-            this.left = left;
-            this.right = right;
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        int n = p.getInt("n");
+        String type = p.get("type");
+        Summer summer;
+        if ("long".equals(type)) {
+            long[] a = new long[n];
+            for (int i = 0; i < n; i++)
+                a[i] = i + 1;
+            summer = (left, right) -> {
+                long sum = 0L;
+                for (int i = left; i < right; i++)
+                    sum += a[i];
+                return sum;
+            };
+        } else {
+            Object[] a = MicroBenchmark.ElementType.valueOf(type.toUpperCase()).generate(n);
+            summer = (left, right) -> {
+                long sum = 0L;
+                for (int i = left; i < right; i++)
+                    sum += ((Number) a[i]).longValue();
+                return sum;
+            };
         }
-        @Override
-        public void run() {
-            long sum = 0L;
-            for (int i = left; i <= right; i++) {
-                sum += i;
-            }
-            System.out.println(Thread.currentThread().getName() + " -> " + sum);
+        switch (benchmark) {
+            case "singleThread":
+                return bh -> bh.consume(summer.sum(0, n));
+            case "multiThread":
+                return new MicroBenchmark.Workload() {
+                    final int cpus = Runtime.getRuntime().availableProcessors();
+                    final List<Callable<Long>> tasks = new ArrayList<>(cpus);
+                    ExecutorService fixedThreadPool;
+
+                    public void setup() {
+                        fixedThreadPool = Executors.newFixedThreadPool(cpus);
+                        int interval = (n + cpus - 1) / cpus;
+                        for (int i = 0; i < cpus; i++) {
+                            int left = Math.min(n, i * interval);
+                            int right = Math.min(n, left + interval);
+                            tasks.add(() -> summer.sum(left, right));
+                        }
+                    }
+
+                    public void run(MicroBenchmark.Blackhole bh) throws Exception {
+                        long sum = 0L;
+                        for (Future<Long> f : fixedThreadPool.invokeAll(tasks))
+                            sum += f.get();
+                        bh.consume(sum);
+                    }
+
+                    public void tearDown() {
+                        fixedThreadPool.shutdown();
+                    }
+                };
+            default:
+                throw new IllegalArgumentException(benchmark);
         }
     }
+
+    // 计算 [left, right) 区间内元素之和
+    interface Summer {
+        long sum(int left, int right);
+    }
 }
@@ -0,0 +1,121 @@
+package Analysis;
+
+import Collections.FrozenHashMap;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collections.HashMap 和由它冻结得到的 FrozenHashMap 的查找性能对比。
+ *
+ *   get      查找存在的 key，顺序随机打乱；
+ *   getMiss  查找不存在的 key（和存在的 key 类型相同）。
+ *
+ * FrozenHashMap 的每个位置都存放着一个 key，查找不存在的 key 时也要读取
+ * 该位置的 key 对象并比较 hash 值；HashMap 在加载因子以下有大量空桶，
+ * 落在空桶上可以直接返回。因此 getMiss 中 HashMap 可能更快。
+ *
+ * 附加结果中给出每个映射大致占用的堆内存：在 setup 中 GC 前后比较
+ * 构造 map 前后的已用堆大小，key 和 value 对象本身不计入（两种 map
+ * 共享同一组 key 和 value）。
+ *
+ * 运行：java -cp out Analysis.FrozenMapAnalysis
+ */
+public class FrozenMapAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new FrozenMapAnalysis());
+    }
+
+    /**
+     * 统一两种 map 的查找。Collections.HashMap 实现的是 Collections.Map，
+     * 不是 java.util.Map。
+     */
+    interface Lookup {
+        Object get(Object key);
+    }
+
+    public enum MapType {
+        HASHMAP {
+            Lookup create(Map<Object, Object> source) {
+                // 与 HashMap(Map) 构造方法相同的初始容量
+                Collections.HashMap<Object, Object> m =
+                    new Collections.HashMap<>((int) (source.size() / 0.75f) + 1);
+                source.forEach(m::put);
+                return m::get;
+            }
+        },
+        FROZENHASHMAP {
+            Lookup create(Map<Object, Object> source) {
+                return FrozenHashMap.freeze(source)::get;
+            }
+        };
+
+        abstract Lookup create(Map<Object, Object> source);
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"get", "getMiss"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("map", new String[] {"HashMap", "FrozenHashMap"});
+        m.put("n", new String[] {"1000", "1000000"});
+        m.put("type", new String[] {"Integer", "String"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        MapType type = p.getEnum("map", MapType.class);
+        int n = p.getInt("n");
+        MicroBenchmark.ElementType elementType = p.getEnum("type", MicroBenchmark.ElementType.class);
+        // 前 n 个元素作为 key，后 n 个作为不存在的 key
+        Object[] all = elementType.generate(2 * n);
+        Object[] keys = new Object[n], misses = new Object[n];
+        System.arraycopy(all, 0, keys, 0, n);
+        System.arraycopy(all, n, misses, 0, n);
+        MicroBenchmark.shuffle(keys);
+        MicroBenchmark.shuffle(misses);
+        Object[] probes;
+        switch (benchmark) {
+            case "get":
+                probes = keys;
+                break;
+            case "getMiss":
+                probes = misses;
+                break;
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+        return new MicroBenchmark.Workload() {
+            Lookup m;
+            long footprint;
+
+            public void setup() {
+                Map<Object, Object> source = new HashMap<>();
+                for (Object k : keys)
+                    source.put(k, k);
+                long before = MicroBenchmark.usedHeap();
+                m = type.create(source);
+                footprint = MicroBenchmark.usedHeap() - before;
+                // 构造 HashMap 副本时 source 仍然可达，不影响测量
+                source.clear();
+            }
+
+            public void run(MicroBenchmark.Blackhole bh) {
+                Lookup m = this.m;
+                for (Object k : probes)
+                    bh.consume(m.get(k));
+            }
+
+            public String report() {
+                return String.format("footprint=%.1f B/entry", (double) footprint / n);
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package Analysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Collection;
+
+/**
+ * 基于 HashMap 的 HashSet（java.util.HashSet，与此前 Collections.HashSet
+ * 的实现相同）、使用独立 hash 表的 Collections.HashSet 和开放定址的
+ * Collections.OpenHashSet 的对比。
+ *
+ *   contains      查找存在的元素，顺序随机打乱；
+ *   containsMiss  查找不存在的元素；
+ *   add           向空集合中添加 n 个元素（包括扩容）。
+ *
+ * 附加结果中给出每个元素大致占用的堆内存（不包括元素对象本身）。
+ *
+ * 运行：java -cp out Analysis.HashSetAnalysis
+ */
+public class HashSetAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new HashSetAnalysis());
+    }
+
+    public enum SetType {
+        HASHMAPBACKED {
+            Collection<Object> create() { return new java.util.HashSet<>(); }
+        },
+        HASHSET {
+            Collection<Object> create() { return new Collections.HashSet<>(); }
+        },
+        OPENHASHSET {
+            Collection<Object> create() { return new Collections.OpenHashSet<>(); }
+        };
+
+        abstract Collection<Object> create();
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"contains", "containsMiss", "add"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("set", new String[] {"HashMapBacked", "HashSet", "OpenHashSet"});
+        m.put("n", new String[] {"1000", "1000000"});
+        m.put("type", new String[] {"Integer", "String"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        SetType type = p.getEnum("set", SetType.class);
+        int n = p.getInt("n");
+        // 前 n 个元素放入集合，后 n 个用于查找不存在的元素
+        Object[] all = p.getEnum("type", MicroBenchmark.ElementType.class).generate(2 * n);
+        Object[] elements = new Object[n], misses = new Object[n];
+        System.arraycopy(all, 0, elements, 0, n);
+        System.arraycopy(all, n, misses, 0, n);
+        MicroBenchmark.shuffle(elements);
+        MicroBenchmark.shuffle(misses);
+        switch (benchmark) {
+            case "contains":
+            case "containsMiss":
+                Object[] probes = "contains".equals(benchmark) ? elements : misses;
+                return new MicroBenchmark.Workload() {
+                    Collection<Object> s;
+                    long footprint;
+
+                    public void setup() {
+                        long before = MicroBenchmark.usedHeap();
+                        s = type.create();
+                        for (Object e : elements)
+                            s.add(e);
+                        footprint = MicroBenchmark.usedHeap() - before;
+                    }
+
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        Collection<Object> s = this.s;
+                        for (Object e : probes)
+                            bh.consume(s.contains(e));
+                    }
+
+                    public String report() {
+                        return String.format("footprint=%.1f B/element", (double) footprint / n);
+                    }
+                };
+            case "add":
+                return new MicroBenchmark.Workload() {
+                    Collection<Object> s;
+
+                    public void prepare() {
+                        s = type.create();
+                    }
+
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        Collection<Object> s = this.s;
+                        for (Object e : elements)
+                            s.add(e);
+                        bh.consume(s);
+                    }
+                };
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+}
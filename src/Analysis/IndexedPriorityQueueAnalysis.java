@@ -0,0 +1,192 @@
+package Analysis;
+
+import Collections.IndexedPriorityQueue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * PriorityQueue 和不同叉数的 IndexedPriorityQueue 的对比。
+ *
+ *   dijkstra  在 n 个顶点、每个顶点 DEGREE 条出边的随机有向图上求
+ *             单源最短路径。IndexedPriorityQueue 每个顶点一个句柄，
+ *             找到更短的路径时 update（decreaseKey）；PriorityQueue
+ *             不能修改优先级，采用常见的延迟删除：直接加入新的
+ *             (顶点, 距离)，出队时跳过已经确定最短距离的顶点，队列中
+ *             最多有边数个元素。
+ *   addPoll   加入 n 个随机的元素，再全部出队。
+ *
+ * 用 remove(Object) 加重新 add 实现 decreaseKey 每次要 O(n)，n 较大时
+ * 无法在合理时间内完成，这里不参与对比。
+ *
+ * 运行：java -cp out Analysis.IndexedPriorityQueueAnalysis
+ */
+public class IndexedPriorityQueueAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new IndexedPriorityQueueAnalysis());
+    }
+
+    static final int DEGREE = 8;
+
+    /**
+     * 队列中的元素：顶点和从源点到它的距离，按距离排序。
+     */
+    static final class Entry {
+        final int vertex;
+        final long dist;
+
+        Entry(int vertex, long dist) {
+            this.vertex = vertex;
+            this.dist = dist;
+        }
+    }
+
+    static final Comparator<Entry> BY_DIST = (a, b) -> Long.compare(a.dist, b.dist);
+
+    /**
+     * 邻接表形式的图，顶点 v 的出边为 targets[offsets[v]] 到
+     * targets[offsets[v + 1] - 1]，权重在 weights 中。
+     */
+    static final class Graph {
+        final int[] offsets, targets, weights;
+
+        Graph(int n, long seed) {
+            Random r = new Random(seed);
+            offsets = new int[n + 1];
+            targets = new int[n * DEGREE];
+            weights = new int[n * DEGREE];
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] = offsets[v] + DEGREE;
+                for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+                    targets[j] = r.nextInt(n);
+                    weights[j] = 1 + r.nextInt(1000);
+                }
+            }
+        }
+
+        int size() {
+            return offsets.length - 1;
+        }
+    }
+
+    public enum QueueType {
+        PRIORITYQUEUE {
+            long[] dijkstra(Graph g) {
+                long[] dist = new long[g.size()];
+                Arrays.fill(dist, Long.MAX_VALUE);
+                PriorityQueue<Entry> pq = new PriorityQueue<>(BY_DIST);
+                dist[0] = 0;
+                pq.add(new Entry(0, 0));
+                Entry e;
+                while ((e = pq.poll()) != null) {
+                    int v = e.vertex;
+                    if (e.dist > dist[v])
+                        continue; // 过期的元素
+                    for (int j = g.offsets[v]; j < g.offsets[v + 1]; j++) {
+                        int w = g.targets[j];
+                        long nd = e.dist + g.weights[j];
+                        if (nd < dist[w]) {
+                            dist[w] = nd;
+                            pq.add(new Entry(w, nd));
+                        }
+                    }
+                }
+                return dist;
+            }
+
+            void addPoll(long[] keys, MicroBenchmark.Blackhole bh) {
+                PriorityQueue<Long> pq = new PriorityQueue<>();
+                for (long k : keys)
+                    pq.add(k);
+                Long k;
+                while ((k = pq.poll()) != null)
+                    bh.consume(k);
+            }
+        },
+        INDEXED2 {
+            int arity() { return 2; }
+        },
+        INDEXED4 {
+            int arity() { return 4; }
+        },
+        INDEXED8 {
+            int arity() { return 8; }
+        };
+
+        int arity() {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        long[] dijkstra(Graph g) {
+            int n = g.size();
+            long[] dist = new long[n];
+            Arrays.fill(dist, Long.MAX_VALUE);
+            IndexedPriorityQueue.Handle<Entry>[] handles =
+                (IndexedPriorityQueue.Handle<Entry>[]) new IndexedPriorityQueue.Handle<?>[n];
+            IndexedPriorityQueue<Entry> pq = new IndexedPriorityQueue<>(arity(), BY_DIST);
+            dist[0] = 0;
+            handles[0] = pq.add(new Entry(0, 0));
+            Entry e;
+            while ((e = pq.poll()) != null) {
+                int v = e.vertex;
+                for (int j = g.offsets[v]; j < g.offsets[v + 1]; j++) {
+                    int w = g.targets[j];
+                    long nd = e.dist + g.weights[j];
+                    if (nd < dist[w]) {
+                        dist[w] = nd;
+                        IndexedPriorityQueue.Handle<Entry> h = handles[w];
+                        if (h == null)
+                            handles[w] = pq.add(new Entry(w, nd));
+                        else
+                            pq.update(h, new Entry(w, nd));
+                    }
+                }
+            }
+            return dist;
+        }
+
+        void addPoll(long[] keys, MicroBenchmark.Blackhole bh) {
+            IndexedPriorityQueue<Long> pq = new IndexedPriorityQueue<>(arity(), null);
+            for (long k : keys)
+                pq.add(k);
+            Long k;
+            while ((k = pq.poll()) != null)
+                bh.consume(k);
+        }
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"dijkstra", "addPoll"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("queue", new String[] {"PriorityQueue", "Indexed2", "Indexed4", "Indexed8"});
+        m.put("n", new String[] {"10000", "1000000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        QueueType type = p.getEnum("queue", QueueType.class);
+        int n = p.getInt("n");
+        switch (benchmark) {
+            case "dijkstra":
+                Graph g = new Graph(n, 42);
+                return bh -> bh.consume(type.dijkstra(g));
+            case "addPoll":
+                long[] keys = new Random(42).longs(n).toArray();
+                return bh -> type.addPoll(keys, bh);
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+}
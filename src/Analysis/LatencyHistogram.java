@@ -0,0 +1,110 @@
+package Analysis;
+
+import java.util.Arrays;
+
+/**
+ * 记录纳秒级延迟的对数-线性直方图，思路与 HdrHistogram 相同。
+ *
+ * 值按照最高有效位分成若干段（每段是上一段的两倍宽），每段再均分成
+ * SUB_BUCKETS 个子桶，所以相对误差不超过 1 / SUB_BUCKETS（约 3%）。
+ * 小于 SUB_BUCKETS 的值直接计数，没有误差。
+ *
+ * record 只做几次位运算和一次数组自增，不分配对象。此类不是线程安全
+ * 的，多线程测试中每个线程使用自己的直方图，结束后用 add 合并。
+ */
+public final class LatencyHistogram {
+
+    // 每段的子桶个数，必须是 2 的幂
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // 64 位 long 最多 64 - SUB_BITS + 1 段
+    private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+    private long total;
+    private long max;
+
+    // 值 v 所在桶的下标
+    private static int index(long v) {
+        if (v < SUB_BUCKETS)
+            return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        // shift + 1 为段号，(v >>> shift) 的低 SUB_BITS 位为段内的子桶号
+        return ((shift + 1) << SUB_BITS) + (int) ((v >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // 下标为 i 的桶所能表示的最大值
+    private static long highestValue(int i) {
+        if (i < SUB_BUCKETS)
+            return i;
+        int shift = (i >>> SUB_BITS) - 1;
+        long base = (long) (SUB_BUCKETS | (i & (SUB_BUCKETS - 1))) << shift;
+        return base + (1L << shift) - 1;
+    }
+
+    /**
+     * 记录一个值，负数记为 0。
+     */
+    public void record(long v) {
+        if (v < 0)
+            v = 0;
+        counts[index(v)]++;
+        total++;
+        if (v > max)
+            max = v;
+    }
+
+    /**
+     * 把另一个直方图的数据合并到此直方图。
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        total += other.total;
+        if (other.max > max)
+            max = other.max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        total = 0L;
+        max = 0L;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    /**
+     * 返回 p 分位数（0 < p <= 100）的近似值：满足至少 p% 的记录小于或
+     * 等于它的最小桶的上界。没有记录时返回 0。
+     */
+    public long percentile(double p) {
+        if (total == 0)
+            return 0L;
+        long rank = (long) Math.ceil(p / 100.0 * total);
+        if (rank < 1)
+            rank = 1;
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(highestValue(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * 常用分位数的摘要，单位为纳秒。
+     */
+    public String summary() {
+        return "n=" + total +
+            " p50=" + percentile(50) + "ns" +
+            " p99=" + percentile(99) + "ns" +
+            " p99.9=" + percentile(99.9) + "ns" +
+            " max=" + max + "ns";
+    }
+}
@@ -1,82 +1,165 @@
 package Analysis;
 
-import java.lang.reflect.Method;
+import Collections.LinkedList;
+import Collections.UnrolledLinkedList;
+
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 
-public class LinkedListAnalysis {
+/**
+ * ArrayList、LinkedList 和 UnrolledLinkedList 在尾部添加、任意位置查找、
+ * 尾部删除 n 次，顺序遍历，以及通过 ListIterator 在中间连续插入 n 个
+ * 元素时的性能对比，参数为列表类型、元素个数和元素类型。
+ *
+ * LinkedList 为 Collections.LinkedList，按索引访问时从最近访问的节点
+ * （finger）开始查找；JdkLinkedList 为 java.util.LinkedList，每次从
+ * 首尾开始查找，作为 getNTimes 的对照。
+ *
+ * 运行：java -cp out Analysis.LinkedListAnalysis
+ */
+public class LinkedListAnalysis implements MicroBenchmark.Suite {
 
     public static void main(String[] args) {
-        LinkedListAnalysis lla = new LinkedListAnalysis();
-        ArrayList<Integer> al = new ArrayList<>();
-        LinkedList<Integer> ll = new LinkedList<>();
-        int n = 500000;
-        for (int i = 0; i < 100; i++) {
-            al.add(i);
-            ll.add(i);
-        }
-        for (int i = 0; i < func.length; i++) {
-            String algorithm = func[i];
-            long startTimeA = System.nanoTime();
-            try {
-                lla.callForFuncByName(algorithm, al, n);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            long endTimeA = System.nanoTime();
-            System.out.println("ArrayList" + hm.get(algorithm) + n + " 次的时间消耗: " + (endTimeA - startTimeA) + "ns");
-            long startTimeL = System.nanoTime();
-            try {
-                lla.callForFuncByName(algorithm, ll, n);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-            long endTimeL = System.nanoTime();
-            System.out.println("LinkedList" + hm.get(algorithm) + n + " 次的时间消耗: " + (endTimeL - startTimeL) + "ns");
-        }
+        MicroBenchmark.run(new LinkedListAnalysis());
     }
 
-    public static final String[] func = {"addNTimes", "getNTimes", "deleteNTimes"};
+    public static final String[] func = {"addNTimes", "getNTimes", "deleteNTimes",
+                                         "iterateNTimes", "insertMiddleNTimes"};
 
-    public static final HashMap<String, String> hm = new HashMap<String, String>() {
-        {
-            put("addNTimes", " 尾部添加 ");
-            put("getNTimes", " 任意位置查找 ");
-            put("deleteNTimes", " 尾部删除 ");
-        }
-    };
+    public enum ListType {
+        ARRAYLIST {
+            List<Object> create() { return new ArrayList<>(); }
+        },
+        LINKEDLIST {
+            List<Object> create() { return new LinkedList<>(); }
+        },
+        JDKLINKEDLIST {
+            List<Object> create() { return new java.util.LinkedList<>(); }
+        },
+        UNROLLEDLINKEDLIST {
+            List<Object> create() { return new UnrolledLinkedList<>(); }
+        };
+
+        abstract List<Object> create();
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return func;
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("list", new String[] {"ArrayList", "LinkedList", "JdkLinkedList", "UnrolledLinkedList"});
+        m.put("n", new String[] {"1000", "10000"});
+        m.put("type", new String[] {"Integer", "String"});
+        return m;
+    }
 
-    public void callForFuncByName(String al, List<Integer> l, int n) throws Exception {
-        if (al == null || al.length() == 0)
-            throw new NumberFormatException();
-        Method method = this.getClass().getMethod(al, List.class, Integer.class);
-        method.invoke(this, l, n);
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        ListType listType = p.getEnum("list", ListType.class);
+        int n = p.getInt("n");
+        Object[] elements = p.getEnum("type", MicroBenchmark.ElementType.class).generate(n);
+        switch (benchmark) {
+            case "addNTimes":
+                return new MicroBenchmark.Workload() {
+                    List<Object> l;
+                    public void prepare() { l = listType.create(); }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        addNTimes(l, elements, n);
+                        bh.consume(l);
+                    }
+                };
+            case "getNTimes":
+                return new MicroBenchmark.Workload() {
+                    List<Object> l;
+                    public void setup() {
+                        l = listType.create();
+                        addNTimes(l, elements, n);
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        getNTimes(l, n, bh);
+                    }
+                };
+            case "deleteNTimes":
+                return new MicroBenchmark.Workload() {
+                    List<Object> l;
+                    public void setup() { l = listType.create(); }
+                    public void prepare() { addNTimes(l, elements, n); }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        deleteNTimes(l, n, bh);
+                    }
+                };
+            case "iterateNTimes":
+                return new MicroBenchmark.Workload() {
+                    List<Object> l;
+                    public void setup() {
+                        l = listType.create();
+                        addNTimes(l, elements, n);
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        iterateNTimes(l, bh);
+                    }
+                };
+            case "insertMiddleNTimes":
+                return new MicroBenchmark.Workload() {
+                    List<Object> l;
+                    public void prepare() {
+                        l = listType.create();
+                        addNTimes(l, elements, n);
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        insertMiddleNTimes(l, elements, n);
+                        bh.consume(l);
+                    }
+                };
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
     }
 
     // 在列表尾部添加 n 次
-    public void addNTimes(List<Integer> l, Integer n) {
+    public static void addNTimes(List<Object> l, Object[] elements, int n) {
         for (int i = 0; i < n; i++) {
-            l.add(i);
+            l.add(elements[i]);
         }
     }
 
     // 在列表尾部删除 n 次
-    public void deleteNTimes(List<Integer> l, Integer n) {
+    public static void deleteNTimes(List<Object> l, int n, MicroBenchmark.Blackhole bh) {
         if (l.size() < n)
-            throw new NullPointerException();
+            throw new IllegalStateException();
         for (int i = 0; i < n; i++) {
-            l.remove(l.size() - 1);
+            bh.consume(l.remove(l.size() - 1));
         }
     }
 
     // 在列表任意位置查找 n 次
-    public void getNTimes(List<Integer> l, Integer n) {
+    public static void getNTimes(List<Object> l, int n, MicroBenchmark.Blackhole bh) {
         if (l.size() < n)
-            throw new NullPointerException();
+            throw new IllegalStateException();
         for (int k = 0; k < n; k++) {
-            l.get(k);
+            bh.consume(l.get(k));
+        }
+    }
+
+    // 顺序遍历整个列表
+    public static void iterateNTimes(List<Object> l, MicroBenchmark.Blackhole bh) {
+        for (Object o : l) {
+            bh.consume(o);
+        }
+    }
+
+    // 在列表中间位置通过 ListIterator 连续插入 n 次
+    public static void insertMiddleNTimes(List<Object> l, Object[] elements, int n) {
+        ListIterator<Object> it = l.listIterator(l.size() / 2);
+        for (int i = 0; i < n; i++) {
+            it.add(elements[i]);
         }
     }
 }
@@ -0,0 +1,197 @@
+package Analysis;
+
+import Collections.LongTreeSet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * TreeSet<Long> 和 LongTreeSet 的对比，元素为 n 个随机的 long。
+ *
+ *   contains   LOOKUPS 次随机查找，一半存在一半不存在；
+ *   floor      LOOKUPS 次随机的 floor 查询；
+ *   rangeScan  SCANS 次范围查询，每次用 subSet 取出连续的 SCAN_LENGTH
+ *              个元素并遍历；
+ *   add        从空集合开始插入 n 个随机的元素。
+ *
+ * 除了 add，集合都预先构造好，run 只做查询。TreeSet 的查询参数预先装箱，
+ * 只比较结构本身。
+ *
+ *   TreeSet      java.util.TreeSet<Long>；
+ *   LongTreeSet  节点容量 64。
+ *
+ * 运行：java -cp out Analysis.LongTreeSetAnalysis
+ */
+public class LongTreeSetAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new LongTreeSetAnalysis());
+    }
+
+    static final int LOOKUPS = 1 << 20;
+    static final int SCANS = 1 << 12;
+    static final int SCAN_LENGTH = 100;
+
+    public enum SetType {
+        TREESET {
+            MicroBenchmark.Workload contains(long[] keys, long[] probes) {
+                TreeSet<Long> s = boxed(keys);
+                Long[] p = box(probes);
+                return bh -> {
+                    int hits = 0;
+                    for (Long k : p)
+                        if (s.contains(k))
+                            hits++;
+                    bh.consume(hits);
+                };
+            }
+
+            MicroBenchmark.Workload floor(long[] keys, long[] probes) {
+                TreeSet<Long> s = boxed(keys);
+                Long[] p = box(probes);
+                return bh -> {
+                    long sum = 0;
+                    for (Long k : p) {
+                        Long f = s.floor(k);
+                        if (f != null)
+                            sum += f;
+                    }
+                    bh.consume(sum);
+                };
+            }
+
+            MicroBenchmark.Workload rangeScan(long[] keys, long[] from, long[] to) {
+                TreeSet<Long> s = boxed(keys);
+                Long[] f = box(from), t = box(to);
+                return bh -> {
+                    long sum = 0;
+                    for (int i = 0; i < f.length; i++)
+                        for (Long e : s.subSet(f[i], true, t[i], false))
+                            sum += e;
+                    bh.consume(sum);
+                };
+            }
+
+            MicroBenchmark.Workload add(long[] keys) {
+                return bh -> bh.consume(boxed(keys));
+            }
+        },
+        LONGTREESET {
+            MicroBenchmark.Workload contains(long[] keys, long[] probes) {
+                LongTreeSet s = primitive(keys);
+                return bh -> {
+                    int hits = 0;
+                    for (long k : probes)
+                        if (s.contains(k))
+                            hits++;
+                    bh.consume(hits);
+                };
+            }
+
+            MicroBenchmark.Workload floor(long[] keys, long[] probes) {
+                LongTreeSet s = primitive(keys);
+                return bh -> {
+                    long sum = 0;
+                    for (long k : probes)
+                        sum += s.floor(k, 0L);
+                    bh.consume(sum);
+                };
+            }
+
+            MicroBenchmark.Workload rangeScan(long[] keys, long[] from, long[] to) {
+                LongTreeSet s = primitive(keys);
+                return bh -> {
+                    long sum = 0;
+                    for (int i = 0; i < from.length; i++)
+                        for (PrimitiveIterator.OfLong it = s.subSet(from[i], true, to[i], false).iterator(); it.hasNext(); )
+                            sum += it.nextLong();
+                    bh.consume(sum);
+                };
+            }
+
+            MicroBenchmark.Workload add(long[] keys) {
+                return bh -> bh.consume(primitive(keys));
+            }
+        };
+
+        abstract MicroBenchmark.Workload contains(long[] keys, long[] probes);
+        abstract MicroBenchmark.Workload floor(long[] keys, long[] probes);
+        abstract MicroBenchmark.Workload rangeScan(long[] keys, long[] from, long[] to);
+        abstract MicroBenchmark.Workload add(long[] keys);
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"contains", "floor", "rangeScan", "add"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("set", new String[] {"TreeSet", "LongTreeSet"});
+        m.put("n", new String[] {"10000", "1000000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        SetType type = p.getEnum("set", SetType.class);
+        int n = p.getInt("n");
+        Random r = new Random(42);
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = r.nextLong();
+        switch (benchmark) {
+            case "contains": {
+                long[] probes = new long[LOOKUPS];
+                for (int i = 0; i < LOOKUPS; i++)
+                    probes[i] = (i & 1) == 0 ? keys[r.nextInt(n)] : r.nextLong();
+                return type.contains(keys, probes);
+            }
+            case "floor": {
+                long[] probes = new long[LOOKUPS];
+                for (int i = 0; i < LOOKUPS; i++)
+                    probes[i] = r.nextLong();
+                return type.floor(keys, probes);
+            }
+            case "rangeScan": {
+                long[] sorted = primitive(keys).toArray();
+                long[] from = new long[SCANS], to = new long[SCANS];
+                for (int i = 0; i < SCANS; i++) {
+                    int s = r.nextInt(sorted.length - SCAN_LENGTH);
+                    from[i] = sorted[s];
+                    to[i] = sorted[s + SCAN_LENGTH];
+                }
+                return type.rangeScan(keys, from, to);
+            }
+            case "add":
+                return type.add(keys);
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+
+    static TreeSet<Long> boxed(long[] keys) {
+        TreeSet<Long> s = new TreeSet<>();
+        for (long k : keys)
+            s.add(k);
+        return s;
+    }
+
+    static LongTreeSet primitive(long[] keys) {
+        LongTreeSet s = new LongTreeSet();
+        for (long k : keys)
+            s.add(k);
+        return s;
+    }
+
+    static Long[] box(long[] a) {
+        Long[] b = new Long[a.length];
+        for (int i = 0; i < a.length; i++)
+            b[i] = a[i];
+        return b;
+    }
+}
@@ -0,0 +1,547 @@
+package Analysis;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Analysis 包中各个性能测试共用的微基准测试框架。
+ *
+ * 直接用 System.nanoTime() 包住一次调用得到的数字并不可信：没有预热，
+ * JIT 编译发生在测量过程中；只跑一次，噪声无法估计；结果没有被使用，
+ * 整段循环可能被当作死代码消除；所有测试跑在同一个 JVM 里，前一个测试
+ * 留下的 profile 会影响后一个测试的内联决策。
+ *
+ * 此类按照 JMH 的思路解决上面的问题：
+ * 1. 每组参数在独立的 JVM 中运行（fork），默认 fork 一次；
+ * 2. 先执行若干轮预热迭代，再执行若干轮测量迭代，每轮持续固定时间；
+ * 3. 测试代码把结果交给 Blackhole，防止被 JIT 消除；
+ * 4. 每次调用前的准备工作（prepare）不计入耗时；
+ * 5. 同时报告吞吐量（ops/s）、平均耗时（ns/op）和分配速率（MB/s，B/op）。
+ *
+ * 此类不依赖任何第三方库，用 javac 直接编译即可运行，适合快速比较。
+ * 需要可信的数字时使用 jmh 目录下的 Maven 模块：同一个 Suite 由 JMH
+ * 负责 fork、预热、计时和 Blackhole（见 jmh/README.md）。
+ *
+ * 测试类实现 Suite 接口，声明测试名称和参数空间，由 run 方法对参数做
+ * 笛卡尔积逐一测量。可以通过系统属性调整测量配置：
+ *   -Dbench.forks=1 -Dbench.warmups=5 -Dbench.iterations=5 -Dbench.time=1000
+ *   -Dbench.filter=getNTimes
+ * forks 为 0 时在当前 JVM 中直接运行，只适合调试。
+ *
+ * @August 分配速率通过 com.sun.management.ThreadMXBean 统计所有存活线程的
+ *         分配字节数，测量期间结束的线程的分配量无法统计；计时只包含
+ *         run 本身，每次调用都读取 nanoTime，耗时很短的 run 会被计时
+ *         开销放大。这两点都以 JMH 模块的结果为准（分配用 -prof gc）。
+ */
+public final class MicroBenchmark {
+
+    private MicroBenchmark() {}
+
+    /**
+     * 一组测试用例。实现类必须有无参构造函数，fork 出来的子 JVM 通过
+     * 反射创建实例。
+     */
+    public interface Suite {
+
+        /**
+         * 测试名称，按照返回的顺序执行。
+         */
+        String[] benchmarks();
+
+        /**
+         * 参数空间，key 为参数名，value 为参数的所有取值。使用
+         * LinkedHashMap 以保证输出顺序。
+         */
+        Map<String, String[]> parameters();
+
+        /**
+         * 根据测试名称和一组具体参数创建测试负载。
+         */
+        Workload create(String benchmark, Params params);
+    }
+
+    /**
+     * 测试负载。setup 和 tearDown 在每次 fork 中各执行一次，prepare 在
+     * 每次调用 run 之前执行且不计时。
+     */
+    public interface Workload {
+
+        default void setup() throws Exception {}
+
+        default void prepare() throws Exception {}
+
+        void run(Blackhole bh) throws Exception;
+
+        default void tearDown() throws Exception {}
+
+        /**
+         * 预热结束、测量迭代开始之前调用，用来清空负载自己统计的数据
+         * （例如延迟直方图）。
+         */
+        default void beginMeasurement() {}
+
+        /**
+         * 测量结束后调用，返回负载自己统计的附加结果（例如延迟分位数），
+         * 没有则返回 null。附加结果打印在结果表格下方。
+         */
+        default String report() { return null; }
+    }
+
+    /**
+     * 吃掉测试结果，防止 JIT 把没有被使用的计算当作死代码消除。
+     * 比较的对象是 volatile 字段，条件几乎不可能成立，但编译器无法证明。
+     *
+     * 在 JMH 中运行时（见 jmh 模块的 JmhSuite），所有 consume 都转交给
+     * JMH 的 Blackhole，由 JMH 保证结果不会被消除。
+     */
+    public static final class Blackhole {
+        private volatile int i1 = 1, i2 = 2;
+        private volatile long l1 = 1L, l2 = 2L;
+        private volatile Object o1 = new Object();
+        private Object sink;
+        private final Sink delegate;
+
+        /**
+         * 其他框架提供的 Blackhole。
+         */
+        public interface Sink {
+            void consume(Object o);
+            void consume(int i);
+            void consume(long l);
+            void consume(double d);
+            void consume(boolean b);
+        }
+
+        public Blackhole() {
+            this(null);
+        }
+
+        /**
+         * delegate 不为 null 时所有结果都交给 delegate。
+         */
+        public Blackhole(Sink delegate) {
+            this.delegate = delegate;
+        }
+
+        public void consume(Object o) {
+            if (delegate != null)
+                delegate.consume(o);
+            else if (o == o1)
+                sink = o;
+        }
+
+        public void consume(int i) {
+            if (delegate != null)
+                delegate.consume(i);
+            else if (i == i1 & i == i2)
+                sink = i;
+        }
+
+        public void consume(long l) {
+            if (delegate != null)
+                delegate.consume(l);
+            else if (l == l1 & l == l2)
+                sink = l;
+        }
+
+        public void consume(double d) {
+            if (delegate != null)
+                delegate.consume(d);
+            else
+                consume(Double.doubleToRawLongBits(d));
+        }
+
+        public void consume(boolean b) {
+            if (delegate != null)
+                delegate.consume(b);
+            else
+                consume(b ? i1 : i2);
+        }
+    }
+
+    /**
+     * 一组具体的参数取值。
+     */
+    public static final class Params {
+        private final Map<String, String> values;
+
+        Params(Map<String, String> values) {
+            this.values = values;
+        }
+
+        public String get(String name) {
+            String v = values.get(name);
+            if (v == null)
+                throw new IllegalArgumentException("Unknown parameter: " + name);
+            return v;
+        }
+
+        public int getInt(String name) {
+            return Integer.parseInt(get(name));
+        }
+
+        public <T extends Enum<T>> T getEnum(String name, Class<T> type) {
+            return Enum.valueOf(type, get(name).toUpperCase(Locale.ROOT));
+        }
+
+        String encode() {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, String> e : values.entrySet()) {
+                if (sb.length() > 0)
+                    sb.append(',');
+                sb.append(e.getKey()).append('=').append(e.getValue());
+            }
+            return sb.toString();
+        }
+
+        static Params decode(String s) {
+            Map<String, String> m = new LinkedHashMap<>();
+            if (!s.isEmpty()) {
+                for (String kv : s.split(",")) {
+                    int eq = kv.indexOf('=');
+                    m.put(kv.substring(0, eq), kv.substring(eq + 1));
+                }
+            }
+            return new Params(m);
+        }
+
+        @Override
+        public String toString() {
+            return encode();
+        }
+    }
+
+    /**
+     * 测试中使用的元素类型。元素在 setup 阶段提前生成，不计入测量。
+     */
+    public enum ElementType {
+        INTEGER {
+            Object create(int i) { return i; }
+        },
+        LONG {
+            Object create(int i) { return (long) i << 20; }
+        },
+        STRING {
+            Object create(int i) { return "e" + i; }
+        };
+
+        abstract Object create(int i);
+
+        /**
+         * 生成 n 个互不相同的元素。
+         */
+        public Object[] generate(int n) {
+            Object[] a = new Object[n];
+            for (int i = 0; i < n; i++)
+                a[i] = create(i);
+            return a;
+        }
+    }
+
+    /**
+     * 单轮迭代的原始测量数据。
+     */
+    static final class Iteration {
+        final long ops;          // 调用 run 的次数
+        final long busyNanos;    // run 的累计耗时
+        final long allocBytes;   // run 期间所有线程分配的字节数（已扣除 prepare）
+        final long gcCount;      // 本轮迭代中发生的 GC 次数
+
+        Iteration(long ops, long busyNanos, long allocBytes, long gcCount) {
+            this.ops = ops;
+            this.busyNanos = busyNanos;
+            this.allocBytes = allocBytes;
+            this.gcCount = gcCount;
+        }
+
+        double throughput() {
+            return ops * 1e9 / busyNanos;
+        }
+
+        double averageNanos() {
+            return (double) busyNanos / ops;
+        }
+
+        double allocRate() {
+            return allocBytes * 1e9 / busyNanos / (1 << 20);
+        }
+
+        String encode() {
+            return "#iteration " + ops + " " + busyNanos + " " + allocBytes + " " + gcCount;
+        }
+
+        static Iteration decode(String line) {
+            String[] f = line.split(" ");
+            return new Iteration(Long.parseLong(f[1]), Long.parseLong(f[2]),
+                                 Long.parseLong(f[3]), Long.parseLong(f[4]));
+        }
+    }
+
+    // 测量配置，均可以通过系统属性覆盖
+    static final int FORKS = Integer.getInteger("bench.forks", 1);
+    static final int WARMUPS = Integer.getInteger("bench.warmups", 5);
+    static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    static final long ITERATION_NANOS = Long.getLong("bench.time", 1000L) * 1_000_000L;
+    static final String FILTER = System.getProperty("bench.filter");
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean b = (com.sun.management.ThreadMXBean) bean;
+            if (b.isThreadAllocatedMemorySupported()) {
+                b.setThreadAllocatedMemoryEnabled(true);
+                return b;
+            }
+        }
+        return null;
+    }
+
+    // 所有存活线程累计分配的字节数
+    private static long allocatedBytes() {
+        if (THREADS == null)
+            return 0L;
+        long sum = 0L;
+        for (long b : THREADS.getThreadAllocatedBytes(THREADS.getAllThreadIds()))
+            if (b > 0)
+                sum += b;
+        return sum;
+    }
+
+    // 当前线程累计分配的字节数
+    private static long currentThreadAllocatedBytes() {
+        return THREADS == null ? 0L :
+            THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long gcCount() {
+        long sum = 0L;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long c = gc.getCollectionCount();
+            if (c > 0)
+                sum += c;
+        }
+        return sum;
+    }
+
+    /**
+     * 执行几次 GC 之后已使用的堆大小，setup 中用它粗略估计数据结构占用
+     * 的内存。
+     */
+    static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /**
+     * 用固定的种子打乱数组，每次运行的顺序相同。
+     */
+    static void shuffle(Object[] a) {
+        Random r = new Random(42);
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = r.nextInt(i + 1);
+            Object t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    /**
+     * 运行测试集中的所有测试和所有参数组合，并打印结果表格。
+     */
+    public static void run(Suite suite) {
+        List<Params> space = expand(suite.parameters());
+        List<String> rows = new ArrayList<>();
+        List<String> reports = new ArrayList<>();
+        for (String name : suite.benchmarks()) {
+            if (FILTER != null && !name.contains(FILTER))
+                continue;
+            for (Params p : space) {
+                System.err.println("# " + suite.getClass().getSimpleName() + "." + name + " (" + p + ")");
+                List<Iteration> its = new ArrayList<>();
+                List<String> extra = new ArrayList<>();
+                try {
+                    if (FORKS <= 0) {
+                        its.addAll(measure(suite, name, p, System.err, extra));
+                    } else {
+                        for (int f = 0; f < FORKS; f++)
+                            its.addAll(fork(suite, name, p, extra));
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    continue;
+                }
+                rows.add(summarize(suite.getClass().getSimpleName() + "." + name, p, its));
+                for (String r : extra)
+                    reports.add(String.format("%-72s %s",
+                        suite.getClass().getSimpleName() + "." + name + " (" + p + ")", r));
+            }
+        }
+        System.out.println();
+        System.out.println(String.format("%-72s %16s %14s %14s %12s %8s",
+            "Benchmark (params)", "thrpt (ops/s)", "avgt (ns/op)",
+            "alloc (MB/s)", "alloc (B/op)", "gc"));
+        for (String row : rows)
+            System.out.println(row);
+        if (!reports.isEmpty()) {
+            System.out.println();
+            System.out.println("Secondary results (one line per fork):");
+            for (String r : reports)
+                System.out.println(r);
+        }
+    }
+
+    // 对参数空间做笛卡尔积
+    static List<Params> expand(Map<String, String[]> space) {
+        List<Map<String, String>> acc = new ArrayList<>();
+        acc.add(new LinkedHashMap<String, String>());
+        for (Map.Entry<String, String[]> e : space.entrySet()) {
+            List<Map<String, String>> next = new ArrayList<>();
+            for (Map<String, String> m : acc) {
+                for (String v : e.getValue()) {
+                    Map<String, String> n = new LinkedHashMap<>(m);
+                    n.put(e.getKey(), v);
+                    next.add(n);
+                }
+            }
+            acc = next;
+        }
+        List<Params> result = new ArrayList<>(acc.size());
+        for (Map<String, String> m : acc)
+            result.add(new Params(m));
+        return result;
+    }
+
+    // 在子 JVM 中运行一组参数，从标准输出读取每轮迭代的测量数据
+    private static List<Iteration> fork(Suite suite, String name, Params p, List<String> reports)
+        throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+            if (!arg.startsWith("-agentlib") && !arg.startsWith("-javaagent"))
+                cmd.add(arg);
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(MicroBenchmark.class.getName());
+        cmd.add(suite.getClass().getName());
+        cmd.add(name);
+        cmd.add(p.encode());
+        Process proc = new ProcessBuilder(cmd)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        List<Iteration> its = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(proc.getInputStream()))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.startsWith("#iteration "))
+                    its.add(Iteration.decode(line));
+                else if (line.startsWith("#report "))
+                    reports.add(line.substring("#report ".length()));
+            }
+        }
+        int exit = proc.waitFor();
+        if (exit != 0)
+            throw new IllegalStateException("Forked JVM exited with code " + exit);
+        return its;
+    }
+
+    /**
+     * fork 出来的子 JVM 的入口：args 依次为测试类名、测试名称和编码后的参数。
+     */
+    public static void main(String[] args) throws Exception {
+        Suite suite = (Suite) Class.forName(args[0]).getDeclaredConstructor().newInstance();
+        List<String> reports = new ArrayList<>();
+        for (Iteration it : measure(suite, args[1], Params.decode(args.length > 2 ? args[2] : ""),
+                                    System.err, reports))
+            System.out.println(it.encode());
+        for (String r : reports)
+            System.out.println("#report " + r);
+        // 负载中可能还有没有结束的非守护线程
+        System.out.flush();
+        System.exit(0);
+    }
+
+    // 预热并测量一组参数，返回测量迭代的数据
+    private static List<Iteration> measure(Suite suite, String name, Params p,
+                                           java.io.PrintStream log, List<String> reports)
+        throws Exception {
+        Workload w = suite.create(name, p);
+        Blackhole bh = new Blackhole();
+        List<Iteration> result = new ArrayList<>(ITERATIONS);
+        w.setup();
+        try {
+            for (int i = 0; i < WARMUPS; i++) {
+                Iteration it = iteration(w, bh);
+                log.println(String.format("  warmup    %d: %.3f ops/s", i + 1, it.throughput()));
+            }
+            w.beginMeasurement();
+            for (int i = 0; i < ITERATIONS; i++) {
+                Iteration it = iteration(w, bh);
+                log.println(String.format("  iteration %d: %.3f ops/s", i + 1, it.throughput()));
+                result.add(it);
+            }
+            String r = w.report();
+            if (r != null)
+                reports.add(r);
+        } finally {
+            w.tearDown();
+        }
+        return result;
+    }
+
+    // 单轮迭代：在 ITERATION_NANOS 时间内反复调用 run，只统计 run 的耗时
+    private static Iteration iteration(Workload w, Blackhole bh) throws Exception {
+        long ops = 0L, busy = 0L, prepareAlloc = 0L;
+        long gc0 = gcCount();
+        long alloc0 = allocatedBytes();
+        long deadline = System.nanoTime() + ITERATION_NANOS;
+        do {
+            long a0 = currentThreadAllocatedBytes();
+            w.prepare();
+            prepareAlloc += currentThreadAllocatedBytes() - a0;
+            long t0 = System.nanoTime();
+            w.run(bh);
+            busy += System.nanoTime() - t0;
+            ops++;
+        } while (System.nanoTime() < deadline);
+        long alloc = Math.max(0L, allocatedBytes() - alloc0 - prepareAlloc);
+        return new Iteration(ops, busy, alloc, gcCount() - gc0);
+    }
+
+    // 汇总多轮迭代，吞吐量给出均值和 99.9% 置信区间的半宽（正态近似）
+    private static String summarize(String name, Params p, List<Iteration> its) {
+        int n = its.size();
+        double sum = 0, sq = 0, avg = 0, rate = 0, perOp = 0;
+        long gc = 0;
+        for (Iteration it : its) {
+            double t = it.throughput();
+            sum += t;
+            sq += t * t;
+            avg += it.averageNanos();
+            rate += it.allocRate();
+            perOp += (double) it.allocBytes / it.ops;
+            gc += it.gcCount;
+        }
+        double mean = sum / n;
+        double sd = n > 1 ? Math.sqrt(Math.max(0, (sq - n * mean * mean) / (n - 1))) : 0;
+        double err = 3.29 * sd / Math.sqrt(n);
+        return String.format("%-72s %16s %14.3f %14.3f %12.1f %8d",
+            name + " (" + p + ")",
+            String.format("%.1f +- %.1f", mean, err),
+            avg / n, rate / n, perOp / n, gc);
+    }
+}
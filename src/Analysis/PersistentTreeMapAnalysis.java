@@ -0,0 +1,107 @@
+package Analysis;
+
+import Collections.PersistentTreeMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * TreeMap 和 PersistentTreeMap 的对比，key 为 n 个随机的 Long。
+ *
+ *   snapshot  取得 map 当前内容的一致视图，再读取它的第一个 key。
+ *             TreeMap 只能复制整个 map，PersistentTreeMap 的 snapshot()
+ *             只读取一次根节点；
+ *   get       OPS 次随机查找已经存在的 key；
+ *   put       OPS 次随机修改已经存在的 key 的 value。PersistentTreeMap
+ *             每次复制根节点到叶子路径上的节点。
+ *
+ *   TreeMap     java.util.TreeMap，红黑树；
+ *   Persistent  PersistentTreeMap，路径复制的 AVL 树。
+ *
+ * 运行：java -cp out Analysis.PersistentTreeMapAnalysis
+ */
+public class PersistentTreeMapAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new PersistentTreeMapAnalysis());
+    }
+
+    static final int OPS = 1 << 12;
+
+    public enum MapType {
+        TREEMAP {
+            NavigableMap<Long, Long> create() {
+                return new TreeMap<>();
+            }
+
+            NavigableMap<Long, Long> snapshot(NavigableMap<Long, Long> m) {
+                return new TreeMap<>(m);
+            }
+        },
+        PERSISTENT {
+            NavigableMap<Long, Long> create() {
+                return new PersistentTreeMap<>();
+            }
+
+            NavigableMap<Long, Long> snapshot(NavigableMap<Long, Long> m) {
+                return ((PersistentTreeMap<Long, Long>) m).snapshot();
+            }
+        };
+
+        abstract NavigableMap<Long, Long> create();
+
+        abstract NavigableMap<Long, Long> snapshot(NavigableMap<Long, Long> m);
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"snapshot", "get", "put"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("map", new String[] {"TreeMap", "Persistent"});
+        m.put("n", new String[] {"10000", "1000000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        MapType type = p.getEnum("map", MapType.class);
+        int n = p.getInt("n");
+        Random r = new Random(42);
+        NavigableMap<Long, Long> m = type.create();
+        Long[] keys = new Long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = r.nextLong();
+            m.put(keys[i], keys[i]);
+        }
+        Long[] probes = new Long[OPS];
+        for (int i = 0; i < OPS; i++)
+            probes[i] = keys[r.nextInt(n)];
+        switch (benchmark) {
+            case "snapshot":
+                return bh -> bh.consume(type.snapshot(m).firstKey());
+            case "get":
+                return bh -> {
+                    long sum = 0;
+                    for (Long k : probes)
+                        sum += m.get(k);
+                    bh.consume(sum);
+                };
+            case "put":
+                return bh -> {
+                    long i = 0;
+                    for (Long k : probes)
+                        m.put(k, i++);
+                    bh.consume(m.size());
+                };
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package Analysis;
+
+import Collections.LongArrayDeque;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * ArrayDeque<Long> 和 LongArrayDeque 的对比，参数为队列类型和窗口大小。
+ *
+ *   slidingWindow  依次处理 SAMPLES 个采样值，维护最近 window 个值的和：
+ *                  队列满时先取出最旧的值从和中减去，再加入新值。
+ *   pushPop        压栈 window 个值再全部出栈。
+ *
+ * 参与对比的队列：
+ *   ArrayDeque         java.util.ArrayDeque<Long>，每个值装箱；
+ *   LongArrayDeque     可扩容模式，满时手动 removeFirst；
+ *   LongRingBuffer     LongArrayDeque.ringBuffer(window)，addLast 自动
+ *                      覆盖最旧的值（pushPop 中不会满）。
+ *
+ * 分配速率一列中 LongArrayDeque 和 LongRingBuffer 应该为 0。
+ *
+ * 运行：java -cp out Analysis.PrimitiveDequeAnalysis
+ */
+public class PrimitiveDequeAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new PrimitiveDequeAnalysis());
+    }
+
+    static final int SAMPLES = 1000000;
+
+    /**
+     * 统一几种队列的操作，值以基本类型传入。
+     */
+    interface LongDeque {
+        // 加入一个新值，窗口已满时移除并返回最旧的值，否则返回 0
+        long slide(long value);
+        void push(long value);
+        long pop();
+    }
+
+    public enum DequeType {
+        ARRAYDEQUE {
+            LongDeque create(int window) {
+                ArrayDeque<Long> d = new ArrayDeque<>();
+                return new LongDeque() {
+                    public long slide(long value) {
+                        long evicted = d.size() == window ? d.removeFirst() : 0L;
+                        d.addLast(value);
+                        return evicted;
+                    }
+                    public void push(long value) { d.push(value); }
+                    public long pop() { return d.pop(); }
+                };
+            }
+        },
+        LONGARRAYDEQUE {
+            LongDeque create(int window) {
+                LongArrayDeque d = new LongArrayDeque();
+                return new LongDeque() {
+                    public long slide(long value) {
+                        long evicted = d.size() == window ? d.removeFirst() : 0L;
+                        d.addLast(value);
+                        return evicted;
+                    }
+                    public void push(long value) { d.push(value); }
+                    public long pop() { return d.pop(); }
+                };
+            }
+        },
+        LONGRINGBUFFER {
+            LongDeque create(int window) {
+                LongArrayDeque d = LongArrayDeque.ringBuffer(window);
+                return new LongDeque() {
+                    public long slide(long value) {
+                        long evicted = d.isFull() ? d.getFirst() : 0L;
+                        d.addLast(value);
+                        return evicted;
+                    }
+                    public void push(long value) { d.push(value); }
+                    public long pop() { return d.pop(); }
+                };
+            }
+        };
+
+        abstract LongDeque create(int window);
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"slidingWindow", "pushPop"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("deque", new String[] {"ArrayDeque", "LongArrayDeque", "LongRingBuffer"});
+        m.put("window", new String[] {"60", "4096"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        DequeType type = p.getEnum("deque", DequeType.class);
+        int window = p.getInt("window");
+        long[] samples = new long[SAMPLES];
+        Random r = new Random(42);
+        // 延迟类的采样值，大多不在 Long 缓存范围内
+        for (int i = 0; i < SAMPLES; i++)
+            samples[i] = 1000 + r.nextInt(100000);
+        switch (benchmark) {
+            case "slidingWindow":
+                return new MicroBenchmark.Workload() {
+                    LongDeque d;
+                    public void setup() { d = type.create(window); }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        LongDeque d = this.d;
+                        long sum = 0;
+                        for (long v : samples) {
+                            sum += v - d.slide(v);
+                            bh.consume(sum);
+                        }
+                    }
+                };
+            case "pushPop":
+                return new MicroBenchmark.Workload() {
+                    LongDeque d;
+                    public void setup() { d = type.create(window); }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        LongDeque d = this.d;
+                        for (int i = 0; i < window; i++)
+                            d.push(samples[i]);
+                        for (int i = 0; i < window; i++)
+                            bh.consume(d.pop());
+                    }
+                };
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package Analysis;
+
+import Collections.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * ArrayList<Integer> 和 IntArrayList 的 add、get、求和、排序性能以及
+ * 内存占用对比，参数为列表类型和元素个数。
+ *
+ *   add   从空列表开始逐个添加 n 个元素（包括扩容）；
+ *   get   按下标遍历并求和，附加结果中给出每个元素占用的堆内存；
+ *   sum   分别用顺序流和并行流各求和一次；
+ *   sort  对 n 个随机元素排序，每次调用前恢复为乱序。
+ *
+ * 元素取随机值，ArrayList 中的 Integer 大多不在 Integer 缓存中，与实际
+ * 保存 id、计数等数据时的情况相同。
+ *
+ * 运行：java -cp out Analysis.PrimitiveListAnalysis
+ */
+public class PrimitiveListAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new PrimitiveListAnalysis());
+    }
+
+    /**
+     * 统一两种列表的操作，元素以基本类型传入，ArrayList 在内部装箱。
+     */
+    interface IntList {
+        void add(int e);
+        int get(int index);
+        int size();
+        long sum(boolean parallel);
+        void sort();
+    }
+
+    public enum ListType {
+        ARRAYLIST {
+            IntList create() {
+                ArrayList<Integer> l = new ArrayList<>();
+                return new IntList() {
+                    public void add(int e) { l.add(e); }
+                    public int get(int index) { return l.get(index); }
+                    public int size() { return l.size(); }
+                    public long sum(boolean parallel) {
+                        return (parallel ? l.parallelStream() : l.stream()).mapToLong(Integer::longValue).sum();
+                    }
+                    public void sort() { l.sort(null); }
+                };
+            }
+        },
+        INTARRAYLIST {
+            IntList create() {
+                IntArrayList l = new IntArrayList();
+                return new IntList() {
+                    public void add(int e) { l.add(e); }
+                    public int get(int index) { return l.get(index); }
+                    public int size() { return l.size(); }
+                    public long sum(boolean parallel) {
+                        return (parallel ? l.stream().parallel() : l.stream()).asLongStream().sum();
+                    }
+                    public void sort() { l.sort(); }
+                };
+            }
+        };
+
+        abstract IntList create();
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"add", "get", "sum", "sort"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("list", new String[] {"ArrayList", "IntArrayList"});
+        m.put("n", new String[] {"1000", "1000000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        ListType type = p.getEnum("list", ListType.class);
+        int n = p.getInt("n");
+        int[] values = new int[n];
+        Random r = new Random(42);
+        for (int i = 0; i < n; i++)
+            values[i] = r.nextInt();
+        switch (benchmark) {
+            case "add":
+                return new MicroBenchmark.Workload() {
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        IntList l = type.create();
+                        for (int v : values)
+                            l.add(v);
+                        bh.consume(l);
+                    }
+                };
+            case "get":
+                return new MicroBenchmark.Workload() {
+                    IntList l;
+                    long footprint;
+                    public void setup() {
+                        long before = MicroBenchmark.usedHeap();
+                        l = type.create();
+                        for (int v : values)
+                            l.add(v);
+                        footprint = MicroBenchmark.usedHeap() - before;
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        IntList l = this.l;
+                        long sum = 0;
+                        for (int i = 0, size = l.size(); i < size; i++)
+                            sum += l.get(i);
+                        bh.consume(sum);
+                    }
+                    public String report() {
+                        return String.format("footprint=%.1f B/element", (double) footprint / n);
+                    }
+                };
+            case "sum":
+                return new MicroBenchmark.Workload() {
+                    IntList l;
+                    public void setup() {
+                        l = type.create();
+                        for (int v : values)
+                            l.add(v);
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        bh.consume(l.sum(false));
+                        bh.consume(l.sum(true));
+                    }
+                };
+            case "sort":
+                return new MicroBenchmark.Workload() {
+                    IntList l;
+                    public void prepare() {
+                        l = type.create();
+                        for (int v : values)
+                            l.add(v);
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        l.sort();
+                        bh.consume(l.get(0));
+                    }
+                };
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+}
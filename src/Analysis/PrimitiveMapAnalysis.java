@@ -0,0 +1,124 @@
+package Analysis;
+
+import Collections.LongObjectHashMap;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * HashMap<Long, V> 和 LongObjectHashMap<V> 的 get、put、remove 性能对比，
+ * 参数为 map 类型、映射个数和 key 的分布（连续 id 或随机 long）。
+ *
+ * 分配速率一列可以直接看出装箱的 Long 和 Node 带来的开销：
+ * LongObjectHashMap 的 get、remove 以及不扩容的 put 不分配任何对象。
+ *
+ * 运行：java -cp out Analysis.PrimitiveMapAnalysis
+ */
+public class PrimitiveMapAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new PrimitiveMapAnalysis());
+    }
+
+    /**
+     * 统一两种 map 的操作，key 以基本类型传入，HashMap 在内部装箱。
+     */
+    interface LongMap {
+        Object get(long key);
+        Object put(long key, Object value);
+        Object remove(long key);
+    }
+
+    public enum MapType {
+        HASHMAP {
+            LongMap create(int n) {
+                HashMap<Long, Object> m = new HashMap<>(n * 4 / 3 + 1);
+                return new LongMap() {
+                    public Object get(long key) { return m.get(key); }
+                    public Object put(long key, Object value) { return m.put(key, value); }
+                    public Object remove(long key) { return m.remove(key); }
+                };
+            }
+        },
+        LONGOBJECTHASHMAP {
+            LongMap create(int n) {
+                LongObjectHashMap<Object> m = new LongObjectHashMap<>(n);
+                return new LongMap() {
+                    public Object get(long key) { return m.get(key); }
+                    public Object put(long key, Object value) { return m.put(key, value); }
+                    public Object remove(long key) { return m.remove(key); }
+                };
+            }
+        };
+
+        abstract LongMap create(int n);
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"get", "put", "remove"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("map", new String[] {"HashMap", "LongObjectHashMap"});
+        m.put("n", new String[] {"10000", "1000000"});
+        m.put("keys", new String[] {"sequential", "random"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        MapType type = p.getEnum("map", MapType.class);
+        int n = p.getInt("n");
+        long[] keys = new long[n];
+        Random r = new Random(42);
+        boolean sequential = "sequential".equals(p.get("keys"));
+        for (int i = 0; i < n; i++)
+            keys[i] = sequential ? i + 1 : r.nextLong();
+        Object value = new Object();
+        switch (benchmark) {
+            case "get":
+                return new MicroBenchmark.Workload() {
+                    LongMap m;
+                    public void setup() {
+                        m = type.create(n);
+                        for (long k : keys)
+                            m.put(k, value);
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        for (long k : keys)
+                            bh.consume(m.get(k));
+                    }
+                };
+            case "put":
+                return new MicroBenchmark.Workload() {
+                    LongMap m;
+                    public void prepare() { m = type.create(n); }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        for (long k : keys)
+                            m.put(k, value);
+                        bh.consume(m);
+                    }
+                };
+            case "remove":
+                return new MicroBenchmark.Workload() {
+                    LongMap m;
+                    public void setup() { m = type.create(n); }
+                    public void prepare() {
+                        for (long k : keys)
+                            m.put(k, value);
+                    }
+                    public void run(MicroBenchmark.Blackhole bh) {
+                        for (long k : keys)
+                            bh.consume(m.remove(k));
+                    }
+                };
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+}
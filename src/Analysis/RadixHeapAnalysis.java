@@ -0,0 +1,104 @@
+package Analysis;
+
+import Collections.RadixHeapQueue;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+
+/**
+ * 事件时间排序场景下 PriorityQueue 和 RadixHeapQueue 的对比。
+ *
+ * 采用离散事件模拟中常用的 hold 模型：队列中始终有 n 个事件，每次
+ * 操作取出时间最早的事件，把它的时间向后推迟一个随机的间隔，再放回
+ * 队列。事件对象预先创建并反复使用，所以分配速率一列（B/op）反映的是
+ * 队列本身的分配，两者稳定后都应该为 0。
+ *
+ *   PriorityQueue   java.util.PriorityQueue，按 Comparator 比较时间；
+ *   RadixHeapQueue  按事件时间（long）分桶。
+ *
+ * 运行：java -cp out Analysis.RadixHeapAnalysis
+ */
+public class RadixHeapAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new RadixHeapAnalysis());
+    }
+
+    static final int HOLDS = 1000000;
+
+    /**
+     * 模拟中的事件。
+     */
+    static final class Event {
+        long time;
+
+        Event(long time) {
+            this.time = time;
+        }
+    }
+
+    public enum QueueType {
+        PRIORITYQUEUE {
+            Queue<Event> create() {
+                return new PriorityQueue<>(Comparator.comparingLong((Event e) -> e.time));
+            }
+        },
+        RADIXHEAPQUEUE {
+            Queue<Event> create() {
+                return new RadixHeapQueue<>(e -> e.time);
+            }
+        };
+
+        abstract Queue<Event> create();
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"hold"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("queue", new String[] {"PriorityQueue", "RadixHeapQueue"});
+        m.put("n", new String[] {"1000", "100000", "1000000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        if (!"hold".equals(benchmark))
+            throw new IllegalArgumentException(benchmark);
+        QueueType type = p.getEnum("queue", QueueType.class);
+        int n = p.getInt("n");
+        // 推迟的间隔，指数分布，均值 1000
+        long[] delays = new long[HOLDS];
+        Random r = new Random(42);
+        for (int i = 0; i < HOLDS; i++)
+            delays[i] = 1 + (long) (-Math.log(1 - r.nextDouble()) * 1000);
+        return new MicroBenchmark.Workload() {
+            Queue<Event> q;
+
+            public void setup() {
+                q = type.create();
+                Random r = new Random(7);
+                for (int i = 0; i < n; i++)
+                    q.add(new Event(r.nextInt(1000)));
+            }
+
+            public void run(MicroBenchmark.Blackhole bh) {
+                Queue<Event> q = this.q;
+                for (long d : delays) {
+                    Event e = q.poll();
+                    e.time += d;
+                    q.add(e);
+                }
+                bh.consume(q.peek());
+            }
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package Analysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+
+/**
+ * 区间求和的性能对比，key 为 0 到 n - 1 的时间戳，value 为随机的 Long。
+ *
+ *   sum     QUERIES 次求长度为 window 的随机区间内 value 的和；
+ *   update  QUERIES 次修改随机 key 的 value，再求一次区间和。
+ *
+ *   TreeMap    java.util.TreeMap，遍历 subMap(from, to).values()，
+ *              O(window)；
+ *   Aggregate  Collections.TreeMap(null, 0L, Long::sum)，节点记录子树
+ *              的和，aggregate(from, to) 为 O(log n)。
+ *
+ * 运行：java -cp out Analysis.RangeAggregateAnalysis
+ */
+public class RangeAggregateAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new RangeAggregateAnalysis());
+    }
+
+    static final int QUERIES = 1 << 10;
+
+    public enum MapType {
+        TREEMAP {
+            NavigableMap<Long, Long> create() {
+                return new java.util.TreeMap<>();
+            }
+
+            long sum(NavigableMap<Long, Long> m, long from, long to) {
+                long sum = 0;
+                for (Long v : m.subMap(from, true, to, false).values())
+                    sum += v;
+                return sum;
+            }
+        },
+        AGGREGATE {
+            NavigableMap<Long, Long> create() {
+                return new Collections.TreeMap<Long, Long>(null, 0L, Long::sum);
+            }
+
+            long sum(NavigableMap<Long, Long> m, long from, long to) {
+                return ((Collections.TreeMap<Long, Long>) m).aggregate(from, true, to, false);
+            }
+        };
+
+        abstract NavigableMap<Long, Long> create();
+
+        abstract long sum(NavigableMap<Long, Long> m, long from, long to);
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"sum", "update"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("map", new String[] {"TreeMap", "Aggregate"});
+        m.put("n", new String[] {"1000000"});
+        m.put("window", new String[] {"100", "10000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        MapType type = p.getEnum("map", MapType.class);
+        int n = p.getInt("n");
+        int window = p.getInt("window");
+        Random r = new Random(42);
+        NavigableMap<Long, Long> m = type.create();
+        for (long i = 0; i < n; i++)
+            m.put(i, (long) r.nextInt(1000));
+        long[] from = new long[QUERIES], keys = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            from[i] = r.nextInt(n - window);
+            keys[i] = r.nextInt(n);
+        }
+        switch (benchmark) {
+            case "sum":
+                return bh -> {
+                    long sum = 0;
+                    for (long f : from)
+                        sum += type.sum(m, f, f + window);
+                    bh.consume(sum);
+                };
+            case "update":
+                return bh -> {
+                    long sum = 0;
+                    for (int i = 0; i < QUERIES; i++) {
+                        m.put(keys[i], (long) i);
+                        sum += type.sum(m, from[i], from[i] + window);
+                    }
+                    bh.consume(sum);
+                };
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package Analysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
+
+/**
+ * 两个 TreeSet 的集合运算，各有 n 个随机的 Long，大约一半相同。
+ *
+ *   union       并集；
+ *   intersect   交集；
+ *   difference  差集。
+ *
+ * 每次运行先复制第一个集合（由 SortedSet 构造，线性时间），再与第二个
+ * 集合运算，两种实现的复制开销相同。
+ *
+ *   TreeSet  java.util.TreeSet 的 addAll、retainAll 和 removeAll，
+ *            逐个元素插入或删除；
+ *   Linear   Collections.TreeSet 的 union、intersect 和 difference，
+ *            同时遍历两个集合一次，再用 buildFromSorted 重建，O(n + m)。
+ *
+ * 运行：java -cp out Analysis.SetAlgebraAnalysis
+ */
+public class SetAlgebraAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new SetAlgebraAnalysis());
+    }
+
+    public enum SetType {
+        TREESET {
+            NavigableSet<Long> copy(NavigableSet<Long> s) {
+                return new java.util.TreeSet<>(s);
+            }
+
+            void apply(String op, NavigableSet<Long> s, NavigableSet<Long> other) {
+                switch (op) {
+                    case "union":      s.addAll(other); break;
+                    case "intersect":  s.retainAll(other); break;
+                    default:           s.removeAll(other); break;
+                }
+            }
+        },
+        LINEAR {
+            NavigableSet<Long> copy(NavigableSet<Long> s) {
+                return new Collections.TreeSet<>(s);
+            }
+
+            void apply(String op, NavigableSet<Long> s, NavigableSet<Long> other) {
+                Collections.TreeSet<Long> t = (Collections.TreeSet<Long>) s;
+                switch (op) {
+                    case "union":      t.union(other); break;
+                    case "intersect":  t.intersect(other); break;
+                    default:           t.difference(other); break;
+                }
+            }
+        };
+
+        abstract NavigableSet<Long> copy(NavigableSet<Long> s);
+
+        abstract void apply(String op, NavigableSet<Long> s, NavigableSet<Long> other);
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"union", "intersect", "difference"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("set", new String[] {"TreeSet", "Linear"});
+        m.put("n", new String[] {"10000", "1000000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        SetType type = p.getEnum("set", SetType.class);
+        int n = p.getInt("n");
+        Random r = new Random(42);
+        java.util.TreeSet<Long> a = new java.util.TreeSet<>(), b = new java.util.TreeSet<>();
+        while (a.size() < n) {
+            long k = r.nextLong();
+            a.add(k);
+            // 一半的元素两个集合都有
+            b.add(r.nextBoolean() ? k : r.nextLong());
+        }
+        NavigableSet<Long> first = type.copy(a), second = type.copy(b);
+        return bh -> {
+            NavigableSet<Long> s = type.copy(first);
+            type.apply(benchmark, s, second);
+            bh.consume(s.size());
+        };
+    }
+}
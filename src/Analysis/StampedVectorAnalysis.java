@@ -0,0 +1,177 @@
+package Analysis;
+
+import JUC.JUCCollections.StampedVector;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * 多线程读多写少时 Vector 和 StampedVector 的吞吐量对比。
+ *
+ * 列表中有 SIZE 个元素。每次调用由 threads 个线程一共完成 OPERATIONS
+ * 次随机下标的访问，其中 writePercent% 是 set，其余是 get。线程的创建和
+ * 同步方式与 ConcurrentCacheAnalysis 相同。
+ *
+ *   Vector                java.util.Vector，get、set 都获取监视器锁；
+ *   CopyOnWriteArrayList  读不加锁，每次 set 复制整个数组，作为只读
+ *                         情况下的上限参考；
+ *   StampedVector         get 乐观读，set 获取写锁。
+ *
+ * 读操作的扩展性需要多核机器才能看出来，单 CPU 上各线程轮流运行，
+ * 只能比较单次操作的开销。
+ *
+ * 运行：java -cp out Analysis.StampedVectorAnalysis
+ */
+public class StampedVectorAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new StampedVectorAnalysis());
+    }
+
+    static final int SIZE = 1024;
+
+    static final int OPERATIONS = 1 << 20;
+
+    public enum ListType {
+        VECTOR {
+            List<Object> create() { return new Vector<>(); }
+        },
+        COPYONWRITEARRAYLIST {
+            List<Object> create() { return new CopyOnWriteArrayList<>(); }
+        },
+        STAMPEDVECTOR {
+            List<Object> create() { return new StampedVector<>(); }
+        };
+
+        abstract List<Object> create();
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"getSet"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("list", new String[] {"Vector", "CopyOnWriteArrayList", "StampedVector"});
+        m.put("threads", new String[] {"1", "2", "4", "8", "16"});
+        m.put("writePercent", new String[] {"0", "1", "10"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        if (!"getSet".equals(benchmark))
+            throw new IllegalArgumentException(benchmark);
+        List<Object> list = p.getEnum("list", ListType.class).create();
+        for (int i = 0; i < SIZE; i++)
+            list.add(i);
+        // 非负数为 get 的下标，负数 ~i 表示 set(i)
+        int[] ops = new int[OPERATIONS];
+        int writePercent = p.getInt("writePercent");
+        Random r = new Random(42);
+        for (int i = 0; i < OPERATIONS; i++) {
+            int index = r.nextInt(SIZE);
+            ops[i] = (r.nextInt(100) < writePercent) ? ~index : index;
+        }
+        return new GetSet(list, ops, p.getInt("threads"));
+    }
+
+    static final class GetSet implements MicroBenchmark.Workload {
+        final List<Object> list;
+        final int[] ops;
+        final int threads;
+        final CyclicBarrier start;
+        final List<Thread> workers = new ArrayList<>();
+        volatile CountDownLatch done;
+        volatile boolean stopped;
+        // run 在放行 worker 之前设置，barrier 保证 worker 看到
+        MicroBenchmark.Blackhole bh;
+        boolean measuring;
+        long measuredNanos, measuredOperations;
+
+        GetSet(List<Object> list, int[] ops, int threads) {
+            this.list = list;
+            this.ops = ops;
+            this.threads = threads;
+            this.start = new CyclicBarrier(threads + 1);
+        }
+
+        @Override
+        public void setup() {
+            int share = ops.length / threads;
+            for (int i = 0; i < threads; i++) {
+                int from = i * share, to = (i == threads - 1) ? ops.length : from + share;
+                workers.add(new Thread(() -> workerLoop(from, to), "worker-" + i));
+            }
+            for (Thread t : workers) {
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+
+        @Override
+        public void prepare() {
+            done = new CountDownLatch(threads);
+        }
+
+        @Override
+        public void run(MicroBenchmark.Blackhole bh) throws Exception {
+            this.bh = bh;
+            long t0 = System.nanoTime();
+            start.await();
+            done.await();
+            if (measuring) {
+                measuredNanos += System.nanoTime() - t0;
+                measuredOperations += ops.length;
+            }
+        }
+
+        @Override
+        public void tearDown() {
+            stopped = true;
+            for (Thread t : workers)
+                t.interrupt();
+        }
+
+        @Override
+        public void beginMeasurement() {
+            measuring = true;
+        }
+
+        @Override
+        public String report() {
+            return String.format("ops/s=%.0f", measuredOperations * 1e9 / measuredNanos);
+        }
+
+        private void workerLoop(int from, int to) {
+            List<Object> list = this.list;
+            int[] ops = this.ops;
+            try {
+                while (!stopped) {
+                    start.await();
+                    int h = 0;
+                    for (int i = from; i < to; i++) {
+                        int op = ops[i];
+                        if (op >= 0)
+                            h += list.get(op).hashCode();
+                        else
+                            list.set(~op, op);
+                    }
+                    bh.consume(h);
+                    done.countDown();
+                }
+            } catch (Exception ignore) {
+                // tearDown 中断线程后退出
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package Analysis;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 取最大的 k 个元素和批量添加的性能对比。
+ *
+ *   topK    从 n 个随机 Long 中取最大的 k 个，从大到小排列：
+ *             Sort           复制后整体排序，取前 k 个，O(n log n)；
+ *             BoundedHeap    单线程扫描，用 java.util.PriorityQueue
+ *                            作为最多 k 个元素的有界堆，O(n log k)；
+ *             ParallelTopK   Collections.PriorityQueue.topK，ForkJoin
+ *                            分段计算有界堆再合并。
+ *   addAll  已有 n 个元素的队列再批量添加 n 个元素，新元素按从大到小
+ *           的顺序排列，逐个 siftUp 时每个都要一直上浮到根附近（最坏
+ *           情况）。与 k 无关：
+ *             Sort           把两部分合并后用构造函数重新建堆，作为参照；
+ *             BoundedHeap    java.util.PriorityQueue.addAll，逐个 siftUp；
+ *             ParallelTopK   Collections.PriorityQueue.addAll，追加后整体
+ *                            heapify。
+ *
+ * 运行：java -cp out Analysis.TopKAnalysis
+ */
+public class TopKAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new TopKAnalysis());
+    }
+
+    public enum Method {
+        SORT {
+            List<Long> topK(List<Long> scores, int k) {
+                List<Long> copy = new ArrayList<>(scores);
+                copy.sort(Comparator.reverseOrder());
+                return new ArrayList<>(copy.subList(0, Math.min(k, copy.size())));
+            }
+
+            Object addAll(List<Long> initial, List<Long> batch) {
+                List<Long> all = new ArrayList<>(initial.size() + batch.size());
+                all.addAll(initial);
+                all.addAll(batch);
+                return new java.util.PriorityQueue<>(all);
+            }
+        },
+        BOUNDEDHEAP {
+            List<Long> topK(List<Long> scores, int k) {
+                java.util.PriorityQueue<Long> heap = new java.util.PriorityQueue<>(k);
+                for (Long s : scores) {
+                    if (heap.size() < k)
+                        heap.add(s);
+                    else if (s > heap.peek()) {
+                        heap.poll();
+                        heap.add(s);
+                    }
+                }
+                List<Long> r = new ArrayList<>(heap);
+                r.sort(Comparator.reverseOrder());
+                return r;
+            }
+
+            Object addAll(List<Long> initial, List<Long> batch) {
+                java.util.PriorityQueue<Long> q = new java.util.PriorityQueue<>(initial);
+                q.addAll(batch);
+                return q;
+            }
+        },
+        PARALLELTOPK {
+            List<Long> topK(List<Long> scores, int k) {
+                return Collections.PriorityQueue.topK(scores, k);
+            }
+
+            Object addAll(List<Long> initial, List<Long> batch) {
+                Collections.PriorityQueue<Long> q = new Collections.PriorityQueue<>(initial);
+                q.addAll(batch);
+                return q;
+            }
+        };
+
+        abstract List<Long> topK(List<Long> scores, int k);
+
+        abstract Object addAll(List<Long> initial, List<Long> batch);
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"topK", "addAll"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("method", new String[] {"Sort", "BoundedHeap", "ParallelTopK"});
+        m.put("n", new String[] {"1000000", "10000000"});
+        m.put("k", new String[] {"10", "1000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        Method method = p.getEnum("method", Method.class);
+        int n = p.getInt("n");
+        int k = p.getInt("k");
+        Random r = new Random(42);
+        switch (benchmark) {
+            case "topK": {
+                List<Long> scores = new ArrayList<>(n);
+                for (int i = 0; i < n; i++)
+                    scores.add(r.nextLong());
+                return bh -> bh.consume(method.topK(scores, k));
+            }
+            case "addAll": {
+                List<Long> initial = new ArrayList<>(n), batch = new ArrayList<>(n);
+                for (int i = 0; i < n; i++)
+                    initial.add((long) n + i);
+                for (int i = n - 1; i >= 0; i--)
+                    batch.add((long) i);
+                return bh -> bh.consume(method.addAll(initial, batch));
+            }
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package Analysis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+
+/**
+ * 顺序统计查询的性能对比，key 为 n 个随机的 Long。
+ *
+ *   rank         QUERIES 次求 key 的排名（小于它的 key 的个数）；
+ *   select       QUERIES 次按排名取 key；
+ *   subMapSize   QUERIES 次求随机范围 subMap 的 size。
+ *
+ *   TreeMap         java.util.TreeMap。rank 用 headMap(key).size()，
+ *                   select 从头遍历 keySet，都要遍历范围内的所有映射，
+ *                   O(n)；
+ *   OrderStatistic  Collections.TreeMap，节点记录子树大小，rankOf、
+ *                   select 和 subMap 的 size 都是 O(log n)。
+ *
+ * 运行：java -cp out Analysis.TreeMapRankAnalysis
+ */
+public class TreeMapRankAnalysis implements MicroBenchmark.Suite {
+
+    public static void main(String[] args) {
+        MicroBenchmark.run(new TreeMapRankAnalysis());
+    }
+
+    static final int QUERIES = 1 << 10;
+
+    public enum MapType {
+        TREEMAP {
+            NavigableMap<Long, Long> create() {
+                return new java.util.TreeMap<>();
+            }
+
+            int rank(NavigableMap<Long, Long> m, Long key) {
+                return m.headMap(key, false).size();
+            }
+
+            Long select(NavigableMap<Long, Long> m, int index) {
+                for (Long k : m.keySet())
+                    if (index-- == 0)
+                        return k;
+                throw new IndexOutOfBoundsException();
+            }
+        },
+        ORDERSTATISTIC {
+            NavigableMap<Long, Long> create() {
+                return new Collections.TreeMap<>();
+            }
+
+            int rank(NavigableMap<Long, Long> m, Long key) {
+                return ((Collections.TreeMap<Long, Long>) m).rankOf(key);
+            }
+
+            Long select(NavigableMap<Long, Long> m, int index) {
+                return ((Collections.TreeMap<Long, Long>) m).select(index).getKey();
+            }
+        };
+
+        abstract NavigableMap<Long, Long> create();
+
+        abstract int rank(NavigableMap<Long, Long> m, Long key);
+
+        abstract Long select(NavigableMap<Long, Long> m, int index);
+    }
+
+    @Override
+    public String[] benchmarks() {
+        return new String[] {"rank", "select", "subMapSize"};
+    }
+
+    @Override
+    public Map<String, String[]> parameters() {
+        Map<String, String[]> m = new LinkedHashMap<>();
+        m.put("map", new String[] {"TreeMap", "OrderStatistic"});
+        m.put("n", new String[] {"10000", "1000000"});
+        return m;
+    }
+
+    @Override
+    public MicroBenchmark.Workload create(String benchmark, MicroBenchmark.Params p) {
+        MapType type = p.getEnum("map", MapType.class);
+        int n = p.getInt("n");
+        Random r = new Random(42);
+        NavigableMap<Long, Long> m = type.create();
+        for (int i = 0; i < n; i++) {
+            long k = r.nextLong();
+            m.put(k, k);
+        }
+        Long[] sorted = m.keySet().toArray(new Long[0]);
+        switch (benchmark) {
+            case "rank": {
+                Long[] probes = new Long[QUERIES];
+                for (int i = 0; i < QUERIES; i++)
+                    probes[i] = sorted[r.nextInt(sorted.length)];
+                return bh -> {
+                    long sum = 0;
+                    for (Long k : probes)
+                        sum += type.rank(m, k);
+                    bh.consume(sum);
+                };
+            }
+            case "select": {
+                int[] indexes = new int[QUERIES];
+                for (int i = 0; i < QUERIES; i++)
+                    indexes[i] = r.nextInt(sorted.length);
+                return bh -> {
+                    long sum = 0;
+                    for (int i : indexes)
+                        sum += type.select(m, i);
+                    bh.consume(sum);
+                };
+            }
+            case "subMapSize": {
+                Long[] from = new Long[QUERIES], to = new Long[QUERIES];
+                for (int i = 0; i < QUERIES; i++) {
+                    int a = r.nextInt(sorted.length), b = r.nextInt(sorted.length);
+                    from[i] = sorted[Math.min(a, b)];
+                    to[i] = sorted[Math.max(a, b)];
+                }
+                return bh -> {
+                    long sum = 0;
+                    for (int i = 0; i < QUERIES; i++)
+                        sum += m.subMap(from[i], true, to[i], false).size();
+                    bh.consume(sum);
+                };
+            }
+            default:
+                throw new IllegalArgumentException(benchmark);
+        }
+    }
+}
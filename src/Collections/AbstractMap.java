@@ -25,7 +25,6 @@
 
 package Collections;
 import java.util.Iterator;
-import java.util.Map.Entry;
 
 /**
  * 此类提供 Map 接口的基本实现，以最小化实现此接口所需的工作。
@@ -260,7 +259,7 @@ public abstract class AbstractMap<K,V> implements Map<K,V> {
      * @throws IllegalArgumentException      {@inheritDoc}
      */
     public void putAll(Map<? extends K, ? extends V> m) {
-        for (java.util.Map.Entry<? extends K, ? extends V> e : m.entrySet())
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
             put(e.getKey(), e.getValue());
     }
 
@@ -0,0 +1,1499 @@
+package Collections;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * 基于内存中 B+ 树的 NavigableMap，接口和语义与 TreeMap 相同。
+ *
+ * TreeMap 每个映射一个 Entry 对象，带有 left、right、parent 三个指针，
+ * 查找要沿着指针访问大约 log2(n) 个分散在堆中的对象，n 达到百万级时
+ * 几乎每一步都是一次缓存未命中；顺序遍历时 successor 也要在树中上下
+ * 跳转。此类把映射存放在宽节点中：
+ *
+ *   叶子节点  最多 nodeCapacity 个按顺序排列的 key，对应的 value 存放在
+ *            平行的数组中。所有叶子通过 prev、next 连成双向链表；
+ *   内部节点  最多 nodeCapacity 个子节点，keys[i] 是 children[i] 和
+ *            children[i + 1] 之间的分隔 key：大于 children[i] 中所有的
+ *            key，不大于 children[i + 1] 中所有的 key。
+ *
+ * 节点容量默认为 64，百万个映射的树只有 4 层。查找每层在一个连续的
+ * 数组中二分查找，要访问的对象比 TreeMap 少得多；范围查询定位到起点后
+ * 沿着叶子链表顺序读取数组。插入时溢出的节点分裂成两半；删除后不足
+ * 半满的节点从相邻的兄弟节点借一个元素，或者与兄弟节点合并。按升序
+ * 追加时（新 key 大于所有已有的 key）分裂只移出最后的元素，叶子保持
+ * 满的状态，而不是只有一半。
+ *
+ * 与 TreeMap 相同，containsKey、get、put、remove 都是 O(log n)，支持
+ * subMap、headMap、tailMap、descendingMap、navigableKeySet、
+ * descendingKeySet 等所有视图，视图的 size() 需要遍历范围内的叶子。
+ * key 的比较和 null 的处理、迭代器的 fast-fail 也与 TreeMap 相同。
+ *
+ * 注意该实现不是同步的。
+ *
+ * @August 映射不是单独的对象：firstEntry、ceilingEntry 等方法与 TreeMap
+ *         一样返回不支持 setValue 的快照；entrySet 迭代器每次创建一个 entry，
+ *         它的 setValue 按 key 重新查找后写回 map。只需要读取时 forEach
+ *         不创建 entry，遍历更快。put、remove 要
+ *         在节点内移动数组元素，以写为主的场景 TreeMap 可能更合适。
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see TreeMap
+ */
+public class BTreeMap<K,V> extends AbstractMap<K,V>
+        implements NavigableMap<K,V>, Serializable {
+
+    private static final long serialVersionUID = 3178940275863207619L;
+
+    /**
+     * 默认的节点容量。
+     */
+    static final int DEFAULT_NODE_CAPACITY = 64;
+
+    /**
+     * 节点容量的最小值。
+     */
+    static final int MIN_NODE_CAPACITY = 4;
+
+    /**
+     * 比较器，为 null 时使用 key 的自然顺序。
+     *
+     * @serial
+     */
+    private final Comparator<? super K> comparator;
+
+    /**
+     * 叶子中 key 的最大个数，也是内部节点中子节点的最大个数。除了根节点
+     * 和最右边的节点，每个节点至少有 nodeCapacity / 2 个。
+     *
+     * @serial
+     */
+    private final int nodeCapacity;
+
+    private transient Node root;
+
+    /**
+     * 叶子链表的头和尾。
+     */
+    private transient Leaf first, last;
+
+    /**
+     * 内部节点的层数，根节点是叶子时为 0。
+     */
+    private transient int height;
+
+    private transient int size;
+
+    private transient int modCount;
+
+    /**
+     * put 和 remove 记录从根到叶子经过的内部节点，path[d] 为第 d 层的
+     * 节点，pathIndex[d] 为经过的子节点下标，分裂和合并时据此向上调整。
+     */
+    private transient Inner[] path;
+    private transient int[] pathIndex;
+
+    // 视图，第一次请求时创建
+    private transient EntrySet<K,V> entrySet;
+    private transient KeySet<K> navigableKeySet;
+    private transient Values<K,V> values;
+    private transient NavigableMap<K,V> descendingMap;
+
+    /**
+     * 构造一个空 map，使用 key 的自然顺序。
+     */
+    public BTreeMap() {
+        this(DEFAULT_NODE_CAPACITY, null);
+    }
+
+    /**
+     * 构造一个空 map，使用指定的比较器。
+     */
+    public BTreeMap(Comparator<? super K> comparator) {
+        this(DEFAULT_NODE_CAPACITY, comparator);
+    }
+
+    /**
+     * 构造一个空 map。
+     *
+     * @param nodeCapacity 每个节点的最大容量
+     * @param comparator   比较器，为 null 时使用 key 的自然顺序
+     * @throws IllegalArgumentException 如果 nodeCapacity 小于 4
+     */
+    public BTreeMap(int nodeCapacity, Comparator<? super K> comparator) {
+        if (nodeCapacity < MIN_NODE_CAPACITY)
+            throw new IllegalArgumentException("Illegal node capacity: " + nodeCapacity);
+        this.nodeCapacity = nodeCapacity;
+        this.comparator = comparator;
+    }
+
+    /**
+     * 构造一个包含 m 中所有映射的 map，使用 key 的自然顺序。
+     */
+    public BTreeMap(Map<? extends K, ? extends V> m) {
+        this(DEFAULT_NODE_CAPACITY, null);
+        putAll(m);
+    }
+
+    /**
+     * 构造一个包含 m 中所有映射的 map，使用 m 的比较器。
+     */
+    public BTreeMap(SortedMap<K, ? extends V> m) {
+        this(DEFAULT_NODE_CAPACITY, m.comparator());
+        putAll(m);
+    }
+
+    /**
+     * 节点的公共部分。size 对叶子是 key 的个数，对内部节点是子节点的个数。
+     * 数组比容量多一个位置，插入时先放入再分裂。
+     */
+    abstract static class Node {
+        int size;
+    }
+
+    static final class Leaf extends Node {
+        final Object[] keys;
+        final Object[] vals;
+        Leaf prev, next;
+
+        Leaf(int capacity) {
+            keys = new Object[capacity + 1];
+            vals = new Object[capacity + 1];
+        }
+    }
+
+    static final class Inner extends Node {
+        final Object[] keys;
+        final Node[] children;
+
+        Inner(int capacity) {
+            keys = new Object[capacity];
+            children = new Node[capacity + 1];
+        }
+    }
+
+    /**
+     * map 中的一个位置：叶子和叶子中的下标。
+     */
+    static class Cursor {
+        Leaf leaf;
+        int index;
+
+        final Object key() {
+            return leaf.keys[index];
+        }
+    }
+
+    // seek 的查找关系。CEILING ^ 2 == FLOOR，HIGHER ^ 2 == LOWER，
+    // 降序视图据此把自身的关系转换为 map 中的关系
+    static final int CEILING = 0, HIGHER = 1, FLOOR = 2, LOWER = 3;
+
+    @SuppressWarnings("unchecked")
+    final int compare(Object k1, Object k2) {
+        return (comparator == null) ? ((Comparable<? super K>) k1).compareTo((K) k2)
+                                    : comparator.compare((K) k1, (K) k2);
+    }
+
+    /**
+     * 在 a[0, n) 中二分查找 key，找到时返回下标，否则返回
+     * -(插入位置 + 1)。与 TreeMap.getEntry 相同，自然顺序的比较单独
+     * 写成一个循环。
+     */
+    @SuppressWarnings("unchecked")
+    final int search(Object[] a, int n, Object key) {
+        int lo = 0, hi = n - 1;
+        Comparator<? super K> cpr = comparator;
+        if (cpr == null) {
+            if (key == null)
+                throw new NullPointerException();
+            Comparable<? super K> k = (Comparable<? super K>) key;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = k.compareTo((K) a[mid]);
+                if (c > 0)
+                    lo = mid + 1;
+                else if (c < 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        } else {
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = cpr.compare((K) key, (K) a[mid]);
+                if (c > 0)
+                    lo = mid + 1;
+                else if (c < 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * 返回内部节点 p 中 key 所在的子节点下标，即不大于 key 的分隔 key
+     * 的个数。
+     */
+    private int childIndex(Inner p, Object key) {
+        int i = search(p.keys, p.size - 1, key);
+        return (i >= 0) ? i + 1 : -(i + 1);
+    }
+
+    /**
+     * 返回 key 所在（或者应该插入）的叶子，map 不能为空。
+     */
+    final Leaf leafFor(Object key) {
+        Node x = root;
+        for (int h = height; h > 0; h--) {
+            Inner p = (Inner) x;
+            x = p.children[childIndex(p, key)];
+        }
+        return (Leaf) x;
+    }
+
+    /**
+     * 把 c 定位到与 key 满足关系 rel 的最近的位置，不存在时返回 false。
+     *
+     * 分隔 key 保证 key 所在叶子之前的叶子中的 key 都小于 key，之后的
+     * 都大于 key，所以最多跨过一个叶子。
+     */
+    final boolean seek(Cursor c, Object key, int rel) {
+        if (root == null) {
+            if (key == null && comparator == null)
+                throw new NullPointerException();
+            return false;
+        }
+        Leaf l = leafFor(key);
+        int i = search(l.keys, l.size, key);
+        int j;
+        switch (rel) {
+            case CEILING: j = (i >= 0) ? i : -(i + 1); break;
+            case HIGHER:  j = (i >= 0) ? i + 1 : -(i + 1); break;
+            case FLOOR:   j = (i >= 0) ? i : -(i + 1) - 1; break;
+            default:      j = (i >= 0) ? i - 1 : -(i + 1) - 1; break;
+        }
+        if (j >= l.size) {
+            l = l.next;
+            j = 0;
+        } else if (j < 0) {
+            l = l.prev;
+            if (l != null)
+                j = l.size - 1;
+        }
+        if (l == null)
+            return false;
+        c.leaf = l;
+        c.index = j;
+        return true;
+    }
+
+    final boolean seekFirst(Cursor c) {
+        if (first == null)
+            return false;
+        c.leaf = first;
+        c.index = 0;
+        return true;
+    }
+
+    final boolean seekLast(Cursor c) {
+        if (last == null)
+            return false;
+        c.leaf = last;
+        c.index = last.size - 1;
+        return true;
+    }
+
+    /**
+     * 定位到 range 的最高（high 为 true）或者最低的位置，range 为 null
+     * 表示整个 map。
+     */
+    final boolean seekEnd(Cursor c, SubMap<K,V> range, boolean high) {
+        if (range == null)
+            return high ? seekLast(c) : seekFirst(c);
+        return high ? range.absHighest(c) : range.absLowest(c);
+    }
+
+    /**
+     * 返回 c 位置映射的快照。
+     */
+    @SuppressWarnings("unchecked")
+    final Map.Entry<K,V> exportEntry(Cursor c) {
+        Leaf l = c.leaf;
+        int i = c.index;
+        return new AbstractMap.SimpleImmutableEntry<>((K) l.keys[i], (V) l.vals[i]);
+    }
+
+    // Query Operations
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (root == null) {
+            if (key == null && comparator == null)
+                throw new NullPointerException();
+            return null;
+        }
+        Leaf l = leafFor(key);
+        int i = search(l.keys, l.size, key);
+        return (i >= 0) ? (V) l.vals[i] : null;
+    }
+
+    public boolean containsKey(Object key) {
+        if (root == null) {
+            if (key == null && comparator == null)
+                throw new NullPointerException();
+            return false;
+        }
+        Leaf l = leafFor(key);
+        return search(l.keys, l.size, key) >= 0;
+    }
+
+    public boolean containsValue(Object value) {
+        for (Leaf l = first; l != null; l = l.next)
+            for (int i = 0; i < l.size; i++)
+                if (Objects.equals(value, l.vals[i]))
+                    return true;
+        return false;
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * 节点容量。
+     */
+    public int nodeCapacity() {
+        return nodeCapacity;
+    }
+
+    @SuppressWarnings("unchecked")
+    public K firstKey() {
+        if (first == null)
+            throw new NoSuchElementException();
+        return (K) first.keys[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    public K lastKey() {
+        if (last == null)
+            throw new NoSuchElementException();
+        return (K) last.keys[last.size - 1];
+    }
+
+    // Modification Operations
+
+    /**
+     * 插入或者替换 key 对应的 value。
+     *
+     * @throws ClassCastException 如果 key 不能和 map 中的 key 比较
+     * @throws NullPointerException 如果 key 为 null 并且使用自然顺序，
+     *         或者比较器不允许 null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (root == null) {
+            compare(key, key); // type (and possibly null) check
+            Leaf l = new Leaf(nodeCapacity);
+            l.keys[0] = key;
+            l.vals[0] = value;
+            l.size = 1;
+            root = first = last = l;
+            size = 1;
+            modCount++;
+            return null;
+        }
+        Inner[] path = this.path;
+        int[] pathIndex = this.pathIndex;
+        Node x = root;
+        for (int d = 0; d < height; d++) {
+            Inner p = (Inner) x;
+            int ci = childIndex(p, key);
+            path[d] = p;
+            pathIndex[d] = ci;
+            x = p.children[ci];
+        }
+        Leaf l = (Leaf) x;
+        int n = l.size;
+        int i = search(l.keys, n, key);
+        if (i >= 0) {
+            V oldValue = (V) l.vals[i];
+            l.vals[i] = value;
+            return oldValue;
+        }
+        i = -(i + 1);
+        System.arraycopy(l.keys, i, l.keys, i + 1, n - i);
+        System.arraycopy(l.vals, i, l.vals, i + 1, n - i);
+        l.keys[i] = key;
+        l.vals[i] = value;
+        l.size = n + 1;
+        size++;
+        modCount++;
+        if (n == nodeCapacity)
+            split(l, height, l.next == null && i == n);
+        return null;
+    }
+
+    /**
+     * 叶子 l 溢出：分裂成两个叶子，把新的叶子插入父节点，父节点溢出时
+     * 继续向上分裂，直到根节点。depth 为 l 的祖先的个数。
+     *
+     * append 为 true 表示新 key 追加在最后一个叶子的末尾，此时 l 和
+     * 它的祖先都在最右边，只把末尾的元素分出去，左边的节点保持满的状态。
+     */
+    private void split(Leaf l, int depth, boolean append) {
+        int n = l.size;
+        int mid = append ? n - 1 : n >>> 1;
+        Leaf r = new Leaf(nodeCapacity);
+        System.arraycopy(l.keys, mid, r.keys, 0, n - mid);
+        System.arraycopy(l.vals, mid, r.vals, 0, n - mid);
+        Arrays.fill(l.keys, mid, n, null);
+        Arrays.fill(l.vals, mid, n, null);
+        l.size = mid;
+        r.size = n - mid;
+        r.prev = l;
+        r.next = l.next;
+        if (l.next != null)
+            l.next.prev = r;
+        else
+            last = r;
+        l.next = r;
+
+        Node left = l, right = r;
+        Object sep = r.keys[0];
+        while (depth > 0) {
+            Inner p = path[--depth];
+            int ci = pathIndex[depth];
+            int pn = p.size;
+            System.arraycopy(p.keys, ci, p.keys, ci + 1, pn - 1 - ci);
+            System.arraycopy(p.children, ci + 1, p.children, ci + 2, pn - 1 - ci);
+            p.keys[ci] = sep;
+            p.children[ci + 1] = right;
+            p.size = ++pn;
+            if (pn <= nodeCapacity)
+                return;
+            // 内部节点溢出：children[0, mid) 留在 p，keys[mid - 1] 上移，
+            // 其余的移到新节点。内部节点至少保留两个子节点
+            mid = append ? pn - 2 : pn >>> 1;
+            Inner q = new Inner(nodeCapacity);
+            System.arraycopy(p.children, mid, q.children, 0, pn - mid);
+            System.arraycopy(p.keys, mid, q.keys, 0, pn - 1 - mid);
+            sep = p.keys[mid - 1];
+            Arrays.fill(p.children, mid, pn, null);
+            Arrays.fill(p.keys, mid - 1, pn - 1, null);
+            p.size = mid;
+            q.size = pn - mid;
+            left = p;
+            right = q;
+        }
+        // 根节点分裂，树增高一层
+        Inner newRoot = new Inner(nodeCapacity);
+        newRoot.children[0] = left;
+        newRoot.children[1] = right;
+        newRoot.keys[0] = sep;
+        newRoot.size = 2;
+        root = newRoot;
+        if (++height > (path == null ? 0 : path.length)) {
+            path = new Inner[height + 2];
+            pathIndex = new int[height + 2];
+        }
+    }
+
+    /**
+     * 删除 key 对应的映射，返回原来的 value。
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (root == null) {
+            if (key == null && comparator == null)
+                throw new NullPointerException();
+            return null;
+        }
+        Inner[] path = this.path;
+        int[] pathIndex = this.pathIndex;
+        Node x = root;
+        for (int d = 0; d < height; d++) {
+            Inner p = (Inner) x;
+            int ci = childIndex(p, key);
+            path[d] = p;
+            pathIndex[d] = ci;
+            x = p.children[ci];
+        }
+        Leaf l = (Leaf) x;
+        int n = l.size;
+        int i = search(l.keys, n, key);
+        if (i < 0)
+            return null;
+        V oldValue = (V) l.vals[i];
+        System.arraycopy(l.keys, i + 1, l.keys, i, n - 1 - i);
+        System.arraycopy(l.vals, i + 1, l.vals, i, n - 1 - i);
+        l.keys[n - 1] = null;
+        l.vals[n - 1] = null;
+        l.size = n - 1;
+        size--;
+        modCount++;
+        rebalance(l, height);
+        return oldValue;
+    }
+
+    /**
+     * x 删除元素之后调用：x 不足半满时从兄弟节点借一个元素或者与兄弟
+     * 节点合并，合并使父节点不足半满时继续向上调整。根节点只剩一个子
+     * 节点时树降低一层。
+     */
+    private void rebalance(Node x, int depth) {
+        int min = nodeCapacity >> 1;
+        while (depth > 0 && x.size < min) {
+            Inner p = path[--depth];
+            int i = pathIndex[depth];
+            if (i > 0) {
+                if (p.children[i - 1].size > min)
+                    borrowFromLeft(p, i);
+                else
+                    merge(p, i - 1);
+            } else {
+                if (p.children[1].size > min)
+                    borrowFromRight(p, 0);
+                else
+                    merge(p, 0);
+            }
+            x = p;
+        }
+        Node r = root;
+        if (height > 0 && r.size == 1) {
+            root = ((Inner) r).children[0];
+            height--;
+        } else if (r.size == 0) {
+            root = first = last = null;
+        }
+    }
+
+    /**
+     * 把 p.children[i - 1] 的最后一个元素移到 p.children[i] 的开头。
+     */
+    private void borrowFromLeft(Inner p, int i) {
+        Node x = p.children[i], y = p.children[i - 1];
+        int n = x.size, ln = y.size;
+        if (x instanceof Leaf) {
+            Leaf c = (Leaf) x, l = (Leaf) y;
+            System.arraycopy(c.keys, 0, c.keys, 1, n);
+            System.arraycopy(c.vals, 0, c.vals, 1, n);
+            c.keys[0] = l.keys[ln - 1];
+            c.vals[0] = l.vals[ln - 1];
+            l.keys[ln - 1] = null;
+            l.vals[ln - 1] = null;
+            p.keys[i - 1] = c.keys[0];
+        } else {
+            Inner c = (Inner) x, l = (Inner) y;
+            System.arraycopy(c.children, 0, c.children, 1, n);
+            System.arraycopy(c.keys, 0, c.keys, 1, n - 1);
+            c.children[0] = l.children[ln - 1];
+            c.keys[0] = p.keys[i - 1];
+            p.keys[i - 1] = l.keys[ln - 2];
+            l.children[ln - 1] = null;
+            l.keys[ln - 2] = null;
+        }
+        x.size = n + 1;
+        y.size = ln - 1;
+    }
+
+    /**
+     * 把 p.children[i + 1] 的第一个元素移到 p.children[i] 的末尾。
+     */
+    private void borrowFromRight(Inner p, int i) {
+        Node x = p.children[i], y = p.children[i + 1];
+        int n = x.size, rn = y.size;
+        if (x instanceof Leaf) {
+            Leaf c = (Leaf) x, r = (Leaf) y;
+            c.keys[n] = r.keys[0];
+            c.vals[n] = r.vals[0];
+            System.arraycopy(r.keys, 1, r.keys, 0, rn - 1);
+            System.arraycopy(r.vals, 1, r.vals, 0, rn - 1);
+            r.keys[rn - 1] = null;
+            r.vals[rn - 1] = null;
+            p.keys[i] = r.keys[0];
+        } else {
+            Inner c = (Inner) x, r = (Inner) y;
+            c.children[n] = r.children[0];
+            c.keys[n - 1] = p.keys[i];
+            p.keys[i] = r.keys[0];
+            System.arraycopy(r.children, 1, r.children, 0, rn - 1);
+            System.arraycopy(r.keys, 1, r.keys, 0, rn - 2);
+            r.children[rn - 1] = null;
+            r.keys[rn - 2] = null;
+        }
+        x.size = n + 1;
+        y.size = rn - 1;
+    }
+
+    /**
+     * 把 p.children[i + 1] 合并到 p.children[i]，从 p 中删除它以及两者
+     * 之间的分隔 key。
+     */
+    private void merge(Inner p, int i) {
+        Node x = p.children[i], y = p.children[i + 1];
+        int n = x.size, rn = y.size;
+        if (x instanceof Leaf) {
+            Leaf l = (Leaf) x, r = (Leaf) y;
+            System.arraycopy(r.keys, 0, l.keys, n, rn);
+            System.arraycopy(r.vals, 0, l.vals, n, rn);
+            l.next = r.next;
+            if (r.next != null)
+                r.next.prev = l;
+            else
+                last = l;
+        } else {
+            Inner l = (Inner) x, r = (Inner) y;
+            l.keys[n - 1] = p.keys[i];
+            System.arraycopy(r.keys, 0, l.keys, n, rn - 1);
+            System.arraycopy(r.children, 0, l.children, n, rn);
+        }
+        x.size = n + rn;
+        int pn = p.size;
+        System.arraycopy(p.keys, i + 1, p.keys, i, pn - 2 - i);
+        System.arraycopy(p.children, i + 2, p.children, i + 1, pn - 2 - i);
+        p.keys[pn - 2] = null;
+        p.children[pn - 1] = null;
+        p.size = pn - 1;
+    }
+
+    public void clear() {
+        modCount++;
+        size = 0;
+        height = 0;
+        root = first = last = null;
+        path = null;
+        pathIndex = null;
+    }
+
+    // NavigableMap API methods
+
+    public Map.Entry<K,V> firstEntry() {
+        Cursor c = new Cursor();
+        return seekFirst(c) ? exportEntry(c) : null;
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        Cursor c = new Cursor();
+        return seekLast(c) ? exportEntry(c) : null;
+    }
+
+    public Map.Entry<K,V> pollFirstEntry() {
+        Map.Entry<K,V> e = firstEntry();
+        if (e != null)
+            remove(e.getKey());
+        return e;
+    }
+
+    public Map.Entry<K,V> pollLastEntry() {
+        Map.Entry<K,V> e = lastEntry();
+        if (e != null)
+            remove(e.getKey());
+        return e;
+    }
+
+    private Map.Entry<K,V> relEntry(Object key, int rel) {
+        Cursor c = new Cursor();
+        return seek(c, key, rel) ? exportEntry(c) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K relKey(Object key, int rel) {
+        Cursor c = new Cursor();
+        return seek(c, key, rel) ? (K) c.key() : null;
+    }
+
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return relEntry(key, LOWER);
+    }
+
+    public K lowerKey(K key) {
+        return relKey(key, LOWER);
+    }
+
+    public Map.Entry<K,V> floorEntry(K key) {
+        return relEntry(key, FLOOR);
+    }
+
+    public K floorKey(K key) {
+        return relKey(key, FLOOR);
+    }
+
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return relEntry(key, CEILING);
+    }
+
+    public K ceilingKey(K key) {
+        return relKey(key, CEILING);
+    }
+
+    public Map.Entry<K,V> higherEntry(K key) {
+        return relEntry(key, HIGHER);
+    }
+
+    public K higherKey(K key) {
+        return relKey(key, HIGHER);
+    }
+
+    // Views
+
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        KeySet<K> nks = navigableKeySet;
+        return (nks != null) ? nks : (navigableKeySet = new KeySet<>(this));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    public Collection<V> values() {
+        Values<K,V> vs = values;
+        return (vs != null) ? vs : (values = new Values<>(this, null, false));
+    }
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet<K,V> es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySet<>(this, null, false));
+    }
+
+    public NavigableMap<K,V> descendingMap() {
+        NavigableMap<K,V> km = descendingMap;
+        return (km != null) ? km :
+            (descendingMap = new SubMap<>(this, true, null, true, true, null, true, true));
+    }
+
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                    K toKey,   boolean toInclusive) {
+        return new SubMap<>(this, false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+    }
+
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        return new SubMap<>(this, true, null, true, false, toKey, inclusive, false);
+    }
+
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap<>(this, false, fromKey, inclusive, true, null, true, false);
+    }
+
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        for (Leaf l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.size; i++) {
+                action.accept((K) l.keys[i], (V) l.vals[i]);
+                if (expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        int expectedModCount = modCount;
+        for (Leaf l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.size; i++) {
+                l.vals[i] = function.apply((K) l.keys[i], (V) l.vals[i]);
+                if (expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    // View class support
+
+    static final int KEYS = 0, VALUES = 1, ENTRIES = 2;
+
+    /**
+     * 所有视图共用的迭代器，mode 决定返回 key、value 还是 entry。自身
+     * 作为游标指向下一个要返回的位置；fenceKey 是范围内最后一个要返回
+     * 的 key，返回它以后 leaf 置为 null。
+     */
+    static final class Itr<K,V,T> extends Cursor implements Iterator<T> {
+        final BTreeMap<K,V> m;
+        final boolean descending;
+        final int mode;
+        Object fenceKey;
+        Object lastKey;
+        boolean canRemove;
+        int expectedModCount;
+
+        Itr(BTreeMap<K,V> m, SubMap<K,V> range, boolean descending, int mode) {
+            this.m = m;
+            this.descending = descending;
+            this.mode = mode;
+            expectedModCount = m.modCount;
+            Cursor fence = new Cursor();
+            if (m.seekEnd(this, range, descending) && m.seekEnd(fence, range, !descending))
+                fenceKey = fence.key();
+            else
+                leaf = null;
+        }
+
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            Leaf l = leaf;
+            if (l == null)
+                throw new NoSuchElementException();
+            if (m.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = index;
+            Object k = l.keys[i];
+            Object r = (mode == KEYS) ? k :
+                       (mode == VALUES) ? l.vals[i] : new Entry<>(m, (K) k, (V) l.vals[i]);
+            lastKey = k;
+            canRemove = true;
+            if (k == fenceKey)
+                leaf = null;
+            else if (descending) {
+                if (--index < 0) {
+                    leaf = l = l.prev;
+                    index = l.size - 1;
+                }
+            } else if (++index == l.size) {
+                leaf = l.next;
+                index = 0;
+            }
+            return (T) r;
+        }
+
+        /**
+         * 删除可能引起借用和合并，元素在叶子之间移动，删除之后按照下一个
+         * 要返回的 key 重新定位。
+         */
+        public void remove() {
+            if (!canRemove)
+                throw new IllegalStateException();
+            if (m.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            canRemove = false;
+            if (leaf == null)
+                m.remove(lastKey);
+            else {
+                Object nextKey = key();
+                m.remove(lastKey);
+                m.seek(this, nextKey, CEILING);
+            }
+            expectedModCount = m.modCount;
+        }
+    }
+
+    /**
+     * entrySet 迭代器返回的 entry。映射在节点之间移动，entry 不记录
+     * 位置，setValue 时按 key 重新查找，对象只有三个字段，遍历时分配
+     * 尽量少。
+     */
+    static final class Entry<K,V> implements Map.Entry<K,V> {
+        final BTreeMap<K,V> m;
+        final K key;
+        V value;
+
+        Entry(BTreeMap<K,V> m, K key, V value) {
+            this.m = m;
+            this.key = key;
+            this.value = value;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        /**
+         * @throws IllegalStateException 如果映射已经被删除
+         */
+        public V setValue(V value) {
+            Leaf l;
+            int i;
+            if (m.root == null || (i = m.search((l = m.leafFor(key)).keys, l.size, key)) < 0)
+                throw new IllegalStateException();
+            V oldValue = this.value;
+            l.vals[i] = value;
+            this.value = value;
+            return oldValue;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+        }
+
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * entrySet 视图，range 为 null 时是整个 map。
+     */
+    static final class EntrySet<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        final BTreeMap<K,V> m;
+        final SubMap<K,V> range;
+        final boolean descending;
+
+        EntrySet(BTreeMap<K,V> m, SubMap<K,V> range, boolean descending) {
+            this.m = m;
+            this.range = range;
+            this.descending = descending;
+        }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new Itr<>(m, range, descending, ENTRIES);
+        }
+
+        public int size() {
+            return (range == null) ? m.size() : range.size();
+        }
+
+        public boolean isEmpty() {
+            return (range == null) ? m.isEmpty() : range.isEmpty();
+        }
+
+        // 存在并且 value 相同时返回 key
+        private Object find(Object o) {
+            if (!(o instanceof Map.Entry))
+                return null;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            if ((range != null && !range.inRange(key)) || !m.containsKey(key))
+                return null;
+            return Objects.equals(m.get(key), e.getValue()) ? e : null;
+        }
+
+        public boolean contains(Object o) {
+            return find(o) != null;
+        }
+
+        public boolean remove(Object o) {
+            if (find(o) == null)
+                return false;
+            m.remove(((Map.Entry<?,?>) o).getKey());
+            return true;
+        }
+
+        public void clear() {
+            if (range == null)
+                m.clear();
+            else
+                super.clear();
+        }
+    }
+
+    /**
+     * values 视图，range 为 null 时是整个 map。
+     */
+    static final class Values<K,V> extends AbstractCollection<V> {
+        final BTreeMap<K,V> m;
+        final SubMap<K,V> range;
+        final boolean descending;
+
+        Values(BTreeMap<K,V> m, SubMap<K,V> range, boolean descending) {
+            this.m = m;
+            this.range = range;
+            this.descending = descending;
+        }
+
+        public Iterator<V> iterator() {
+            return new Itr<>(m, range, descending, VALUES);
+        }
+
+        public int size() {
+            return (range == null) ? m.size() : range.size();
+        }
+
+        public boolean isEmpty() {
+            return (range == null) ? m.isEmpty() : range.isEmpty();
+        }
+
+        public boolean contains(Object o) {
+            return (range == null) ? m.containsValue(o) : super.contains(o);
+        }
+
+        public void clear() {
+            if (range == null)
+                m.clear();
+            else
+                super.clear();
+        }
+    }
+
+    static <E> Iterator<E> keyIterator(NavigableMap<E,?> m, boolean reverse) {
+        if (m instanceof BTreeMap)
+            return new Itr<>((BTreeMap<E,?>) m, null, reverse, KEYS);
+        return subMapKeyIterator((SubMap<E,?>) m, reverse);
+    }
+
+    private static <K,V> Iterator<K> subMapKeyIterator(SubMap<K,V> sm, boolean reverse) {
+        return new Itr<>(sm.m, sm, sm.descending ^ reverse, KEYS);
+    }
+
+    /**
+     * 与 TreeMap.KeySet 相同，委托给一个 NavigableMap，子映射也使用此类。
+     */
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final NavigableMap<E, ?> m;
+        KeySet(NavigableMap<E,?> map) { m = map; }
+
+        public Iterator<E> iterator() { return keyIterator(m, false); }
+        public Iterator<E> descendingIterator() { return keyIterator(m, true); }
+
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public boolean remove(Object o) {
+            int oldSize = size();
+            m.remove(o);
+            return size() != oldSize;
+        }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return new KeySet<>(m.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(m.tailMap(fromElement, inclusive));
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(m.descendingMap());
+        }
+    }
+
+    // SubMaps
+
+    /**
+     * 子映射和降序视图。与 TreeMap.NavigableSubMap 相同，lo 和 hi 是在
+     * m 中的绝对范围，fromStart、toEnd 为 true 表示该方向没有边界；
+     * descending 为 true 时视图的顺序与 m 相反，升序和降序共用这一个类，
+     * 视图中的查找关系转换为 m 中的关系后执行。
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V> implements NavigableMap<K,V> {
+        final BTreeMap<K,V> m;
+        final Object lo, hi;
+        final boolean fromStart, toEnd;
+        final boolean loInclusive, hiInclusive;
+        final boolean descending;
+
+        SubMap(BTreeMap<K,V> m,
+               boolean fromStart, Object lo, boolean loInclusive,
+               boolean toEnd,     Object hi, boolean hiInclusive,
+               boolean descending) {
+            if (!fromStart && !toEnd) {
+                if (m.compare(lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    m.compare(lo, lo);
+                if (!toEnd)
+                    m.compare(hi, hi);
+            }
+            this.m = m;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        // internal utilities
+
+        final boolean tooLow(Object key) {
+            if (!fromStart) {
+                int c = m.compare(key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int c = m.compare(key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        final boolean inClosedRange(Object key) {
+            return (fromStart || m.compare(key, lo) >= 0)
+                && (toEnd || m.compare(hi, key) >= 0);
+        }
+
+        final boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key) : inClosedRange(key);
+        }
+
+        // 绝对方向上的定位
+
+        final boolean absLowest(Cursor c) {
+            return (fromStart ? m.seekFirst(c) : m.seek(c, lo, loInclusive ? CEILING : HIGHER))
+                && !tooHigh(c.key());
+        }
+
+        final boolean absHighest(Cursor c) {
+            return (toEnd ? m.seekLast(c) : m.seek(c, hi, hiInclusive ? FLOOR : LOWER))
+                && !tooLow(c.key());
+        }
+
+        final boolean absSeek(Cursor c, Object key, int rel) {
+            if (rel == CEILING || rel == HIGHER) {
+                if (tooLow(key))
+                    return absLowest(c);
+                return m.seek(c, key, rel) && !tooHigh(c.key());
+            }
+            if (tooHigh(key))
+                return absHighest(c);
+            return m.seek(c, key, rel) && !tooLow(c.key());
+        }
+
+        // 视图方向上的定位
+
+        private boolean seekFirst(Cursor c) {
+            return descending ? absHighest(c) : absLowest(c);
+        }
+
+        private boolean seekLast(Cursor c) {
+            return descending ? absLowest(c) : absHighest(c);
+        }
+
+        private Map.Entry<K,V> relEntry(Object key, int rel) {
+            Cursor c = new Cursor();
+            return absSeek(c, key, descending ? rel ^ 2 : rel) ? m.exportEntry(c) : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private K relKey(Object key, int rel) {
+            Cursor c = new Cursor();
+            return absSeek(c, key, descending ? rel ^ 2 : rel) ? (K) c.key() : null;
+        }
+
+        // public methods
+
+        public boolean isEmpty() {
+            return (fromStart && toEnd) ? m.isEmpty() : !absLowest(new Cursor());
+        }
+
+        /**
+         * 定位到范围的两端，累加中间叶子的元素个数。
+         */
+        public int size() {
+            if (fromStart && toEnd)
+                return m.size();
+            Cursor c = new Cursor(), f = new Cursor();
+            if (!absLowest(c) || !absHighest(f))
+                return 0;
+            if (c.leaf == f.leaf)
+                return f.index - c.index + 1;
+            int n = c.leaf.size - c.index;
+            for (Leaf l = c.leaf.next; l != f.leaf; l = l.next)
+                n += l.size;
+            return n + f.index + 1;
+        }
+
+        public final boolean containsKey(Object key) {
+            return inRange(key) && m.containsKey(key);
+        }
+
+        public final V put(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return m.put(key, value);
+        }
+
+        public final V get(Object key) {
+            return !inRange(key) ? null :  m.get(key);
+        }
+
+        public final V remove(Object key) {
+            return !inRange(key) ? null : m.remove(key);
+        }
+
+        public Comparator<? super K> comparator() {
+            return descending ? java.util.Collections.reverseOrder(m.comparator())
+                              : m.comparator();
+        }
+
+        public final Map.Entry<K,V> ceilingEntry(K key) {
+            return relEntry(key, CEILING);
+        }
+
+        public final K ceilingKey(K key) {
+            return relKey(key, CEILING);
+        }
+
+        public final Map.Entry<K,V> higherEntry(K key) {
+            return relEntry(key, HIGHER);
+        }
+
+        public final K higherKey(K key) {
+            return relKey(key, HIGHER);
+        }
+
+        public final Map.Entry<K,V> floorEntry(K key) {
+            return relEntry(key, FLOOR);
+        }
+
+        public final K floorKey(K key) {
+            return relKey(key, FLOOR);
+        }
+
+        public final Map.Entry<K,V> lowerEntry(K key) {
+            return relEntry(key, LOWER);
+        }
+
+        public final K lowerKey(K key) {
+            return relKey(key, LOWER);
+        }
+
+        @SuppressWarnings("unchecked")
+        public final K firstKey() {
+            Cursor c = new Cursor();
+            if (!seekFirst(c))
+                throw new NoSuchElementException();
+            return (K) c.key();
+        }
+
+        @SuppressWarnings("unchecked")
+        public final K lastKey() {
+            Cursor c = new Cursor();
+            if (!seekLast(c))
+                throw new NoSuchElementException();
+            return (K) c.key();
+        }
+
+        public final Map.Entry<K,V> firstEntry() {
+            Cursor c = new Cursor();
+            return seekFirst(c) ? m.exportEntry(c) : null;
+        }
+
+        public final Map.Entry<K,V> lastEntry() {
+            Cursor c = new Cursor();
+            return seekLast(c) ? m.exportEntry(c) : null;
+        }
+
+        public final Map.Entry<K,V> pollFirstEntry() {
+            Map.Entry<K,V> e = firstEntry();
+            if (e != null)
+                m.remove(e.getKey());
+            return e;
+        }
+
+        public final Map.Entry<K,V> pollLastEntry() {
+            Map.Entry<K,V> e = lastEntry();
+            if (e != null)
+                m.remove(e.getKey());
+            return e;
+        }
+
+        // Views
+
+        public final Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public final NavigableSet<K> navigableKeySet() {
+            return new KeySet<>(this);
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public Collection<V> values() {
+            return new Values<>(m, this, descending);
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            return new EntrySet<>(m, this, descending);
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            return new SubMap<>(m, fromStart, lo, loInclusive, toEnd, hi, hiInclusive, !descending);
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                        K toKey,   boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            if (descending)
+                return new SubMap<>(m, false, toKey, toInclusive, false, fromKey, fromInclusive, true);
+            return new SubMap<>(m, false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            if (descending)
+                return new SubMap<>(m, false, toKey, inclusive, toEnd, hi, hiInclusive, true);
+            return new SubMap<>(m, fromStart, lo, loInclusive, false, toKey, inclusive, false);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (descending)
+                return new SubMap<>(m, fromStart, lo, loInclusive, false, fromKey, inclusive, true);
+            return new SubMap<>(m, false, fromKey, inclusive, toEnd, hi, hiInclusive, false);
+        }
+
+        public SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        /**
+         * 按照视图的顺序沿着叶子链表遍历范围内的映射，不创建 entry。
+         */
+        @SuppressWarnings("unchecked")
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            Objects.requireNonNull(action);
+            Cursor c = new Cursor(), f = new Cursor();
+            if (!seekFirst(c) || !seekLast(f))
+                return;
+            Object fenceKey = f.key();
+            int expectedModCount = m.modCount;
+            Leaf l = c.leaf;
+            int i = c.index;
+            for (;;) {
+                Object k = l.keys[i];
+                action.accept((K) k, (V) l.vals[i]);
+                if (expectedModCount != m.modCount)
+                    throw new ConcurrentModificationException();
+                if (k == fenceKey)
+                    break;
+                if (descending) {
+                    if (--i < 0) {
+                        l = l.prev;
+                        i = l.size - 1;
+                    }
+                } else if (++i == l.size) {
+                    l = l.next;
+                    i = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * 序列化：节点容量、比较器、映射个数，然后按顺序写出每个 key 和 value。
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        for (Leaf l = first; l != null; l = l.next) {
+            for (int i = 0; i < l.size; i++) {
+                s.writeObject(l.keys[i]);
+                s.writeObject(l.vals[i]);
+            }
+        }
+    }
+
+    /**
+     * 反序列化：按顺序插入，每次都追加在末尾，叶子保持满的状态。
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        for (int i = 0; i < n; i++)
+            put((K) s.readObject(), (V) s.readObject());
+    }
+}
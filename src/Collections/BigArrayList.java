@@ -0,0 +1,455 @@
+package Collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * 分块存储的可变长度列表，下标为 long，扩容时不复制已有元素。
+ *
+ * ArrayList 扩容时分配一个 1.5 倍大的新数组并复制全部元素，元素很多
+ * 时复制期间新旧两个数组同时存在，堆的峰值占用接近列表本身的 2.5 倍，
+ * 复制本身也是一次很长的停顿；数组长度也限制了元素个数不能超过
+ * MAX_ARRAY_SIZE。
+ *
+ * 此类把元素存放在长度固定为 CHUNK_SIZE 的块中，块的引用存放在目录
+ * chunks 中。第 i 个元素位于 chunks[i >>> CHUNK_SHIFT][i & CHUNK_MASK]：
+ * get 比 ArrayList 多一次对目录的访问，目录很小，通常一直在缓存中。
+ * 扩容只需要分配一个新块，必要时扩大目录，目录的长度只有元素个数的
+ * 1 / CHUNK_SIZE，复制目录的开销可以忽略。
+ *
+ * 为了不让很小的列表占用一整块，第一块像 ArrayList 一样从
+ * DEFAULT_CAPACITY 开始按 1.5 倍扩容，直到 CHUNK_SIZE；之后每次扩容
+ * 增加一整块。
+ *
+ * 元素个数可以超过 Integer.MAX_VALUE，此时 size() 返回
+ * Integer.MAX_VALUE（与 Collection.size 的约定相同），sizeLong() 返回
+ * 实际个数。
+ *
+ * 只支持在末尾添加和删除元素（add、removeLast），不支持在中间插入和
+ * 删除：iterator 的 remove 以及继承自 AbstractCollection 的 remove、
+ * removeAll、retainAll 抛出 UnsupportedOperationException。
+ *
+ * 注意，这个实现不是同步的。iterator 和 spliterator 是快速失败的。
+ *
+ * @param <E> the type of elements in this list
+ * @see ArrayList
+ */
+public class BigArrayList<E> extends AbstractCollection<E>
+        implements RandomAccess, java.io.Serializable {
+
+    private static final long serialVersionUID = 2961187374917398853L;
+
+    /**
+     * 块长度的 log2。每块 16384 个引用，开启压缩指针时为 64KB。
+     */
+    static final int CHUNK_SHIFT = 14;
+
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final Object[][] EMPTY_CHUNKS = {};
+
+    /**
+     * 块目录。前 chunkCount 个元素不为 null，除第一块以外每块的长度都是
+     * CHUNK_SIZE。
+     */
+    transient Object[][] chunks;
+
+    /**
+     * 已分配的块数。
+     */
+    transient int chunkCount;
+
+    /**
+     * 元素个数。
+     *
+     * @serial
+     */
+    private long size;
+
+    transient int modCount;
+
+    /**
+     * 构造一个空列表，第一次添加元素时才分配存储空间。
+     */
+    public BigArrayList() {
+        chunks = EMPTY_CHUNKS;
+    }
+
+    /**
+     * 构造一个空列表，预先分配足够容纳 initialCapacity 个元素的块。
+     *
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public BigArrayList(long initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                    initialCapacity);
+        chunks = EMPTY_CHUNKS;
+        ensureCapacity(initialCapacity);
+    }
+
+    /**
+     * 构造一个按照 c 的迭代器顺序包含 c 中所有元素的列表。
+     *
+     * @throws NullPointerException if the specified collection is null
+     */
+    public BigArrayList(java.util.Collection<? extends E> c) {
+        this(c.size());
+        for (E e : c)
+            add(e);
+    }
+
+    /**
+     * 元素个数，超过 Integer.MAX_VALUE 时返回 Integer.MAX_VALUE。
+     */
+    public int size() {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 实际的元素个数。
+     */
+    public long sizeLong() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // 当前的容量
+    private long capacity() {
+        int n = chunkCount;
+        return (n == 0) ? 0L : ((long) (n - 1) << CHUNK_SHIFT) + chunks[0].length;
+    }
+
+    /**
+     * 如果有需要，分配新的块，确保可以容纳至少 minCapacity 个元素。已有
+     * 的元素不会被复制。
+     */
+    public void ensureCapacity(long minCapacity) {
+        if (minCapacity > capacity()) {
+            modCount++;
+            grow(minCapacity);
+        }
+    }
+
+    private void grow(long minCapacity) {
+        if (chunkCount == 0 || chunks[0].length < CHUNK_SIZE) {
+            // 第一块按 ArrayList 的策略扩容，只复制不超过 CHUNK_SIZE 个元素
+            int oldCapacity = (chunkCount == 0) ? 0 : chunks[0].length;
+            int newCapacity = Math.min(CHUNK_SIZE, IntArrayList.newCapacity(oldCapacity,
+                    (int) Math.min(Math.max(minCapacity, IntArrayList.DEFAULT_CAPACITY), CHUNK_SIZE)));
+            Object[] first = (chunkCount == 0)
+                    ? new Object[newCapacity]
+                    : Arrays.copyOf(chunks[0], newCapacity);
+            if (chunkCount == 0) {
+                chunks = new Object[1][];
+                chunkCount = 1;
+            }
+            chunks[0] = first;
+            if (minCapacity <= newCapacity)
+                return;
+        }
+        long needed = (minCapacity + CHUNK_MASK) >>> CHUNK_SHIFT;
+        if (needed > Integer.MAX_VALUE - 8)
+            throw new OutOfMemoryError();
+        int n = (int) needed;
+        if (n > chunks.length)
+            chunks = Arrays.copyOf(chunks, IntArrayList.newCapacity(chunks.length, n));
+        for (int i = chunkCount; i < n; i++)
+            chunks[i] = new Object[CHUNK_SIZE];
+        chunkCount = n;
+    }
+
+    /**
+     * 释放末尾没有使用的块。第一块不会缩小。
+     */
+    public void trimToSize() {
+        modCount++;
+        int n = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+        if (n == 0 && chunkCount > 0)
+            n = 1;
+        for (int i = n; i < chunkCount; i++)
+            chunks[i] = null;
+        chunkCount = Math.min(chunkCount, n);
+        if (chunks.length > chunkCount)
+            chunks = (chunkCount == 0) ? EMPTY_CHUNKS : Arrays.copyOf(chunks, chunkCount);
+    }
+
+    @SuppressWarnings("unchecked")
+    E elementData(long index) {
+        return (E) chunks[(int) (index >>> CHUNK_SHIFT)][(int) index & CHUNK_MASK];
+    }
+
+    /**
+     * 返回下标为 index 的元素。
+     *
+     * @throws IndexOutOfBoundsException 如果 index 小于 0 或者不小于 sizeLong()
+     */
+    public E get(long index) {
+        rangeCheck(index);
+        return elementData(index);
+    }
+
+    /**
+     * 用 element 替换下标为 index 的元素，返回原来的元素。
+     *
+     * @throws IndexOutOfBoundsException 如果 index 小于 0 或者不小于 sizeLong()
+     */
+    public E set(long index, E element) {
+        rangeCheck(index);
+        Object[] chunk = chunks[(int) (index >>> CHUNK_SHIFT)];
+        int i = (int) index & CHUNK_MASK;
+        @SuppressWarnings("unchecked") E oldValue = (E) chunk[i];
+        chunk[i] = element;
+        return oldValue;
+    }
+
+    /**
+     * 在列表末尾添加元素。
+     *
+     * @return <tt>true</tt> (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        long s = size;
+        if (s == capacity())
+            grow(s + 1);
+        modCount++;
+        chunks[(int) (s >>> CHUNK_SHIFT)][(int) s & CHUNK_MASK] = e;
+        size = s + 1;
+        return true;
+    }
+
+    /**
+     * 删除并返回最后一个元素。块不会被释放，需要时调用 trimToSize。
+     *
+     * @throws NoSuchElementException 如果列表为空
+     */
+    public E removeLast() {
+        long s = size - 1;
+        if (s < 0)
+            throw new NoSuchElementException();
+        modCount++;
+        Object[] chunk = chunks[(int) (s >>> CHUNK_SHIFT)];
+        int i = (int) s & CHUNK_MASK;
+        @SuppressWarnings("unchecked") E oldValue = (E) chunk[i];
+        chunk[i] = null; // clear to let GC do its work
+        size = s;
+        return oldValue;
+    }
+
+    /**
+     * 返回第一个等于 o 的元素的下标，不存在时返回 -1。
+     */
+    public long indexOf(Object o) {
+        long base = 0;
+        for (int c = 0; c < chunkCount && base < size; c++) {
+            Object[] chunk = chunks[c];
+            int end = (int) Math.min(chunk.length, size - base);
+            for (int i = 0; i < end; i++)
+                if (o == null ? chunk[i] == null : o.equals(chunk[i]))
+                    return base + i;
+            base += chunk.length;
+        }
+        return -1;
+    }
+
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * 删除所有元素，只保留第一块。
+     */
+    public void clear() {
+        modCount++;
+        if (chunkCount > 0) {
+            Arrays.fill(chunks[0], 0, (int) Math.min(size, chunks[0].length), null);
+            for (int i = 1; i < chunkCount; i++)
+                chunks[i] = null;
+            chunkCount = 1;
+        }
+        size = 0;
+    }
+
+    private void rangeCheck(long index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+    }
+
+    /**
+     * 按顺序对每个元素执行 action，逐块遍历。
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final long size = this.size;
+        long base = 0;
+        for (int c = 0; base < size && modCount == expectedModCount; c++) {
+            Object[] chunk = chunks[c];
+            int end = (int) Math.min(chunk.length, size - base);
+            for (int i = 0; modCount == expectedModCount && i < end; i++)
+                action.accept((E) chunk[i]);
+            base += chunk.length;
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * 返回按下标顺序遍历的迭代器，不支持 remove。
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private class Itr implements Iterator<E> {
+        long cursor;       // index of next element to return
+        int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor != size;
+        }
+
+        public E next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            long i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            cursor = i + 1;
+            return elementData(i);
+        }
+    }
+
+    /**
+     * 返回延迟绑定、快速失败的 Spliterator，对半拆分时对齐到块的边界，
+     * 每个子 Spliterator 只访问自己范围内的块。
+     */
+    public Spliterator<E> spliterator() {
+        return new BigArrayListSpliterator<>(this, 0, -1, 0);
+    }
+
+    /**
+     * 序列化。
+     *
+     * @serialData 元素个数（long），之后按顺序写出每个元素（Object）。
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+        for (long i = 0; i < size; i++)
+            s.writeObject(elementData(i));
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * 反序列化，按元素个数分配块。
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        long n = size;
+        if (n < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + n);
+        chunks = EMPTY_CHUNKS;
+        chunkCount = 0;
+        size = 0;
+        // 逐块分配，流中的 size 不可信时不会一次分配过多内存
+        for (long i = 0; i < n; i++)
+            add((E) s.readObject());
+    }
+
+    static final class BigArrayListSpliterator<E> implements Spliterator<E> {
+        private final BigArrayList<E> list;
+        private long index; // current index, modified on advance/split
+        private long fence; // -1 until used; then one past last index
+        private int expectedModCount; // initialized when fence set
+
+        BigArrayListSpliterator(BigArrayList<E> list, long origin, long fence,
+                                int expectedModCount) {
+            this.list = list;
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private long getFence() {
+            long hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = list.modCount;
+                hi = fence = list.size;
+            }
+            return hi;
+        }
+
+        public BigArrayListSpliterator<E> trySplit() {
+            long hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            // 拆分点尽量向下对齐到块的边界
+            long aligned = mid & ~(long) CHUNK_MASK;
+            if (aligned > lo)
+                mid = aligned;
+            return (lo >= mid) ? null :
+                    new BigArrayListSpliterator<>(list, lo, index = mid,
+                            expectedModCount);
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            long hi = getFence(), i = index;
+            if (i < hi) {
+                index = i + 1;
+                action.accept(list.elementData(i));
+                if (list.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            BigArrayList<E> lst = list;
+            long hi = getFence(), i = index;
+            index = hi;
+            if (lst.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Object[][] cs = lst.chunks;
+            while (i < hi) {
+                Object[] chunk = cs[(int) (i >>> CHUNK_SHIFT)];
+                int from = (int) i & CHUNK_MASK;
+                int to = (int) Math.min(chunk.length, from + (hi - i));
+                for (int j = from; j < to; j++)
+                    action.accept((E) chunk[j]);
+                i += to - from;
+            }
+            if (lst.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
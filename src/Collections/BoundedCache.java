@@ -0,0 +1,519 @@
+package Collections;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * 基于 LinkedHashMap 访问顺序链表实现的有界缓存。
+ *
+ * 用 LinkedHashMap 实现 LRU 通常是重写 removeEldestEntry，只能按映射
+ * 个数限制大小。此类在访问顺序（accessOrder = true）的 LinkedHashMap 上
+ * 增加了：
+ *   按权重限制大小    每个映射的权重由 weigher 计算，所有映射的权重之和
+ *                    不超过 maximumWeight，超过时从链表头部（最久没有
+ *                    访问的映射）开始淘汰；
+ *   过期             写入后（expireAfterWrite）或者最后一次访问后
+ *                    （expireAfterAccess）超过指定时间的映射视为不存在；
+ *   TinyLFU 准入     可选，见下文；
+ *   命中统计          命中、未命中和淘汰的次数，见 stats()。
+ *
+ * 纯 LRU 在一次性的顺序扫描面前很脆弱：扫描到的大量只访问一次的 key
+ * 会把热点数据全部挤出缓存。开启 TinyLFU 准入（W-TinyLFU）以后，缓存
+ * 分为两个区域：
+ *   window  占总权重的 1%，新的映射先进入 window，按 LRU 淘汰；
+ *   main    其余部分。从 window 淘汰的映射（候选者）进入 main 时，
+ *           如果 main 已满，与 main 中最久没有访问的映射（受害者）比较
+ *           FrequencySketch 统计的近期访问频率，只有候选者频率更高时
+ *           才淘汰受害者，否则淘汰候选者。
+ * 扫描中的 key 频率很低，无法挤掉频繁访问的映射；window 则让新出现的
+ * 热点有机会积累频率。
+ *
+ * 两个区域共用同一个 LinkedHashMap，get 和 put 只需要一次查找。
+ * LinkedHashMap 的访问顺序链表同时包含两个区域的节点，受害者是从链表
+ * 头部开始第一个不在 window 中的节点；window 的 LRU 顺序另外用节点中的
+ * 链接维护。window 中的节点都是最近放入的，很少出现在链表头部附近，
+ * 因此查找受害者时几乎不需要跳过节点。与原论文不同的是 main 区域是
+ * 单个 LRU 链表，而不是分段 LRU（SLRU）。
+ *
+ * 过期的映射在被访问时移除；写入和 cleanUp() 会从写入顺序链表和访问顺序
+ * 链表的头部开始移除所有过期的映射。
+ *
+ * key 和 value 都不能为 null：get 返回 null 表示没有命中。
+ *
+ * 注意，这个实现不是同步的。多个线程同时访问时必须在外部同步，
+ * get 也会修改链表结构。
+ *
+ * @August 权重大于 maximumWeight 的映射不会被放入缓存（视为放入后立即
+ *         被淘汰），否则它会把其他映射全部挤出去之后自己也被淘汰。
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ * @see LinkedHashMap
+ * @see CacheStats
+ */
+public class BoundedCache<K,V> {
+
+    /**
+     * 缓存中的 value 以及它的权重、写入时间、访问时间，作为 LinkedHashMap
+     * 的 value 存放。prevWrite、nextWrite 链接写入顺序链表，prevWindow、
+     * nextWindow 链接 window 的 LRU 链表。
+     */
+    static final class Node<K,V> {
+        final K key;
+        V value;
+        int weight;
+        long writeTime;
+        long accessTime;
+        boolean inWindow;
+        Node<K,V> prevWrite, nextWrite;
+        Node<K,V> prevWindow, nextWindow;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = this.accessTime = now;
+        }
+    }
+
+    /**
+     * window 区域占总权重的比例（百分比）。
+     */
+    static final int WINDOW_PERCENT = 1;
+
+    /**
+     * 所有映射，按访问顺序链接。
+     */
+    final LinkedHashMap<K,Node<K,V>> data;
+
+    /**
+     * 访问频率统计，没有开启 TinyLFU 准入时为 null。
+     */
+    final FrequencySketch sketch;
+
+    final ToIntBiFunction<? super K, ? super V> weigher;
+    final long maximumWeight;
+
+    /**
+     * window 区域的权重上限，没有开启 TinyLFU 准入时为 0。
+     */
+    final long windowMaximum;
+
+    long mainWeight;
+    long windowWeight;
+
+    /**
+     * window 的 LRU 链表的头尾（头部为最久没有访问的节点）。
+     */
+    Node<K,V> windowFirst, windowLast;
+
+    /**
+     * 写入顺序链表的头尾。
+     */
+    Node<K,V> writeFirst, writeLast;
+
+    /**
+     * 过期时间，0 表示不过期。
+     */
+    long expireAfterWriteNanos;
+    long expireAfterAccessNanos;
+
+    long hitCount;
+    long missCount;
+    long evictionCount;
+    long evictionWeight;
+
+    /**
+     * 构造一个最多容纳 maximumSize 个映射的 LRU 缓存。
+     *
+     * @param maximumSize 映射个数的上限
+     * @throws IllegalArgumentException 如果 maximumSize 小于 0
+     */
+    public BoundedCache(long maximumSize) {
+        this(maximumSize, (k, v) -> 1, false);
+    }
+
+    /**
+     * 构造一个按权重限制大小的缓存。
+     *
+     * @param maximumWeight 所有映射的权重之和的上限
+     * @param weigher 计算映射的权重，结果不能为负数
+     * @param admission 为 true 时使用 W-TinyLFU 准入策略，为 false 时为纯 LRU
+     * @throws IllegalArgumentException 如果 maximumWeight 小于 0
+     * @throws NullPointerException 如果 weigher 为 null
+     */
+    public BoundedCache(long maximumWeight,
+                        ToIntBiFunction<? super K, ? super V> weigher,
+                        boolean admission) {
+        if (maximumWeight < 0)
+            throw new IllegalArgumentException("Illegal maximum weight: " +
+                                               maximumWeight);
+        this.weigher = Objects.requireNonNull(weigher);
+        this.maximumWeight = maximumWeight;
+        this.data = new LinkedHashMap<>(16, 0.75f, true);
+        if (admission) {
+            this.windowMaximum = Math.max(1L, maximumWeight * WINDOW_PERCENT / 100);
+            this.sketch = new FrequencySketch(16);
+        } else {
+            this.windowMaximum = 0L;
+            this.sketch = null;
+        }
+    }
+
+    /**
+     * 设置写入（put）以后的过期时间，只能在缓存为空时调用。
+     *
+     * @throws IllegalArgumentException 如果 duration 不大于 0
+     * @throws IllegalStateException 如果缓存不为空
+     */
+    public void setExpireAfterWrite(long duration, TimeUnit unit) {
+        expireAfterWriteNanos = checkDuration(duration, unit);
+    }
+
+    /**
+     * 设置最后一次访问（get 命中或者 put）以后的过期时间，只能在缓存为空
+     * 时调用。
+     *
+     * @throws IllegalArgumentException 如果 duration 不大于 0
+     * @throws IllegalStateException 如果缓存不为空
+     */
+    public void setExpireAfterAccess(long duration, TimeUnit unit) {
+        expireAfterAccessNanos = checkDuration(duration, unit);
+    }
+
+    private long checkDuration(long duration, TimeUnit unit) {
+        if (duration <= 0)
+            throw new IllegalArgumentException("Illegal duration: " + duration);
+        // 没有开启过期时不记录时间，已有映射的时间戳无效
+        if (size() != 0)
+            throw new IllegalStateException("Cache is not empty");
+        return unit.toNanos(duration);
+    }
+
+    final boolean expires() {
+        return (expireAfterWriteNanos | expireAfterAccessNanos) != 0L;
+    }
+
+    final boolean isExpired(Node<K,V> n, long now) {
+        return (expireAfterWriteNanos != 0L && now - n.writeTime >= expireAfterWriteNanos) ||
+               (expireAfterAccessNanos != 0L && now - n.accessTime >= expireAfterAccessNanos);
+    }
+
+    /**
+     * 映射个数。可能包含已经过期但还没有被移除的映射。
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * 所有映射的权重之和。
+     */
+    public long weightedSize() {
+        return mainWeight + windowWeight;
+    }
+
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * 查找 key 对应的 value，没有命中或者已经过期时返回 null。命中时
+     * key 被移到访问顺序链表的末尾。
+     *
+     * @throws NullPointerException 如果 key 为 null
+     */
+    public V get(Object key) {
+        Node<K,V> n = data.get(Objects.requireNonNull(key));
+        if (sketch != null)
+            sketch.increment(key);
+        if (n != null && expires()) {
+            long now = System.nanoTime();
+            if (isExpired(n, now)) {
+                evict(n);
+                n = null;
+            } else
+                n.accessTime = now;
+        }
+        if (n == null) {
+            missCount++;
+            return null;
+        }
+        if (n.inWindow)
+            moveToWindowLast(n);
+        hitCount++;
+        return n.value;
+    }
+
+    /**
+     * 查找 key 对应的 value，没有命中时调用 loader 计算 value 并放入缓存。
+     * loader 返回 null 时不放入缓存，返回 null。loader 不能修改此缓存。
+     *
+     * @throws NullPointerException 如果 key 或者 loader 为 null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Objects.requireNonNull(loader);
+        V v = get(key);
+        if (v == null && (v = loader.apply(key)) != null)
+            put(key, v);
+        return v;
+    }
+
+    /**
+     * 放入一个映射，返回 key 之前对应的 value（已经过期时返回 null）。
+     * 放入以后如果总权重超过上限，按照淘汰策略淘汰映射，刚放入的映射
+     * 也可能被淘汰。
+     *
+     * @throws NullPointerException 如果 key 或者 value 为 null
+     * @throws IllegalArgumentException 如果 weigher 返回负数
+     */
+    public V put(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        int weight = weigher.applyAsInt(key, value);
+        if (weight < 0)
+            throw new IllegalArgumentException("Negative weight: " + weight);
+        long now = expires() ? System.nanoTime() : 0L;
+        if (sketch != null)
+            sketch.increment(key);
+        Node<K,V> n = data.get(key);
+        V oldValue = null;
+        if (n != null) {
+            if (!isExpired(n, now))
+                oldValue = n.value;
+            if (weight > maximumWeight) {
+                evict(n);
+                return oldValue;
+            }
+            n.value = value;
+            if (n.inWindow) {
+                windowWeight += weight - n.weight;
+                moveToWindowLast(n);
+            } else
+                mainWeight += weight - n.weight;
+            n.weight = weight;
+            n.writeTime = n.accessTime = now;
+            unlinkWrite(n);
+            linkWriteLast(n);
+        } else {
+            if (weight > maximumWeight) {
+                evictionCount++;
+                evictionWeight += weight;
+                return null;
+            }
+            n = new Node<>(key, value, weight, now);
+            data.put(key, n);
+            linkWriteLast(n);
+            if (sketch != null) {
+                linkWindowLast(n);
+                windowWeight += weight;
+                sketch.ensureCapacity(data.size());
+            } else
+                mainWeight += weight;
+        }
+        evictEntries();
+        if (expires())
+            expireEntries(now);
+        return oldValue;
+    }
+
+    /**
+     * 移除 key 对应的映射，返回之前的 value（已经过期时返回 null）。
+     * 不计入淘汰次数。
+     *
+     * @throws NullPointerException 如果 key 为 null
+     */
+    public V remove(Object key) {
+        Node<K,V> n = data.remove(Objects.requireNonNull(key));
+        if (n == null)
+            return null;
+        unlink(n);
+        return (expires() && isExpired(n, System.nanoTime())) ? null : n.value;
+    }
+
+    /**
+     * key 是否在缓存中并且没有过期。不改变访问顺序，不计入命中统计。
+     */
+    public boolean containsKey(Object key) {
+        HashMap.Node<K,Node<K,V>> e =
+            data.getNode(HashMap.hash(Objects.requireNonNull(key)), key);
+        return e != null && !(expires() && isExpired(e.value, System.nanoTime()));
+    }
+
+    /**
+     * 移除所有映射，不计入淘汰次数，不清除命中统计。
+     */
+    public void clear() {
+        data.clear();
+        mainWeight = windowWeight = 0L;
+        windowFirst = windowLast = null;
+        writeFirst = writeLast = null;
+    }
+
+    /**
+     * 移除所有已经过期的映射。
+     */
+    public void cleanUp() {
+        if (expires())
+            expireEntries(System.nanoTime());
+    }
+
+    /**
+     * 返回命中统计的快照。
+     */
+    public CacheStats stats() {
+        return new CacheStats(hitCount, missCount, evictionCount, evictionWeight);
+    }
+
+    // 内部工具
+
+    // 写入顺序链表末尾添加节点
+    private void linkWriteLast(Node<K,V> n) {
+        Node<K,V> l = writeLast;
+        writeLast = n;
+        if (l == null)
+            writeFirst = n;
+        else {
+            n.prevWrite = l;
+            l.nextWrite = n;
+        }
+    }
+
+    // 从写入顺序链表中删除节点
+    private void unlinkWrite(Node<K,V> n) {
+        Node<K,V> b = n.prevWrite, a = n.nextWrite;
+        n.prevWrite = n.nextWrite = null;
+        if (b == null)
+            writeFirst = a;
+        else
+            b.nextWrite = a;
+        if (a == null)
+            writeLast = b;
+        else
+            a.prevWrite = b;
+    }
+
+    // window 链表末尾添加节点
+    private void linkWindowLast(Node<K,V> n) {
+        Node<K,V> l = windowLast;
+        n.inWindow = true;
+        windowLast = n;
+        if (l == null)
+            windowFirst = n;
+        else {
+            n.prevWindow = l;
+            l.nextWindow = n;
+        }
+    }
+
+    // 从 window 链表中删除节点
+    private void unlinkWindow(Node<K,V> n) {
+        Node<K,V> b = n.prevWindow, a = n.nextWindow;
+        n.inWindow = false;
+        n.prevWindow = n.nextWindow = null;
+        if (b == null)
+            windowFirst = a;
+        else
+            b.nextWindow = a;
+        if (a == null)
+            windowLast = b;
+        else
+            a.prevWindow = b;
+    }
+
+    private void moveToWindowLast(Node<K,V> n) {
+        if (windowLast != n) {
+            unlinkWindow(n);
+            linkWindowLast(n);
+        }
+    }
+
+    // 节点已经从 data 中删除，更新权重和两个链表
+    private void unlink(Node<K,V> n) {
+        if (n.inWindow) {
+            windowWeight -= n.weight;
+            unlinkWindow(n);
+        } else
+            mainWeight -= n.weight;
+        unlinkWrite(n);
+    }
+
+    // 淘汰节点 n
+    private void evict(Node<K,V> n) {
+        data.remove(n.key);
+        unlink(n);
+        evictionCount++;
+        evictionWeight += n.weight;
+    }
+
+    /**
+     * main 区域中最久没有访问的节点（跳过 skip），没有时返回 null。
+     */
+    private Node<K,V> victim(Node<K,V> skip) {
+        for (LinkedHashMap.Entry<K,Node<K,V>> e = data.head; e != null; e = e.after) {
+            Node<K,V> n = e.value;
+            if (!n.inWindow && n != skip)
+                return n;
+        }
+        return null;
+    }
+
+    /**
+     * 总权重超过上限时淘汰映射。
+     *
+     * 开启 TinyLFU 准入时，先把超出 window 上限的映射依次移入 main，
+     * 每移入一个候选者，就在总权重超过上限时让它与受害者比较频率，
+     * 频率低的一方被淘汰。最后（以及纯 LRU 时）从 main 的头部淘汰，直到
+     * 总权重不超过上限。
+     */
+    private void evictEntries() {
+        Node<K,V> n;
+        while (windowWeight > windowMaximum && (n = windowFirst) != null) {
+            unlinkWindow(n);
+            windowWeight -= n.weight;
+            mainWeight += n.weight;
+            admit(n);
+        }
+        while (mainWeight + windowWeight > maximumWeight) {
+            if ((n = victim(null)) == null && (n = windowFirst) == null)
+                break;
+            evict(n);
+        }
+    }
+
+    // 候选者刚刚移入 main，总权重超过上限时与受害者比较频率
+    private void admit(Node<K,V> candidate) {
+        int candidateFreq = -1;
+        while (mainWeight + windowWeight > maximumWeight) {
+            Node<K,V> victim = victim(candidate);
+            if (victim == null) {
+                evict(candidate);
+                return;
+            }
+            if (candidateFreq < 0)
+                candidateFreq = sketch.frequency(candidate.key);
+            if (candidateFreq > sketch.frequency(victim.key))
+                evict(victim);
+            else {
+                evict(candidate);
+                return;
+            }
+        }
+    }
+
+    // 从写入顺序链表和访问顺序链表的头部移除过期的映射
+    private void expireEntries(long now) {
+        Node<K,V> n;
+        if (expireAfterWriteNanos != 0L) {
+            while ((n = writeFirst) != null && now - n.writeTime >= expireAfterWriteNanos)
+                evict(n);
+        }
+        if (expireAfterAccessNanos != 0L) {
+            LinkedHashMap.Entry<K,Node<K,V>> e;
+            while ((e = data.head) != null && now - e.value.accessTime >= expireAfterAccessNanos)
+                evict(e.value);
+        }
+    }
+}
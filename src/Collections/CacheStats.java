@@ -0,0 +1,118 @@
+package Collections;
+
+/**
+ * 缓存命中情况的快照，由 BoundedCache.stats 生成。
+ *
+ * 快照包含：
+ *   命中次数 / 未命中次数   查找到（未过期的）value 和没有查找到的次数；
+ *   淘汰次数               因为总权重超过上限或者过期而被移出缓存的
+ *                          映射个数（remove 和 clear 不计入）；
+ *   淘汰权重               被淘汰的映射的权重之和。
+ *
+ * 两个快照相减（minus）可以得到一段时间内的命中情况，例如只统计预热
+ * 之后的命中率。
+ *
+ * 此类是不可变的。
+ */
+public final class CacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long evictionWeight;
+
+    /**
+     * 构造一个快照。
+     *
+     * @throws IllegalArgumentException 如果任何一个参数小于 0
+     */
+    public CacheStats(long hitCount, long missCount,
+                      long evictionCount, long evictionWeight) {
+        if (hitCount < 0 || missCount < 0 || evictionCount < 0 || evictionWeight < 0)
+            throw new IllegalArgumentException();
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.evictionWeight = evictionWeight;
+    }
+
+    /**
+     * 查找的总次数：hitCount + missCount。
+     */
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    public long hitCount() {
+        return hitCount;
+    }
+
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * 命中率 hitCount / requestCount，没有查找时为 1.0。
+     */
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * 未命中率 missCount / requestCount，没有查找时为 0.0。
+     */
+    public double missRate() {
+        long requests = requestCount();
+        return requests == 0 ? 0.0 : (double) missCount / requests;
+    }
+
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    public long evictionWeight() {
+        return evictionWeight;
+    }
+
+    /**
+     * 返回 this 与 other 对应计数之差，结果为负数的计数取 0。
+     */
+    public CacheStats minus(CacheStats other) {
+        return new CacheStats(
+            Math.max(0L, hitCount - other.hitCount),
+            Math.max(0L, missCount - other.missCount),
+            Math.max(0L, evictionCount - other.evictionCount),
+            Math.max(0L, evictionWeight - other.evictionWeight));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof CacheStats))
+            return false;
+        CacheStats s = (CacheStats) o;
+        return hitCount == s.hitCount && missCount == s.missCount &&
+            evictionCount == s.evictionCount && evictionWeight == s.evictionWeight;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = hitCount;
+        h = 31 * h + missCount;
+        h = 31 * h + evictionCount;
+        h = 31 * h + evictionWeight;
+        return Long.hashCode(h);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hitCount=" + hitCount +
+            ", missCount=" + missCount +
+            ", hitRate=" + String.format("%.4f", hitRate()) +
+            ", evictionCount=" + evictionCount +
+            ", evictionWeight=" + evictionWeight +
+            "}";
+    }
+}
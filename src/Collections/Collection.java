@@ -448,7 +448,8 @@ public interface Collection<E> extends Iterable<E> {
      */
     @Override
     default Spliterator<E> spliterator() {
-        return Spliterators.spliterator(this, 0);
+        // 此接口不是 java.util.Collection，不能使用 spliterator(Collection, int)
+        return Spliterators.spliterator(iterator(), size(), 0);
     }
 
     /**
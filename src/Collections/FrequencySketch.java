@@ -0,0 +1,149 @@
+package Collections;
+
+/**
+ * 近似统计元素访问频率的 Count-Min Sketch，供 BoundedCache 的 TinyLFU
+ * 准入策略使用。
+ *
+ * 每个计数器占 4 位（最大值 15），一个 long 中存放 16 个计数器。元素的
+ * hash 值决定它在 4 个 long 中各自的一个计数器，频率取 4 个计数器中的
+ * 最小值：hash 冲突只会让频率偏大，不会偏小。一个元素的 4 个 long 位于
+ * 同一个 64 字节的块（8 个 long）中，每次查询或者增加只访问一到两条
+ * 缓存行，而不是分散在整个表中的 4 个位置。
+ *
+ * 为了让频率反映最近的访问情况，累计增加 sampleSize（10 倍的表长）次
+ * 以后，把所有计数器减半（“老化”），很久以前的热点元素因此会逐渐
+ * 失去优势。
+ *
+ * 此类不是线程安全的。
+ */
+final class FrequencySketch {
+
+    /**
+     * 每个 4 位计数器去掉最高位的掩码，右移一位之后用来清除跨计数器
+     * 移入的位。
+     */
+    static final long RESET_MASK = 0x7777777777777777L;
+
+    /**
+     * 每个 4 位计数器最低位的掩码，用来统计老化时被舍去的奇数。
+     */
+    static final long ONE_MASK = 0x1111111111111111L;
+
+    /**
+     * 表的最大长度。
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 26;
+
+    long[] table;
+
+    /**
+     * 块的个数减一，块的个数为 table.length / 8。
+     */
+    int blockMask;
+
+    /**
+     * 两次老化之间的累计增加次数上限，以及当前已经增加的次数。
+     */
+    int sampleSize;
+    int size;
+
+    /**
+     * 构造一个能够较准确地区分 expectedSize 个元素频率的 sketch。
+     */
+    FrequencySketch(long expectedSize) {
+        ensureCapacity(expectedSize);
+    }
+
+    /**
+     * 如果当前的表长小于 expectedSize，则扩大到不小于它的 2 的幂。扩大时
+     * 所有计数器清零。
+     */
+    void ensureCapacity(long expectedSize) {
+        int capacity = (int) Math.min(Math.max(expectedSize, 16L), MAXIMUM_CAPACITY);
+        if (table != null && table.length >= capacity)
+            return;
+        table = new long[HashMap.tableSizeFor(capacity)];
+        blockMask = (table.length >>> 3) - 1;
+        sampleSize = 10 * table.length;
+        size = 0;
+    }
+
+    /**
+     * 返回 e 的估计频率（0 到 15）。
+     */
+    int frequency(Object e) {
+        int blockHash = spread(e.hashCode());
+        int counterHash = rehash(blockHash);
+        int block = (blockHash & blockMask) << 3;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            // counterHash 的每 8 位选择块中第 i 对 long 中的一个和其中的一个计数器
+            int h = counterHash >>> (i << 3);
+            int index = block + (h & 1) + (i << 1);
+            int count = (int) ((table[index] >>> (((h >>> 1) & 15) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * 增加 e 的频率，4 个计数器都已经饱和时不算一次增加。
+     */
+    void increment(Object e) {
+        int blockHash = spread(e.hashCode());
+        int counterHash = rehash(blockHash);
+        int block = (blockHash & blockMask) << 3;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int h = counterHash >>> (i << 3);
+            added |= incrementAt(block + (h & 1) + (i << 1), (h >>> 1) & 15);
+        }
+        if (added && ++size == sampleSize)
+            reset();
+    }
+
+    /**
+     * 如果 table[i] 中第 j 个计数器没有饱和，则加一。
+     */
+    boolean incrementAt(int i, int j) {
+        int offset = j << 2;
+        long mask = 0xfL << offset;
+        if ((table[i] & mask) != mask) {
+            table[i] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 所有计数器减半。size 按照减半后的计数器总和近似更新：被舍去的
+     * 奇数位每 4 个对应一次增加（每次增加涉及 4 个计数器）。
+     */
+    void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (odd >>> 2)) >>> 1;
+    }
+
+    /**
+     * 由选择块的 hash 值得到选择计数器的 hash 值。
+     */
+    static int rehash(int x) {
+        x *= 0x31848bab;
+        x ^= x >>> 14;
+        return x;
+    }
+
+    /**
+     * 对 hashCode() 再做一次打散，避免分布很差的 hashCode() 集中在少数
+     * 计数器上。
+     */
+    static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
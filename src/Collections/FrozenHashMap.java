@@ -0,0 +1,456 @@
+package Collections;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 不可变的 Map，使用最小完美哈希（minimal perfect hashing）定位 key。
+ * 通过 {@link #freeze(Map)} 从一个构建完成的 HashMap（或任意 Map）创建，
+ * 适用于启动时构建一次、之后只读的场景。
+ *
+ * HashMap 的查找需要先找到桶，再沿着 Node.next 逐个比较，树化以后还要
+ * 在 TreeNode 之间跳转，每一步都可能是一次缓存未命中。此类把 n 个映射
+ * 紧凑地存放在长度为 2n 的 table 数组中，下标为 i 的映射的 key 和 value
+ * 分别在 table[2i] 和 table[2i + 1]，通常位于同一个缓存行。对于每个 key
+ * 都能直接计算出 i，查找只访问 displacements 和 table 两个数组中各一个
+ * 位置，没有任何链表或树。
+ *
+ * 构造方式是 CHD（compress, hash, displace）算法的简化版本：
+ *   1. key 的 hash 值经过打散得到 g，按 g 的低位把 key 分到大约 n / 4
+ *      个组中；
+ *   2. 按组的大小从大到小依次处理：对于有多个 key 的组，从 1 开始尝试
+ *      位移值 d，直到组内所有 key 的 slot(g, d) 都落在还没有被占用的不同
+ *      下标上，把 d 记录在 displacements 中；
+ *   3. 只有一个 key 的组直接放到任意一个空闲下标 i，记录为 -(i + 1)。
+ * 查找时根据 displacements 中记录的值计算下标，只需要比较一次。
+ *
+ * 完美哈希只能区分 hash 值不同的 key。hash 值完全相同的 key 中只有一个
+ * 参与完美哈希，其余的按 hash 值排序存放在 table 末尾，只有在目标位置的
+ * key 与查找的 key 不相等但 hash 值相同时才二分查找这一部分。
+ *
+ * 每个映射占用 table 中的两个引用，再加上 displacements 中平均不超过
+ * 半个 int；HashMap 中每个映射需要一个 Node 对象（压缩指针时 32 字节）
+ * 和 table 中的一个引用。
+ *
+ * 此类不允许修改，所有修改方法都抛出 UnsupportedOperationException。
+ * 允许 null key 和 null value。迭代顺序不确定，也不保证和源 map 一致。
+ * 序列化时只保存映射，反序列化时重新构造，所以 key 的 hashCode() 在
+ * 不同的 JVM 中不同也没有关系。
+ *
+ * @August 构造的代价与 HashMap 的 putAll 相当，只适合构造后大量读取的
+ *         场景。key 的 hashCode() 在冻结以后不能改变。
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see HashMap
+ */
+public final class FrozenHashMap<K,V> extends AbstractMap<K,V> implements Serializable {
+
+    private static final long serialVersionUID = -6412789351928044519L;
+
+    /**
+     * 平均每组 key 的个数。
+     */
+    static final int KEYS_PER_GROUP = 4;
+
+    /**
+     * 一个组尝试的最大位移值，超过以后增加组数重新构造。
+     */
+    static final int MAX_DISPLACEMENT = 1 << 20;
+
+    /**
+     * 每个组的位移值：0 表示空组，正数为位移值 d，负数 -(i + 1) 表示组中
+     * 唯一的 key 存放在下标 i。长度是 2 的幂。
+     */
+    private final transient int[] displacements;
+
+    /**
+     * key 和 value 交替存放。下标 [0, perfect) 的映射为完美哈希部分，
+     * [perfect, size) 为 hash 值与完美哈希部分中某个 key 完全相同的映射，
+     * 按 hash 值排序。
+     */
+    private final transient Object[] table;
+    private final transient int perfect;
+
+    /**
+     * [perfect, size) 部分的 key 的 hash 值，用于二分查找。
+     */
+    private final transient int[] collidedHashes;
+
+    private transient Set<Map.Entry<K,V>> entrySet;
+
+    private FrozenHashMap(int[] displacements, Object[] table, int perfect,
+                          int[] collidedHashes) {
+        this.displacements = displacements;
+        this.table = table;
+        this.perfect = perfect;
+        this.collidedHashes = collidedHashes;
+    }
+
+    /**
+     * 返回包含 m 中所有映射的不可变 map。之后对 m 的修改不会影响返回的
+     * map。
+     *
+     * @param m 源 map
+     * @return 不可变的 map
+     * @throws NullPointerException 如果 m 为 null
+     */
+    @SuppressWarnings("unchecked")
+    public static <K,V> FrozenHashMap<K,V> freeze(Map<? extends K, ? extends V> m) {
+        if (m instanceof FrozenHashMap)
+            return (FrozenHashMap<K,V>)m;
+        int n = m.size();
+        Object[] ks = new Object[n];
+        Object[] vs = new Object[n];
+        int i = 0;
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            // 并发修改的 map 可能返回比 size 更多的映射
+            if (i == n) {
+                ks = Arrays.copyOf(ks, n = n + (n >>> 1) + 1);
+                vs = Arrays.copyOf(vs, n);
+            }
+            ks[i] = e.getKey();
+            vs[i++] = e.getValue();
+        }
+        return build(ks, vs, i);
+    }
+
+    /* ---------------- Hashing -------------- */
+
+    static int hash(Object key) {
+        return (key == null) ? 0 : key.hashCode();
+    }
+
+    /**
+     * 打散 hash 值，使低位（用于分组）也受到高位的影响。
+     */
+    static int mix(int h) {
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 打散后的 hash 值为 g、位移值为 d 的 key 在 n 个映射中的下标。乘法
+     * 之后 x 的高位受 g ^ d 所有位的影响，再用乘法取 x 的高位映射到
+     * [0, n)，代替取模运算。
+     */
+    static int slot(int g, int d, int n) {
+        int x = (g ^ d) * 0x85ebca6b;
+        return (int)(((x & 0xffffffffL) * n) >>> 32);
+    }
+
+    /* ---------------- Construction -------------- */
+
+    /**
+     * 用前 n 个 key 和 value 构造 map，key 必须互不相等。
+     */
+    private static <K,V> FrozenHashMap<K,V> build(Object[] ks, Object[] vs, int n) {
+        // 按 hash 值排序，hash 值相同的 key 中第一个参与完美哈希，其余放入末尾
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++)
+            order[i] = ((long)hash(ks[i]) << 32) | i;
+        Arrays.sort(order, 0, n);
+        // primary 中为参与完美哈希的 key 在 ks 中的下标，collided 中为其余的
+        int[] primary = new int[n], collided = new int[n];
+        int perfect = 0, rest = 0;
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && (int)(order[i] >>> 32) == (int)(order[i - 1] >>> 32))
+                collided[rest++] = (int)order[i];
+            else
+                primary[perfect++] = (int)order[i];
+        }
+        int groups = 1;
+        while (groups * KEYS_PER_GROUP < perfect)
+            groups <<= 1;
+        int[] table = new int[perfect];
+        int[] displacements;
+        while ((displacements = place(ks, primary, perfect, groups, table)) == null)
+            groups <<= 1;
+        Object[] kvs = new Object[2 * n];
+        int[] collidedHashes = new int[rest];
+        for (int i = 0; i < n; i++) {
+            // collided 已经按 hash 值排序
+            int k = (i < perfect) ? table[i] : collided[i - perfect];
+            kvs[2 * i] = ks[k];
+            kvs[2 * i + 1] = vs[k];
+            if (i >= perfect)
+                collidedHashes[i - perfect] = hash(ks[k]);
+        }
+        return new FrozenHashMap<>(displacements, kvs, perfect, collidedHashes);
+    }
+
+    /**
+     * 为 primary 中的 perfect 个 key 寻找位移值。成功时返回 displacements，
+     * 并在 table 中记录每个下标对应的 key 在 ks 中的下标；某个组找不到
+     * 可用的位移值时返回 null。
+     */
+    private static int[] place(Object[] ks, int[] primary, int perfect, int groups,
+                               int[] table) {
+        int mask = groups - 1;
+        int[] g = new int[perfect];
+        // 计数排序：先按组号分组，再按组的大小从大到小排列组号
+        int[] groupStart = new int[groups + 1];
+        for (int i = 0; i < perfect; i++) {
+            g[i] = mix(hash(ks[primary[i]]));
+            groupStart[(g[i] & mask) + 1]++;
+        }
+        int maxSize = 0;
+        for (int b = 0; b < groups; b++)
+            maxSize = Math.max(maxSize, groupStart[b + 1]);
+        for (int b = 0; b < groups; b++)
+            groupStart[b + 1] += groupStart[b];
+        int[] members = new int[perfect];
+        int[] fill = Arrays.copyOf(groupStart, groups);
+        for (int i = 0; i < perfect; i++)
+            members[fill[g[i] & mask]++] = i;
+        int[] bySizeStart = new int[maxSize + 2];
+        for (int b = 0; b < groups; b++)
+            bySizeStart[maxSize - (groupStart[b + 1] - groupStart[b]) + 1]++;
+        for (int s = 0; s <= maxSize; s++)
+            bySizeStart[s + 1] += bySizeStart[s];
+        int[] bySize = new int[groups];
+        for (int b = 0; b < groups; b++)
+            bySize[bySizeStart[maxSize - (groupStart[b + 1] - groupStart[b])]++] = b;
+
+        int[] displacements = new int[groups];
+        boolean[] used = new boolean[perfect];
+        // 同一组内下标是否重复：stamp[i] == attempt 表示本次尝试已经选中 i
+        int[] stamp = new int[perfect];
+        int[] slots = new int[maxSize];
+        int attempt = 0, free = 0;
+        for (int b : bySize) {
+            int from = groupStart[b], size = groupStart[b + 1] - from;
+            if (size == 0)
+                break;
+            if (size == 1) {
+                while (used[free])
+                    ++free;
+                used[free] = true;
+                table[free] = primary[members[from]];
+                displacements[b] = -(free + 1);
+                continue;
+            }
+            search: for (int d = 1; ; d++) {
+                if (d > MAX_DISPLACEMENT)
+                    return null;
+                ++attempt;
+                for (int j = 0; j < size; j++) {
+                    int s = slot(g[members[from + j]], d, perfect);
+                    if (used[s] || stamp[s] == attempt)
+                        continue search;
+                    stamp[s] = attempt;
+                    slots[j] = s;
+                }
+                for (int j = 0; j < size; j++) {
+                    used[slots[j]] = true;
+                    table[slots[j]] = primary[members[from + j]];
+                }
+                displacements[b] = d;
+                break;
+            }
+        }
+        return displacements;
+    }
+
+    /* ---------------- Lookup -------------- */
+
+    /**
+     * 返回 key 在 table 中的下标（value 在下一个位置），不存在时返回 -1。
+     */
+    private int indexOf(Object key) {
+        int p = perfect;
+        if (p == 0)
+            return -1;
+        int h = hash(key), g = mix(h);
+        int d = displacements[g & (displacements.length - 1)];
+        int i = ((d < 0) ? -(d + 1) : slot(g, d, p)) << 1;
+        Object k = table[i];
+        if (k == key)
+            return i;
+        // 和 HashMap 一样先比较 hash 值，不相等时不需要调用 equals，并且
+        // key 也不可能在末尾的冲突部分中
+        if (hash(k) != h)
+            return -1;
+        if (key != null && key.equals(k))
+            return i;
+        return (collidedHashes.length == 0) ? -1 : indexOfCollided(h, key);
+    }
+
+    /**
+     * 在 hash 值完全相同的 key 中查找。
+     */
+    private int indexOfCollided(int h, Object key) {
+        int[] hs = collidedHashes;
+        int lo = 0, hi = hs.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (hs[mid] < h)
+                lo = mid + 1;
+            else
+                hi = mid - 1;
+        }
+        for (int j = lo; j < hs.length && hs[j] == h; j++) {
+            int i = (perfect + j) << 1;
+            Object k = table[i];
+            if (k == key || (key != null && key.equals(k)))
+                return i;
+        }
+        return -1;
+    }
+
+    /* ---------------- Public operations -------------- */
+
+    @Override
+    public int size() {
+        return table.length >> 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.length == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (int i = 1; i < table.length; i += 2)
+            if (Objects.equals(table[i], value))
+                return true;
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = indexOf(key);
+        return (i < 0) ? null : (V)table[i + 1];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int i = indexOf(key);
+        return (i < 0) ? defaultValue : (V)table[i + 1];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        for (int i = 0; i < table.length; i += 2)
+            action.accept((K)table[i], (V)table[i + 1]);
+    }
+
+    @Override
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public int size() {
+            return table.length >> 1;
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            int i = indexOf(e.getKey());
+            return i >= 0 && Objects.equals(table[i + 1], e.getValue());
+        }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new Iterator<Map.Entry<K,V>>() {
+                int next;
+
+                public boolean hasNext() {
+                    return next < table.length;
+                }
+
+                @SuppressWarnings("unchecked")
+                public Map.Entry<K,V> next() {
+                    int i = next;
+                    if (i >= table.length)
+                        throw new NoSuchElementException();
+                    next = i + 2;
+                    return new AbstractMap.SimpleImmutableEntry<>((K)table[i], (V)table[i + 1]);
+                }
+            };
+        }
+    }
+
+    /* ---------------- Unsupported mutators -------------- */
+    // 所有修改操作都不支持
+
+    static UnsupportedOperationException uoe() {
+        return new UnsupportedOperationException("FrozenHashMap is immutable");
+    }
+
+    @Override public V put(K key, V value) { throw uoe(); }
+    @Override public V remove(Object key) { throw uoe(); }
+    @Override public void putAll(Map<? extends K, ? extends V> m) { throw uoe(); }
+    @Override public void clear() { throw uoe(); }
+    @Override public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) { throw uoe(); }
+    @Override public V putIfAbsent(K key, V value) { throw uoe(); }
+    @Override public boolean remove(Object key, Object value) { throw uoe(); }
+    @Override public boolean replace(K key, V oldValue, V newValue) { throw uoe(); }
+    @Override public V replace(K key, V value) { throw uoe(); }
+    @Override public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) { throw uoe(); }
+    @Override public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) { throw uoe(); }
+    @Override public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) { throw uoe(); }
+    @Override public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) { throw uoe(); }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * 序列化代理：只保存 key 和 value，反序列化时重新计算位移值。
+     */
+    private Object writeReplace() {
+        return new Ser(table);
+    }
+
+    private void readObject(ObjectInputStream s) throws InvalidObjectException {
+        throw new InvalidObjectException("Ser required");
+    }
+
+    private static final class Ser implements Serializable {
+        private static final long serialVersionUID = 4107263094158276302L;
+
+        // key 和 value 交替存放
+        private final Object[] table;
+
+        Ser(Object[] table) {
+            this.table = table;
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            if (table == null || (table.length & 1) != 0)
+                throw new InvalidObjectException("Corrupted FrozenHashMap");
+            int n = table.length >> 1;
+            Map<Object,Object> m = new java.util.HashMap<>(n * 4 / 3 + 1);
+            for (int i = 0; i < table.length; i += 2)
+                m.put(table[i], table[i + 1]);
+            if (m.size() != n)
+                throw new InvalidObjectException("Duplicate key in FrozenHashMap");
+            return freeze(m);
+        }
+    }
+}
@@ -35,7 +35,6 @@ import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import sun.misc.SharedSecrets;
 
 /**
  * 基于 Map 接口实现的 hash table。此实现提供了所有可选的 map 操作，
@@ -104,7 +103,7 @@ import sun.misc.SharedSecrets;
  * @see     Hashtable
  * @since   1.2
  */
-public class HashMap<K,V> extends java.util.AbstractMap<K,V>
+public class HashMap<K,V> extends AbstractMap<K,V>
         implements Map<K,V>, Cloneable, Serializable {
 
     private static final long serialVersionUID = 362498820763181265L;
@@ -147,6 +146,19 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
      */
     static final int MIN_TREEIFY_CAPACITY = 64;
 
+    /**
+     * 渐进式扩容模式下，每次写操作（put、remove 等）顺带迁移的旧表桶数。
+     * 扩容后阈值翻倍，在下一次达到阈值之前至少还要插入 oldCap * loadFactor
+     * 个元素，所以每次迁移 4 个桶足以保证旧表在下一次扩容前迁移完毕。
+     */
+    static final int TRANSFER_STRIDE = 4;
+
+    /**
+     * 渐进式扩容模式下，只有旧表容量不小于此值时才分步迁移。小表一次性
+     * rehash 只需要几微秒，没有必要付出同时查找两张表的代价。
+     */
+    static final int MIN_INCREMENTAL_RESIZE_CAPACITY = 1 << 10;
+
     /**
      * 基本的 hash 节点类型，用于大多数 entry。
      */
@@ -294,6 +306,21 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
      */
     transient Node<K,V>[] table;
 
+    /**
+     * 渐进式扩容时正在被迁移的旧表，没有进行中的迁移时为 null。
+     *
+     * 迁移期间新旧两张表同时存在：旧表中下标为 j 的桶迁移时被拆分到新表
+     * 的 j 和 j + oldCap 两个桶中，迁移完成后旧表对应位置被置为 null。
+     * 因此对于任意 key，如果它在旧表中所在的桶不为 null，那么该 key 只可能
+     * 在旧表中；否则只可能在新表中。
+     */
+    transient Node<K,V>[] oldTable;
+
+    /**
+     * 旧表中下一个按顺序迁移的桶的下标。
+     */
+    transient int transferIndex;
+
     /**
      * 存储 entrySet。在 AbstractMap 字段中使用 keySet() 和 value()
      */
@@ -306,6 +333,11 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
 
     transient int modCount;
 
+    /**
+     * table 长度翻倍的次数，只用于 binStats。
+     */
+    transient int resizeCount;
+
     /**
      * 扩容的临界值（capacity * load factor）。超过这个值将扩容。
      * The next size value at which to resize (capacity * load factor).
@@ -323,6 +355,13 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
      */
     final float loadFactor;
 
+    /**
+     * 是否开启渐进式扩容。
+     *
+     * @serial
+     */
+    boolean incrementalResize;
+
     /* ---------------- Public operations -------------- */
     // public 操作
 
@@ -351,6 +390,32 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
         this.threshold = tableSizeFor(initialCapacity);
     }
 
+    /**
+     * 根据指定的初始容量和加载因子构造一个空的 HashMap，并指定是否开启
+     * 渐进式扩容。
+     *
+     * 默认情况下，resize() 在一次调用中把整个旧表 rehash 到新表，当 map
+     * 中有上千万个映射时，触发扩容的那一次 put 可能停顿几百毫秒。开启
+     * 渐进式扩容后，扩容只分配新表，新旧两张表在一段时间内共存：之后的
+     * 每一次写操作先迁移目标 key 所在的旧桶，再按顺序迁移 TRANSFER_STRIDE
+     * 个旧桶，所以没有任何一次操作需要承担整个 rehash 的代价。读操作不
+     * 迁移桶，只是在迁移期间可能需要多检查一次旧表。遍历（迭代器、forEach、
+     * containsValue、序列化等）开始之前会先一次性完成剩余的迁移。
+     *
+     * 注意分配新表（清零一个两倍大小的数组）本身仍然是 O(n) 的，只是它
+     * 比逐个节点 rehash 快得多。
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor
+     * @param  incrementalResize true to spread each resize over later writes
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is nonpositive
+     */
+    public HashMap(int initialCapacity, float loadFactor, boolean incrementalResize) {
+        this(initialCapacity, loadFactor);
+        this.incrementalResize = incrementalResize;
+    }
+
     /**
      * 根据指定的初始容量和默认的加载因子（0.75）构造一个空的 HashMap。
      *
@@ -410,7 +475,7 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
             else if (s > threshold)
                 resize();
             // 将指定 Map 中所有键值对添加到 hashMap 中
-            for (java.util.Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
                 K key = e.getKey();
                 V value = e.getValue();
                 putVal(hash(key), key, value, false, evict);
@@ -457,11 +522,17 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
      * @return the node, or null if none
      */
     final Node<K,V> getNode(int hash, Object key) {
-        Node<K,V>[] tab; Node<K,V> first, e; int n; K k;
-        // 如果 table 不为 null，且 table 的长度大于 0，且对应的桶不为 null
-        // 那么在桶中存在该键值对。
-        if ((tab = table) != null && (n = tab.length) > 0 &&
-                (first = tab[(n - 1) & hash]) != null) {
+        Node<K,V>[] tab, oldTab; Node<K,V> first = null, e; int n; K k;
+        // 渐进式扩容期间，如果 key 在旧表中的桶还没有迁移，那么只在旧表
+        // 中查找。读操作不迁移桶，以免 get 改变 map 的内部结构
+        if ((oldTab = oldTable) == null ||
+                (first = oldTab[(oldTab.length - 1) & hash]) == null) {
+            // 如果 table 不为 null，且 table 的长度大于 0，且对应的桶不为 null
+            // 那么在桶中存在该键值对。
+            if ((tab = table) != null && (n = tab.length) > 0)
+                first = tab[(n - 1) & hash];
+        }
+        if (first != null) {
             // 第一个节点即为指定 key 对应的节点
             if (first.hash == hash && // always check first node
                     ((k = first.key) == key || (key != null && key.equals(k))))
@@ -524,6 +595,9 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
         // 哈希表，并用变量 n 记录哈希表长度
         if ((tab = table) == null || (n = tab.length) == 0)
             n = (tab = resize()).length;
+        // 渐进式扩容期间，先把 key 所在的旧桶迁移到新表
+        else if (oldTable != null)
+            helpTransfer(hash);
         // 如果指定参数 hash 在表中没有对应的桶，即为没有碰撞，可以直接
         // 插入到 map 中
         if ((p = tab[i = (n - 1) & hash]) == null)
@@ -591,6 +665,8 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
      * @return the table
      */
     final Node<K,V>[] resize() {
+        // 上一次渐进式扩容还没有完成时，先完成它
+        finishTransfer();
         // oldTable 保存原来的 table
         Node<K,V>[] oldTab = table;
         // oldCap 记录扩容前的长度
@@ -646,82 +722,134 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
         table = newTab;
         // 如果 oldTab 不为 null，说明存在元素，需要将元素转移到新数组
         if (oldTab != null) {
-            // 遍历 oldTab
-            for (int j = 0; j < oldCap; ++j) {
-                Node<K,V> e;
-                // 如果当前位置有元素，那么需要转移该元素
-                if ((e = oldTab[j]) != null) {
-                    oldTab[j] = null;
-                    // 如果元素的 next 属性为 null，说明不存在 hash 冲突
-                    if (e.next == null)
-                        // 把元素存储到新数组中，位置需要根据 hash 值和数组长度
-                        // 取模：[hash 值 % 数组长度] = [hash 值 & （数组长度 - 1）]
-                        // 用上述方式取模要求数组长度必须是 2 的 N 次方
-                        newTab[e.hash & (newCap - 1)] = e;
-
-                    // 如果 e 有下一个节点，判断其存储结构是链表结构还是红黑树结构
-                    // 数组长度为 16，那么 hash 值为 1（1%16=1）的和 hash 值为
-                    // 17（17%16=1）的两个元素都是会存储在数组的第 2 个位置上
-                    //（对应数组下标为 1 ），当数组扩容为 32（1%32=1）时，hash
-                    // 值为1的还应该存储在新数组的第二个位置上，但是 hash 值为
-                    // 17（17%32=17）的就应该存储在新数组的第18个位置上了。
-                    // 所以数组扩容后，所有元素都需要重新计算在新数组中的位置。
-
-                    // 如果为红黑树结构
-                    else if (e instanceof TreeNode)
-                        ((TreeNode<K,V>)e).split(this, newTab, j, oldCap);
-                    // 否则肯定为链式结构
-                    else { // preserve order
-                        // loHead 低位首节点，loTail 低位尾结点
-                        Node<K,V> loHead = null, loTail = null;
-                        // hiHead 高位首节点，hiTail 高位尾结点
-                        Node<K,V> hiHead = null, hiTail = null;
-                        // 以上的低位指的是新数组的 0 到 oldCap - 1、高位指的
-                        // 是 oldCap 到 newCap - 1
-                        Node<K,V> next;
-                        // 对当前桶的所有节点进行遍历
-                        do {
-                            next = e.next;
-                            // e 的 hash 值和 oldCap 求与操作，值为 0，说明 hash 值
-                            // 小于老数组的长度
-                            if ((e.hash & oldCap) == 0) {
-                                // 链表为空，头结点指向该元素
-                                if (loTail == null)
-                                    loHead = e;
-                                // 链表不为空，元素添加到链表尾部
-                                else
-                                    loTail.next = e;
-                                // 尾结点设置为当前元素
-                                loTail = e;
-                            }
-                            // 否则 hash 值大于老数组的长度，此时元素应该放置到
-                            // 高位位置上
-                            else {
-                                if (hiTail == null)
-                                    hiHead = e;
-                                else
-                                    hiTail.next = e;
-                                hiTail = e;
-                            }
-                        } while ((e = next) != null);
-                        // 低位的元素组成的链表还是放在原来的位置
-                        if (loTail != null) {
-                            loTail.next = null;
-                            newTab[j] = loHead;
-                        }
-                        // 高位元素组成的链表放置的位置在原有位置上偏移了
-                        // 老数组的长度个位置
-                        if (hiTail != null) {
-                            hiTail.next = null;
-                            newTab[j + oldCap] = hiHead;
-                        }
+            ++resizeCount;
+            // 渐进式扩容：只记录旧表，之后的写操作逐步迁移
+            if (incrementalResize && oldCap >= MIN_INCREMENTAL_RESIZE_CAPACITY) {
+                oldTable = oldTab;
+                transferIndex = 0;
+            }
+            else {
+                // 遍历 oldTab
+                for (int j = 0; j < oldCap; ++j)
+                    transferBin(oldTab, newTab, j);
+            }
+        }
+        return newTab;
+    }
+
+    /**
+     * 把旧表中下标为 j 的桶迁移到新表（容量为旧表的两倍）中，并把旧表的
+     * 这个位置置为 null。桶里的节点被拆分到新表的 j 和 j + oldCap 两个位置。
+     */
+    final void transferBin(Node<K,V>[] oldTab, Node<K,V>[] newTab, int j) {
+        int oldCap = oldTab.length, newCap = newTab.length;
+        Node<K,V> e;
+        // 如果当前位置有元素，那么需要转移该元素
+        if ((e = oldTab[j]) != null) {
+            oldTab[j] = null;
+            // 如果元素的 next 属性为 null，说明不存在 hash 冲突
+            if (e.next == null)
+                // 把元素存储到新数组中，位置需要根据 hash 值和数组长度
+                // 取模：[hash 值 % 数组长度] = [hash 值 & （数组长度 - 1）]
+                // 用上述方式取模要求数组长度必须是 2 的 N 次方
+                newTab[e.hash & (newCap - 1)] = e;
+
+            // 如果 e 有下一个节点，判断其存储结构是链表结构还是红黑树结构
+            // 数组长度为 16，那么 hash 值为 1（1%16=1）的和 hash 值为
+            // 17（17%16=1）的两个元素都是会存储在数组的第 2 个位置上
+            //（对应数组下标为 1 ），当数组扩容为 32（1%32=1）时，hash
+            // 值为1的还应该存储在新数组的第二个位置上，但是 hash 值为
+            // 17（17%32=17）的就应该存储在新数组的第18个位置上了。
+            // 所以数组扩容后，所有元素都需要重新计算在新数组中的位置。
+
+            // 如果为红黑树结构
+            else if (e instanceof TreeNode)
+                ((TreeNode<K,V>)e).split(this, newTab, j, oldCap);
+            // 否则肯定为链式结构
+            else { // preserve order
+                // loHead 低位首节点，loTail 低位尾结点
+                Node<K,V> loHead = null, loTail = null;
+                // hiHead 高位首节点，hiTail 高位尾结点
+                Node<K,V> hiHead = null, hiTail = null;
+                // 以上的低位指的是新数组的 0 到 oldCap - 1、高位指的
+                // 是 oldCap 到 newCap - 1
+                Node<K,V> next;
+                // 对当前桶的所有节点进行遍历
+                do {
+                    next = e.next;
+                    // e 的 hash 值和 oldCap 求与操作，值为 0，说明 hash 值
+                    // 小于老数组的长度
+                    if ((e.hash & oldCap) == 0) {
+                        // 链表为空，头结点指向该元素
+                        if (loTail == null)
+                            loHead = e;
+                        // 链表不为空，元素添加到链表尾部
+                        else
+                            loTail.next = e;
+                        // 尾结点设置为当前元素
+                        loTail = e;
+                    }
+                    // 否则 hash 值大于老数组的长度，此时元素应该放置到
+                    // 高位位置上
+                    else {
+                        if (hiTail == null)
+                            hiHead = e;
+                        else
+                            hiTail.next = e;
+                        hiTail = e;
                     }
+                } while ((e = next) != null);
+                // 低位的元素组成的链表还是放在原来的位置
+                if (loTail != null) {
+                    loTail.next = null;
+                    newTab[j] = loHead;
+                }
+                // 高位元素组成的链表放置的位置在原有位置上偏移了
+                // 老数组的长度个位置
+                if (hiTail != null) {
+                    hiTail.next = null;
+                    newTab[j + oldCap] = hiHead;
                 }
             }
         }
-        return newTab;
     }
 
+    /**
+     * 渐进式扩容期间由写操作调用：先迁移 hash 在旧表中对应的桶，保证接下来
+     * 只需要在新表中操作；再按顺序迁移 TRANSFER_STRIDE 个桶。
+     */
+    final void helpTransfer(int hash) {
+        Node<K,V>[] oldTab = oldTable;
+        transferBin(oldTab, table, (oldTab.length - 1) & hash);
+        transferStep(TRANSFER_STRIDE);
+    }
+
+    /**
+     * 从 transferIndex 开始按顺序迁移最多 buckets 个旧桶，旧表全部迁移完成
+     * 后把 oldTable 置为 null。已经被 helpTransfer 提前迁移的桶为 null，
+     * 迁移它们没有任何代价。
+     */
+    final void transferStep(int buckets) {
+        Node<K,V>[] oldTab = oldTable, newTab = table;
+        int oldCap = oldTab.length;
+        int i = transferIndex;
+        int end = (buckets >= oldCap - i) ? oldCap : i + buckets;
+        for (; i < end; ++i)
+            transferBin(oldTab, newTab, i);
+        if ((transferIndex = i) >= oldCap)
+            oldTable = null;
+    }
+
+    /**
+     * 一次性完成进行中的渐进式扩容。需要遍历整张表的操作（迭代器、forEach、
+     * containsValue、序列化等）以及下一次扩容之前调用。
+     */
+    final void finishTransfer() {
+        if (oldTable != null)
+            transferStep(Integer.MAX_VALUE);
+    }
+
+
     /**
      * 把桶里的链式结构变成树结构。
      */
@@ -803,6 +931,9 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
                                boolean matchValue, boolean movable) {
         // 声明节点数组，当前节点，数组长度，索引值
         Node<K,V>[] tab; Node<K,V> p; int n, index;
+        // 渐进式扩容期间，先把 key 所在的旧桶迁移到新表
+        if (oldTable != null)
+            helpTransfer(hash);
         // 如果节点数组 tab 不为 null，tab 的长度大于 0，当前节点对象
         //（该节点为树的根节点或链表的首节点）不为 null，则从该节点遍历，
         // 找到和 key 匹配的对象。
@@ -875,6 +1006,8 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
     public void clear() {
         Node<K,V>[] tab;
         modCount++;
+        // 直接丢弃正在迁移的旧表
+        oldTable = null;
         if ((tab = table) != null && size > 0) {
             size = 0;
             for (int i = 0; i < tab.length; ++i)
@@ -891,6 +1024,7 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
      */
     public boolean containsValue(Object value) {
         Node<K,V>[] tab; V v;
+        finishTransfer();
         if ((tab = table) != null && size > 0) {
             for (int i = 0; i < tab.length; ++i) {
                 // 遍历当前桶内所有映射
@@ -938,6 +1072,7 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
             Node<K,V>[] tab;
             if (action == null)
                 throw new NullPointerException();
+            finishTransfer();
             if (size > 0 && (tab = table) != null) {
                 int mc = modCount;
                 for (int i = 0; i < tab.length; ++i) {
@@ -981,6 +1116,7 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
             Node<K,V>[] tab;
             if (action == null)
                 throw new NullPointerException();
+            finishTransfer();
             if (size > 0 && (tab = table) != null) {
                 int mc = modCount;
                 for (int i = 0; i < tab.length; ++i) {
@@ -1043,6 +1179,7 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
             Node<K,V>[] tab;
             if (action == null)
                 throw new NullPointerException();
+            finishTransfer();
             if (size > 0 && (tab = table) != null) {
                 int mc = modCount;
                 for (int i = 0; i < tab.length; ++i) {
@@ -1132,6 +1269,9 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
         if (size > threshold || (tab = table) == null ||
                 (n = tab.length) == 0)
             n = (tab = resize()).length;
+        // 渐进式扩容期间，先把 key 所在的旧桶迁移到新表
+        if (oldTable != null)
+            helpTransfer(hash);
         // 如果 key 对应的桶不为 null，那么在该桶内寻找指定 key 对应的节点
         if ((first = tab[i = (n - 1) & hash]) != null) {
             // 如果首节点是树节点，那么调用树节点的 getTreeNode 方法找到指定
@@ -1243,6 +1383,9 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
         if (size > threshold || (tab = table) == null ||
                 (n = tab.length) == 0)
             n = (tab = resize()).length;
+        // 渐进式扩容期间，先把 key 所在的旧桶迁移到新表
+        if (oldTable != null)
+            helpTransfer(hash);
         // 如果 key 对应的桶不为 null，那么在该桶内寻找指定 key 对应的节点
         if ((first = tab[i = (n - 1) & hash]) != null) {
             // 如果首节点是树节点，那么调用树节点的 getTreeNode 方法找到指定
@@ -1320,6 +1463,9 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
         if (size > threshold || (tab = table) == null ||
                 (n = tab.length) == 0)
             n = (tab = resize()).length;
+        // 渐进式扩容期间，先把 key 所在的旧桶迁移到新表
+        if (oldTable != null)
+            helpTransfer(hash);
         // 如果 key 对应的桶不为 null，那么在桶内查找指定的映射
         if ((first = tab[i = (n - 1) & hash]) != null) {
             // 如果节点为树节点，调用树节点的 getTreeNode 查找
@@ -1382,6 +1528,7 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
         Node<K,V>[] tab;
         if (action == null)
             throw new NullPointerException();
+        finishTransfer();
         if (size > 0 && (tab = table) != null) {
             int mc = modCount;
             for (int i = 0; i < tab.length; ++i) {
@@ -1401,6 +1548,7 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
         Node<K,V>[] tab;
         if (function == null)
             throw new NullPointerException();
+        finishTransfer();
         if (size > 0 && (tab = table) != null) {
             int mc = modCount;
             for (int i = 0; i < tab.length; ++i) {
@@ -1413,6 +1561,92 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
         }
     }
 
+    /* ------------------------------------------------------------ */
+    // Diagnostics
+    // 诊断
+
+    /**
+     * 扫描所有桶，返回桶分布的快照，用来判断 key 的 hashCode() 是否分布
+     * 良好。代价与 capacity 成正比，不修改 map 的结构，也不会推进渐进式
+     * 扩容。
+     *
+     * @return 桶分布的快照
+     * @see HashTableStats
+     */
+    public HashTableStats binStats() {
+        return binStats(Integer.MAX_VALUE);
+    }
+
+    /**
+     * 按固定步长扫描最多 maxBins 个桶，返回桶分布的快照。用于需要定期
+     * 采样的很大的表，代价与 maxBins 成正比。
+     *
+     * @param maxBins 最多扫描的桶数
+     * @return 桶分布的快照
+     * @throws IllegalArgumentException 如果 maxBins 不是正数
+     */
+    public HashTableStats binStats(int maxBins) {
+        if (maxBins <= 0)
+            throw new IllegalArgumentException("Illegal maxBins: " + maxBins);
+        HashTableStats.Recorder r = new HashTableStats.Recorder();
+        Node<K,V>[] tab = table, oldTab = oldTable;
+        int n = (tab == null) ? 0 : tab.length;
+        // n 是 2 的幂，步长也取 2 的幂，使扫描的桶均匀分布
+        int step = 1;
+        while (n / step > maxBins)
+            step <<= 1;
+        for (int i = 0; i < n; i += step) {
+            Node<K,V> e;
+            // 渐进式扩容期间，旧桶还没有迁移时，新桶 i 中的节点都在旧桶中，
+            // 它们满足 (hash & oldCap) == (i & oldCap)
+            if (oldTab != null && (e = oldTab[i & (oldTab.length - 1)]) != null)
+                recordBin(r, e, oldTab.length, i & oldTab.length);
+            else
+                recordBin(r, tab[i], 0, 0);
+        }
+        return r.snapshot(n, size, loadFactor, resizeCount, oldTab != null);
+    }
+
+    /**
+     * 统计以 e 开头的桶中满足 (hash & mask) == bits 的节点。
+     */
+    static <K,V> void recordBin(HashTableStats.Recorder r, Node<K,V> e,
+                                int mask, int bits) {
+        if (e instanceof TreeNode) {
+            // acc[0] 为节点个数，acc[1] 为最大深度，acc[2] 为深度之和
+            long[] acc = new long[3];
+            recordTree(((TreeNode<K,V>)e).root(), 1, mask, bits, acc);
+            r.recordBin((int)acc[0], (int)acc[1], acc[2], true);
+        }
+        else {
+            int length = 0, maxDepth = 0;
+            long depthSum = 0L;
+            // 查找链表中第 k 个节点需要比较 k 次
+            for (int k = 1; e != null; e = e.next, ++k) {
+                if ((e.hash & mask) == bits) {
+                    ++length;
+                    depthSum += k;
+                    maxDepth = k;
+                }
+            }
+            r.recordBin(length, maxDepth, depthSum, false);
+        }
+    }
+
+    // 红黑树的高度不超过 2 * log(n)，递归深度有限
+    static <K,V> void recordTree(TreeNode<K,V> p, int depth, int mask, int bits,
+                                 long[] acc) {
+        for (; p != null; p = p.right, ++depth) {
+            if ((p.hash & mask) == bits) {
+                ++acc[0];
+                acc[2] += depth;
+                if (depth > acc[1])
+                    acc[1] = depth;
+            }
+            recordTree(p.left, depth + 1, mask, bits, acc);
+        }
+    }
+
     /* ------------------------------------------------------------ */
     // Cloning and serialization
     // 克隆和序列化
@@ -1499,9 +1733,6 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
             threshold = ((cap < MAXIMUM_CAPACITY && ft < MAXIMUM_CAPACITY) ?
                     (int)ft : Integer.MAX_VALUE);
 
-            // Check Map.Entry[].class since it's the nearest public type to
-            // what we're actually creating.
-            SharedSecrets.getJavaOISAccess().checkArray(s, Map.Entry[].class, cap);
             @SuppressWarnings({"rawtypes","unchecked"})
             Node<K,V>[] tab = (Node<K,V>[])new Node[cap];
             table = tab;
@@ -1528,6 +1759,7 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
         int index;             // current slot
 
         HashIterator() {
+            finishTransfer();
             expectedModCount = modCount;
             Node<K,V>[] t = table;
             current = next = null;
@@ -1607,6 +1839,7 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
             int hi;
             if ((hi = fence) < 0) {
                 HashMap<K,V> m = map;
+                m.finishTransfer();
                 est = m.size;
                 expectedModCount = m.modCount;
                 Node<K,V>[] tab = m.table;
@@ -1641,6 +1874,8 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
+            if (fence < 0)
+                m.finishTransfer();
             Node<K,V>[] tab = m.table;
             if ((hi = fence) < 0) {
                 mc = expectedModCount = m.modCount;
@@ -1713,6 +1948,8 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
+            if (fence < 0)
+                m.finishTransfer();
             Node<K,V>[] tab = m.table;
             if ((hi = fence) < 0) {
                 mc = expectedModCount = m.modCount;
@@ -1784,6 +2021,8 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
+            if (fence < 0)
+                m.finishTransfer();
             Node<K,V>[] tab = m.table;
             if ((hi = fence) < 0) {
                 mc = expectedModCount = m.modCount;
@@ -1872,10 +2111,13 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
      */
     void reinitialize() {
         table = null;
+        oldTable = null;
+        transferIndex = 0;
         entrySet = null;
         keySet = null;
         values = null;
         modCount = 0;
+        resizeCount = 0;
         threshold = 0;
         size = 0;
     }
@@ -1888,6 +2130,7 @@ public class HashMap<K,V> extends java.util.AbstractMap<K,V>
     // Called only from writeObject, to ensure compatible ordering.
     void internalWriteEntries(java.io.ObjectOutputStream s) throws IOException {
         Node<K,V>[] tab;
+        finishTransfer();
         if (size > 0 && (tab = table) != null) {
             for (int i = 0; i < tab.length; ++i) {
                 for (Node<K,V> e = tab[i]; e != null; e = e.next) {
@@ -27,20 +27,27 @@ package Collections;
 
 import java.io.InvalidObjectException;
 import java.util.*;
-
-import sun.misc.SharedSecrets;
+import java.util.function.Consumer;
 
 /**
- * 此类实现了 Set 接口，由一个 hash 表（实际上是一个 HashMap 实例）
- * 提供支持。此类不保证集合迭代的顺序；特别是，他不保证顺序会永恒不变。
- * 此类允许 null 元素。
+ * 此类实现了 Set 接口，由一个 hash 表提供支持。此类不保证集合迭代的
+ * 顺序；特别是，他不保证顺序会永恒不变。此类允许 null 元素。
  *
  * 假定 hash 函数将元素均匀地分散到所有的桶里，此类保证基本操作
  * （add, remove, contains 和 size）在恒定时间内完成。
  * 遍历这个结合需要的时间和 HashSet 实例的大小（元素的数量）加上
- * HashMap 实例的容量（桶的数量）的总和成正比。因此如果想要提高遍历
+ * hash 表的容量（桶的数量）的总和成正比。因此如果想要提高遍历
  * 的性能的话，不要将初始容量设置得太高（或负载因子太低）。
  *
+ * hash 表的结构和 HashMap 相同（数组加链表，扩容时按 hash & oldCap
+ * 拆分链表），但是节点只保存 hash 值、元素和 next 指针，没有 value
+ * 字段，也不需要为每个元素关联一个共享的 PRESENT 对象。在 64 位 JVM
+ * 上开启压缩指针时，每个节点从 HashMap.Node 的 32 字节减少到 24 字节。
+ * 与 HashMap 相同，冲突严重的桶（TREEIFY_THRESHOLD）在表足够大时转换成
+ * 红黑树（TreeNode），即使大量元素的 hash 值相同，只要元素实现了
+ * Comparable，add、contains、remove 仍然是 O(log n) 的。元素较多且
+ * 很少删除时，可以考虑使用开放定址的 OpenHashSet。
+ *
  * 注意，这个实现不是同步的。如果多个县城同时访问 HashSet，且至少一个
  * 线程修改了此 Set，那么必须从外部同步该集合。这通常是对一些自然封装
  * 了集合的对象进行同步来实现。
@@ -70,6 +77,7 @@ import sun.misc.SharedSecrets;
  * @see     Set
  * @see     TreeSet
  * @see     HashMap
+ * @see     OpenHashSet
  * @since   1.2
  */
 
@@ -79,47 +87,637 @@ public class HashSet<E>
 {
     static final long serialVersionUID = -5024744406713321676L;
 
-    // 基于 HashMap 存放数据，map 的 key 就是 HashSet 要存放的数据
-    private transient HashMap<E,Object> map;
+    /**
+     * 默认初始容量，必须是 2 的幂。
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+
+    /**
+     * 默认加载因子。
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /**
+     * 桶中的节点。和 HashMap.Node 相比没有 value 字段。
+     */
+    static class Node<E> {
+        final int hash;
+        final E key;
+        Node<E> next;
+
+        Node(int hash, E key, Node<E> next) {
+            this.hash = hash;
+            this.key = key;
+            this.next = next;
+        }
+    }
+
+    /**
+     * 红黑树桶中的节点，算法与 HashMap.TreeNode 相同：先按 hash 值排序，
+     * hash 值相同时按 Comparable 排序，仍然无法区分时用 tieBreakOrder。
+     * 树节点同时通过 next 保持链表结构，因此迭代器和 spliterator 不需要
+     * 区分两种桶。根节点总是桶中的第一个节点（moveRootToFront）。
+     */
+    static final class TreeNode<E> extends Node<E> {
+        TreeNode<E> parent;  // red-black tree links
+        TreeNode<E> left;
+        TreeNode<E> right;
+        TreeNode<E> prev;    // needed to unlink next upon deletion
+        boolean red;
+
+        TreeNode(int hash, E key, Node<E> next) {
+            super(hash, key, next);
+        }
+
+        /**
+         * 返回包含此节点的树的根节点。
+         */
+        final TreeNode<E> root() {
+            for (TreeNode<E> r = this, p;;) {
+                if ((p = r.parent) == null)
+                    return r;
+                r = p;
+            }
+        }
+
+        /**
+         * 确保 root 是桶中的第一个节点。
+         */
+        static <E> void moveRootToFront(Node<E>[] tab, TreeNode<E> root) {
+            int n;
+            if (root != null && tab != null && (n = tab.length) > 0) {
+                int index = (n - 1) & root.hash;
+                TreeNode<E> first = (TreeNode<E>)tab[index];
+                if (root != first) {
+                    Node<E> rn;
+                    tab[index] = root;
+                    TreeNode<E> rp = root.prev;
+                    if ((rn = root.next) != null)
+                        ((TreeNode<E>)rn).prev = rp;
+                    if (rp != null)
+                        rp.next = rn;
+                    if (first != null)
+                        first.prev = root;
+                    root.next = first;
+                    root.prev = null;
+                }
+            }
+        }
+
+        /**
+         * 从此节点开始查找 hash 值为 h、与 k 相等的节点。kc 在第一次
+         * 用到时通过 comparableClassFor 计算。
+         */
+        final TreeNode<E> find(int h, Object k, Class<?> kc) {
+            TreeNode<E> p = this;
+            do {
+                int ph, dir; Object pk;
+                TreeNode<E> pl = p.left, pr = p.right, q;
+                if ((ph = p.hash) > h)
+                    p = pl;
+                else if (ph < h)
+                    p = pr;
+                else if ((pk = p.key) == k || (k != null && k.equals(pk)))
+                    return p;
+                else if (pl == null)
+                    p = pr;
+                else if (pr == null)
+                    p = pl;
+                else if ((kc != null ||
+                          (kc = HashMap.comparableClassFor(k)) != null) &&
+                         (dir = HashMap.compareComparables(kc, k, pk)) != 0)
+                    p = (dir < 0) ? pl : pr;
+                else if ((q = pr.find(h, k, kc)) != null)
+                    return q;
+                else
+                    p = pl;
+            } while (p != null);
+            return null;
+        }
+
+        final TreeNode<E> getTreeNode(int h, Object k) {
+            return ((parent != null) ? root() : this).find(h, k, null);
+        }
+
+        /**
+         * 把从此节点开始的链表中的节点逐个插入红黑树。
+         */
+        final void treeify(Node<E>[] tab) {
+            TreeNode<E> root = null;
+            for (TreeNode<E> x = this, next; x != null; x = next) {
+                next = (TreeNode<E>)x.next;
+                x.left = x.right = null;
+                if (root == null) {
+                    x.parent = null;
+                    x.red = false;
+                    root = x;
+                }
+                else {
+                    E k = x.key;
+                    int h = x.hash;
+                    Class<?> kc = null;
+                    for (TreeNode<E> p = root;;) {
+                        int dir, ph;
+                        E pk = p.key;
+                        if ((ph = p.hash) > h)
+                            dir = -1;
+                        else if (ph < h)
+                            dir = 1;
+                        else if ((kc == null &&
+                                  (kc = HashMap.comparableClassFor(k)) == null) ||
+                                 (dir = HashMap.compareComparables(kc, k, pk)) == 0)
+                            dir = HashMap.TreeNode.tieBreakOrder(k, pk);
+
+                        TreeNode<E> xp = p;
+                        if ((p = (dir <= 0) ? p.left : p.right) == null) {
+                            x.parent = xp;
+                            if (dir <= 0)
+                                xp.left = x;
+                            else
+                                xp.right = x;
+                            root = balanceInsertion(root, x);
+                            break;
+                        }
+                    }
+                }
+            }
+            moveRootToFront(tab, root);
+        }
+
+        /**
+         * 返回由普通节点组成、顺序相同的链表。
+         */
+        final Node<E> untreeify() {
+            Node<E> hd = null, tl = null;
+            for (Node<E> q = this; q != null; q = q.next) {
+                Node<E> p = new Node<>(q.hash, q.key, null);
+                if (tl == null)
+                    hd = p;
+                else
+                    tl.next = p;
+                tl = p;
+            }
+            return hd;
+        }
+
+        /**
+         * 插入元素 k，已经存在相等的元素时返回它的节点，否则返回 null。
+         */
+        final TreeNode<E> putTreeVal(Node<E>[] tab, int h, E k) {
+            Class<?> kc = null;
+            boolean searched = false;
+            TreeNode<E> root = (parent != null) ? root() : this;
+            for (TreeNode<E> p = root;;) {
+                int dir, ph; E pk;
+                if ((ph = p.hash) > h)
+                    dir = -1;
+                else if (ph < h)
+                    dir = 1;
+                else if ((pk = p.key) == k || (k != null && k.equals(pk)))
+                    return p;
+                else if ((kc == null &&
+                          (kc = HashMap.comparableClassFor(k)) == null) ||
+                         (dir = HashMap.compareComparables(kc, k, pk)) == 0) {
+                    // 无法比较时相等的元素可能在任意一侧，先在两棵子树中查找
+                    if (!searched) {
+                        TreeNode<E> q, ch;
+                        searched = true;
+                        if (((ch = p.left) != null &&
+                             (q = ch.find(h, k, kc)) != null) ||
+                            ((ch = p.right) != null &&
+                             (q = ch.find(h, k, kc)) != null))
+                            return q;
+                    }
+                    dir = HashMap.TreeNode.tieBreakOrder(k, pk);
+                }
+
+                TreeNode<E> xp = p;
+                if ((p = (dir <= 0) ? p.left : p.right) == null) {
+                    Node<E> xpn = xp.next;
+                    TreeNode<E> x = new TreeNode<>(h, k, xpn);
+                    if (dir <= 0)
+                        xp.left = x;
+                    else
+                        xp.right = x;
+                    xp.next = x;
+                    x.parent = x.prev = xp;
+                    if (xpn != null)
+                        ((TreeNode<E>)xpn).prev = x;
+                    moveRootToFront(tab, balanceInsertion(root, x));
+                    return null;
+                }
+            }
+        }
+
+        /**
+         * 删除此节点，此节点必须在树中。树太小时转换回链表。movable 为
+         * false 时不移动根节点。
+         */
+        final void removeTreeNode(Node<E>[] tab, boolean movable) {
+            int n;
+            if (tab == null || (n = tab.length) == 0)
+                return;
+            int index = (n - 1) & hash;
+            TreeNode<E> first = (TreeNode<E>)tab[index], root = first, rl;
+            TreeNode<E> succ = (TreeNode<E>)next, pred = prev;
+            // 先从 next 链表中删除
+            if (pred == null)
+                tab[index] = first = succ;
+            else
+                pred.next = succ;
+            if (succ != null)
+                succ.prev = pred;
+            if (first == null)
+                return;
+            if (root.parent != null)
+                root = root.root();
+            if (root == null
+                || (movable
+                    && (root.right == null
+                        || (rl = root.left) == null
+                        || rl.left == null))) {
+                tab[index] = first.untreeify();  // too small
+                return;
+            }
+            // 再从红黑树中删除，有两个子节点时与后继节点交换位置
+            TreeNode<E> p = this, pl = left, pr = right, replacement;
+            if (pl != null && pr != null) {
+                TreeNode<E> s = pr, sl;
+                while ((sl = s.left) != null) // find successor
+                    s = sl;
+                boolean c = s.red; s.red = p.red; p.red = c; // swap colors
+                TreeNode<E> sr = s.right;
+                TreeNode<E> pp = p.parent;
+                if (s == pr) { // p was s's direct parent
+                    p.parent = s;
+                    s.right = p;
+                }
+                else {
+                    TreeNode<E> sp = s.parent;
+                    if ((p.parent = sp) != null) {
+                        if (s == sp.left)
+                            sp.left = p;
+                        else
+                            sp.right = p;
+                    }
+                    if ((s.right = pr) != null)
+                        pr.parent = s;
+                }
+                p.left = null;
+                if ((p.right = sr) != null)
+                    sr.parent = p;
+                if ((s.left = pl) != null)
+                    pl.parent = s;
+                if ((s.parent = pp) == null)
+                    root = s;
+                else if (p == pp.left)
+                    pp.left = s;
+                else
+                    pp.right = s;
+                if (sr != null)
+                    replacement = sr;
+                else
+                    replacement = p;
+            }
+            else if (pl != null)
+                replacement = pl;
+            else if (pr != null)
+                replacement = pr;
+            else
+                replacement = p;
+            if (replacement != p) {
+                TreeNode<E> pp = replacement.parent = p.parent;
+                if (pp == null)
+                    (root = replacement).red = false;
+                else if (p == pp.left)
+                    pp.left = replacement;
+                else
+                    pp.right = replacement;
+                p.left = p.right = p.parent = null;
+            }
+
+            TreeNode<E> r = p.red ? root : balanceDeletion(root, replacement);
+
+            if (replacement == p) {  // detach
+                TreeNode<E> pp = p.parent;
+                p.parent = null;
+                if (pp != null) {
+                    if (p == pp.left)
+                        pp.left = null;
+                    else if (p == pp.right)
+                        pp.right = null;
+                }
+            }
+            if (movable)
+                moveRootToFront(tab, r);
+        }
+
+        /**
+         * 扩容时把树桶中的节点按 hash & bit 拆分到 index 和 index + bit
+         * 两个桶中，节点不超过 UNTREEIFY_THRESHOLD 个时转换回链表。
+         */
+        final void split(Node<E>[] tab, int index, int bit) {
+            TreeNode<E> loHead = null, loTail = null;
+            TreeNode<E> hiHead = null, hiTail = null;
+            int lc = 0, hc = 0;
+            for (TreeNode<E> e = this, next; e != null; e = next) {
+                next = (TreeNode<E>)e.next;
+                e.next = null;
+                if ((e.hash & bit) == 0) {
+                    if ((e.prev = loTail) == null)
+                        loHead = e;
+                    else
+                        loTail.next = e;
+                    loTail = e;
+                    ++lc;
+                }
+                else {
+                    if ((e.prev = hiTail) == null)
+                        hiHead = e;
+                    else
+                        hiTail.next = e;
+                    hiTail = e;
+                    ++hc;
+                }
+            }
+
+            if (loHead != null) {
+                if (lc <= HashMap.UNTREEIFY_THRESHOLD)
+                    tab[index] = loHead.untreeify();
+                else {
+                    tab[index] = loHead;
+                    if (hiHead != null) // (else is already treeified)
+                        loHead.treeify(tab);
+                }
+            }
+            if (hiHead != null) {
+                if (hc <= HashMap.UNTREEIFY_THRESHOLD)
+                    tab[index + bit] = hiHead.untreeify();
+                else {
+                    tab[index + bit] = hiHead;
+                    if (loHead != null)
+                        hiHead.treeify(tab);
+                }
+            }
+        }
+
+        // Red-black tree methods, all adapted from CLR
+
+        static <E> TreeNode<E> rotateLeft(TreeNode<E> root, TreeNode<E> p) {
+            TreeNode<E> r, pp, rl;
+            if (p != null && (r = p.right) != null) {
+                if ((rl = p.right = r.left) != null)
+                    rl.parent = p;
+                if ((pp = r.parent = p.parent) == null)
+                    (root = r).red = false;
+                else if (pp.left == p)
+                    pp.left = r;
+                else
+                    pp.right = r;
+                r.left = p;
+                p.parent = r;
+            }
+            return root;
+        }
+
+        static <E> TreeNode<E> rotateRight(TreeNode<E> root, TreeNode<E> p) {
+            TreeNode<E> l, pp, lr;
+            if (p != null && (l = p.left) != null) {
+                if ((lr = p.left = l.right) != null)
+                    lr.parent = p;
+                if ((pp = l.parent = p.parent) == null)
+                    (root = l).red = false;
+                else if (pp.right == p)
+                    pp.right = l;
+                else
+                    pp.left = l;
+                l.right = p;
+                p.parent = l;
+            }
+            return root;
+        }
+
+        static <E> TreeNode<E> balanceInsertion(TreeNode<E> root, TreeNode<E> x) {
+            x.red = true;
+            for (TreeNode<E> xp, xpp, xppl, xppr;;) {
+                if ((xp = x.parent) == null) {
+                    x.red = false;
+                    return x;
+                }
+                else if (!xp.red || (xpp = xp.parent) == null)
+                    return root;
+                if (xp == (xppl = xpp.left)) {
+                    if ((xppr = xpp.right) != null && xppr.red) {
+                        xppr.red = false;
+                        xp.red = false;
+                        xpp.red = true;
+                        x = xpp;
+                    }
+                    else {
+                        if (x == xp.right) {
+                            root = rotateLeft(root, x = xp);
+                            xpp = (xp = x.parent) == null ? null : xp.parent;
+                        }
+                        if (xp != null) {
+                            xp.red = false;
+                            if (xpp != null) {
+                                xpp.red = true;
+                                root = rotateRight(root, xpp);
+                            }
+                        }
+                    }
+                }
+                else {
+                    if (xppl != null && xppl.red) {
+                        xppl.red = false;
+                        xp.red = false;
+                        xpp.red = true;
+                        x = xpp;
+                    }
+                    else {
+                        if (x == xp.left) {
+                            root = rotateRight(root, x = xp);
+                            xpp = (xp = x.parent) == null ? null : xp.parent;
+                        }
+                        if (xp != null) {
+                            xp.red = false;
+                            if (xpp != null) {
+                                xpp.red = true;
+                                root = rotateLeft(root, xpp);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        static <E> TreeNode<E> balanceDeletion(TreeNode<E> root, TreeNode<E> x) {
+            for (TreeNode<E> xp, xpl, xpr;;) {
+                if (x == null || x == root)
+                    return root;
+                else if ((xp = x.parent) == null) {
+                    x.red = false;
+                    return x;
+                }
+                else if (x.red) {
+                    x.red = false;
+                    return root;
+                }
+                else if ((xpl = xp.left) == x) {
+                    if ((xpr = xp.right) != null && xpr.red) {
+                        xpr.red = false;
+                        xp.red = true;
+                        root = rotateLeft(root, xp);
+                        xpr = (xp = x.parent) == null ? null : xp.right;
+                    }
+                    if (xpr == null)
+                        x = xp;
+                    else {
+                        TreeNode<E> sl = xpr.left, sr = xpr.right;
+                        if ((sr == null || !sr.red) &&
+                            (sl == null || !sl.red)) {
+                            xpr.red = true;
+                            x = xp;
+                        }
+                        else {
+                            if (sr == null || !sr.red) {
+                                if (sl != null)
+                                    sl.red = false;
+                                xpr.red = true;
+                                root = rotateRight(root, xpr);
+                                xpr = (xp = x.parent) == null ?
+                                    null : xp.right;
+                            }
+                            if (xpr != null) {
+                                xpr.red = (xp == null) ? false : xp.red;
+                                if ((sr = xpr.right) != null)
+                                    sr.red = false;
+                            }
+                            if (xp != null) {
+                                xp.red = false;
+                                root = rotateLeft(root, xp);
+                            }
+                            x = root;
+                        }
+                    }
+                }
+                else { // symmetric
+                    if (xpl != null && xpl.red) {
+                        xpl.red = false;
+                        xp.red = true;
+                        root = rotateRight(root, xp);
+                        xpl = (xp = x.parent) == null ? null : xp.left;
+                    }
+                    if (xpl == null)
+                        x = xp;
+                    else {
+                        TreeNode<E> sl = xpl.left, sr = xpl.right;
+                        if ((sl == null || !sl.red) &&
+                            (sr == null || !sr.red)) {
+                            xpl.red = true;
+                            x = xp;
+                        }
+                        else {
+                            if (sl == null || !sl.red) {
+                                if (sr != null)
+                                    sr.red = false;
+                                xpl.red = true;
+                                root = rotateLeft(root, xpl);
+                                xpl = (xp = x.parent) == null ?
+                                    null : xp.left;
+                            }
+                            if (xpl != null) {
+                                xpl.red = (xp == null) ? false : xp.red;
+                                if ((sl = xpl.left) != null)
+                                    sl.red = false;
+                            }
+                            if (xp != null) {
+                                xp.red = false;
+                                root = rotateRight(root, xp);
+                            }
+                            x = root;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * 以下字段都是 transient 的：序列化格式（容量、加载因子、元素个数和
+     * 所有元素）由 writeObject 写出，与基于 HashMap 的实现相同。
+     */
 
-    // Dummy value to associate with an Object in the backing Map
-    private static final Object PRESENT = new Object();
+    /**
+     * 表，第一次添加元素时初始化，长度总是 2 的幂。
+     */
+    transient Node<E>[] table;
 
     /**
-     * 构造一个空集合；HashMap 实例的容量为默认容量（16），加载因子为
+     * 集合中元素的数量
+     */
+    transient int size;
+
+    /**
+     * 结构性修改的次数，用于迭代器的 fast-fail。
+     */
+    transient int modCount;
+
+    /**
+     * 扩容的临界值（capacity * load factor）。table 没有分配时保存初始
+     * 容量，0 表示使用 DEFAULT_INITIAL_CAPACITY。
+     */
+    transient int threshold;
+
+    /**
+     * 加载因子。
+     */
+    transient float loadFactor;
+
+    /**
+     * 构造一个空集合；hash 表的容量为默认容量（16），加载因子为
      * 默认加载因子（0.75）
      */
     public HashSet() {
-        map = new HashMap<>();
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
     }
 
     /**
-     * 构造一个包含指定集合所有元素的新的 set。HashMap 实例的初始容量
+     * 构造一个包含指定集合所有元素的新的 set。hash 表的初始容量
      * 足以容纳指定集合的所有元素，加载因子为默认加载因子（0.75）
      *
      * @param c the collection whose elements are to be placed into this set
      * @throws NullPointerException if the specified collection is null
      */
     public HashSet(java.util.Collection<? extends E> c) {
-        map = new HashMap<>(Math.max((int) (c.size()/.75f) + 1, 16));
+        this(Math.max((int) (c.size()/.75f) + 1, 16));
         addAll(c);
     }
 
     /**
-     * 构造一个空集合；HashMap 实例的初始容量为指定参数 initialCapacity，
+     * 构造一个空集合；hash 表的初始容量为指定参数 initialCapacity，
      * 加载因子为指定参数 loadFactor
      *
-     * @param      initialCapacity   the initial capacity of the hash map
-     * @param      loadFactor        the load factor of the hash map
+     * @param      initialCapacity   the initial capacity of the hash table
+     * @param      loadFactor        the load factor of the hash table
      * @throws     IllegalArgumentException if the initial capacity is less
      *             than zero, or if the load factor is nonpositive
      */
     public HashSet(int initialCapacity, float loadFactor) {
-        map = new HashMap<>(initialCapacity, loadFactor);
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                    initialCapacity);
+        if (initialCapacity > HashMap.MAXIMUM_CAPACITY)
+            initialCapacity = HashMap.MAXIMUM_CAPACITY;
+        if (loadFactor <= 0 || Float.isNaN(loadFactor))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                    loadFactor);
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(initialCapacity);
     }
 
     /**
-     * 构造一个空集合；HashMap 实例的初始容量为指定参数 initialCapacity，
+     * 构造一个空集合；hash 表的初始容量为指定参数 initialCapacity，
      * 加载因子为默认加载因子（0.75）
      *
      * @param      initialCapacity   the initial capacity of the hash table
@@ -127,26 +725,7 @@ public class HashSet<E>
      *             than zero
      */
     public HashSet(int initialCapacity) {
-        map = new HashMap<>(initialCapacity);
-    }
-
-    /**
-     * 构造一个空的 linkedHashSet。（这个只有包权限的构造方法只用于
-     * LinkedHashSet。)支撑此集合的 HashMap 实例是有指定初始容量和
-     * 指定加载因子的 LinkedHashMap。
-     *
-     * @August 包内的任何类都可以访问，包外的任何其他类都不能访问
-     * （包括包外继承了此类的子类）
-     *
-     * @param      initialCapacity   the initial capacity of the hash map
-     * @param      loadFactor        the load factor of the hash map
-     * @param      dummy             ignored (distinguishes this
-     *             constructor from other int, float constructor.)
-     * @throws     IllegalArgumentException if the initial capacity is less
-     *             than zero, or if the load factor is nonpositive
-     */
-    HashSet(int initialCapacity, float loadFactor, boolean dummy) {
-        map = new LinkedHashMap<>(initialCapacity, loadFactor);
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
     }
 
     /**
@@ -156,7 +735,7 @@ public class HashSet<E>
      * @see ConcurrentModificationException
      */
     public Iterator<E> iterator() {
-        return map.keySet().iterator();
+        return new HashIterator();
     }
 
     /**
@@ -165,7 +744,7 @@ public class HashSet<E>
      * @return the number of elements in this set (its cardinality)
      */
     public int size() {
-        return map.size();
+        return size;
     }
 
     /**
@@ -174,7 +753,7 @@ public class HashSet<E>
      * @return true if this set contains no elements
      */
     public boolean isEmpty() {
-        return map.isEmpty();
+        return size == 0;
     }
 
     /**
@@ -184,7 +763,19 @@ public class HashSet<E>
      * @return true if this set contains the specified element
      */
     public boolean contains(Object o) {
-        return map.containsKey(o);
+        Node<E>[] tab; Node<E> e; int n, hash; Object k;
+        if ((tab = table) != null && (n = tab.length) > 0 &&
+                (e = tab[(n - 1) & (hash = HashMap.hash(o))]) != null) {
+            if (e instanceof TreeNode)
+                return ((TreeNode<E>)e).getTreeNode(hash, o) != null;
+            // 和 HashMap.getNode 一样先比较 hash 值
+            do {
+                if (e.hash == hash &&
+                        ((k = e.key) == o || (o != null && o.equals(k))))
+                    return true;
+            } while ((e = e.next) != null);
+        }
+        return false;
     }
 
     /**
@@ -196,7 +787,37 @@ public class HashSet<E>
      * element
      */
     public boolean add(E e) {
-        return map.put(e, PRESENT)==null;
+        Node<E>[] tab; Node<E> p; int n, i;
+        int hash = HashMap.hash(e);
+        if ((tab = table) == null || (n = tab.length) == 0)
+            n = (tab = resize()).length;
+        // 桶为空，直接放入新节点
+        if ((p = tab[i = (n - 1) & hash]) == null)
+            tab[i] = new Node<>(hash, e, null);
+        else if (p instanceof TreeNode) {
+            if (((TreeNode<E>)p).putTreeVal(tab, hash, e) != null)
+                return false;
+        }
+        else {
+            // 遍历链表，已经存在相等的元素时不做任何修改
+            for (int binCount = 0; ; ++binCount, p = p.next) {
+                Object k;
+                if (p.hash == hash &&
+                        ((k = p.key) == e || (e != null && e.equals(k))))
+                    return false;
+                if (p.next == null) {
+                    p.next = new Node<>(hash, e, null);
+                    // 与 HashMap.putVal 相同，链表过长时转换成红黑树
+                    if (binCount >= HashMap.TREEIFY_THRESHOLD - 1) // -1 for 1st
+                        treeifyBin(tab, hash);
+                    break;
+                }
+            }
+        }
+        ++modCount;
+        if (++size > threshold)
+            resize();
+        return true;
     }
 
     /**
@@ -207,7 +828,42 @@ public class HashSet<E>
      * @return true if the set contained the specified element
      */
     public boolean remove(Object o) {
-        return map.remove(o)==PRESENT;
+        return removeNode(HashMap.hash(o), o, true) != null;
+    }
+
+    /**
+     * 删除并返回 hash 值为 hash、与 o 相等的节点，不存在时返回 null。
+     * movable 为 false 时（迭代器删除）不移动红黑树的根节点，桶中
+     * next 链表的顺序保持不变。
+     */
+    final Node<E> removeNode(int hash, Object o, boolean movable) {
+        Node<E>[] tab; Node<E> p, prev = null; int n, index; Object k;
+        if ((tab = table) != null && (n = tab.length) > 0 &&
+                (p = tab[index = (n - 1) & hash]) != null) {
+            if (p instanceof TreeNode) {
+                TreeNode<E> t = ((TreeNode<E>)p).getTreeNode(hash, o);
+                if (t != null) {
+                    t.removeTreeNode(tab, movable);
+                    ++modCount;
+                    --size;
+                }
+                return t;
+            }
+            do {
+                if (p.hash == hash &&
+                        ((k = p.key) == o || (o != null && o.equals(k)))) {
+                    if (prev == null)
+                        tab[index] = p.next;
+                    else
+                        prev.next = p.next;
+                    ++modCount;
+                    --size;
+                    return p;
+                }
+                prev = p;
+            } while ((p = p.next) != null);
+        }
+        return null;
     }
 
     /**
@@ -215,7 +871,134 @@ public class HashSet<E>
      * 此方法调用后集合为空。
      */
     public void clear() {
-        map.clear();
+        Node<E>[] tab;
+        modCount++;
+        if ((tab = table) != null && size > 0) {
+            size = 0;
+            Arrays.fill(tab, null);
+        }
+    }
+
+    /**
+     * 初始化或者把表的长度扩大一倍，逻辑与 HashMap.resize 相同：每个桶
+     * 中的节点按照 hash & oldCap 拆分到原位置和原位置加 oldCap 两个桶中，
+     * 链表的相对顺序保持不变。
+     *
+     * @return the table
+     */
+    final Node<E>[] resize() {
+        Node<E>[] oldTab = table;
+        int oldCap = (oldTab == null) ? 0 : oldTab.length;
+        int oldThr = threshold;
+        int newCap, newThr = 0;
+        if (oldCap > 0) {
+            if (oldCap >= HashMap.MAXIMUM_CAPACITY) {
+                threshold = Integer.MAX_VALUE;
+                return oldTab;
+            }
+            else if ((newCap = oldCap << 1) < HashMap.MAXIMUM_CAPACITY &&
+                    oldCap >= DEFAULT_INITIAL_CAPACITY)
+                newThr = oldThr << 1; // double threshold
+        }
+        else if (oldThr > 0) // initial capacity was placed in threshold
+            newCap = oldThr;
+        else {               // zero initial threshold signifies using defaults
+            newCap = DEFAULT_INITIAL_CAPACITY;
+            newThr = (int)(DEFAULT_LOAD_FACTOR * DEFAULT_INITIAL_CAPACITY);
+        }
+        if (newThr == 0) {
+            float ft = (float)newCap * loadFactor;
+            newThr = (newCap < HashMap.MAXIMUM_CAPACITY && ft < (float)HashMap.MAXIMUM_CAPACITY ?
+                    (int)ft : Integer.MAX_VALUE);
+        }
+        threshold = newThr;
+        @SuppressWarnings({"rawtypes","unchecked"})
+        Node<E>[] newTab = (Node<E>[])new Node[newCap];
+        table = newTab;
+        if (oldTab != null) {
+            for (int j = 0; j < oldCap; ++j) {
+                Node<E> e;
+                if ((e = oldTab[j]) != null) {
+                    oldTab[j] = null;
+                    if (e.next == null)
+                        newTab[e.hash & (newCap - 1)] = e;
+                    else if (e instanceof TreeNode)
+                        ((TreeNode<E>)e).split(newTab, j, oldCap);
+                    else { // preserve order
+                        Node<E> loHead = null, loTail = null;
+                        Node<E> hiHead = null, hiTail = null;
+                        Node<E> next;
+                        do {
+                            next = e.next;
+                            if ((e.hash & oldCap) == 0) {
+                                if (loTail == null)
+                                    loHead = e;
+                                else
+                                    loTail.next = e;
+                                loTail = e;
+                            }
+                            else {
+                                if (hiTail == null)
+                                    hiHead = e;
+                                else
+                                    hiTail.next = e;
+                                hiTail = e;
+                            }
+                        } while ((e = next) != null);
+                        if (loTail != null) {
+                            loTail.next = null;
+                            newTab[j] = loHead;
+                        }
+                        if (hiTail != null) {
+                            hiTail.next = null;
+                            newTab[j + oldCap] = hiHead;
+                        }
+                    }
+                }
+            }
+        }
+        return newTab;
+    }
+
+    /**
+     * 把桶中的链表转换成红黑树，表的长度小于 MIN_TREEIFY_CAPACITY 时
+     * 改为扩容，与 HashMap.treeifyBin 相同。
+     */
+    final void treeifyBin(Node<E>[] tab, int hash) {
+        int n, index; Node<E> e;
+        if (tab == null || (n = tab.length) < HashMap.MIN_TREEIFY_CAPACITY)
+            resize();
+        else if ((e = tab[index = (n - 1) & hash]) != null) {
+            TreeNode<E> hd = null, tl = null;
+            do {
+                TreeNode<E> p = new TreeNode<>(e.hash, e.key, null);
+                if (tl == null)
+                    hd = p;
+                else {
+                    p.prev = tl;
+                    tl.next = p;
+                }
+                tl = p;
+            } while ((e = e.next) != null);
+            if ((tab[index] = hd) != null)
+                hd.treeify(tab);
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        Node<E>[] tab;
+        if (action == null)
+            throw new NullPointerException();
+        if (size > 0 && (tab = table) != null) {
+            int mc = modCount;
+            for (Node<E> e : tab) {
+                for (; e != null; e = e.next)
+                    action.accept(e.key);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
     }
 
     /**
@@ -225,20 +1008,35 @@ public class HashSet<E>
      */
     @SuppressWarnings("unchecked")
     public Object clone() {
+        HashSet<E> newSet;
         try {
-            HashSet<E> newSet = (HashSet<E>) super.clone();
-            newSet.map = (HashMap<E, Object>) map.clone();
-            return newSet;
+            newSet = (HashSet<E>) super.clone();
         } catch (CloneNotSupportedException e) {
             throw new InternalError(e);
         }
+        // 和 HashMap.clone 一样，用原来的容量重新插入所有元素
+        newSet.table = null;
+        newSet.size = 0;
+        newSet.modCount = 0;
+        newSet.threshold = capacity();
+        for (E e : this)
+            newSet.add(e);
+        return newSet;
+    }
+
+    // 序列化时使用
+    final float loadFactor() { return loadFactor; }
+    final int capacity() {
+        return (table != null) ? table.length :
+                (threshold > 0) ? threshold :
+                        DEFAULT_INITIAL_CAPACITY;
     }
 
     /**
      * 保存 HashSet 实例到流里（即序列化）
      *
-     * @serialData The capacity of the backing <tt>HashMap</tt> instance
-     *             (int), and its load factor (float) are emitted, followed by
+     * @serialData The capacity of the backing hash table (int), and its
+     *             load factor (float) are emitted, followed by
      *             the size of the set (the number of elements it contains)
      *             (int), followed by all of its elements (each an Object) in
      *             no particular order.
@@ -248,15 +1046,15 @@ public class HashSet<E>
         // Write out any hidden serialization magic
         s.defaultWriteObject();
 
-        // Write out HashMap capacity and load factor
-        s.writeInt(map.capacity());
-        s.writeFloat(map.loadFactor());
+        // Write out capacity and load factor
+        s.writeInt(capacity());
+        s.writeFloat(loadFactor);
 
         // Write out size
-        s.writeInt(map.size());
+        s.writeInt(size);
 
         // Write out all elements in the proper order.
-        for (E e : map.keySet())
+        for (E e : this)
             s.writeObject(e);
     }
 
@@ -289,28 +1087,18 @@ public class HashSet<E>
                     size);
         }
         // Set the capacity according to the size and load factor ensuring that
-        // the HashMap is at least 25% full but clamping to maximum capacity.
+        // the table is at least 25% full but clamping to maximum capacity.
         capacity = (int) Math.min(size * Math.min(1 / loadFactor, 4.0f),
                 HashMap.MAXIMUM_CAPACITY);
 
-        // Constructing the backing map will lazily create an array when the first element is
-        // added, so check it before construction. Call HashMap.tableSizeFor to compute the
-        // actual allocation size. Check Map.Entry[].class since it's the nearest public type to
-        // what is actually created.
-
-        SharedSecrets.getJavaOISAccess()
-                .checkArray(s, Map.Entry[].class, HashMap.tableSizeFor(capacity));
-
-        // Create backing HashMap
-        map = (((HashSet<?>)this) instanceof LinkedHashSet ?
-                new LinkedHashMap<E,Object>(capacity, loadFactor) :
-                new HashMap<E,Object>(capacity, loadFactor));
+        this.loadFactor = loadFactor;
+        this.threshold = HashMap.tableSizeFor(capacity);
 
         // Read in all elements in the proper order.
         for (int i=0; i<size; i++) {
             @SuppressWarnings("unchecked")
             E e = (E) s.readObject();
-            map.put(e, PRESENT);
+            add(e);
         }
     }
 
@@ -327,6 +1115,157 @@ public class HashSet<E>
      * @since 1.8
      */
     public Spliterator<E> spliterator() {
-        return new HashMap.KeySpliterator<E,Object>(map, 0, -1, 0, 0);
+        return new HashSetSpliterator<>(this, 0, -1, 0, 0);
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+    // 迭代器，和 HashMap.HashIterator 相同
+
+    final class HashIterator implements Iterator<E> {
+        Node<E> next;        // next entry to return
+        Node<E> current;     // current entry
+        int expectedModCount;  // for fast-fail
+        int index;             // current slot
+
+        HashIterator() {
+            expectedModCount = modCount;
+            Node<E>[] t = table;
+            current = next = null;
+            index = 0;
+            if (t != null && size > 0) { // advance to first entry
+                do {} while (index < t.length && (next = t[index++]) == null);
+            }
+        }
+
+        public final boolean hasNext() {
+            return next != null;
+        }
+
+        public final E next() {
+            Node<E>[] t;
+            Node<E> e = next;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (e == null)
+                throw new NoSuchElementException();
+            if ((next = (current = e).next) == null && (t = table) != null) {
+                do {} while (index < t.length && (next = t[index++]) == null);
+            }
+            return e.key;
+        }
+
+        public final void remove() {
+            Node<E> p = current;
+            if (p == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = null;
+            removeNode(p.hash, p.key, false);
+            expectedModCount = modCount;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // spliterators
+    // 和 HashMap.KeySpliterator 相同
+
+    static final class HashSetSpliterator<E> implements Spliterator<E> {
+        final HashSet<E> set;
+        Node<E> current;            // current node
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        HashSetSpliterator(HashSet<E> s, int origin, int fence, int est,
+                           int expectedModCount) {
+            this.set = s;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                HashSet<E> s = set;
+                est = s.size;
+                expectedModCount = s.modCount;
+                Node<E>[] tab = s.table;
+                hi = fence = (tab == null) ? 0 : tab.length;
+            }
+            return hi;
+        }
+
+        public long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public HashSetSpliterator<E> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid || current != null) ? null :
+                    new HashSetSpliterator<>(set, lo, index = mid, est >>>= 1,
+                            expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            int i, hi, mc;
+            if (action == null)
+                throw new NullPointerException();
+            HashSet<E> s = set;
+            Node<E>[] tab = s.table;
+            if ((hi = fence) < 0) {
+                mc = expectedModCount = s.modCount;
+                hi = fence = (tab == null) ? 0 : tab.length;
+            }
+            else
+                mc = expectedModCount;
+            if (tab != null && tab.length >= hi &&
+                    (i = index) >= 0 && (i < (index = hi) || current != null)) {
+                Node<E> p = current;
+                current = null;
+                do {
+                    if (p == null)
+                        p = tab[i++];
+                    else {
+                        action.accept(p.key);
+                        p = p.next;
+                    }
+                } while (p != null || i < hi);
+                if (s.modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action) {
+            int hi;
+            if (action == null)
+                throw new NullPointerException();
+            Node<E>[] tab = set.table;
+            if (tab != null && tab.length >= (hi = getFence()) && index >= 0) {
+                while (current != null || index < hi) {
+                    if (current == null)
+                        current = tab[index++];
+                    else {
+                        E e = current.key;
+                        current = current.next;
+                        action.accept(e);
+                        if (set.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == set.size ? Spliterator.SIZED : 0) |
+                    Spliterator.DISTINCT;
+        }
     }
 }
@@ -0,0 +1,221 @@
+package Collections;
+
+import java.util.Arrays;
+
+/**
+ * 哈希表桶分布的快照，由 HashMap.binStats 和 ConcurrentHashMap.binStats
+ * 生成，用来判断 key 的 hashCode() 分布是否良好。
+ *
+ * 快照包含：
+ *   桶长度直方图      长度为 0 到 TREEIFY_THRESHOLD - 1 的桶各有多少个，
+ *                    最后一格统计长度不小于 TREEIFY_THRESHOLD 的桶；
+ *   树化桶个数        已经变成红黑树的桶的个数；
+ *   实际负载          size / capacity，对比加载因子可以看出离下次扩容还有多远；
+ *   扩容次数          map 创建以来 table 长度翻倍的次数；
+ *   最大探测深度      查找一个 key 最多需要比较的节点数。链表桶为链表长度，
+ *                    树化桶为红黑树的高度。
+ *
+ * hashCode() 分布良好时，桶长度近似服从参数为实际负载的泊松分布
+ * （见 HashMap 开头的实现注释），树化桶个数为 0，平均探测长度接近
+ * 1 + load / 2。桶长度集中在直方图的最后一格、出现树化桶或者最大探测
+ * 深度明显大于直方图中的桶长度，都说明有大量 key 的 hash 值冲突。
+ *
+ * 生成快照需要遍历 table，代价与被扫描的桶数成正比，不修改 map 的结构。
+ * 对于很大的表，可以只扫描一部分桶（按固定步长抽样），此时直方图、
+ * 树化桶个数等统计值都只覆盖被扫描的桶，sampledBins 给出扫描的桶数。
+ *
+ * 此类是不可变的。
+ */
+public final class HashTableStats {
+
+    /**
+     * 桶长度直方图的格数。
+     */
+    public static final int HISTOGRAM_SIZE = 9;
+
+    private final int capacity;
+    private final long size;
+    private final float loadFactor;
+    private final int resizeCount;
+    private final boolean resizing;
+    private final int sampledBins;
+    private final long[] binLengthHistogram;
+    private final int treeifiedBins;
+    private final int maxBinLength;
+    private final int maxProbeDepth;
+    private final long sampledEntries;
+    // 所有被扫描的节点的探测深度之和，用于计算平均探测长度
+    private final long probeSum;
+
+    private HashTableStats(Recorder r, int capacity, long size, float loadFactor,
+                           int resizeCount, boolean resizing) {
+        this.capacity = capacity;
+        this.size = size;
+        this.loadFactor = loadFactor;
+        this.resizeCount = resizeCount;
+        this.resizing = resizing;
+        this.sampledBins = r.bins;
+        this.binLengthHistogram = r.histogram.clone();
+        this.treeifiedBins = r.treeifiedBins;
+        this.maxBinLength = r.maxBinLength;
+        this.maxProbeDepth = r.maxProbeDepth;
+        this.sampledEntries = r.entries;
+        this.probeSum = r.probeSum;
+    }
+
+    /**
+     * 快照生成时 table 的长度，table 还没有分配时为 0。
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 快照生成时映射的数量。ConcurrentHashMap 中是估计值。
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 创建 map 时指定的加载因子。
+     */
+    public float loadFactor() {
+        return loadFactor;
+    }
+
+    /**
+     * 实际负载 size / capacity。
+     */
+    public double load() {
+        return capacity == 0 ? 0.0 : (double) size / capacity;
+    }
+
+    /**
+     * map 创建以来 table 长度翻倍的次数。
+     */
+    public int resizeCount() {
+        return resizeCount;
+    }
+
+    /**
+     * 快照生成时是否有进行中的扩容。扩容期间按照新表统计：还没有迁移的
+     * 旧桶中的节点被计入它们将要迁移到的新桶，探测深度按照它们在旧桶中
+     * 的位置计算，capacity 为新表的长度。
+     */
+    public boolean isResizing() {
+        return resizing;
+    }
+
+    /**
+     * 被扫描的桶数，完整扫描时等于 capacity。
+     */
+    public int sampledBins() {
+        return sampledBins;
+    }
+
+    /**
+     * 被扫描的节点数，完整扫描时等于 size。
+     */
+    public long sampledEntries() {
+        return sampledEntries;
+    }
+
+    /**
+     * 桶长度直方图的副本：下标 i（i < HISTOGRAM_SIZE - 1）处为长度为 i
+     * 的桶的个数，最后一格为长度不小于 HISTOGRAM_SIZE - 1 的桶的个数。
+     */
+    public long[] binLengthHistogram() {
+        return binLengthHistogram.clone();
+    }
+
+    /**
+     * 空桶的个数。
+     */
+    public long emptyBins() {
+        return binLengthHistogram[0];
+    }
+
+    /**
+     * 红黑树结构的桶的个数。
+     */
+    public int treeifiedBins() {
+        return treeifiedBins;
+    }
+
+    /**
+     * 最长的桶中的节点个数。
+     */
+    public int maxBinLength() {
+        return maxBinLength;
+    }
+
+    /**
+     * 查找一个已存在的 key 最多需要比较的节点数。
+     */
+    public int maxProbeDepth() {
+        return maxProbeDepth;
+    }
+
+    /**
+     * 查找一个已存在的 key 平均需要比较的节点数（每个 key 被查找的概率
+     * 相同）。没有节点时返回 0。
+     */
+    public double averageProbeLength() {
+        return sampledEntries == 0 ? 0.0 : (double) probeSum / sampledEntries;
+    }
+
+    @Override
+    public String toString() {
+        return "HashTableStats{capacity=" + capacity +
+            ", size=" + size +
+            ", load=" + String.format("%.3f", load()) +
+            ", loadFactor=" + loadFactor +
+            ", resizeCount=" + resizeCount +
+            (resizing ? ", resizing" : "") +
+            ", sampledBins=" + sampledBins +
+            ", binLengthHistogram=" + Arrays.toString(binLengthHistogram) +
+            ", treeifiedBins=" + treeifiedBins +
+            ", maxBinLength=" + maxBinLength +
+            ", maxProbeDepth=" + maxProbeDepth +
+            ", averageProbeLength=" + String.format("%.3f", averageProbeLength()) +
+            "}";
+    }
+
+    /**
+     * 生成快照时逐个记录桶的统计信息。供 map 的实现使用，不是线程安全的。
+     */
+    public static final class Recorder {
+        final long[] histogram = new long[HISTOGRAM_SIZE];
+        int bins;
+        int treeifiedBins;
+        int maxBinLength;
+        int maxProbeDepth;
+        long entries;
+        long probeSum;
+
+        /**
+         * 记录一个桶。length 为桶中节点个数，depthSum 为查找桶中每个节点
+         * 需要比较的节点数之和（链表中第 i 个节点为 i，红黑树中为节点的深度，
+         * 根节点为 1），maxDepth 为其中的最大值。
+         */
+        public void recordBin(int length, int maxDepth, long depthSum, boolean treeified) {
+            bins++;
+            histogram[Math.min(length, HISTOGRAM_SIZE - 1)]++;
+            entries += length;
+            probeSum += depthSum;
+            if (treeified)
+                treeifiedBins++;
+            if (length > maxBinLength)
+                maxBinLength = length;
+            if (maxDepth > maxProbeDepth)
+                maxProbeDepth = maxDepth;
+        }
+
+        public HashTableStats snapshot(int capacity, long size, float loadFactor,
+                                       int resizeCount, boolean resizing) {
+            return new HashTableStats(this, capacity, size, loadFactor,
+                                      resizeCount, resizing);
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package Collections;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * 支持修改优先级的优先级队列，用 d 叉堆实现。
+ *
+ * PriorityQueue 中的元素一旦入队就不能修改优先级，只能先
+ * remove(Object) 再重新 add，而 remove(Object) 要用 indexOf 线性查找
+ * 元素的位置。Dijkstra 最短路径、定时任务调度这类需要 decreaseKey 的
+ * 场景因此退化为 O(n)。
+ *
+ * 此类的 add 返回一个句柄（Handle），句柄记录元素当前在堆数组中的下标，
+ * 元素每次移动时同时更新。通过句柄可以在 O(log n) 时间内：
+ *
+ *   update(h, e)  把句柄对应的元素替换成 e，根据新的优先级上浮或者下沉，
+ *                 decreaseKey 和 increaseKey 都用这个方法；
+ *   remove(h)     删除句柄对应的元素。
+ *
+ * 堆的叉数 d 在构造时指定，默认为 4。与二叉堆相比，d 叉堆的高度是
+ * log_d(n)，上浮（add、decreaseKey）比较次数更少；下沉（poll）每层要在
+ * d 个子节点中找最小的，比较次数更多，但这 d 个子节点在数组中是相邻的，
+ * 通常在同一个缓存行内。d 为 2 时与 PriorityQueue 的结构相同。
+ *
+ * 与 PriorityQueue 相同，元素按照 Comparator 或者自然顺序排列，不允许
+ * null 元素，iterator 不保证任何顺序。元素出队或者被删除后，句柄失效，
+ * 再用于 update、remove 会抛出 IllegalArgumentException。
+ *
+ * 注意该实现不是同步的。
+ *
+ * @August 每个元素多一个 24 字节左右的句柄对象和一个数组位置，元素
+ *         移动时还要更新句柄中的下标。不需要修改优先级时 PriorityQueue
+ *         更合适。
+ *
+ * @param <E> the type of elements held in this queue
+ * @see PriorityQueue
+ */
+public class IndexedPriorityQueue<E> implements java.lang.Iterable<E> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 11;
+
+    private static final int DEFAULT_ARITY = 4;
+
+    /**
+     * 要分配的数组的最大大小。
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * 队列中的一个元素。index 为元素在堆数组中的下标，元素出队或者被
+     * 删除后为 -1。
+     */
+    public static final class Handle<E> {
+        E element;
+        int index;
+
+        Handle(E element, int index) {
+            this.element = element;
+            this.index = index;
+        }
+
+        /**
+         * 返回句柄对应的元素，句柄失效后返回最后一次的元素。
+         */
+        public E get() {
+            return element;
+        }
+
+        /**
+         * 元素是否还在队列中。
+         */
+        public boolean isQueued() {
+            return index >= 0;
+        }
+    }
+
+    /**
+     * 堆数组。queue[0] 为最小元素的句柄，queue[i] 的子节点为
+     * queue[d*i+1] 到 queue[d*i+d]。
+     */
+    private Handle<E>[] queue;
+
+    /**
+     * 与 queue 平行的元素数组，elements[i] == queue[i].element。比较时
+     * 直接读取这个数组，不需要经过句柄，句柄只在元素移动时更新下标。
+     */
+    private Object[] elements;
+
+    private int size;
+
+    /**
+     * 堆的叉数。
+     */
+    private final int d;
+
+    /**
+     * 比较器，为 null 时使用元素的自然顺序。
+     */
+    private final Comparator<? super E> comparator;
+
+    private int modCount;
+
+    /**
+     * 构造一个 4 叉堆，使用元素的自然顺序。
+     */
+    public IndexedPriorityQueue() {
+        this(DEFAULT_ARITY, null);
+    }
+
+    /**
+     * 构造一个 4 叉堆，使用指定的比较器。
+     */
+    public IndexedPriorityQueue(Comparator<? super E> comparator) {
+        this(DEFAULT_ARITY, comparator);
+    }
+
+    /**
+     * 构造一个 arity 叉堆。
+     *
+     * @param arity      堆的叉数
+     * @param comparator 比较器，为 null 时使用元素的自然顺序
+     * @throws IllegalArgumentException 如果 arity 小于 2
+     */
+    @SuppressWarnings("unchecked")
+    public IndexedPriorityQueue(int arity, Comparator<? super E> comparator) {
+        if (arity < 2)
+            throw new IllegalArgumentException("Illegal arity: " + arity);
+        this.d = arity;
+        this.comparator = comparator;
+        this.queue = (Handle<E>[]) new Handle<?>[DEFAULT_INITIAL_CAPACITY];
+        this.elements = new Object[DEFAULT_INITIAL_CAPACITY];
+    }
+
+    /**
+     * 与 PriorityQueue.grow 相同，容量小时翻倍，否则增加 50%。
+     */
+    private void grow(int minCapacity) {
+        int oldCapacity = queue.length;
+        int newCapacity = oldCapacity + ((oldCapacity < 64) ?
+                                         (oldCapacity + 2) :
+                                         (oldCapacity >> 1));
+        if (newCapacity - MAX_ARRAY_SIZE > 0)
+            newCapacity = hugeCapacity(minCapacity);
+        queue = Arrays.copyOf(queue, newCapacity);
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE) ?
+            Integer.MAX_VALUE :
+            MAX_ARRAY_SIZE;
+    }
+
+    /**
+     * 插入元素，返回它的句柄。
+     *
+     * @throws NullPointerException 如果 e 为 null
+     * @throws ClassCastException 如果 e 不能和队列中的元素比较
+     */
+    public Handle<E> add(E e) {
+        Objects.requireNonNull(e);
+        int i = size;
+        // 与 TreeMap.put 相同，第一个元素也要检查是否可比较
+        if (i == 0)
+            compare(e, e);
+        modCount++;
+        if (i >= queue.length)
+            grow(i + 1);
+        size = i + 1;
+        Handle<E> h = new Handle<>(e, i);
+        siftUp(i, h);
+        return h;
+    }
+
+    /**
+     * 返回最小的元素，队列为空时返回 null。
+     */
+    public E peek() {
+        return (size == 0) ? null : elementAt(0);
+    }
+
+    /**
+     * 返回最小元素的句柄，队列为空时返回 null。
+     */
+    public Handle<E> peekHandle() {
+        return (size == 0) ? null : queue[0];
+    }
+
+    /**
+     * 删除并返回最小的元素，队列为空时返回 null。
+     */
+    public E poll() {
+        if (size == 0)
+            return null;
+        Handle<E> h = queue[0];
+        removeAt(0);
+        return h.element;
+    }
+
+    /**
+     * 把 h 对应的元素替换成 e，并根据新的优先级调整位置。
+     *
+     * @throws IllegalArgumentException 如果 h 不在此队列中
+     * @throws NullPointerException 如果 e 为 null
+     * @throws ClassCastException 如果 e 不能和队列中的元素比较
+     */
+    public void update(Handle<E> h, E e) {
+        Objects.requireNonNull(e);
+        int i = checkHandle(h);
+        int c = compare(e, h.element);
+        modCount++;
+        h.element = e;
+        elements[i] = e;
+        if (c < 0)
+            siftUp(i, h);
+        else if (c > 0)
+            siftDown(i, h);
+    }
+
+    /**
+     * 删除 h 对应的元素。
+     *
+     * @throws IllegalArgumentException 如果 h 不在此队列中
+     */
+    public void remove(Handle<E> h) {
+        removeAt(checkHandle(h));
+    }
+
+    /**
+     * h 是否是此队列中的句柄。
+     */
+    public boolean contains(Handle<E> h) {
+        int i;
+        return h != null && (i = h.index) >= 0 && i < size && queue[i] == h;
+    }
+
+    private int checkHandle(Handle<E> h) {
+        if (!contains(h))
+            throw new IllegalArgumentException("handle not in this queue");
+        return h.index;
+    }
+
+    /**
+     * 删除 i 位置的元素：把最后一个元素移到 i 位置，再下沉或者上浮。
+     */
+    private void removeAt(int i) {
+        modCount++;
+        Handle<E> removed = queue[i];
+        removed.index = -1;
+        int s = --size;
+        Handle<E> moved = queue[s];
+        queue[s] = null;
+        elements[s] = null;
+        if (s != i) {
+            siftDown(i, moved);
+            if (queue[i] == moved)
+                siftUp(i, moved);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int i) {
+        return (E) elements[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(E a, E b) {
+        return (comparator == null) ? ((Comparable<? super E>) a).compareTo(b)
+                                    : comparator.compare(a, b);
+    }
+
+    /**
+     * 在 k 位置放入 h，向上提升直到不小于父节点。
+     */
+    @SuppressWarnings("unchecked")
+    private void siftUp(int k, Handle<E> h) {
+        Handle<E>[] queue = this.queue;
+        Object[] es = elements;
+        int d = this.d;
+        E x = h.element;
+        while (k > 0) {
+            int parent = (k - 1) / d;
+            Object e = es[parent];
+            if (compare(x, (E) e) >= 0)
+                break;
+            Handle<E> p = queue[parent];
+            queue[k] = p;
+            es[k] = e;
+            p.index = k;
+            k = parent;
+        }
+        queue[k] = h;
+        es[k] = x;
+        h.index = k;
+    }
+
+    /**
+     * 在 k 位置放入 h，向下调整直到不大于所有子节点。
+     */
+    @SuppressWarnings("unchecked")
+    private void siftDown(int k, Handle<E> h) {
+        Handle<E>[] queue = this.queue;
+        Object[] es = elements;
+        int d = this.d, n = size;
+        E x = h.element;
+        for (;;) {
+            int first = d * k + 1;
+            if (first >= n || first < 0) // first < 0: overflow
+                break;
+            // 在 d 个相邻的子节点中找最小的
+            int last = Math.min(first + d, n), child = first;
+            E c = (E) es[first];
+            for (int j = first + 1; j < last; j++) {
+                E y = (E) es[j];
+                if (compare(y, c) < 0) {
+                    c = y;
+                    child = j;
+                }
+            }
+            if (compare(x, c) <= 0)
+                break;
+            Handle<E> ch = queue[child];
+            queue[k] = ch;
+            es[k] = c;
+            ch.index = k;
+            k = child;
+        }
+        queue[k] = h;
+        es[k] = x;
+        h.index = k;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 堆的叉数。
+     */
+    public int arity() {
+        return d;
+    }
+
+    /**
+     * 返回比较器，使用自然顺序时返回 null。
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    /**
+     * 删除所有元素，所有句柄失效。
+     */
+    public void clear() {
+        modCount++;
+        for (int i = 0; i < size; i++) {
+            queue[i].index = -1;
+            queue[i] = null;
+            elements[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * 返回按照堆数组顺序（不是优先级顺序）遍历元素的迭代器，不支持
+     * remove，需要删除时使用 remove(Handle)。
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private final class Itr implements Iterator<E> {
+        private int cursor;
+        private final int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        public E next() {
+            if (expectedModCount != modCount)
+                throw new ConcurrentModificationException();
+            if (cursor >= size)
+                throw new NoSuchElementException();
+            return elementAt(cursor++);
+        }
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
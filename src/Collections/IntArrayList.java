@@ -0,0 +1,600 @@
+package Collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 元素为基本类型 int 的可变长度数组，API 和行为参照 ArrayList。
+ *
+ * ArrayList<Integer> 的每个元素是一个引用加上一个 16 字节的 Integer
+ * 对象，遍历时需要从数组跳到分散在堆中的 Integer 对象。此类把元素直接
+ * 存放在 int 数组中，每个元素只占 4 字节，遍历是连续的内存访问，add、
+ * get、set 不分配对象（扩容除外）。
+ *
+ * 扩容策略与 ArrayList 相同：默认构造时不分配数组，第一次添加元素时
+ * 分配 DEFAULT_CAPACITY（10）个元素的数组；之后每次扩容为原来的 1.5 倍
+ * （newCapacity）。
+ *
+ * 下标越界时抛出 IndexOutOfBoundsException。spliterator 和 forEach 在
+ * 遍历过程中检测到结构性修改（add、remove、clear 等改变 size 的操作）时
+ * 抛出 ConcurrentModificationException。
+ *
+ * 注意，这个实现不是同步的。
+ *
+ * @August 为了避免与按值删除混淆，按下标删除的方法命名为 removeAt。
+ *
+ * @see ArrayList
+ * @see LongArrayList
+ * @see DoubleArrayList
+ */
+public class IntArrayList implements RandomAccess, Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = -2745291633816374096L;
+
+    /**
+     * 默认初始容量为 10，与 ArrayList 相同。
+     */
+    static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * 数组的最大长度，与 ArrayList.MAX_ARRAY_SIZE 相同。
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final int[] EMPTY_ELEMENTDATA = {};
+
+    /**
+     * 默认构造时使用的空数组，第一次添加元素时扩容到 DEFAULT_CAPACITY。
+     */
+    private static final int[] DEFAULTCAPACITY_EMPTY_ELEMENTDATA = {};
+
+    /**
+     * 存储元素的数组。
+     */
+    transient int[] elementData;
+
+    /**
+     * 元素个数。
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * 结构性修改的次数。
+     */
+    transient int modCount;
+
+    /**
+     * 构造一个指定初始容量的空列表。
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public IntArrayList(int initialCapacity) {
+        if (initialCapacity > 0) {
+            this.elementData = new int[initialCapacity];
+        } else if (initialCapacity == 0) {
+            this.elementData = EMPTY_ELEMENTDATA;
+        } else {
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                    initialCapacity);
+        }
+    }
+
+    /**
+     * 构造一个空列表，第一次添加元素时分配容量为 10 的数组。
+     */
+    public IntArrayList() {
+        this.elementData = DEFAULTCAPACITY_EMPTY_ELEMENTDATA;
+    }
+
+    /**
+     * 构造一个包含数组 a 中所有元素的列表。
+     *
+     * @throws NullPointerException if the specified array is null
+     */
+    public IntArrayList(int[] a) {
+        size = a.length;
+        elementData = (size == 0) ? EMPTY_ELEMENTDATA : a.clone();
+    }
+
+    /**
+     * 调整容量为列表的当前大小。
+     */
+    public void trimToSize() {
+        modCount++;
+        if (size < elementData.length) {
+            elementData = (size == 0)
+                    ? EMPTY_ELEMENTDATA
+                    : Arrays.copyOf(elementData, size);
+        }
+    }
+
+    /**
+     * 如果有需要，增加容量来确保它可以容纳至少指定最小容量的元素。
+     *
+     * @param   minCapacity   the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        int minExpand = (elementData != DEFAULTCAPACITY_EMPTY_ELEMENTDATA)
+                ? 0
+                : DEFAULT_CAPACITY;
+        if (minCapacity > minExpand) {
+            ensureExplicitCapacity(minCapacity);
+        }
+    }
+
+    // 扩容的入口方法，与 ArrayList 相同
+    private void ensureCapacityInternal(int minCapacity) {
+        if (elementData == DEFAULTCAPACITY_EMPTY_ELEMENTDATA) {
+            minCapacity = Math.max(DEFAULT_CAPACITY, minCapacity);
+        }
+        ensureExplicitCapacity(minCapacity);
+    }
+
+    private void ensureExplicitCapacity(int minCapacity) {
+        modCount++;
+        if (minCapacity - elementData.length > 0)
+            grow(minCapacity);
+    }
+
+    private void grow(int minCapacity) {
+        elementData = Arrays.copyOf(elementData,
+                newCapacity(elementData.length, minCapacity));
+    }
+
+    /**
+     * 扩容后的容量，与 ArrayList.grow 相同：原来的 1.5 倍，不足 minCapacity
+     * 时取 minCapacity。LongArrayList、DoubleArrayList 和 BigArrayList 也
+     * 使用这个方法。
+     *
+     * @param oldCapacity 当前数组的长度
+     * @param minCapacity 需要的最小容量
+     */
+    static int newCapacity(int oldCapacity, int minCapacity) {
+        // overflow-conscious code
+        int newCapacity = oldCapacity + (oldCapacity >> 1);
+        if (newCapacity - minCapacity < 0)
+            newCapacity = minCapacity;
+        if (newCapacity - MAX_ARRAY_SIZE > 0) {
+            if (minCapacity < 0) // overflow
+                throw new OutOfMemoryError();
+            newCapacity = (minCapacity > MAX_ARRAY_SIZE) ? Integer.MAX_VALUE : MAX_ARRAY_SIZE;
+        }
+        return newCapacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * 返回 value 第一次出现的下标，不存在时返回 -1。
+     */
+    public int indexOf(int value) {
+        int[] es = elementData;
+        for (int i = 0; i < size; i++)
+            if (es[i] == value)
+                return i;
+        return -1;
+    }
+
+    /**
+     * 返回 value 最后一次出现的下标，不存在时返回 -1。
+     */
+    public int lastIndexOf(int value) {
+        int[] es = elementData;
+        for (int i = size - 1; i >= 0; i--)
+            if (es[i] == value)
+                return i;
+        return -1;
+    }
+
+    /**
+     * 返回一个浅拷贝，元素数组也被复制，容量等于 size。
+     */
+    public IntArrayList clone() {
+        try {
+            IntArrayList v = (IntArrayList) super.clone();
+            v.elementData = Arrays.copyOf(elementData, size);
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * 返回包含所有元素的新数组。
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    public int get(int index) {
+        rangeCheck(index);
+        return elementData[index];
+    }
+
+    /**
+     * 用 element 替换 index 处的元素，返回原来的元素。
+     */
+    public int set(int index, int element) {
+        rangeCheck(index);
+        int oldValue = elementData[index];
+        elementData[index] = element;
+        return oldValue;
+    }
+
+    /**
+     * 在列表末尾添加元素。
+     */
+    public void add(int e) {
+        ensureCapacityInternal(size + 1);  // Increments modCount!!
+        elementData[size++] = e;
+    }
+
+    /**
+     * 在 index 处插入元素，index 及之后的元素右移。
+     */
+    public void add(int index, int element) {
+        rangeCheckForAdd(index);
+        ensureCapacityInternal(size + 1);  // Increments modCount!!
+        System.arraycopy(elementData, index, elementData, index + 1,
+                size - index);
+        elementData[index] = element;
+        size++;
+    }
+
+    /**
+     * 在列表末尾添加数组 a 中的所有元素。
+     */
+    public void addAll(int[] a) {
+        int numNew = a.length;
+        ensureCapacityInternal(size + numNew);  // Increments modCount
+        System.arraycopy(a, 0, elementData, size, numNew);
+        size += numNew;
+    }
+
+    /**
+     * 删除 index 处的元素，之后的元素左移，返回被删除的元素。
+     */
+    public int removeAt(int index) {
+        rangeCheck(index);
+        modCount++;
+        int oldValue = elementData[index];
+        int numMoved = size - index - 1;
+        if (numMoved > 0)
+            System.arraycopy(elementData, index+1, elementData, index,
+                    numMoved);
+        size--;
+        return oldValue;
+    }
+
+    /**
+     * 删除第一个等于 value 的元素，不存在时返回 false。
+     */
+    public boolean removeValue(int value) {
+        int i = indexOf(value);
+        if (i < 0)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * 删除所有元素，保留容量。
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    /**
+     * 删除所有满足 filter 的元素。与 ArrayList 一样，filter 抛出异常时
+     * 列表不发生变化。
+     */
+    public boolean removeIf(IntPredicate filter) {
+        Objects.requireNonNull(filter);
+        final int expectedModCount = modCount;
+        final int[] es = elementData;
+        final int size = this.size;
+        // 找到第一个要删除的元素，在此之前不修改数组
+        int i = 0;
+        for (; i < size && !filter.test(es[i]); i++)
+            ;
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        if (i == size)
+            return false;
+        // 基本类型不需要像 ArrayList 那样先用 BitSet 记录，但是 filter
+        // 中途抛出异常时不能留下一半移动过的数组，因此先把结果写到副本中
+        int[] kept = new int[size - i - 1];
+        int w = 0;
+        for (int j = i + 1; j < size; j++) {
+            int e = es[j];
+            if (!filter.test(e))
+                kept[w++] = e;
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        System.arraycopy(kept, 0, es, i, w);
+        this.size = i + w;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * 用 operator 的结果替换每一个元素。
+     */
+    public void replaceAll(IntUnaryOperator operator) {
+        Objects.requireNonNull(operator);
+        final int expectedModCount = modCount;
+        final int[] es = elementData;
+        for (int i = 0; modCount == expectedModCount && i < size; i++)
+            es[i] = operator.applyAsInt(es[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    /**
+     * 按升序排序。
+     */
+    public void sort() {
+        final int expectedModCount = modCount;
+        Arrays.sort(elementData, 0, size);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    /**
+     * 按升序并行排序（Arrays.parallelSort），适合元素很多的列表。
+     */
+    public void parallelSort() {
+        final int expectedModCount = modCount;
+        Arrays.parallelSort(elementData, 0, size);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
+    /**
+     * 在已经按升序排序的列表中二分查找 key。找到时返回下标，否则返回
+     * (-(插入点) - 1)，与 Arrays.binarySearch 相同。列表没有排序时结果
+     * 不确定。
+     */
+    public int binarySearch(int key) {
+        return Arrays.binarySearch(elementData, 0, size, key);
+    }
+
+    /**
+     * 按顺序对每个元素执行 action。
+     *
+     * @throws ConcurrentModificationException 如果 action 对列表做了
+     *         结构性修改
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final int[] es = elementData;
+        final int size = this.size;
+        for (int i = 0; modCount == expectedModCount && i < size; i++)
+            action.accept(es[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * 返回一个延迟绑定、快速失败的 Spliterator.OfInt，拆分方式与
+     * ArrayList 的 spliterator 相同（每次对半拆分）。
+     */
+    public Spliterator.OfInt spliterator() {
+        return new IntArrayListSpliterator(this, 0, -1, 0);
+    }
+
+    /**
+     * 返回以此列表为数据源的 IntStream，调用 parallel() 以后可以并行处理。
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    // 下标检查
+    private void rangeCheck(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    /**
+     * 两个列表的元素个数相同并且对应元素相等时返回 true。
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntArrayList))
+            return false;
+        IntArrayList other = (IntArrayList) o;
+        if (size != other.size)
+            return false;
+        int[] a = elementData, b = other.elementData;
+        for (int i = 0; i < size; i++)
+            if (a[i] != b[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * 与包含相同元素的 int 数组的 Arrays.hashCode 相同。
+     */
+    public int hashCode() {
+        int[] es = elementData;
+        int result = 1;
+        for (int i = 0; i < size; i++)
+            result = 31 * result + es[i];
+        return result;
+    }
+
+    public String toString() {
+        if (size == 0)
+            return "[]";
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; ; i++) {
+            sb.append(elementData[i]);
+            if (i == size - 1)
+                return sb.append(']').toString();
+            sb.append(", ");
+        }
+    }
+
+    /**
+     * 序列化。
+     *
+     * @serialData 元素个数（int），之后按顺序写出每个元素（int）。
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+        for (int i = 0; i < size; i++)
+            s.writeInt(elementData[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * 反序列化，数组的长度等于 size。
+     *
+     * 流中的 size 不可信，数组不按 size 一次分配，而是随读入的元素逐步
+     * 扩大：伪造的很大的 size 会在流结束时抛出 EOFException，不会先
+     * 分配一个巨大的数组。
+     */
+    private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + size);
+        elementData = EMPTY_ELEMENTDATA;
+        if (size > 0) {
+            int[] a = new int[Math.min(size, 1024)];
+            for (int i = 0; i < size; i++) {
+                if (i == a.length)
+                    a = Arrays.copyOf(a, (int) Math.min(size, 2L * i));
+                a[i] = s.readInt();
+            }
+            elementData = a;
+        }
+    }
+
+    /**
+     * 与 ArrayList.ArrayListSpliterator 相同：第一次使用时才确定 fence 和
+     * expectedModCount，forEachRemaining 只在最后检查一次 modCount。
+     */
+    static final class IntArrayListSpliterator implements Spliterator.OfInt {
+        private final IntArrayList list;
+        // 当前索引（包含），advance/split 操作时会被修改
+        private int index;
+        // 结束位置（不包含），-1 表示到最后一个元素
+        private int fence;
+        private int expectedModCount;
+
+        IntArrayListSpliterator(IntArrayList list, int origin, int fence,
+                                int expectedModCount) {
+            this.list = list;
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() {
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = list.modCount;
+                hi = fence = list.size;
+            }
+            return hi;
+        }
+
+        public IntArrayListSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                    new IntArrayListSpliterator(list, lo, index = mid,
+                            expectedModCount);
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), i = index;
+            if (i < hi) {
+                index = i + 1;
+                action.accept(list.elementData[i]);
+                if (list.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            int i, hi, mc;
+            IntArrayList lst = list;
+            int[] a;
+            if (action == null)
+                throw new NullPointerException();
+            if ((a = lst.elementData) != null) {
+                if ((hi = fence) < 0) {
+                    mc = lst.modCount;
+                    hi = lst.size;
+                }
+                else
+                    mc = expectedModCount;
+                if ((i = index) >= 0 && (index = hi) <= a.length) {
+                    for (; i < hi; ++i)
+                        action.accept(a[i]);
+                    if (lst.modCount == mc)
+                        return;
+                }
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            return (long) (getFence() - index);
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
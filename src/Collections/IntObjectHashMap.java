@@ -0,0 +1,453 @@
+package Collections;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * 以基本类型 int 为 key 的哈希表，采用开放定址法（线性探测）实现。
+ *
+ * HashMap<Integer, V> 中每一个映射都需要一个装箱的 Integer 和一个 Node 对象
+ * （在 64 位 JVM 上压缩指针时分别为 16 字节和 32 字节），树化以后的
+ * TreeNode 更大。对于数千万条以 id 为 key 的映射，这些额外的对象带来
+ * 大量的内存开销和 GC 压力。此类把 key 直接存储在 int 数组中，value
+ * 存储在对应下标的 Object 数组中，每个映射只占用 keys 和 values 两个
+ * 数组中各一个槽位，get、put、remove 不分配任何对象（扩容除外）。
+ *
+ * 定址方式：key 经过 mix 函数打散后与 (capacity - 1) 做与运算得到初始
+ * 下标，冲突时向后线性探测。数组中 key 为 0 的槽位表示空槽，真正以 0
+ * 为 key 的映射单独存放在 zeroValue 中。删除时采用“向后移位”的方式
+ * （backward shift deletion），把后续探测链上的元素前移填补空位，
+ * 因此不需要墓碑标记，查找长度不会因为反复删除而退化。
+ *
+ * 此类遵循 Map 接口的约定：get 在 key 不存在时返回 null；put 和 remove
+ * 返回之前关联的 value；允许 null value（此时需要用 containsKey 区分
+ * “不存在”和“映射到 null”）。
+ *
+ * 此实现不是同步的，也不提供迭代器，遍历请使用 forEach。
+ *
+ * @August 默认加载因子为 0.5，线性探测在加载因子超过 0.7 以后平均探测
+ *         长度上升很快。
+ *
+ * @param <V> the type of mapped values
+ * @see HashMap
+ * @see LongObjectHashMap
+ */
+public class IntObjectHashMap<V> implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = -6263496413520418921L;
+
+    /**
+     * 默认初始容量，必须是 2 的幂。
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * 最大容量。
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * 默认的加载因子。
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * 存放 key 的数组，0 表示空槽。长度总是 2 的幂。
+     */
+    int[] keys;
+
+    /**
+     * 存放 value 的数组，和 keys 一一对应。
+     */
+    Object[] values;
+
+    /**
+     * 非零 key 的映射个数。
+     */
+    int used;
+
+    /**
+     * 是否存在 key 为 0 的映射，以及它的 value。
+     */
+    boolean hasZeroKey;
+    Object zeroValue;
+
+    /**
+     * 下一次扩容的阈值（capacity * loadFactor）。
+     */
+    int threshold;
+
+    /**
+     * 加载因子。
+     */
+    final float loadFactor;
+
+    /**
+     * 结构修改的次数，用于在 forEach 中检测并发修改。
+     */
+    transient int modCount;
+
+    public IntObjectHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * 构造一个能够容纳 expectedSize 个映射而不扩容的空 map。
+     */
+    public IntObjectHashMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public IntObjectHashMap(int expectedSize, float loadFactor) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               expectedSize);
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        int cap = tableSizeFor((int) Math.min(MAXIMUM_CAPACITY,
+                                              (long) Math.ceil(expectedSize / (double) loadFactor) + 1));
+        allocate(cap);
+    }
+
+    /**
+     * 返回不小于 cap 的最小的 2 的幂。
+     */
+    static int tableSizeFor(int cap) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(Math.max(cap, 2) - 1);
+        return (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    /**
+     * 打散 key 的各个位。线性探测对聚集很敏感，连续的 id 如果直接取低位
+     * 会占满一段连续的槽位，所以先乘以黄金分割常数，再把高位异或到低位。
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void allocate(int cap) {
+        keys = new int[cap];
+        values = new Object[cap];
+        threshold = (cap == MAXIMUM_CAPACITY) ? cap - 1 : (int) (cap * loadFactor);
+    }
+
+    public int size() {
+        return hasZeroKey ? used + 1 : used;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 返回 key 所在的槽位下标，不存在时返回 -1。key 不能为 0。
+     */
+    final int indexOf(int key) {
+        int[] ks = keys;
+        int mask = ks.length - 1;
+        int i = mix(key) & mask;
+        int k;
+        // 表中至少有一个空槽（由阈值保证），循环一定会结束
+        while ((k = ks[i]) != 0) {
+            if (k == key)
+                return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 返回 key 映射的 value，不存在时返回 null。
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == 0)
+            return hasZeroKey ? (V) zeroValue : null;
+        int i = indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    /**
+     * 返回 key 映射的 value，不存在时返回 defaultValue。
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(int key, V defaultValue) {
+        if (key == 0)
+            return hasZeroKey ? (V) zeroValue : defaultValue;
+        int i = indexOf(key);
+        return i < 0 ? defaultValue : (V) values[i];
+    }
+
+    public boolean containsKey(int key) {
+        return key == 0 ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    public boolean containsValue(Object value) {
+        if (hasZeroKey && Objects.equals(zeroValue, value))
+            return true;
+        int[] ks = keys;
+        Object[] vs = values;
+        for (int i = 0; i < ks.length; i++) {
+            if (ks[i] != 0 && Objects.equals(vs[i], value))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 把 key 映射到 value，返回之前关联的 value（没有则返回 null）。
+     */
+    public V put(int key, V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * key 不存在或者映射到 null 时才插入，返回之前关联的 value。
+     */
+    public V putIfAbsent(int key, V value) {
+        return putVal(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V putVal(int key, V value, boolean onlyIfAbsent) {
+        if (key == 0) {
+            V old = (V) zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                zeroValue = value;
+                modCount++;
+            } else if (!onlyIfAbsent || old == null) {
+                zeroValue = value;
+            }
+            return old;
+        }
+        int[] ks = keys;
+        int mask = ks.length - 1;
+        int i = mix(key) & mask;
+        int k;
+        while ((k = ks[i]) != 0) {
+            if (k == key) {
+                V old = (V) values[i];
+                if (!onlyIfAbsent || old == null)
+                    values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        ks[i] = key;
+        values[i] = value;
+        modCount++;
+        if (++used > threshold)
+            rehash(ks.length << 1);
+        return null;
+    }
+
+    /**
+     * key 不存在时用 mappingFunction 计算 value 并插入；计算结果为 null
+     * 时不插入。返回当前（或新计算的）value。
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        V v = get(key);
+        if (v == null) {
+            V newValue = mappingFunction.apply(key);
+            if (newValue != null)
+                put(key, newValue);
+            return newValue;
+        }
+        return v;
+    }
+
+    /**
+     * 删除 key 对应的映射，返回之前关联的 value（没有则返回 null）。
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == 0) {
+            if (!hasZeroKey)
+                return null;
+            V old = (V) zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            modCount++;
+            return old;
+        }
+        int i = indexOf(key);
+        if (i < 0)
+            return null;
+        V old = (V) values[i];
+        shiftKeys(i);
+        used--;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * 向后移位删除：清空槽位 gap 之后，沿着探测链向后查找，把初始下标
+     * 不在 (gap, j] 区间内（即可以前移到 gap 而不会跳过自己的初始下标）
+     * 的元素移动到 gap，然后以它原来的位置作为新的 gap 继续，直到遇到
+     * 空槽。
+     */
+    private void shiftKeys(int gap) {
+        int[] ks = keys;
+        Object[] vs = values;
+        int mask = ks.length - 1;
+        for (int j = (gap + 1) & mask; ; j = (j + 1) & mask) {
+            int k = ks[j];
+            if (k == 0)
+                break;
+            int home = mix(k) & mask;
+            // 判断 home 是否循环地落在 (gap, j] 区间内
+            if (gap <= j ? (gap >= home || home > j) : (gap >= home && home > j)) {
+                ks[gap] = k;
+                vs[gap] = vs[j];
+                gap = j;
+            }
+        }
+        ks[gap] = 0;
+        vs[gap] = null;
+    }
+
+    private void rehash(int newCap) {
+        if (newCap > MAXIMUM_CAPACITY || keys.length == MAXIMUM_CAPACITY)
+            throw new IllegalStateException("IntObjectHashMap is full");
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCap);
+        int[] ks = keys;
+        Object[] vs = values;
+        int mask = newCap - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            int k = oldKeys[j];
+            if (k != 0) {
+                int i = mix(k) & mask;
+                while (ks[i] != 0)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+                vs[i] = oldValues[j];
+            }
+        }
+    }
+
+    public void clear() {
+        modCount++;
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        used = 0;
+        hasZeroKey = false;
+        zeroValue = null;
+    }
+
+    /**
+     * 接受一个 int 类型的 key 和一个对象 value 的操作。
+     */
+    @FunctionalInterface
+    public interface IntObjectConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    /**
+     * 对每一个映射执行 action，顺序不确定。遍历过程中不允许结构修改，
+     * 否则抛出 ConcurrentModificationException。
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(IntObjectConsumer<? super V> action) {
+        Objects.requireNonNull(action);
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0, (V) zeroValue);
+        int[] ks = keys;
+        Object[] vs = values;
+        for (int i = 0; i < ks.length && modCount == mc; i++) {
+            int k = ks[i];
+            if (k != 0)
+                action.accept(k, (V) vs[i]);
+        }
+        if (modCount != mc)
+            throw new java.util.ConcurrentModificationException();
+    }
+
+    /**
+     * 返回所有 key 组成的数组，顺序不确定。
+     */
+    public int[] keys() {
+        int[] result = new int[size()];
+        int n = 0;
+        if (hasZeroKey)
+            result[n++] = 0;
+        for (int k : keys)
+            if (k != 0)
+                result[n++] = k;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntObjectHashMap))
+            return false;
+        IntObjectHashMap<?> m = (IntObjectHashMap<?>) o;
+        if (m.size() != size())
+            return false;
+        if (hasZeroKey && (!m.hasZeroKey || !Objects.equals(zeroValue, m.zeroValue)))
+            return false;
+        int[] ks = keys;
+        for (int i = 0; i < ks.length; i++) {
+            int k = ks[i];
+            if (k != 0) {
+                int j = m.indexOf(k);
+                if (j < 0 || !Objects.equals(values[i], m.values[j]))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 与 Map.hashCode 的约定一致：所有映射的 hashCode 之和，每个映射的
+     * hashCode 为 Integer.hashCode(key) ^ Objects.hashCode(value)。
+     */
+    @Override
+    public int hashCode() {
+        int h = hasZeroKey ? Objects.hashCode(zeroValue) : 0;
+        int[] ks = keys;
+        for (int i = 0; i < ks.length; i++) {
+            int k = ks[i];
+            if (k != 0)
+                h += Integer.hashCode(k) ^ Objects.hashCode(values[i]);
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(k).append('=').append(v == this ? "(this Map)" : v);
+        });
+        return sb.append('}').toString();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public IntObjectHashMap<V> clone() {
+        IntObjectHashMap<V> result;
+        try {
+            result = (IntObjectHashMap<V>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.values = values.clone();
+        result.modCount = 0;
+        return result;
+    }
+}
@@ -61,6 +61,25 @@ public class LinkedList<E>
      */
     transient Node<E> last;
 
+    /**
+     * 最近一次按索引访问的节点及其索引（“手指”），node(index) 从 first、
+     * last 和 fingerNode 中离 index 最近的一个开始遍历，因此按顺序或者在
+     * 附近位置反复调用 get、set、add(index)、remove(index) 时每次只需要
+     * 走很少几步。
+     *
+     * fingerModCount 记录了设置时的 modCount，之后发生任何结构性修改都会
+     * 使手指失效；add(index) 和 remove(index) 在修改之后会重新设置手指。
+     * 删除节点时清空 fingerNode，避免被删除的节点在下一次按索引访问之前
+     * 一直不能被回收。
+     *
+     * @August 三个字段分开保存而不是放在一个对象里，按索引访问时不分配
+     *         内存。代价是多个线程同时调用 get 时可能读到来自不同调用的
+     *         节点和索引，与其他方法一样，多线程访问需要外部同步。
+     */
+    transient Node<E> fingerNode;
+    transient int fingerIndex;
+    transient int fingerModCount;
+
     /**
      * 空列表的构造函数
      */
@@ -149,6 +168,7 @@ public class LinkedList<E>
             next.prev = null;
         size--;
         modCount++;
+        fingerNode = null; // 已经失效，不再让它引用被删除的节点
         return element;
     }
 
@@ -169,6 +189,7 @@ public class LinkedList<E>
             prev.next = null;
         size--;
         modCount++;
+        fingerNode = null; // 已经失效，不再让它引用被删除的节点
         return element;
     }
 
@@ -200,6 +221,7 @@ public class LinkedList<E>
         x.item = null;
         size--;
         modCount++;
+        fingerNode = null; // 已经失效，不再让它引用被删除的节点
         return element;
     }
 
@@ -428,6 +450,7 @@ public class LinkedList<E>
             x = next;
         }
         first = last = null;
+        fingerNode = null;
         size = 0;
         modCount++;
     }
@@ -477,8 +500,12 @@ public class LinkedList<E>
 
         if (index == size)
             linkLast(element);
-        else
-            linkBefore(element, node(index));
+        else {
+            Node<E> succ = node(index);
+            linkBefore(element, succ);
+            // 新节点位于 index，下一次访问附近的位置时从这里开始
+            setFinger(succ.prev, index);
+        }
     }
 
     /**
@@ -491,7 +518,13 @@ public class LinkedList<E>
      */
     public E remove(int index) {
         checkElementIndex(index);
-        return unlink(node(index));
+        Node<E> x = node(index);
+        Node<E> next = x.next;
+        E element = unlink(x);
+        // 删除后原来的后继节点位于 index
+        if (next != null)
+            setFinger(next, index);
+        return element;
     }
 
     /**
@@ -535,21 +568,45 @@ public class LinkedList<E>
     Node<E> node(int index) {
         // assert isElementIndex(index);
 
-        // 注意：这里只能分成两种情况，不能用二分法。因为已知节点只有
-        // first 和 last，即初始只能得到这两个节点。
-        // 索引小于 size / 2，说明在前半部分，从 first 开始向后遍历
+        // 已知的节点有 first、last 和手指，从离 index 最近的一个开始。
+        // 索引小于 size / 2，说明在前半部分，先假设从 first 开始，否则
+        // 从 last 开始
+        Node<E> x;
+        int i;
         if (index < (size >> 1)) {
-            Node<E> x = first;
-            for (int i = 0; i < index; i++)
-                x = x.next;
-            return x;
+            x = first;
+            i = 0;
         } else {
-            // 否则在后半部分，从 last 开始向前遍历。
-            Node<E> x = last;
-            for (int i = size - 1; i > index; i--)
-                x = x.prev;
-            return x;
+            x = last;
+            i = size - 1;
         }
+        // 手指没有失效并且更近时从手指开始
+        Node<E> f = fingerNode;
+        int fi = fingerIndex;
+        if (f != null && fingerModCount == modCount &&
+            Math.abs(fi - index) < Math.abs(i - index)) {
+            if (fi == index)
+                return f;
+            x = f;
+            i = fi;
+        }
+        for (; i < index; i++)
+            x = x.next;
+        for (; i > index; i--)
+            x = x.prev;
+        // 首尾节点本来就是已知的，不需要记住
+        if (index != 0 && index != size - 1)
+            setFinger(x, index);
+        return x;
+    }
+
+    /**
+     * 记住位于 index 的节点 x，见 fingerNode。
+     */
+    private void setFinger(Node<E> x, int index) {
+        fingerNode = x;
+        fingerIndex = index;
+        fingerModCount = modCount;
     }
 
     // Search Operations
@@ -1002,6 +1059,7 @@ public class LinkedList<E>
 
         // Put clone into "virgin" state
         clone.first = clone.last = null;
+        clone.fingerNode = null;
         clone.size = 0;
         clone.modCount = 0;
 
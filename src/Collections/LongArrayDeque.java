@@ -0,0 +1,401 @@
+package Collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 元素为基本类型 long 的双端队列，实现方式与 ArrayDeque 相同：元素存放在
+ * 长度为 2 的幂的循环数组 elements[head, tail) 中，下标通过与
+ * elements.length - 1 做与运算回绕。队列和栈的操作都不装箱，不分配对象
+ * （扩容除外）。
+ *
+ * 有两种模式：
+ *
+ *   可扩容  用构造函数创建。与 ArrayDeque 相同，数组满时容量翻倍
+ *           （doubleCapacity）。
+ *   环形缓冲区  用 ringBuffer(capacity) 创建，最多保存 capacity 个元素，
+ *           数组在创建时一次分配，之后永远不会扩容。队列已满时，addLast
+ *           覆盖最旧的元素（第一个），addFirst 覆盖最新的元素（最后一个）。
+ *           适合在热点路径上保存最近 capacity 个采样值的滑动窗口，每次
+ *           操作都不分配对象。
+ *
+ * 因为不能像 ArrayDeque 那样用 null 表示空位，空队列上的 removeFirst、
+ * getFirst 等方法抛出 NoSuchElementException，没有返回 null 的 poll、
+ * peek 方法。
+ *
+ * 迭代器在创建之后 head 或者 tail 发生变化时抛出
+ * ConcurrentModificationException。注意，这个实现不是同步的。
+ *
+ * @August 环形缓冲区模式的数组长度是大于 capacity 的最小的 2 的幂，
+ *         最多浪费一半的空间，换来与可扩容模式相同的下标计算。
+ *
+ * @see ArrayDeque
+ * @see IntArrayDeque
+ */
+public class LongArrayDeque implements Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = 7052613580279134521L;
+
+    /**
+     * 存储元素的循环数组，长度总是 2 的幂，并且总有至少一个空位。
+     */
+    transient long[] elements;
+
+    /**
+     * 第一个元素的下标，队列为空时等于 tail。
+     */
+    transient int head;
+
+    /**
+     * 下一个 addLast 放入元素的下标。
+     */
+    transient int tail;
+
+    /**
+     * 环形缓冲区模式下的容量，0 表示可扩容模式。
+     *
+     * @serial
+     */
+    private final int ringCapacity;
+
+    /**
+     * 构造一个容量为 16 的空队列。
+     */
+    public LongArrayDeque() {
+        elements = new long[16];
+        ringCapacity = 0;
+    }
+
+    /**
+     * 构造一个至少能容纳 numElements 个元素的空队列。
+     *
+     * @param numElements  lower bound on initial capacity of the deque
+     */
+    public LongArrayDeque(int numElements) {
+        elements = new long[calculateSize(numElements)];
+        ringCapacity = 0;
+    }
+
+    private LongArrayDeque(long[] elements, int ringCapacity) {
+        this.elements = elements;
+        this.ringCapacity = ringCapacity;
+    }
+
+    /**
+     * 构造一个最多保存 capacity 个元素、满时覆盖的环形缓冲区。
+     *
+     * @throws IllegalArgumentException 如果 capacity 不在 1 到 2^30 - 1 之间
+     */
+    public static LongArrayDeque ringBuffer(int capacity) {
+        if (capacity <= 0 || capacity >= (1 << 30))
+            throw new IllegalArgumentException("Illegal Capacity: " + capacity);
+        // calculateSize 的结果严格大于 capacity，满时 head 和 tail 不会相遇
+        return new LongArrayDeque(new long[calculateSize(capacity)], capacity);
+    }
+
+    /**
+     * 大于 numElements 的最小的 2 的幂，至少为 8，与 ArrayDeque.calculateSize
+     * 相同。超过 2^30 时退回 2^30。
+     */
+    private static int calculateSize(int numElements) {
+        if (numElements < 8)
+            return 8;
+        int n = Integer.highestOneBit(numElements) << 1;
+        return (n < 0) ? (1 << 30) : n;
+    }
+
+    /**
+     * 将队列容量设置为当前的两倍，当队列满时调用，即 head 和 tail
+     * 相遇的时候。与 ArrayDeque.doubleCapacity 相同。
+     */
+    private void doubleCapacity() {
+        assert head == tail;
+        int p = head;
+        int n = elements.length;
+        int r = n - p; // number of elements to the right of p
+        int newCapacity = n << 1;
+        if (newCapacity < 0)
+            throw new IllegalStateException("Sorry, deque too big");
+        long[] a = new long[newCapacity];
+        System.arraycopy(elements, p, a, 0, r);
+        System.arraycopy(elements, 0, a, r, p);
+        elements = a;
+        head = 0;
+        tail = n;
+    }
+
+    /**
+     * 在队列前插入元素。环形缓冲区已满时先丢弃最后一个元素。
+     */
+    public void addFirst(long e) {
+        int mask = elements.length - 1;
+        if (ringCapacity != 0 && ((tail - head) & mask) == ringCapacity)
+            tail = (tail - 1) & mask;
+        elements[head = (head - 1) & mask] = e;
+        if (head == tail)
+            doubleCapacity();
+    }
+
+    /**
+     * 在队列末尾添加元素。环形缓冲区已满时先丢弃第一个（最旧的）元素。
+     */
+    public void addLast(long e) {
+        int mask = elements.length - 1;
+        if (ringCapacity != 0 && ((tail - head) & mask) == ringCapacity)
+            head = (head + 1) & mask;
+        elements[tail] = e;
+        if ((tail = (tail + 1) & mask) == head)
+            doubleCapacity();
+    }
+
+    /**
+     * 删除并返回第一个元素。
+     *
+     * @throws NoSuchElementException 如果队列为空
+     */
+    public long removeFirst() {
+        int h = head;
+        if (h == tail)
+            throw new NoSuchElementException();
+        head = (h + 1) & (elements.length - 1);
+        return elements[h];
+    }
+
+    /**
+     * 删除并返回最后一个元素。
+     *
+     * @throws NoSuchElementException 如果队列为空
+     */
+    public long removeLast() {
+        if (head == tail)
+            throw new NoSuchElementException();
+        int t = (tail - 1) & (elements.length - 1);
+        tail = t;
+        return elements[t];
+    }
+
+    /**
+     * 返回第一个元素。
+     *
+     * @throws NoSuchElementException 如果队列为空
+     */
+    public long getFirst() {
+        if (head == tail)
+            throw new NoSuchElementException();
+        return elements[head];
+    }
+
+    /**
+     * 返回最后一个元素。
+     *
+     * @throws NoSuchElementException 如果队列为空
+     */
+    public long getLast() {
+        if (head == tail)
+            throw new NoSuchElementException();
+        return elements[(tail - 1) & (elements.length - 1)];
+    }
+
+    /**
+     * 返回从第一个元素开始的第 index 个元素，0 为第一个（最旧的）元素。
+     *
+     * @throws IndexOutOfBoundsException 如果 index 小于 0 或者不小于 size()
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size());
+        return elements[(head + index) & (elements.length - 1)];
+    }
+
+    // *** Stack methods ***
+
+    /**
+     * 压栈，等价于 addFirst。
+     */
+    public void push(long e) {
+        addFirst(e);
+    }
+
+    /**
+     * 出栈，等价于 removeFirst。
+     *
+     * @throws NoSuchElementException 如果队列为空
+     */
+    public long pop() {
+        return removeFirst();
+    }
+
+    // *** Collection Methods ***
+
+    public int size() {
+        return (tail - head) & (elements.length - 1);
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * 是否为已满的环形缓冲区，此时 addLast 会覆盖第一个元素。可扩容
+     * 模式下总是返回 false。
+     */
+    public boolean isFull() {
+        return ringCapacity != 0 && size() == ringCapacity;
+    }
+
+    /**
+     * 环形缓冲区的容量，可扩容模式下返回 0。
+     */
+    public int ringCapacity() {
+        return ringCapacity;
+    }
+
+    public boolean contains(long o) {
+        int mask = elements.length - 1;
+        for (int i = head; i != tail; i = (i + 1) & mask)
+            if (elements[i] == o)
+                return true;
+        return false;
+    }
+
+    /**
+     * 删除所有元素，数组不变。
+     */
+    public void clear() {
+        head = tail = 0;
+    }
+
+    /**
+     * 返回按照从第一个到最后一个的顺序包含所有元素的新数组。
+     */
+    public long[] toArray() {
+        long[] a = new long[size()];
+        if (head < tail) {
+            System.arraycopy(elements, head, a, 0, a.length);
+        } else if (head > tail) {
+            int headPortionLen = elements.length - head;
+            System.arraycopy(elements, head, a, 0, headPortionLen);
+            System.arraycopy(elements, 0, a, headPortionLen, tail);
+        }
+        return a;
+    }
+
+    /**
+     * 按照从第一个到最后一个的顺序对每个元素执行 action。
+     *
+     * @throws ConcurrentModificationException 如果 action 修改了队列
+     */
+    public void forEach(LongConsumer action) {
+        Objects.requireNonNull(action);
+        final long[] a = elements;
+        final int m = a.length - 1, h = head, t = tail;
+        for (int i = h; i != t; i = (i + 1) & m) {
+            action.accept(a[i]);
+            if (head != h || tail != t)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * 返回从第一个元素到最后一个元素的迭代器。
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new DeqIterator();
+    }
+
+    /**
+     * 返回以此队列为数据源的 LongStream，顺序与 iterator 相同。
+     */
+    public LongStream stream() {
+        return StreamSupport.longStream(Spliterators.spliterator(iterator(), size(),
+                Spliterator.ORDERED), false);
+    }
+
+    // 队列迭代器，不支持 remove
+    private class DeqIterator implements PrimitiveIterator.OfLong {
+        private int cursor = head;
+        private final int expectedHead = head;
+        private final int fence = tail;
+
+        public boolean hasNext() {
+            return cursor != fence;
+        }
+
+        public long nextLong() {
+            if (cursor == fence)
+                throw new NoSuchElementException();
+            if (head != expectedHead || tail != fence)
+                throw new ConcurrentModificationException();
+            long result = elements[cursor];
+            cursor = (cursor + 1) & (elements.length - 1);
+            return result;
+        }
+    }
+
+    public String toString() {
+        if (head == tail)
+            return "[]";
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        int mask = elements.length - 1;
+        for (int i = head; ; ) {
+            sb.append(elements[i]);
+            if ((i = (i + 1) & mask) == tail)
+                return sb.append(']').toString();
+            sb.append(", ");
+        }
+    }
+
+    /**
+     * 返回队列的克隆，模式和容量与原队列相同。
+     */
+    public LongArrayDeque clone() {
+        try {
+            LongArrayDeque result = (LongArrayDeque) super.clone();
+            result.elements = Arrays.copyOf(elements, elements.length);
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * 序列化。
+     *
+     * @serialData 环形缓冲区的容量（默认字段），元素个数（int），之后
+     *             按照从第一个到最后一个的顺序写出每个元素（long）。
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(size());
+        int mask = elements.length - 1;
+        for (int i = head; i != tail; i = (i + 1) & mask)
+            s.writeLong(elements[i]);
+    }
+
+    /**
+     * 反序列化。
+     */
+    private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int size = s.readInt();
+        if (size < 0 || ringCapacity < 0 || (ringCapacity != 0 &&
+                (size > ringCapacity || ringCapacity >= (1 << 30))))
+            throw new java.io.InvalidObjectException("Illegal size: " + size);
+        elements = new long[calculateSize(Math.max(size, ringCapacity))];
+        head = 0;
+        tail = size;
+        for (int i = 0; i < size; i++)
+            elements[i] = s.readLong();
+    }
+}
@@ -0,0 +1,994 @@
+package Collections;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+
+/**
+ * 以基本类型 long 为 key 的有序 map，提供 TreeMap / NavigableMap 风格的
+ * 查找和范围操作，key 不装箱。
+ *
+ * TreeMap<Long, V> 中每个映射需要一个 40 字节的 Entry 和一个 16 字节的
+ * Long，每次比较都通过 compareTo 进行。此类与 BTreeMap 相同，是一棵
+ * B+ 树，但 key 存放在 long 数组中：
+ *
+ *   叶子节点  最多 nodeCapacity 个按顺序排列的 key，存放在 long 数组中，
+ *            value 存放在平行的 Object 数组中；所有叶子连成双向链表；
+ *   内部节点  最多 nodeCapacity 个子节点，分隔 key 同样是 long 数组。
+ *
+ * 查找在每层的 long 数组中用 Arrays.binarySearch 二分，比较是基本类型的
+ * 比较。节点容量为 64、随机插入 100 万个 key 时，每个映射约占 19 字节
+ * （叶子大约 70% 满），TreeMap<Long, V> 约为 64 字节；按升序追加时叶子
+ * 是满的。LongTreeSet 使用只有 key 数组的叶子，每个元素约 13 字节，
+ * 约为 TreeSet<Long> 的五分之一。
+ *
+ * subMap、headMap、tailMap 返回的视图也是 LongTreeMap，与原来的 map
+ * 共享同一棵树，对视图的修改反映到原来的 map 中，反之亦然。视图的
+ * size() 需要遍历范围内的叶子。
+ *
+ * 没有 null 可以表示“不存在”：get 在 key 不存在时与 Map 相同返回 null；
+ * firstKey、lastKey 在 map 为空时抛出 NoSuchElementException；floorKey
+ * 等方法在不存在满足条件的 key 时返回调用者指定的 absent。
+ *
+ * 注意该实现不是同步的。
+ *
+ * @param <V> the type of mapped values
+ * @see BTreeMap
+ * @see LongTreeSet
+ */
+public class LongTreeMap<V> implements java.io.Serializable {
+
+    private static final long serialVersionUID = 5804938472385066158L;
+
+    /**
+     * 默认的节点容量。
+     */
+    static final int DEFAULT_NODE_CAPACITY = 64;
+
+    /**
+     * 节点容量的最小值。
+     */
+    static final int MIN_NODE_CAPACITY = 4;
+
+    /**
+     * 存放映射的树，视图和创建它的 map 共享同一个 Tree。
+     *
+     * @serial
+     */
+    final Tree t;
+
+    /**
+     * 视图的范围。fromStart、toEnd 为 true 表示该方向没有边界，此时
+     * lo、hi 没有意义。
+     *
+     * @serial
+     */
+    final long lo, hi;
+    final boolean fromStart, toEnd;
+    final boolean loInclusive, hiInclusive;
+
+    /**
+     * 构造一个空 map。
+     */
+    public LongTreeMap() {
+        this(DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * 构造一个空 map。
+     *
+     * @param nodeCapacity 每个节点的最大容量
+     * @throws IllegalArgumentException 如果 nodeCapacity 小于 4
+     */
+    public LongTreeMap(int nodeCapacity) {
+        this(nodeCapacity, true);
+    }
+
+    /**
+     * hasValues 为 false 时叶子不分配 value 数组，供 LongTreeSet 使用。
+     */
+    LongTreeMap(int nodeCapacity, boolean hasValues) {
+        if (nodeCapacity < MIN_NODE_CAPACITY)
+            throw new IllegalArgumentException("Illegal node capacity: " + nodeCapacity);
+        t = new Tree(nodeCapacity, hasValues);
+        lo = hi = 0;
+        fromStart = toEnd = true;
+        loInclusive = hiInclusive = true;
+    }
+
+    /**
+     * 构造 t 上的一个视图。
+     */
+    LongTreeMap(Tree t,
+                boolean fromStart, long lo, boolean loInclusive,
+                boolean toEnd,     long hi, boolean hiInclusive) {
+        if (!fromStart && !toEnd && lo > hi)
+            throw new IllegalArgumentException("fromKey > toKey");
+        this.t = t;
+        this.fromStart = fromStart;
+        this.lo = lo;
+        this.loInclusive = loInclusive;
+        this.toEnd = toEnd;
+        this.hi = hi;
+        this.hiInclusive = hiInclusive;
+    }
+
+    // Tree
+
+    /**
+     * 节点的公共部分。size 对叶子是 key 的个数，对内部节点是子节点的个数。
+     * 数组比容量多一个位置，插入时先放入再分裂。
+     */
+    abstract static class Node {
+        int size;
+    }
+
+    static final class Leaf extends Node {
+        final long[] keys;
+        final Object[] vals;
+        Leaf prev, next;
+
+        Leaf(int capacity, boolean hasValues) {
+            keys = new long[capacity + 1];
+            vals = hasValues ? new Object[capacity + 1] : null;
+        }
+    }
+
+    static final class Inner extends Node {
+        final long[] keys;
+        final Node[] children;
+
+        Inner(int capacity) {
+            keys = new long[capacity];
+            children = new Node[capacity + 1];
+        }
+    }
+
+    /**
+     * 树中的一个位置：叶子和叶子中的下标。
+     */
+    static final class Cursor {
+        Leaf leaf;
+        int index;
+
+        long key() {
+            return leaf.keys[index];
+        }
+
+        // 移动到下一个位置，没有时返回 false
+        boolean next() {
+            if (++index == leaf.size) {
+                leaf = leaf.next;
+                index = 0;
+            }
+            return leaf != null;
+        }
+
+        // 移动到上一个位置，没有时返回 false
+        boolean prev() {
+            if (--index < 0) {
+                leaf = leaf.prev;
+                if (leaf == null)
+                    return false;
+                index = leaf.size - 1;
+            }
+            return true;
+        }
+    }
+
+    // seek 的查找关系，与 BTreeMap 相同
+    static final int CEILING = 0, HIGHER = 1, FLOOR = 2, LOWER = 3;
+
+    /**
+     * B+ 树本身，插入、删除、分裂与合并的算法与 BTreeMap 相同，key 的
+     * 比较换成 long 的比较。
+     */
+    static final class Tree implements java.io.Serializable {
+        private static final long serialVersionUID = -2203417716410594233L;
+
+        /**
+         * @serial
+         */
+        final int nodeCapacity;
+
+        /**
+         * 叶子是否有 value 数组。
+         *
+         * @serial
+         */
+        final boolean hasValues;
+
+        transient Node root;
+        transient Leaf first, last;
+        transient int height;
+        transient int size;
+        transient int modCount;
+
+        /**
+         * put 和 remove 记录从根到叶子经过的内部节点和子节点下标。
+         */
+        private transient Inner[] path;
+        private transient int[] pathIndex;
+
+        Tree(int nodeCapacity, boolean hasValues) {
+            this.nodeCapacity = nodeCapacity;
+            this.hasValues = hasValues;
+        }
+
+        /**
+         * 返回内部节点 p 中 key 所在的子节点下标，即不大于 key 的分隔 key
+         * 的个数。
+         */
+        private static int childIndex(Inner p, long key) {
+            int i = Arrays.binarySearch(p.keys, 0, p.size - 1, key);
+            return (i >= 0) ? i + 1 : -(i + 1);
+        }
+
+        /**
+         * 返回 key 所在（或者应该插入）的叶子，树不能为空。
+         */
+        Leaf leafFor(long key) {
+            Node x = root;
+            for (int h = height; h > 0; h--) {
+                Inner p = (Inner) x;
+                x = p.children[childIndex(p, key)];
+            }
+            return (Leaf) x;
+        }
+
+        /**
+         * 把 c 定位到与 key 满足关系 rel 的最近的位置，不存在时返回 false。
+         */
+        boolean seek(Cursor c, long key, int rel) {
+            if (root == null)
+                return false;
+            Leaf l = leafFor(key);
+            int i = Arrays.binarySearch(l.keys, 0, l.size, key);
+            int j;
+            switch (rel) {
+                case CEILING: j = (i >= 0) ? i : -(i + 1); break;
+                case HIGHER:  j = (i >= 0) ? i + 1 : -(i + 1); break;
+                case FLOOR:   j = (i >= 0) ? i : -(i + 1) - 1; break;
+                default:      j = (i >= 0) ? i - 1 : -(i + 1) - 1; break;
+            }
+            if (j >= l.size) {
+                l = l.next;
+                j = 0;
+            } else if (j < 0) {
+                l = l.prev;
+                if (l != null)
+                    j = l.size - 1;
+            }
+            if (l == null)
+                return false;
+            c.leaf = l;
+            c.index = j;
+            return true;
+        }
+
+        boolean seekFirst(Cursor c) {
+            if (first == null)
+                return false;
+            c.leaf = first;
+            c.index = 0;
+            return true;
+        }
+
+        boolean seekLast(Cursor c) {
+            if (last == null)
+                return false;
+            c.leaf = last;
+            c.index = last.size - 1;
+            return true;
+        }
+
+        Object get(long key) {
+            if (root == null || !hasValues)
+                return null;
+            Leaf l = leafFor(key);
+            int i = Arrays.binarySearch(l.keys, 0, l.size, key);
+            return (i >= 0) ? l.vals[i] : null;
+        }
+
+        boolean containsKey(long key) {
+            if (root == null)
+                return false;
+            Leaf l = leafFor(key);
+            return Arrays.binarySearch(l.keys, 0, l.size, key) >= 0;
+        }
+
+        /**
+         * 插入 key，key 已经存在时 onlyIfAbsent 为 false 则替换 value。
+         * 返回原来的 value，是否插入了新的 key 由 size 的变化判断。
+         */
+        Object put(long key, Object value, boolean onlyIfAbsent) {
+            if (root == null) {
+                Leaf l = new Leaf(nodeCapacity, hasValues);
+                l.keys[0] = key;
+                if (hasValues)
+                    l.vals[0] = value;
+                l.size = 1;
+                root = first = last = l;
+                size = 1;
+                modCount++;
+                return null;
+            }
+            Inner[] path = this.path;
+            int[] pathIndex = this.pathIndex;
+            Node x = root;
+            for (int d = 0; d < height; d++) {
+                Inner p = (Inner) x;
+                int ci = childIndex(p, key);
+                path[d] = p;
+                pathIndex[d] = ci;
+                x = p.children[ci];
+            }
+            Leaf l = (Leaf) x;
+            int n = l.size;
+            int i = Arrays.binarySearch(l.keys, 0, n, key);
+            if (i >= 0) {
+                if (!hasValues)
+                    return null;
+                Object oldValue = l.vals[i];
+                if (!onlyIfAbsent)
+                    l.vals[i] = value;
+                return oldValue;
+            }
+            i = -(i + 1);
+            System.arraycopy(l.keys, i, l.keys, i + 1, n - i);
+            l.keys[i] = key;
+            if (hasValues) {
+                System.arraycopy(l.vals, i, l.vals, i + 1, n - i);
+                l.vals[i] = value;
+            }
+            l.size = n + 1;
+            size++;
+            modCount++;
+            if (n == nodeCapacity)
+                split(l, height, l.next == null && i == n);
+            return null;
+        }
+
+        /**
+         * 叶子 l 溢出：分裂成两个叶子，把新的叶子插入父节点，父节点溢出时
+         * 继续向上分裂。append 为 true 时只把末尾的元素分出去。
+         */
+        private void split(Leaf l, int depth, boolean append) {
+            int n = l.size;
+            int mid = append ? n - 1 : n >>> 1;
+            Leaf r = new Leaf(nodeCapacity, hasValues);
+            System.arraycopy(l.keys, mid, r.keys, 0, n - mid);
+            if (hasValues) {
+                System.arraycopy(l.vals, mid, r.vals, 0, n - mid);
+                Arrays.fill(l.vals, mid, n, null);
+            }
+            l.size = mid;
+            r.size = n - mid;
+            r.prev = l;
+            r.next = l.next;
+            if (l.next != null)
+                l.next.prev = r;
+            else
+                last = r;
+            l.next = r;
+
+            Node left = l, right = r;
+            long sep = r.keys[0];
+            while (depth > 0) {
+                Inner p = path[--depth];
+                int ci = pathIndex[depth];
+                int pn = p.size;
+                System.arraycopy(p.keys, ci, p.keys, ci + 1, pn - 1 - ci);
+                System.arraycopy(p.children, ci + 1, p.children, ci + 2, pn - 1 - ci);
+                p.keys[ci] = sep;
+                p.children[ci + 1] = right;
+                p.size = ++pn;
+                if (pn <= nodeCapacity)
+                    return;
+                mid = append ? pn - 2 : pn >>> 1;
+                Inner q = new Inner(nodeCapacity);
+                System.arraycopy(p.children, mid, q.children, 0, pn - mid);
+                System.arraycopy(p.keys, mid, q.keys, 0, pn - 1 - mid);
+                sep = p.keys[mid - 1];
+                Arrays.fill(p.children, mid, pn, null);
+                p.size = mid;
+                q.size = pn - mid;
+                left = p;
+                right = q;
+            }
+            Inner newRoot = new Inner(nodeCapacity);
+            newRoot.children[0] = left;
+            newRoot.children[1] = right;
+            newRoot.keys[0] = sep;
+            newRoot.size = 2;
+            root = newRoot;
+            if (++height > (path == null ? 0 : path.length)) {
+                path = new Inner[height + 2];
+                pathIndex = new int[height + 2];
+            }
+        }
+
+        /**
+         * 删除 key，返回原来的 value，是否删除由 size 的变化判断。
+         */
+        Object remove(long key) {
+            if (root == null)
+                return null;
+            Inner[] path = this.path;
+            int[] pathIndex = this.pathIndex;
+            Node x = root;
+            for (int d = 0; d < height; d++) {
+                Inner p = (Inner) x;
+                int ci = childIndex(p, key);
+                path[d] = p;
+                pathIndex[d] = ci;
+                x = p.children[ci];
+            }
+            Leaf l = (Leaf) x;
+            int n = l.size;
+            int i = Arrays.binarySearch(l.keys, 0, n, key);
+            if (i < 0)
+                return null;
+            System.arraycopy(l.keys, i + 1, l.keys, i, n - 1 - i);
+            Object oldValue = null;
+            if (hasValues) {
+                oldValue = l.vals[i];
+                System.arraycopy(l.vals, i + 1, l.vals, i, n - 1 - i);
+                l.vals[n - 1] = null;
+            }
+            l.size = n - 1;
+            size--;
+            modCount++;
+            rebalance(l, height);
+            return oldValue;
+        }
+
+        /**
+         * x 删除元素之后调用：不足半满时借一个元素或者与兄弟节点合并。
+         */
+        private void rebalance(Node x, int depth) {
+            int min = nodeCapacity >> 1;
+            while (depth > 0 && x.size < min) {
+                Inner p = path[--depth];
+                int i = pathIndex[depth];
+                if (i > 0) {
+                    if (p.children[i - 1].size > min)
+                        borrowFromLeft(p, i);
+                    else
+                        merge(p, i - 1);
+                } else {
+                    if (p.children[1].size > min)
+                        borrowFromRight(p, 0);
+                    else
+                        merge(p, 0);
+                }
+                x = p;
+            }
+            Node r = root;
+            if (height > 0 && r.size == 1) {
+                root = ((Inner) r).children[0];
+                height--;
+            } else if (r.size == 0) {
+                root = first = last = null;
+            }
+        }
+
+        private void borrowFromLeft(Inner p, int i) {
+            Node x = p.children[i], y = p.children[i - 1];
+            int n = x.size, ln = y.size;
+            if (x instanceof Leaf) {
+                Leaf c = (Leaf) x, l = (Leaf) y;
+                System.arraycopy(c.keys, 0, c.keys, 1, n);
+                c.keys[0] = l.keys[ln - 1];
+                if (hasValues) {
+                    System.arraycopy(c.vals, 0, c.vals, 1, n);
+                    c.vals[0] = l.vals[ln - 1];
+                    l.vals[ln - 1] = null;
+                }
+                p.keys[i - 1] = c.keys[0];
+            } else {
+                Inner c = (Inner) x, l = (Inner) y;
+                System.arraycopy(c.children, 0, c.children, 1, n);
+                System.arraycopy(c.keys, 0, c.keys, 1, n - 1);
+                c.children[0] = l.children[ln - 1];
+                c.keys[0] = p.keys[i - 1];
+                p.keys[i - 1] = l.keys[ln - 2];
+                l.children[ln - 1] = null;
+            }
+            x.size = n + 1;
+            y.size = ln - 1;
+        }
+
+        private void borrowFromRight(Inner p, int i) {
+            Node x = p.children[i], y = p.children[i + 1];
+            int n = x.size, rn = y.size;
+            if (x instanceof Leaf) {
+                Leaf c = (Leaf) x, r = (Leaf) y;
+                c.keys[n] = r.keys[0];
+                System.arraycopy(r.keys, 1, r.keys, 0, rn - 1);
+                if (hasValues) {
+                    c.vals[n] = r.vals[0];
+                    System.arraycopy(r.vals, 1, r.vals, 0, rn - 1);
+                    r.vals[rn - 1] = null;
+                }
+                p.keys[i] = r.keys[0];
+            } else {
+                Inner c = (Inner) x, r = (Inner) y;
+                c.children[n] = r.children[0];
+                c.keys[n - 1] = p.keys[i];
+                p.keys[i] = r.keys[0];
+                System.arraycopy(r.children, 1, r.children, 0, rn - 1);
+                System.arraycopy(r.keys, 1, r.keys, 0, rn - 2);
+                r.children[rn - 1] = null;
+            }
+            x.size = n + 1;
+            y.size = rn - 1;
+        }
+
+        private void merge(Inner p, int i) {
+            Node x = p.children[i], y = p.children[i + 1];
+            int n = x.size, rn = y.size;
+            if (x instanceof Leaf) {
+                Leaf l = (Leaf) x, r = (Leaf) y;
+                System.arraycopy(r.keys, 0, l.keys, n, rn);
+                if (hasValues)
+                    System.arraycopy(r.vals, 0, l.vals, n, rn);
+                l.next = r.next;
+                if (r.next != null)
+                    r.next.prev = l;
+                else
+                    last = l;
+            } else {
+                Inner l = (Inner) x, r = (Inner) y;
+                l.keys[n - 1] = p.keys[i];
+                System.arraycopy(r.keys, 0, l.keys, n, rn - 1);
+                System.arraycopy(r.children, 0, l.children, n, rn);
+            }
+            x.size = n + rn;
+            int pn = p.size;
+            System.arraycopy(p.keys, i + 1, p.keys, i, pn - 2 - i);
+            System.arraycopy(p.children, i + 2, p.children, i + 1, pn - 2 - i);
+            p.children[pn - 1] = null;
+            p.size = pn - 1;
+        }
+
+        void clear() {
+            modCount++;
+            size = 0;
+            height = 0;
+            root = first = last = null;
+            path = null;
+            pathIndex = null;
+        }
+
+        /**
+         * 序列化：节点容量、是否有 value、映射个数，然后按顺序写出每个
+         * key（和 value）。
+         */
+        private void writeObject(ObjectOutputStream s) throws IOException {
+            s.defaultWriteObject();
+            s.writeInt(size);
+            for (Leaf l = first; l != null; l = l.next) {
+                for (int i = 0; i < l.size; i++) {
+                    s.writeLong(l.keys[i]);
+                    if (hasValues)
+                        s.writeObject(l.vals[i]);
+                }
+            }
+        }
+
+        /**
+         * 反序列化：按顺序插入，每次都追加在末尾，叶子保持满的状态。
+         */
+        private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+            s.defaultReadObject();
+            int n = s.readInt();
+            for (int i = 0; i < n; i++) {
+                long key = s.readLong();
+                put(key, hasValues ? s.readObject() : null, false);
+            }
+        }
+    }
+
+    // 范围
+
+    final boolean tooLow(long key) {
+        return !fromStart && (key < lo || (key == lo && !loInclusive));
+    }
+
+    final boolean tooHigh(long key) {
+        return !toEnd && (key > hi || (key == hi && !hiInclusive));
+    }
+
+    final boolean inRange(long key) {
+        return !tooLow(key) && !tooHigh(key);
+    }
+
+    final boolean inClosedRange(long key) {
+        return (fromStart || key >= lo) && (toEnd || key <= hi);
+    }
+
+    final boolean inRange(long key, boolean inclusive) {
+        return inclusive ? inRange(key) : inClosedRange(key);
+    }
+
+    final boolean absLowest(Cursor c) {
+        return (fromStart ? t.seekFirst(c) : t.seek(c, lo, loInclusive ? CEILING : HIGHER))
+            && !tooHigh(c.key());
+    }
+
+    final boolean absHighest(Cursor c) {
+        return (toEnd ? t.seekLast(c) : t.seek(c, hi, hiInclusive ? FLOOR : LOWER))
+            && !tooLow(c.key());
+    }
+
+    final boolean absSeek(Cursor c, long key, int rel) {
+        if (rel == CEILING || rel == HIGHER) {
+            if (tooLow(key))
+                return absLowest(c);
+            return t.seek(c, key, rel) && !tooHigh(c.key());
+        }
+        if (tooHigh(key))
+            return absHighest(c);
+        return t.seek(c, key, rel) && !tooLow(c.key());
+    }
+
+    private long relKey(long key, int rel, long absent) {
+        Cursor c = new Cursor();
+        return absSeek(c, key, rel) ? c.key() : absent;
+    }
+
+    // Query Operations
+
+    /**
+     * 映射的个数。视图需要定位到范围的两端，累加中间叶子的元素个数。
+     */
+    public int size() {
+        if (fromStart && toEnd)
+            return t.size;
+        Cursor c = new Cursor(), f = new Cursor();
+        if (!absLowest(c) || !absHighest(f))
+            return 0;
+        if (c.leaf == f.leaf)
+            return f.index - c.index + 1;
+        int n = c.leaf.size - c.index;
+        for (Leaf l = c.leaf.next; l != f.leaf; l = l.next)
+            n += l.size;
+        return n + f.index + 1;
+    }
+
+    public boolean isEmpty() {
+        return (fromStart && toEnd) ? t.size == 0 : !absLowest(new Cursor());
+    }
+
+    /**
+     * 节点容量。
+     */
+    public int nodeCapacity() {
+        return t.nodeCapacity;
+    }
+
+    /**
+     * 返回 key 对应的 value，不存在时返回 null。
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return inRange(key) ? (V) t.get(key) : null;
+    }
+
+    /**
+     * 返回 key 对应的 value，不存在时返回 defaultValue。
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue) {
+        if (!inRange(key) || t.root == null)
+            return defaultValue;
+        Leaf l = t.leafFor(key);
+        int i = Arrays.binarySearch(l.keys, 0, l.size, key);
+        return (i >= 0) ? (V) l.vals[i] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return inRange(key) && t.containsKey(key);
+    }
+
+    /**
+     * @throws NoSuchElementException 如果 map 为空
+     */
+    public long firstKey() {
+        Cursor c = new Cursor();
+        if (!absLowest(c))
+            throw new NoSuchElementException();
+        return c.key();
+    }
+
+    /**
+     * @throws NoSuchElementException 如果 map 为空
+     */
+    public long lastKey() {
+        Cursor c = new Cursor();
+        if (!absHighest(c))
+            throw new NoSuchElementException();
+        return c.key();
+    }
+
+    /**
+     * 返回小于 key 的最大 key，不存在时返回 absent。
+     */
+    public long lowerKey(long key, long absent) {
+        return relKey(key, LOWER, absent);
+    }
+
+    /**
+     * 返回不大于 key 的最大 key，不存在时返回 absent。
+     */
+    public long floorKey(long key, long absent) {
+        return relKey(key, FLOOR, absent);
+    }
+
+    /**
+     * 返回不小于 key 的最小 key，不存在时返回 absent。
+     */
+    public long ceilingKey(long key, long absent) {
+        return relKey(key, CEILING, absent);
+    }
+
+    /**
+     * 返回大于 key 的最小 key，不存在时返回 absent。
+     */
+    public long higherKey(long key, long absent) {
+        return relKey(key, HIGHER, absent);
+    }
+
+    // Modification Operations
+
+    /**
+     * 插入或者替换 key 对应的 value，返回原来的 value。
+     *
+     * @throws IllegalArgumentException 如果此 map 是视图并且 key 不在范围内
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (!inRange(key))
+            throw new IllegalArgumentException("key out of range");
+        return (V) t.put(key, value, false);
+    }
+
+    /**
+     * key 不存在时插入，存在时返回原来的 value。
+     *
+     * @throws IllegalArgumentException 如果此 map 是视图并且 key 不在范围内
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(long key, V value) {
+        if (!inRange(key))
+            throw new IllegalArgumentException("key out of range");
+        return (V) t.put(key, value, true);
+    }
+
+    /**
+     * 删除 key 对应的映射，返回原来的 value。
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        return inRange(key) ? (V) t.remove(key) : null;
+    }
+
+    /**
+     * 删除所有映射。视图逐个删除范围内的 key。
+     */
+    public void clear() {
+        if (fromStart && toEnd) {
+            t.clear();
+            return;
+        }
+        for (PrimitiveIterator.OfLong it = keyIterator(); it.hasNext(); ) {
+            it.nextLong();
+            it.remove();
+        }
+    }
+
+    // Views
+
+    /**
+     * 返回 key 在 fromKey 到 toKey 之间的视图，与原来的 map 共享数据。
+     *
+     * @throws IllegalArgumentException 如果 fromKey 大于 toKey，或者此
+     *         map 是视图并且 fromKey、toKey 不在范围内
+     */
+    public LongTreeMap<V> subMap(long fromKey, boolean fromInclusive,
+                                 long toKey,   boolean toInclusive) {
+        if (!inRange(fromKey, fromInclusive))
+            throw new IllegalArgumentException("fromKey out of range");
+        if (!inRange(toKey, toInclusive))
+            throw new IllegalArgumentException("toKey out of range");
+        return new LongTreeMap<>(t, false, fromKey, fromInclusive, false, toKey, toInclusive);
+    }
+
+    /**
+     * 返回 key 小于（inclusive 为 true 时为不大于）toKey 的视图。
+     */
+    public LongTreeMap<V> headMap(long toKey, boolean inclusive) {
+        if (!inRange(toKey, inclusive))
+            throw new IllegalArgumentException("toKey out of range");
+        return new LongTreeMap<>(t, fromStart, lo, loInclusive, false, toKey, inclusive);
+    }
+
+    /**
+     * 返回 key 大于（inclusive 为 true 时为不小于）fromKey 的视图。
+     */
+    public LongTreeMap<V> tailMap(long fromKey, boolean inclusive) {
+        if (!inRange(fromKey, inclusive))
+            throw new IllegalArgumentException("fromKey out of range");
+        return new LongTreeMap<>(t, false, fromKey, inclusive, toEnd, hi, hiInclusive);
+    }
+
+    /**
+     * 按升序返回 key 的迭代器，支持 remove。
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return new KeyIterator(this, false);
+    }
+
+    /**
+     * 按降序返回 key 的迭代器，支持 remove。
+     */
+    public PrimitiveIterator.OfLong descendingKeyIterator() {
+        return new KeyIterator(this, true);
+    }
+
+    /**
+     * 按 key 的升序对每个映射执行 action，沿着叶子链表遍历，不装箱 key。
+     *
+     * @throws ConcurrentModificationException 如果 action 修改了 map 的结构
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjectHashMap.LongObjectConsumer<? super V> action) {
+        Objects.requireNonNull(action);
+        Cursor c = new Cursor(), f = new Cursor();
+        if (!absLowest(c) || !absHighest(f))
+            return;
+        Leaf fence = f.leaf;
+        int fenceIndex = f.index;
+        int expectedModCount = t.modCount;
+        Leaf l = c.leaf;
+        for (int i = c.index; ; ) {
+            action.accept(l.keys[i], t.hasValues ? (V) l.vals[i] : null);
+            if (expectedModCount != t.modCount)
+                throw new ConcurrentModificationException();
+            if (l == fence && i == fenceIndex)
+                break;
+            if (++i == l.size) {
+                l = l.next;
+                i = 0;
+            }
+        }
+    }
+
+    /**
+     * 按升序返回所有 key 组成的数组。
+     */
+    public long[] keys() {
+        long[] result = new long[size()];
+        Cursor c = new Cursor();
+        if (result.length > 0 && absLowest(c)) {
+            int n = 0;
+            do {
+                result[n++] = c.key();
+            } while (n < result.length && c.next());
+        }
+        return result;
+    }
+
+    /**
+     * 升序或降序遍历视图范围内的 key。结构修改以后按 key 重新定位，
+     * 所以迭代器自己的 remove 之后可以继续。
+     */
+    static final class KeyIterator implements PrimitiveIterator.OfLong {
+        private final LongTreeMap<?> m;
+        private final boolean descending;
+        private final Cursor next = new Cursor();
+        private boolean hasNext;
+        private long fence;
+        private long lastReturned;
+        private boolean canRemove;
+        private int expectedModCount;
+
+        KeyIterator(LongTreeMap<?> m, boolean descending) {
+            this.m = m;
+            this.descending = descending;
+            expectedModCount = m.t.modCount;
+            hasNext = descending ? m.absHighest(next) : m.absLowest(next);
+            if (hasNext) {
+                Cursor f = new Cursor();
+                if (descending)
+                    m.absLowest(f);
+                else
+                    m.absHighest(f);
+                fence = f.key();
+            }
+        }
+
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        public long nextLong() {
+            if (!hasNext)
+                throw new NoSuchElementException();
+            if (m.t.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            long k = next.key();
+            if (k == fence)
+                hasNext = false;
+            else if (descending)
+                next.prev();
+            else
+                next.next();
+            lastReturned = k;
+            canRemove = true;
+            return k;
+        }
+
+        public void remove() {
+            if (!canRemove)
+                throw new IllegalStateException();
+            if (m.t.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            m.t.remove(lastReturned);
+            expectedModCount = m.t.modCount;
+            canRemove = false;
+            // 删除可能移动了下一个 key 所在的叶子
+            if (hasNext)
+                m.t.seek(next, lastReturned, descending ? LOWER : HIGHER);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongTreeMap))
+            return false;
+        LongTreeMap<?> m = (LongTreeMap<?>) o;
+        if (m.size() != size())
+            return false;
+        Cursor c = new Cursor(), d = new Cursor();
+        boolean more = absLowest(c) && m.absLowest(d);
+        for (int n = size(); n > 0; n--) {
+            if (!more || c.key() != d.key()
+                    || !Objects.equals(t.hasValues ? c.leaf.vals[c.index] : null,
+                                       m.t.hasValues ? d.leaf.vals[d.index] : null))
+                return false;
+            more = n == 1 || (c.next() && d.next());
+        }
+        return true;
+    }
+
+    /**
+     * 与 Map.hashCode 的约定一致：所有映射的 hashCode 之和，每个映射的
+     * hashCode 为 Long.hashCode(key) ^ Objects.hashCode(value)。
+     */
+    @Override
+    public int hashCode() {
+        int[] h = new int[1];
+        forEach((k, v) -> h[0] += Long.hashCode(k) ^ Objects.hashCode(v));
+        return h[0];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(k).append('=').append(v == this ? "(this Map)" : v);
+        });
+        return sb.append('}').toString();
+    }
+}
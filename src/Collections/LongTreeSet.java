@@ -0,0 +1,233 @@
+package Collections;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+/**
+ * 元素为基本类型 long 的有序集合，提供 TreeSet / NavigableSet 风格的
+ * 查找和范围操作，元素不装箱。
+ *
+ * 与 TreeSet 使用 TreeMap 相同，LongTreeSet 使用一个 LongTreeMap 保存
+ * 元素，但叶子只有 long 数组，没有 value 数组：节点容量为 64 时每个元素
+ * 约占 13 字节，TreeSet<Long> 约为 64 字节（40 字节的 Entry、16 字节的
+ * Long，加上 TreeMap 的引用开销）。元素在叶子中连续存放，范围遍历也比
+ * 沿着 Entry 的指针访问对缓存友好得多。
+ *
+ * subSet、headSet、tailSet 返回的视图也是 LongTreeSet，与原来的集合共享
+ * 数据。first、last 在集合为空时抛出 NoSuchElementException；floor 等
+ * 方法在不存在满足条件的元素时返回调用者指定的 absent。
+ *
+ * 注意该实现不是同步的。
+ *
+ * @see TreeSet
+ * @see LongTreeMap
+ */
+public class LongTreeSet implements java.io.Serializable {
+
+    private static final long serialVersionUID = -4310977462094563021L;
+
+    /**
+     * 保存元素的 map，只有 key。
+     *
+     * @serial
+     */
+    private final LongTreeMap<?> m;
+
+    LongTreeSet(LongTreeMap<?> m) {
+        this.m = m;
+    }
+
+    /**
+     * 构造一个空集合。
+     */
+    public LongTreeSet() {
+        this(new LongTreeMap<>(LongTreeMap.DEFAULT_NODE_CAPACITY, false));
+    }
+
+    /**
+     * 构造一个空集合。
+     *
+     * @param nodeCapacity 每个节点的最大容量
+     * @throws IllegalArgumentException 如果 nodeCapacity 小于 4
+     */
+    public LongTreeSet(int nodeCapacity) {
+        this(new LongTreeMap<>(nodeCapacity, false));
+    }
+
+    /**
+     * 构造一个包含 elements 中所有元素的集合。
+     */
+    public LongTreeSet(long... elements) {
+        this();
+        for (long e : elements)
+            add(e);
+    }
+
+    public int size() {
+        return m.size();
+    }
+
+    public boolean isEmpty() {
+        return m.isEmpty();
+    }
+
+    public boolean contains(long e) {
+        return m.containsKey(e);
+    }
+
+    /**
+     * 添加元素，返回集合是否发生了变化。
+     *
+     * @throws IllegalArgumentException 如果此集合是视图并且 e 不在范围内
+     */
+    public boolean add(long e) {
+        if (!m.inRange(e))
+            throw new IllegalArgumentException("element out of range");
+        int size = m.t.size;
+        m.t.put(e, null, false);
+        return m.t.size != size;
+    }
+
+    /**
+     * 删除元素，返回集合是否发生了变化。
+     */
+    public boolean remove(long e) {
+        if (!m.inRange(e))
+            return false;
+        int size = m.t.size;
+        m.t.remove(e);
+        return m.t.size != size;
+    }
+
+    public void clear() {
+        m.clear();
+    }
+
+    /**
+     * @throws NoSuchElementException 如果集合为空
+     */
+    public long first() {
+        return m.firstKey();
+    }
+
+    /**
+     * @throws NoSuchElementException 如果集合为空
+     */
+    public long last() {
+        return m.lastKey();
+    }
+
+    /**
+     * 返回小于 e 的最大元素，不存在时返回 absent。
+     */
+    public long lower(long e, long absent) {
+        return m.lowerKey(e, absent);
+    }
+
+    /**
+     * 返回不大于 e 的最大元素，不存在时返回 absent。
+     */
+    public long floor(long e, long absent) {
+        return m.floorKey(e, absent);
+    }
+
+    /**
+     * 返回不小于 e 的最小元素，不存在时返回 absent。
+     */
+    public long ceiling(long e, long absent) {
+        return m.ceilingKey(e, absent);
+    }
+
+    /**
+     * 返回大于 e 的最小元素，不存在时返回 absent。
+     */
+    public long higher(long e, long absent) {
+        return m.higherKey(e, absent);
+    }
+
+    /**
+     * @throws IllegalArgumentException 如果 fromElement 大于 toElement，
+     *         或者此集合是视图并且 fromElement、toElement 不在范围内
+     */
+    public LongTreeSet subSet(long fromElement, boolean fromInclusive,
+                              long toElement,   boolean toInclusive) {
+        return new LongTreeSet(m.subMap(fromElement, fromInclusive,
+                                        toElement,   toInclusive));
+    }
+
+    /**
+     * @throws IllegalArgumentException 如果此集合是视图并且 toElement 不在范围内
+     */
+    public LongTreeSet headSet(long toElement, boolean inclusive) {
+        return new LongTreeSet(m.headMap(toElement, inclusive));
+    }
+
+    /**
+     * @throws IllegalArgumentException 如果此集合是视图并且 fromElement 不在范围内
+     */
+    public LongTreeSet tailSet(long fromElement, boolean inclusive) {
+        return new LongTreeSet(m.tailMap(fromElement, inclusive));
+    }
+
+    /**
+     * 按升序返回元素的迭代器，支持 remove。
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return m.keyIterator();
+    }
+
+    /**
+     * 按降序返回元素的迭代器，支持 remove。
+     */
+    public PrimitiveIterator.OfLong descendingIterator() {
+        return m.descendingKeyIterator();
+    }
+
+    /**
+     * 按升序对每个元素执行 action。
+     */
+    public void forEach(LongConsumer action) {
+        Objects.requireNonNull(action);
+        m.forEach((k, v) -> action.accept(k));
+    }
+
+    /**
+     * 按升序返回所有元素组成的数组。
+     */
+    public long[] toArray() {
+        return m.keys();
+    }
+
+    /**
+     * 与 Set.equals 的约定一致：元素相同的两个 LongTreeSet 相等。
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof LongTreeSet))
+            return false;
+        return m.equals(((LongTreeSet) o).m);
+    }
+
+    /**
+     * 与 Set.hashCode 的约定一致：所有元素的 Long.hashCode 之和。
+     */
+    @Override
+    public int hashCode() {
+        return m.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        forEach(e -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(e);
+        });
+        return sb.append(']').toString();
+    }
+}
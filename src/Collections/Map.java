@@ -26,8 +26,6 @@
 package Collections;
 
 import java.util.*;
-import java.util.Collection;
-import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -226,7 +224,7 @@ public interface Map<K,V> {
      * @throws IllegalArgumentException if some property of a key or value in
      *         the specified map prevents it from being stored in this map
      */
-    void putAll(java.util.Map<? extends K, ? extends V> m);
+    void putAll(Map<? extends K, ? extends V> m);
 
     /**
      * 删除 map 中所有的映射。此方法调用后 map 为空。
@@ -251,7 +249,7 @@ public interface Map<K,V> {
      *
      * @return a set view of the keys contained in this map
      */
-    java.util.Set<K> keySet();
+    Set<K> keySet();
 
     /**
      * 返回一个包含 map 中所有 value 的 Collection 对象视图。任何对 map 的
@@ -276,7 +274,7 @@ public interface Map<K,V> {
      *
      * @return a set view of the mappings contained in this map
      */
-    Set<java.util.Map.Entry<K, V>> entrySet();
+    Set<Map.Entry<K, V>> entrySet();
 
     /**
      * A map entry (key-value pair). Map.entrySet 方法返回 map 的一个集合
@@ -493,7 +491,7 @@ public interface Map<K,V> {
     default void forEach(BiConsumer<? super K, ? super V> action) {
         Objects.requireNonNull(action);
         // 获取每一个 entry，然后取出 key 和 value，传送给 action
-        for (java.util.Map.Entry<K, V> entry : entrySet()) {
+        for (Map.Entry<K, V> entry : entrySet()) {
             K k;
             V v;
             try {
@@ -542,7 +540,7 @@ public interface Map<K,V> {
      */
     default void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
         Objects.requireNonNull(function);
-        for (java.util.Map.Entry<K, V> entry : entrySet()) {
+        for (Map.Entry<K, V> entry : entrySet()) {
             K k;
             V v;
             try {
@@ -0,0 +1,525 @@
+package Collections;
+
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * 采用开放定址法（线性探测）实现的 Set，API 和行为与 HashSet 相同：允许
+ * null 元素，不保证迭代顺序，迭代器支持 fast-fail 和 remove。
+ *
+ * 元素直接存放在 Object 数组中，没有任何节点对象，打散后的 hash 值存放
+ * 在对应下标的 int 数组中。探测时先比较 hash 值，只有相等时才读取元素
+ * 对象并调用 equals，扩容和删除时也不需要重新调用 hashCode()。加载因子
+ * 为 0.5 时，每个元素平均占用 2 个引用和 2 个 int（压缩指针时 16 字节）；
+ * HashSet 中每个元素需要一个 24 字节的节点和 table 中约 1.3 个引用。
+ * 查找时探测的是连续的数组位置，没有链表的指针跳转，适合元素较多、
+ * 以 contains 为主的稠密集合。
+ *
+ * 数组中 null 表示空槽，null 元素用 NULL_KEY 代替存放。删除时采用“向后
+ * 移位”的方式（backward shift deletion），把后续探测链上的元素前移填补
+ * 空位，不需要墓碑标记。
+ *
+ * 迭代器从数组末尾向前遍历：删除当前元素时，向后移位只会把位于当前位置
+ * 之后（已经遍历过）的元素移到当前位置，不影响还没有遍历的部分。只有探测
+ * 链绕回数组开头时，数组开头还没有遍历的元素可能被移到末尾已经遍历过
+ * 的位置，迭代器把这些元素记录下来，在最后单独返回。
+ *
+ * 注意，这个实现不是同步的。
+ *
+ * @August 与 LongObjectHashMap 一样默认加载因子为 0.5。hashCode() 分布
+ *         很差的元素在线性探测下会形成很长的探测链，此时应使用 HashSet。
+ *
+ * @param <E> the type of elements maintained by this set
+ * @see HashSet
+ * @see LongObjectHashMap
+ */
+public class OpenHashSet<E>
+        extends AbstractSet<E>
+        implements Set<E>, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = 5127423706359185306L;
+
+    /**
+     * 默认初始容量，必须是 2 的幂。
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * 最大容量。
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * 默认的加载因子。
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * 代替 null 元素存放在数组中。
+     */
+    static final Object NULL_KEY = new Object();
+
+    /**
+     * 存放元素的数组，null 表示空槽。长度总是 2 的幂。
+     */
+    transient Object[] elements;
+
+    /**
+     * elements 中对应元素打散后的 hash 值（mix(hashCode())）。
+     */
+    transient int[] hashes;
+
+    transient int size;
+
+    transient int modCount;
+
+    /**
+     * 下一次扩容的阈值（capacity * loadFactor）。
+     */
+    transient int threshold;
+
+    transient float loadFactor;
+
+    /**
+     * 构造一个空集合，容量为默认容量（16），加载因子为默认加载因子（0.5）
+     */
+    public OpenHashSet() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * 构造一个空集合，能够容纳 expectedSize 个元素而不需要扩容。
+     *
+     * @param expectedSize 预期的元素个数
+     * @throws IllegalArgumentException 如果 expectedSize 小于 0
+     */
+    public OpenHashSet(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * 构造一个空集合，能够以指定的加载因子容纳 expectedSize 个元素而不
+     * 需要扩容。
+     *
+     * @param expectedSize 预期的元素个数
+     * @param loadFactor 加载因子，必须在 (0, 1) 之间
+     * @throws IllegalArgumentException 如果 expectedSize 小于 0 或者加载
+     *         因子不在 (0, 1) 之间
+     */
+    public OpenHashSet(int expectedSize, float loadFactor) {
+        if (expectedSize < 0)
+            throw new IllegalArgumentException("Illegal expected size: " +
+                    expectedSize);
+        // 开放定址至少需要一个空槽来结束探测
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                    loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(capacityFor(expectedSize, loadFactor));
+    }
+
+    /**
+     * 构造一个包含指定集合所有元素的新的 set，加载因子为默认加载因子。
+     *
+     * @param c the collection whose elements are to be placed into this set
+     * @throws NullPointerException if the specified collection is null
+     */
+    public OpenHashSet(java.util.Collection<? extends E> c) {
+        this(c.size(), DEFAULT_LOAD_FACTOR);
+        addAll(c);
+    }
+
+    /**
+     * 容纳 n 个元素所需的最小容量（2 的幂）。
+     */
+    static int capacityFor(int n, float loadFactor) {
+        long c = (long) Math.ceil(n / (double) loadFactor) + 1;
+        if (c >= MAXIMUM_CAPACITY)
+            return MAXIMUM_CAPACITY;
+        // 不小于 c 的最小的 2 的幂，与 HashMap.tableSizeFor 相同
+        int cap = Integer.highestOneBit((int) c - 1) << 1;
+        return Math.max(DEFAULT_INITIAL_CAPACITY >>> 2, cap);
+    }
+
+    private void allocate(int capacity) {
+        elements = new Object[capacity];
+        hashes = new int[capacity];
+        threshold = (capacity == MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY - 1 :
+                Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    /**
+     * 把 hashCode() 的高位扩散到低位，与 HashMap.hash 不同的是乘以黄金
+     * 分割常数：线性探测对相邻 hash 值形成的聚集更加敏感。
+     */
+    static int mix(int h) {
+        h *= 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    static Object maskNull(Object o) {
+        return (o == null) ? NULL_KEY : o;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E> E unmaskNull(Object o) {
+        return (o == NULL_KEY) ? null : (E) o;
+    }
+
+    /**
+     * 返回 k（已经过 maskNull）所在的下标，不存在时返回 -1。
+     */
+    final int indexOf(Object k) {
+        Object[] tab = elements;
+        int[] hs = hashes;
+        int mask = tab.length - 1, h = mix(k.hashCode());
+        Object cur;
+        for (int i = h & mask; (cur = tab[i]) != null; i = (i + 1) & mask) {
+            if (hs[i] == h && (cur == k || k.equals(cur)))
+                return i;
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(Object o) {
+        return indexOf(maskNull(o)) >= 0;
+    }
+
+    public boolean add(E e) {
+        Object k = maskNull(e);
+        Object[] tab = elements;
+        int[] hs = hashes;
+        int mask = tab.length - 1, h = mix(k.hashCode());
+        int i = h & mask;
+        for (Object cur; (cur = tab[i]) != null; i = (i + 1) & mask) {
+            if (hs[i] == h && (cur == k || k.equals(cur)))
+                return false;
+        }
+        tab[i] = k;
+        hs[i] = h;
+        ++modCount;
+        if (++size > threshold)
+            rehash(elements.length << 1);
+        return true;
+    }
+
+    public boolean remove(Object o) {
+        int i = indexOf(maskNull(o));
+        if (i < 0)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * 删除下标 i 处的元素，把后续探测链上的元素前移填补空位。
+     *
+     * @return 从绕回数组开头的位置移到数组末尾的元素，没有时返回 null；
+     *         供迭代器使用
+     */
+    final Object removeAt(int i) {
+        Object[] tab = elements;
+        int[] hs = hashes;
+        int mask = tab.length - 1;
+        Object wrapped = null;
+        ++modCount;
+        --size;
+        // 下标 i 为空位，找到后续第一个可以移到 i 的元素
+        for (int j = (i + 1) & mask; ; j = (j + 1) & mask) {
+            Object cur = tab[j];
+            if (cur == null) {
+                tab[i] = null;
+                return wrapped;
+            }
+            int home = hs[j] & mask;
+            // 如果 cur 的初始位置在 (i, j] 这一段（循环意义上）之内，它不能
+            // 移到 i 之前；否则把它移到 i，j 成为新的空位
+            if (i <= j ? (i >= home || home > j) : (i >= home && home > j)) {
+                if (j < i)
+                    wrapped = cur;
+                tab[i] = cur;
+                hs[i] = hs[j];
+                i = j;
+            }
+        }
+    }
+
+    public void clear() {
+        modCount++;
+        if (size > 0) {
+            size = 0;
+            Arrays.fill(elements, null);
+        }
+    }
+
+    /**
+     * 扩容到 newCapacity，重新插入所有元素。
+     */
+    final void rehash(int newCapacity) {
+        Object[] oldTab = elements;
+        int[] oldHashes = hashes;
+        if (oldTab.length >= MAXIMUM_CAPACITY) {
+            if (size >= MAXIMUM_CAPACITY - 1)
+                throw new IllegalStateException("Capacity exceeded");
+            return;
+        }
+        allocate(newCapacity);
+        Object[] tab = elements;
+        int[] hs = hashes;
+        int mask = tab.length - 1;
+        for (int j = 0; j < oldTab.length; j++) {
+            Object k = oldTab[j];
+            if (k != null) {
+                int h = oldHashes[j], i = h & mask;
+                while (tab[i] != null)
+                    i = (i + 1) & mask;
+                tab[i] = k;
+                hs[i] = h;
+            }
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int mc = modCount;
+        for (Object k : elements) {
+            if (k != null)
+                action.accept(unmaskNull(k));
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * 从数组末尾向前遍历的迭代器，原因见类的注释。
+     */
+    final class Itr implements Iterator<E> {
+        int index = elements.length;   // 下一次从 index - 1 开始向前查找
+        int last = -1;                 // 上一次返回的元素的下标
+        int remaining = size;          // 还没有返回的元素个数
+        int expectedModCount = modCount;
+        // 删除时从数组开头移到已经遍历过的位置的元素
+        ArrayList<Object> wrapped;
+        Object lastWrapped;
+
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        public E next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            Object[] tab = elements;
+            while (--index >= 0) {
+                if (tab[index] != null) {
+                    last = index;
+                    return unmaskNull(tab[last]);
+                }
+            }
+            // 数组已经遍历完，返回绕回的元素
+            last = -1;
+            if (wrapped == null || wrapped.isEmpty())
+                throw new ConcurrentModificationException();
+            return unmaskNull(lastWrapped = wrapped.remove(wrapped.size() - 1));
+        }
+
+        public void remove() {
+            if (last < 0 && lastWrapped == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (last >= 0) {
+                Object moved = removeAt(last);
+                if (moved != null) {
+                    if (wrapped == null)
+                        wrapped = new ArrayList<>(2);
+                    wrapped.add(moved);
+                    // 该元素原来在还没有遍历的位置，并且计入了 remaining，
+                    // 现在只能从 wrapped 中返回；数组中已经遍历过的部分不会
+                    // 再次访问
+                }
+                last = -1;
+            }
+            else {
+                OpenHashSet.this.remove(unmaskNull(lastWrapped));
+                lastWrapped = null;
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * 返回 OpenHashSet 的一个浅拷贝：集合里的元素本身没有拷贝。
+     *
+     * @return a shallow copy of this set
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        try {
+            OpenHashSet<E> result = (OpenHashSet<E>) super.clone();
+            result.elements = elements.clone();
+            result.hashes = hashes.clone();
+            result.modCount = 0;
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * 保存 OpenHashSet 实例到流里（即序列化）
+     *
+     * @serialData 加载因子（float）、元素个数（int），然后是所有元素
+     *             （每个都是 Object），顺序不确定。
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeFloat(loadFactor);
+        s.writeInt(size);
+        for (Object k : elements) {
+            if (k != null)
+                s.writeObject(unmaskNull(k));
+        }
+    }
+
+    /**
+     * 反序列化。
+     */
+    private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        float loadFactor = s.readFloat();
+        if (!(loadFactor > 0 && loadFactor < 1))
+            throw new InvalidObjectException("Illegal load factor: " +
+                    loadFactor);
+        int size = s.readInt();
+        if (size < 0)
+            throw new InvalidObjectException("Illegal size: " + size);
+        this.loadFactor = loadFactor;
+        allocate(capacityFor(size, loadFactor));
+        for (int i = 0; i < size; i++) {
+            @SuppressWarnings("unchecked")
+            E e = (E) s.readObject();
+            add(e);
+        }
+    }
+
+    /**
+     * Creates a <em>late-binding</em> and <em>fail-fast</em>
+     * {@link Spliterator} over the elements in this set, reporting
+     * {@link Spliterator#SIZED} and {@link Spliterator#DISTINCT}.
+     *
+     * @return a {@code Spliterator} over the elements in this set
+     */
+    public Spliterator<E> spliterator() {
+        return new OpenHashSetSpliterator<>(this, 0, -1, 0, 0);
+    }
+
+    /**
+     * 按数组下标范围划分的 spliterator，和 HashMap.KeySpliterator 相同。
+     */
+    static final class OpenHashSetSpliterator<E> implements Spliterator<E> {
+        final OpenHashSet<E> set;
+        int index;                  // current index, modified on advance/split
+        int fence;                  // one past last index
+        int est;                    // size estimate
+        int expectedModCount;       // for comodification checks
+
+        OpenHashSetSpliterator(OpenHashSet<E> s, int origin, int fence, int est,
+                               int expectedModCount) {
+            this.set = s;
+            this.index = origin;
+            this.fence = fence;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getFence() { // initialize fence and size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                OpenHashSet<E> s = set;
+                est = s.size;
+                expectedModCount = s.modCount;
+                hi = fence = s.elements.length;
+            }
+            return hi;
+        }
+
+        public long estimateSize() {
+            getFence(); // force init
+            return (long) est;
+        }
+
+        public OpenHashSetSpliterator<E> trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null :
+                    new OpenHashSetSpliterator<>(set, lo, index = mid, est >>>= 1,
+                            expectedModCount);
+        }
+
+        public void forEachRemaining(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            Object[] tab = set.elements;
+            if (tab.length >= hi) {
+                for (int i = index; i < hi; i++) {
+                    Object k = tab[i];
+                    if (k != null)
+                        action.accept(unmaskNull(k));
+                }
+                index = hi;
+            }
+            if (set.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence();
+            Object[] tab = set.elements;
+            if (tab.length >= hi) {
+                while (index < hi) {
+                    Object k = tab[index++];
+                    if (k != null) {
+                        action.accept(unmaskNull(k));
+                        if (set.modCount != expectedModCount)
+                            throw new ConcurrentModificationException();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return (fence < 0 || est == set.size ? Spliterator.SIZED : 0) |
+                    Spliterator.DISTINCT;
+        }
+    }
+}
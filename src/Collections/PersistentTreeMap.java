@@ -0,0 +1,1191 @@
+package Collections;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiFunction;
+
+/**
+ * 持久化（路径复制）的平衡二叉搜索树实现的 NavigableMap，接口和语义与
+ * TreeMap 相同，另外提供 O(1) 的 snapshot()。
+ *
+ * 节点创建后不再修改。put、remove 不修改已有的节点，而是复制从根节点
+ * 到修改位置路径上的 O(log n) 个节点，其余子树由新旧两个版本共享，
+ * 最后用 CAS 把新的根节点发布到 volatile 的 root 字段。因此：
+ *
+ *   snapshot()  只需读取一次 root，返回的不可变 NavigableMap 永远是
+ *               那一时刻的内容，之后的写操作不影响它；
+ *   读操作      每个操作只读取一次 root，在一个一致的版本上完成，不加锁，
+ *               不会被写操作阻塞；迭代器遍历创建时的版本，不会抛出
+ *               ConcurrentModificationException；
+ *   写操作      多个线程同时写时 CAS 失败的一方在新的版本上重试，不会
+ *               丢失更新。put、remove、putIfAbsent、pollFirstEntry、
+ *               pollLastEntry 和 clear 是原子的；Map 接口中 compute、
+ *               merge 等默认方法由多次操作组成，不是原子的。
+ *
+ * 路径复制需要节点没有 parent 指针，红黑树的删除调整依赖向上回溯，所以
+ * 此类使用 AVL 树：每个节点记录子树的高度，复制路径时自下而上旋转恢复
+ * 平衡。节点还记录子树的大小，size() 为 O(1)，子映射的 size() 为
+ * O(log n)。
+ *
+ * 与 TreeMap 相比，每次写操作要分配 O(log n) 个新节点，单线程写入较慢，
+ * 适合需要频繁获取一致视图、以读为主的场景。
+ *
+ * @August firstEntry、ceilingEntry 等方法和 entrySet 迭代器返回的就是树中
+ *         的节点，不支持 setValue，修改 value 使用 put。
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see TreeMap
+ */
+public class PersistentTreeMap<K,V> extends AbstractMap<K,V>
+        implements NavigableMap<K,V>, Serializable {
+
+    private static final long serialVersionUID = -6170583412265842351L;
+
+    /**
+     * 比较器，为 null 时使用 key 的自然顺序。
+     *
+     * @serial
+     */
+    private final Comparator<? super K> comparator;
+
+    /**
+     * 当前版本的根节点，写操作通过 ROOT 的 CAS 更新。
+     */
+    private transient volatile Node<K,V> root;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<PersistentTreeMap, Node> ROOT =
+            AtomicReferenceFieldUpdater.newUpdater(PersistentTreeMap.class, Node.class, "root");
+
+    /**
+     * 整个 map 的视图，导航方法和 keySet 等视图委托给它。
+     */
+    private transient SubMap<K,V> all;
+
+    /**
+     * 构造一个空 map，使用 key 的自然顺序。
+     */
+    public PersistentTreeMap() {
+        comparator = null;
+    }
+
+    /**
+     * 构造一个空 map，使用指定的比较器。
+     */
+    public PersistentTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * 构造一个包含指定 map 中所有映射的 map，使用 key 的自然顺序。
+     */
+    public PersistentTreeMap(Map<? extends K, ? extends V> m) {
+        comparator = null;
+        putAll(m);
+    }
+
+    /**
+     * 构造一个包含指定 SortedMap 中所有映射的 map，使用相同的比较器，
+     * 在线性时间内直接构造平衡的树。
+     */
+    @SuppressWarnings("unchecked")
+    public PersistentTreeMap(SortedMap<K, ? extends V> m) {
+        comparator = m.comparator();
+        Object[] keys = new Object[m.size()], vals = new Object[m.size()];
+        int n = 0;
+        for (Map.Entry<K, ? extends V> e : m.entrySet()) {
+            keys[n] = e.getKey();
+            vals[n++] = e.getValue();
+        }
+        root = build(keys, vals, 0, n - 1);
+    }
+
+    /**
+     * 不可变的节点，也是 Map.Entry。height 和 size 为以此节点为根的子树
+     * 的高度和节点个数。压缩指针时对象头 12 字节、四个引用和两个 int 共
+     * 36 字节，对齐到 40 字节，与 TreeMap.Entry 相同。
+     */
+    static final class Node<K,V> implements Map.Entry<K,V> {
+        final K key;
+        final V value;
+        final Node<K,V> left, right;
+        final int height, size;
+
+        Node(K key, V value, Node<K,V> left, Node<K,V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(heightOf(left), heightOf(right)) + 1;
+            this.size = sizeOf(left) + sizeOf(right) + 1;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+        }
+
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    static int heightOf(Node<?,?> p) {
+        return (p == null) ? 0 : p.height;
+    }
+
+    static int sizeOf(Node<?,?> p) {
+        return (p == null) ? 0 : p.size;
+    }
+
+    // 树的操作。都是静态方法，作用于指定版本的根节点，不修改已有的节点
+
+    @SuppressWarnings("unchecked")
+    static int compare(Comparator<?> c, Object k1, Object k2) {
+        return (c == null) ? ((Comparable<Object>) k1).compareTo(k2)
+                : ((Comparator<Object>) c).compare(k1, k2);
+    }
+
+    static <K,V> Node<K,V> getNode(Node<K,V> t, Object key, Comparator<?> c) {
+        while (t != null) {
+            int cmp = compare(c, key, t.key);
+            if (cmp < 0)
+                t = t.left;
+            else if (cmp > 0)
+                t = t.right;
+            else
+                return t;
+        }
+        return null;
+    }
+
+    static <K,V> Node<K,V> first(Node<K,V> t) {
+        if (t != null)
+            while (t.left != null)
+                t = t.left;
+        return t;
+    }
+
+    static <K,V> Node<K,V> last(Node<K,V> t) {
+        if (t != null)
+            while (t.right != null)
+                t = t.right;
+        return t;
+    }
+
+    /**
+     * 大于（inclusive 为 true 时为不小于）key 的最小节点。
+     */
+    static <K,V> Node<K,V> ceiling(Node<K,V> t, Object key, boolean inclusive, Comparator<?> c) {
+        Node<K,V> best = null;
+        while (t != null) {
+            int cmp = compare(c, key, t.key);
+            if (cmp == 0 && inclusive)
+                return t;
+            if (cmp < 0) {
+                best = t;
+                t = t.left;
+            } else
+                t = t.right;
+        }
+        return best;
+    }
+
+    /**
+     * 小于（inclusive 为 true 时为不大于）key 的最大节点。
+     */
+    static <K,V> Node<K,V> floor(Node<K,V> t, Object key, boolean inclusive, Comparator<?> c) {
+        Node<K,V> best = null;
+        while (t != null) {
+            int cmp = compare(c, key, t.key);
+            if (cmp == 0 && inclusive)
+                return t;
+            if (cmp > 0) {
+                best = t;
+                t = t.right;
+            } else
+                t = t.left;
+        }
+        return best;
+    }
+
+    /**
+     * 小于（inclusive 为 true 时为不大于）key 的节点个数。
+     */
+    static int countBelow(Node<?,?> t, Object key, boolean inclusive, Comparator<?> c) {
+        int n = 0;
+        while (t != null) {
+            int cmp = compare(c, key, t.key);
+            if (cmp > 0 || (cmp == 0 && inclusive)) {
+                n += sizeOf(t.left) + 1;
+                t = t.right;
+            } else
+                t = t.left;
+        }
+        return n;
+    }
+
+    /**
+     * 返回插入或替换 key 之后的新版本。key 已经存在时保留原来的 key，
+     * value 相同（==）时返回 t 本身。
+     */
+    static <K,V> Node<K,V> insert(Node<K,V> t, K key, V value, Comparator<?> c) {
+        if (t == null)
+            return new Node<>(key, value, null, null);
+        int cmp = compare(c, key, t.key);
+        if (cmp < 0) {
+            Node<K,V> l = insert(t.left, key, value, c);
+            return (l == t.left) ? t : balance(t.key, t.value, l, t.right);
+        } else if (cmp > 0) {
+            Node<K,V> r = insert(t.right, key, value, c);
+            return (r == t.right) ? t : balance(t.key, t.value, t.left, r);
+        } else
+            return (value == t.value) ? t : new Node<>(t.key, value, t.left, t.right);
+    }
+
+    /**
+     * 返回删除 key 之后的新版本，key 不存在时返回 t 本身。有两个子节点
+     * 时用右子树中的最小节点代替被删除的节点。
+     */
+    static <K,V> Node<K,V> delete(Node<K,V> t, Object key, Comparator<?> c) {
+        if (t == null)
+            return null;
+        int cmp = compare(c, key, t.key);
+        if (cmp < 0) {
+            Node<K,V> l = delete(t.left, key, c);
+            return (l == t.left) ? t : balance(t.key, t.value, l, t.right);
+        } else if (cmp > 0) {
+            Node<K,V> r = delete(t.right, key, c);
+            return (r == t.right) ? t : balance(t.key, t.value, t.left, r);
+        }
+        if (t.left == null)
+            return t.right;
+        if (t.right == null)
+            return t.left;
+        Node<K,V> s = first(t.right);
+        return balance(s.key, s.value, t.left, deleteFirst(t.right));
+    }
+
+    static <K,V> Node<K,V> deleteFirst(Node<K,V> t) {
+        if (t.left == null)
+            return t.right;
+        return balance(t.key, t.value, deleteFirst(t.left), t.right);
+    }
+
+    /**
+     * 创建以 key 为根、l 和 r 为子树的节点。插入或删除后 l 和 r 的高度
+     * 最多相差 2，需要时通过单旋转或双旋转恢复平衡。
+     */
+    static <K,V> Node<K,V> balance(K key, V value, Node<K,V> l, Node<K,V> r) {
+        int hl = heightOf(l), hr = heightOf(r);
+        if (hl > hr + 1) {
+            if (heightOf(l.left) >= heightOf(l.right))
+                return new Node<>(l.key, l.value, l.left, new Node<>(key, value, l.right, r));
+            Node<K,V> lr = l.right;
+            return new Node<>(lr.key, lr.value,
+                    new Node<>(l.key, l.value, l.left, lr.left),
+                    new Node<>(key, value, lr.right, r));
+        }
+        if (hr > hl + 1) {
+            if (heightOf(r.right) >= heightOf(r.left))
+                return new Node<>(r.key, r.value, new Node<>(key, value, l, r.left), r.right);
+            Node<K,V> rl = r.left;
+            return new Node<>(rl.key, rl.value,
+                    new Node<>(key, value, l, rl.left),
+                    new Node<>(r.key, r.value, rl.right, r.right));
+        }
+        return new Node<>(key, value, l, r);
+    }
+
+    /**
+     * 由有序的数组在线性时间内构造平衡的树。
+     */
+    @SuppressWarnings("unchecked")
+    static <K,V> Node<K,V> build(Object[] keys, Object[] vals, int lo, int hi) {
+        if (hi < lo)
+            return null;
+        int mid = (lo + hi) >>> 1;
+        return new Node<>((K) keys[mid], (V) vals[mid],
+                build(keys, vals, lo, mid - 1), build(keys, vals, mid + 1, hi));
+    }
+
+    /**
+     * 结构不变，value 替换为 function 的结果。
+     */
+    static <K,V> Node<K,V> mapValues(Node<K,V> t, BiFunction<? super K, ? super V, ? extends V> function) {
+        if (t == null)
+            return null;
+        Node<K,V> l = mapValues(t.left, function);
+        V v = function.apply(t.key, t.value);
+        return new Node<>(t.key, v, l, mapValues(t.right, function));
+    }
+
+    final int compare(Object k1, Object k2) {
+        return compare(comparator, k1, k2);
+    }
+
+    private SubMap<K,V> all() {
+        SubMap<K,V> a = all;
+        if (a == null)
+            all = a = new SubMap<>(this, comparator, null,
+                    true, null, true, true, null, true, false);
+        return a;
+    }
+
+    // Snapshots
+
+    /**
+     * 返回此 map 当前内容的不可变视图，O(1)。之后对此 map 的修改不影响
+     * 返回的视图，视图可以在任意线程中读取，它的子映射和迭代器也都是
+     * 同一时刻的内容。修改视图的方法抛出 UnsupportedOperationException。
+     */
+    public NavigableMap<K,V> snapshot() {
+        return new SubMap<>(null, comparator, root,
+                true, null, true, true, null, true, false);
+    }
+
+    // Query Operations
+
+    public int size() {
+        return sizeOf(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public V get(Object key) {
+        Node<K,V> p = getNode(root, key, comparator);
+        return (p == null) ? null : p.value;
+    }
+
+    public boolean containsKey(Object key) {
+        return getNode(root, key, comparator) != null;
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    public K firstKey() {
+        return key(first(root));
+    }
+
+    public K lastKey() {
+        return key(last(root));
+    }
+
+    static <K> K key(Node<K,?> p) {
+        if (p == null)
+            throw new NoSuchElementException();
+        return p.key;
+    }
+
+    static <K> K keyOrNull(Node<K,?> p) {
+        return (p == null) ? null : p.key;
+    }
+
+    // Modification Operations
+    // 在读取到的版本上构造新的版本，CAS 失败说明其他线程已经发布了新的
+    // 版本，在它上面重试
+
+    public V put(K key, V value) {
+        Node<K,V> r, n;
+        V oldValue;
+        do {
+            r = root;
+            if (r == null)
+                compare(key, key); // type (and possibly null) check
+            Node<K,V> p = getNode(r, key, comparator);
+            oldValue = (p == null) ? null : p.value;
+            n = insert(r, key, value, comparator);
+        } while (n != r && !ROOT.compareAndSet(this, r, n));
+        return oldValue;
+    }
+
+    /**
+     * 原子地执行：key 不存在时加入映射，存在时返回原来的 value。
+     */
+    public V putIfAbsent(K key, V value) {
+        Node<K,V> r, n;
+        do {
+            r = root;
+            if (r == null)
+                compare(key, key); // type (and possibly null) check
+            Node<K,V> p = getNode(r, key, comparator);
+            if (p != null)
+                return p.value;
+            n = insert(r, key, value, comparator);
+        } while (!ROOT.compareAndSet(this, r, n));
+        return null;
+    }
+
+    public V remove(Object key) {
+        Node<K,V> p = removeNode(key);
+        return (p == null) ? null : p.value;
+    }
+
+    /**
+     * 删除 key，返回被删除的节点，key 不存在时返回 null。
+     */
+    final Node<K,V> removeNode(Object key) {
+        Node<K,V> r, p;
+        do {
+            r = root;
+            if ((p = getNode(r, key, comparator)) == null)
+                return null;
+        } while (!ROOT.compareAndSet(this, r, delete(r, key, comparator)));
+        return p;
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * 在同一个版本上替换所有的 value，CAS 失败时 function 会在新的版本
+     * 上重新执行。
+     */
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        Node<K,V> r;
+        do {
+            r = root;
+        } while (!ROOT.compareAndSet(this, r, mapValues(r, function)));
+    }
+
+    // NavigableMap API methods
+
+    public Map.Entry<K,V> firstEntry() {
+        return first(root);
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        return last(root);
+    }
+
+    public Map.Entry<K,V> pollFirstEntry() {
+        return all().pollFirstEntry();
+    }
+
+    public Map.Entry<K,V> pollLastEntry() {
+        return all().pollLastEntry();
+    }
+
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return floor(root, key, false, comparator);
+    }
+
+    public K lowerKey(K key) {
+        return keyOrNull(floor(root, key, false, comparator));
+    }
+
+    public Map.Entry<K,V> floorEntry(K key) {
+        return floor(root, key, true, comparator);
+    }
+
+    public K floorKey(K key) {
+        return keyOrNull(floor(root, key, true, comparator));
+    }
+
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return ceiling(root, key, true, comparator);
+    }
+
+    public K ceilingKey(K key) {
+        return keyOrNull(ceiling(root, key, true, comparator));
+    }
+
+    public Map.Entry<K,V> higherEntry(K key) {
+        return ceiling(root, key, false, comparator);
+    }
+
+    public K higherKey(K key) {
+        return keyOrNull(ceiling(root, key, false, comparator));
+    }
+
+    // Views
+
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        return all().navigableKeySet();
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return all().descendingKeySet();
+    }
+
+    public Collection<V> values() {
+        return all().values();
+    }
+
+    public Set<Map.Entry<K,V>> entrySet() {
+        return all().entrySet();
+    }
+
+    public NavigableMap<K,V> descendingMap() {
+        return all().descendingMap();
+    }
+
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                    K toKey,   boolean toInclusive) {
+        return all().subMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        return all().headMap(toKey, inclusive);
+    }
+
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        return all().tailMap(fromKey, inclusive);
+    }
+
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    // View class support
+
+    static final int KEYS = 0, VALUES = 1, ENTRIES = 2;
+
+    /**
+     * 中序遍历创建时读取到的版本，栈中保存还没有返回的祖先节点。树的
+     * 高度就是栈的最大深度。
+     */
+    static final class Itr<K,V,T> implements Iterator<T> {
+        private final SubMap<K,V> sm;
+        private final boolean ascending;
+        private final int kind;
+        private final Node<K,V>[] stack;
+        private int depth;
+        private Node<K,V> next, lastReturned;
+
+        @SuppressWarnings("unchecked")
+        Itr(SubMap<K,V> sm, boolean reverse, int kind) {
+            this.sm = sm;
+            this.ascending = (sm.descending == reverse);
+            this.kind = kind;
+            Node<K,V> t = sm.root();
+            stack = (Node<K,V>[]) new Node<?,?>[heightOf(t)];
+            // 从根节点向下找到范围内的第一个节点，沿途保存其后的祖先
+            while (t != null) {
+                if (ascending ? sm.tooLow(t.key) : sm.tooHigh(t.key))
+                    t = ascending ? t.right : t.left;
+                else {
+                    stack[depth++] = t;
+                    t = ascending ? t.left : t.right;
+                }
+            }
+            advance();
+        }
+
+        private void advance() {
+            if (depth == 0) {
+                next = null;
+                return;
+            }
+            Node<K,V> e = stack[--depth];
+            if (ascending ? sm.tooHigh(e.key) : sm.tooLow(e.key)) {
+                next = null;
+                depth = 0;
+                return;
+            }
+            for (Node<K,V> p = ascending ? e.right : e.left; p != null;
+                 p = ascending ? p.left : p.right)
+                stack[depth++] = p;
+            next = e;
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            Node<K,V> e = next;
+            if (e == null)
+                throw new NoSuchElementException();
+            advance();
+            lastReturned = e;
+            return (T) (kind == KEYS ? e.key : kind == VALUES ? e.value : e);
+        }
+
+        /**
+         * 从 map 的当前版本中删除，不影响此迭代器遍历的版本。
+         */
+        public void remove() {
+            if (lastReturned == null)
+                throw new IllegalStateException();
+            if (sm.m == null)
+                throw new UnsupportedOperationException();
+            sm.m.remove(lastReturned.key);
+            lastReturned = null;
+        }
+    }
+
+    static final class EntrySet<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        private final SubMap<K,V> sm;
+
+        EntrySet(SubMap<K,V> sm) {
+            this.sm = sm;
+        }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return new Itr<>(sm, false, ENTRIES);
+        }
+
+        public int size() {
+            return sm.size();
+        }
+
+        public boolean isEmpty() {
+            return sm.isEmpty();
+        }
+
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object key = entry.getKey();
+            if (!sm.inRange(key))
+                return false;
+            Node<K,V> p = getNode(sm.root(), key, sm.cmp);
+            return p != null && Objects.equals(p.value, entry.getValue());
+        }
+
+        public boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            sm.remove(((Map.Entry<?,?>) o).getKey());
+            return true;
+        }
+    }
+
+    static final class Values<K,V> extends AbstractCollection<V> {
+        private final SubMap<K,V> sm;
+
+        Values(SubMap<K,V> sm) {
+            this.sm = sm;
+        }
+
+        public Iterator<V> iterator() {
+            return new Itr<>(sm, false, VALUES);
+        }
+
+        public int size() {
+            return sm.size();
+        }
+
+        public boolean isEmpty() {
+            return sm.isEmpty();
+        }
+    }
+
+    /**
+     * 与 BTreeMap.KeySet 相同，委托给一个 SubMap。
+     */
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final SubMap<E,?> m;
+        KeySet(SubMap<E,?> map) { m = map; }
+
+        public Iterator<E> iterator() { return new Itr<>(m, false, KEYS); }
+        public Iterator<E> descendingIterator() { return new Itr<>(m, true, KEYS); }
+
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public boolean remove(Object o) {
+            return m.removeNode(o) != null;
+        }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return new KeySet<>(m.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(m.headMap(toElement, inclusive));
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(m.tailMap(fromElement, inclusive));
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(m.descendingMap());
+        }
+    }
+
+    // SubMaps
+
+    /**
+     * 子映射、降序视图和快照。范围的表示与 BTreeMap.SubMap 相同。m 为
+     * null 时是快照，所有操作都作用于固定的 snap；否则每个操作读取一次
+     * m 的当前版本，修改委托给 m。
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V> implements NavigableMap<K,V> {
+        final PersistentTreeMap<K,V> m;
+        final Comparator<? super K> cmp;
+        final Node<K,V> snap;
+        final Object lo, hi;
+        final boolean fromStart, toEnd;
+        final boolean loInclusive, hiInclusive;
+        final boolean descending;
+
+        SubMap(PersistentTreeMap<K,V> m, Comparator<? super K> cmp, Node<K,V> snap,
+               boolean fromStart, Object lo, boolean loInclusive,
+               boolean toEnd,     Object hi, boolean hiInclusive,
+               boolean descending) {
+            if (!fromStart && !toEnd) {
+                if (compare(cmp, lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    compare(cmp, lo, lo);
+                if (!toEnd)
+                    compare(cmp, hi, hi);
+            }
+            this.m = m;
+            this.cmp = cmp;
+            this.snap = snap;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        private SubMap<K,V> newSubMap(boolean fromStart, Object lo, boolean loInclusive,
+                                      boolean toEnd,     Object hi, boolean hiInclusive,
+                                      boolean descending) {
+            return new SubMap<>(m, cmp, snap, fromStart, lo, loInclusive,
+                    toEnd, hi, hiInclusive, descending);
+        }
+
+        // internal utilities
+
+        final Node<K,V> root() {
+            return (m == null) ? snap : m.root;
+        }
+
+        private PersistentTreeMap<K,V> writable() {
+            if (m == null)
+                throw new UnsupportedOperationException();
+            return m;
+        }
+
+        final boolean tooLow(Object key) {
+            if (!fromStart) {
+                int c = compare(cmp, key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int c = compare(cmp, key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        final boolean inClosedRange(Object key) {
+            return (fromStart || compare(cmp, key, lo) >= 0)
+                && (toEnd || compare(cmp, hi, key) >= 0);
+        }
+
+        final boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key) : inClosedRange(key);
+        }
+
+        // 绝对方向上的查找，t 为读取到的版本
+
+        final Node<K,V> absLowest(Node<K,V> t) {
+            Node<K,V> e = fromStart ? first(t) : ceiling(t, lo, loInclusive, cmp);
+            return (e == null || tooHigh(e.key)) ? null : e;
+        }
+
+        final Node<K,V> absHighest(Node<K,V> t) {
+            Node<K,V> e = toEnd ? last(t) : floor(t, hi, hiInclusive, cmp);
+            return (e == null || tooLow(e.key)) ? null : e;
+        }
+
+        final Node<K,V> absCeiling(Node<K,V> t, Object key, boolean inclusive) {
+            if (tooLow(key))
+                return absLowest(t);
+            Node<K,V> e = ceiling(t, key, inclusive, cmp);
+            return (e == null || tooHigh(e.key)) ? null : e;
+        }
+
+        final Node<K,V> absFloor(Node<K,V> t, Object key, boolean inclusive) {
+            if (tooHigh(key))
+                return absHighest(t);
+            Node<K,V> e = floor(t, key, inclusive, cmp);
+            return (e == null || tooLow(e.key)) ? null : e;
+        }
+
+        // 视图方向上的查找
+
+        private Node<K,V> firstNode() {
+            Node<K,V> t = root();
+            return descending ? absHighest(t) : absLowest(t);
+        }
+
+        private Node<K,V> lastNode() {
+            Node<K,V> t = root();
+            return descending ? absLowest(t) : absHighest(t);
+        }
+
+        private Node<K,V> ceilingNode(Object key, boolean inclusive) {
+            Node<K,V> t = root();
+            return descending ? absFloor(t, key, inclusive) : absCeiling(t, key, inclusive);
+        }
+
+        private Node<K,V> floorNode(Object key, boolean inclusive) {
+            Node<K,V> t = root();
+            return descending ? absCeiling(t, key, inclusive) : absFloor(t, key, inclusive);
+        }
+
+        final Node<K,V> removeNode(Object key) {
+            return !inRange(key) ? null : writable().removeNode(key);
+        }
+
+        // public methods
+
+        public boolean isEmpty() {
+            return absLowest(root()) == null;
+        }
+
+        /**
+         * 范围两端的排名之差，O(log n)。
+         */
+        public int size() {
+            Node<K,V> t = root();
+            if (fromStart && toEnd)
+                return sizeOf(t);
+            int low = fromStart ? 0 : countBelow(t, lo, !loInclusive, cmp);
+            int high = toEnd ? sizeOf(t) : countBelow(t, hi, hiInclusive, cmp);
+            return Math.max(high - low, 0);
+        }
+
+        public final boolean containsKey(Object key) {
+            return inRange(key) && getNode(root(), key, cmp) != null;
+        }
+
+        public final V put(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return writable().put(key, value);
+        }
+
+        public final V putIfAbsent(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return writable().putIfAbsent(key, value);
+        }
+
+        public final V get(Object key) {
+            if (!inRange(key))
+                return null;
+            Node<K,V> p = getNode(root(), key, cmp);
+            return (p == null) ? null : p.value;
+        }
+
+        public final V remove(Object key) {
+            Node<K,V> p = removeNode(key);
+            return (p == null) ? null : p.value;
+        }
+
+        public void clear() {
+            if (fromStart && toEnd)
+                writable().clear();
+            else
+                super.clear();
+        }
+
+        /**
+         * 与 PersistentTreeMap.replaceAll 相同，在同一个版本上替换范围内
+         * 的所有 value，范围外的子树原样共享。快照抛出
+         * UnsupportedOperationException。
+         */
+        public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+            Objects.requireNonNull(function);
+            PersistentTreeMap<K,V> w = writable();
+            Node<K,V> r;
+            do {
+                r = w.root;
+            } while (!ROOT.compareAndSet(w, r, mapRange(r, function)));
+        }
+
+        /**
+         * 复制 t 中 key 在范围内的节点及其祖先，按 key 的升序执行 function。
+         */
+        private Node<K,V> mapRange(Node<K,V> t, BiFunction<? super K, ? super V, ? extends V> function) {
+            if (t == null)
+                return null;
+            if (tooLow(t.key)) {
+                Node<K,V> r = mapRange(t.right, function);
+                return (r == t.right) ? t : new Node<>(t.key, t.value, t.left, r);
+            }
+            if (tooHigh(t.key)) {
+                Node<K,V> l = mapRange(t.left, function);
+                return (l == t.left) ? t : new Node<>(t.key, t.value, l, t.right);
+            }
+            Node<K,V> l = mapRange(t.left, function);
+            V v = function.apply(t.key, t.value);
+            return new Node<>(t.key, v, l, mapRange(t.right, function));
+        }
+
+        public Comparator<? super K> comparator() {
+            return descending ? java.util.Collections.reverseOrder(cmp) : cmp;
+        }
+
+        public final Map.Entry<K,V> ceilingEntry(K key) {
+            return ceilingNode(key, true);
+        }
+
+        public final K ceilingKey(K key) {
+            return keyOrNull(ceilingNode(key, true));
+        }
+
+        public final Map.Entry<K,V> higherEntry(K key) {
+            return ceilingNode(key, false);
+        }
+
+        public final K higherKey(K key) {
+            return keyOrNull(ceilingNode(key, false));
+        }
+
+        public final Map.Entry<K,V> floorEntry(K key) {
+            return floorNode(key, true);
+        }
+
+        public final K floorKey(K key) {
+            return keyOrNull(floorNode(key, true));
+        }
+
+        public final Map.Entry<K,V> lowerEntry(K key) {
+            return floorNode(key, false);
+        }
+
+        public final K lowerKey(K key) {
+            return keyOrNull(floorNode(key, false));
+        }
+
+        public final K firstKey() {
+            return key(firstNode());
+        }
+
+        public final K lastKey() {
+            return key(lastNode());
+        }
+
+        public final Map.Entry<K,V> firstEntry() {
+            return firstNode();
+        }
+
+        public final Map.Entry<K,V> lastEntry() {
+            return lastNode();
+        }
+
+        /**
+         * 其他线程可能先删除了找到的节点，此时在新的版本上重新查找。
+         */
+        public final Map.Entry<K,V> pollFirstEntry() {
+            PersistentTreeMap<K,V> w = writable();
+            for (;;) {
+                Node<K,V> e = firstNode();
+                if (e == null)
+                    return null;
+                Node<K,V> p = w.removeNode(e.key);
+                if (p != null)
+                    return p;
+            }
+        }
+
+        public final Map.Entry<K,V> pollLastEntry() {
+            PersistentTreeMap<K,V> w = writable();
+            for (;;) {
+                Node<K,V> e = lastNode();
+                if (e == null)
+                    return null;
+                Node<K,V> p = w.removeNode(e.key);
+                if (p != null)
+                    return p;
+            }
+        }
+
+        // Views
+
+        public final Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public final NavigableSet<K> navigableKeySet() {
+            return new KeySet<>(this);
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public Collection<V> values() {
+            return new Values<>(this);
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            return new EntrySet<>(this);
+        }
+
+        public SubMap<K,V> descendingMap() {
+            return newSubMap(fromStart, lo, loInclusive, toEnd, hi, hiInclusive, !descending);
+        }
+
+        public SubMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                  K toKey,   boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            if (descending)
+                return newSubMap(false, toKey, toInclusive, false, fromKey, fromInclusive, true);
+            return newSubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+        }
+
+        public SubMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            if (descending)
+                return newSubMap(false, toKey, inclusive, toEnd, hi, hiInclusive, true);
+            return newSubMap(fromStart, lo, loInclusive, false, toKey, inclusive, false);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (descending)
+                return newSubMap(fromStart, lo, loInclusive, false, fromKey, inclusive, true);
+            return newSubMap(false, fromKey, inclusive, toEnd, hi, hiInclusive, false);
+        }
+
+        public SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+    }
+
+    /**
+     * 序列化：比较器、映射个数，然后按顺序写出同一个版本中的每个 key
+     * 和 value。
+     */
+    private void writeObject(ObjectOutputStream s) throws IOException {
+        s.defaultWriteObject();
+        Node<K,V> r = root;
+        s.writeInt(sizeOf(r));
+        Iterator<Map.Entry<K,V>> it = new Itr<>(new SubMap<>(null, comparator, r,
+                true, null, true, true, null, true, false), false, ENTRIES);
+        while (it.hasNext()) {
+            Map.Entry<K,V> e = it.next();
+            s.writeObject(e.getKey());
+            s.writeObject(e.getValue());
+        }
+    }
+
+    /**
+     * 反序列化：读出有序的映射，在线性时间内构造平衡的树。
+     */
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        Object[] keys = new Object[n], vals = new Object[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = s.readObject();
+            vals[i] = s.readObject();
+        }
+        root = build(keys, vals, 0, n - 1);
+    }
+}
@@ -25,10 +25,15 @@ package Collections;
  *
  */
 
-import java.util.*;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.Spliterator;
 import java.util.function.Consumer;
 import sun.misc.SharedSecrets;
 
@@ -328,6 +333,71 @@ public class PriorityQueue<E> extends AbstractQueue<E>
         return true;
     }
 
+    /**
+     * 批量添加元素时，新元素个数不少于 HEAPIFY_THRESHOLD 且不少于队列中
+     * 已有的元素个数时，改为追加到数组末尾再整体 heapify。
+     */
+    private static final int HEAPIFY_THRESHOLD = 64;
+
+    /**
+     * 将集合 c 中的所有元素添加到优先级队列中。
+     *
+     * AbstractQueue.addAll 逐个调用 add，每个元素一次 siftUp，最坏情况下
+     * （例如新元素都比已有元素小）总共 O(k log(n + k))。新元素较多时，
+     * 此方法把它们直接复制到数组末尾，再对整个数组调用 heapify，时间为
+     * O(n + k)，与用集合构造优先级队列相同。
+     *
+     * @August 整体 heapify 的过程中比较器抛出 ClassCastException 时，堆的
+     *         顺序可能已经被破坏；逐个添加时只会有部分元素被添加。
+     *
+     * @throws NullPointerException 如果 c 为 null 或者包含 null 元素
+     * @throws IllegalArgumentException 如果 c 就是此队列
+     */
+    @Override
+    public boolean addAll(Collections.Collection<? extends E> c) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        return addAllOf(c.toArray());
+    }
+
+    /**
+     * 与 addAll(Collections.Collection) 相同，参数为 java.util.Collection。
+     */
+    public boolean addAll(java.util.Collection<? extends E> c) {
+        if (c == null)
+            throw new NullPointerException();
+        return addAllOf(c.toArray());
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean addAllOf(Object[] a) {
+        int k = a.length;
+        if (k == 0)
+            return false;
+        // 先检查 null，不添加任何元素
+        for (Object e : a)
+            if (e == null)
+                throw new NullPointerException();
+        int n = size;
+        if (k < HEAPIFY_THRESHOLD || k < n) {
+            for (Object e : a)
+                offer((E) e);
+            return true;
+        }
+        modCount++;
+        int newSize = n + k;
+        if (newSize < 0) // overflow
+            throw new OutOfMemoryError();
+        if (newSize > queue.length)
+            queue = Arrays.copyOf(queue, newSize);
+        System.arraycopy(a, 0, queue, n, k);
+        size = newSize;
+        heapify();
+        return true;
+    }
+
     @SuppressWarnings("unchecked")
     // 返回队列第一个元素（堆顶元素）
     public E peek() {
@@ -722,5 +792,122 @@ public class PriorityQueue<E> extends AbstractQueue<E>
     public Comparator<? super E> comparator() {
         return comparator;
     }
+
+    @SuppressWarnings("unchecked")
+    private int compare(E a, E b) {
+        return (comparator == null) ? ((Comparable<? super E>) a).compareTo(b)
+                                    : comparator.compare(a, b);
+    }
+
+    /**
+     * 把队列当作最多保存 k 个元素的有界堆：不足 k 个时直接添加，否则当
+     * e 大于堆顶（k 个元素中最小的）时用 e 替换堆顶。
+     */
+    @SuppressWarnings("unchecked")
+    private void offerBounded(E e, int k) {
+        if (e == null)
+            throw new NullPointerException();
+        if (size < k)
+            offer(e);
+        else if (compare(e, (E) queue[0]) > 0) {
+            modCount++;
+            siftDown(0, e);
+        }
+    }
+
+    /**
+     * 返回集合 c 中按照 comparator 最大的 k 个元素，从大到小排列。
+     * comparator 为 null 时按照元素的自然顺序。c 中的元素少于 k 个时
+     * 返回全部元素。
+     *
+     * 用 ForkJoinPool.commonPool 并行计算：按照 c 的 Spliterator 把元素
+     * 分成若干段（与并行流的分段方式相同），每段用一个最多 k 个元素的
+     * 有界堆（最小堆，堆顶是目前第 k 大的元素）扫描一遍，每个元素最多
+     * 一次 siftDown；子任务完成后把较小的堆逐个并入较大的堆。总时间为
+     * O(n log k)，除了每段一个有界堆之外不分配内存，也不复制 c。
+     *
+     * @param c          集合，计算期间不能被修改
+     * @param k          返回的元素个数
+     * @param comparator 比较器，为 null 时使用元素的自然顺序
+     * @return 最大的 k 个元素组成的列表，从大到小排列
+     * @throws IllegalArgumentException 如果 k 为负数
+     * @throws NullPointerException 如果 c 包含 null 元素
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> java.util.List<E> topK(java.util.Collection<? extends E> c, int k,
+                                             Comparator<? super E> comparator) {
+        if (k < 0)
+            throw new IllegalArgumentException("k < 0: " + k);
+        if (k == 0)
+            return new java.util.ArrayList<>();
+        Spliterator<? extends E> s = c.spliterator();
+        // 与 AbstractTask.suggestTargetSize 相同：每个工作线程约 4 段
+        long est = s.estimateSize();
+        int parallelism = java.util.concurrent.ForkJoinPool.getCommonPoolParallelism();
+        long threshold = Math.max(est / (parallelism << 2), 1 << 12);
+        PriorityQueue<E> heap = new TopKTask<E>(s, k, comparator, threshold).invoke();
+        Object[] r = new Object[heap.size];
+        for (int i = r.length - 1; i >= 0; i--)
+            r[i] = heap.poll();
+        return (java.util.List<E>) Arrays.asList(r);
+    }
+
+    /**
+     * 返回集合 c 中按照自然顺序最大的 k 个元素，从大到小排列。
+     *
+     * @see #topK(java.util.Collection, int, Comparator)
+     */
+    public static <E extends Comparable<? super E>> java.util.List<E> topK(
+            java.util.Collection<? extends E> c, int k) {
+        return topK(c, k, null);
+    }
+
+    /**
+     * topK 的 ForkJoin 任务，结果是一个最多 k 个元素的有界堆。
+     */
+    static final class TopKTask<E> extends java.util.concurrent.RecursiveTask<PriorityQueue<E>> {
+        private static final long serialVersionUID = -2418335574237541466L;
+
+        final Spliterator<? extends E> spliterator;
+        final int k;
+        final Comparator<? super E> comparator;
+        final long threshold;
+
+        TopKTask(Spliterator<? extends E> spliterator, int k,
+                 Comparator<? super E> comparator, long threshold) {
+            this.spliterator = spliterator;
+            this.k = k;
+            this.comparator = comparator;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected PriorityQueue<E> compute() {
+            Spliterator<? extends E> s = spliterator, prefix;
+            if (s.estimateSize() > threshold && (prefix = s.trySplit()) != null) {
+                TopKTask<E> left = new TopKTask<E>(prefix, k, comparator, threshold);
+                left.fork();
+                PriorityQueue<E> right = new TopKTask<E>(s, k, comparator, threshold).compute();
+                return merge(left.join(), right);
+            }
+            int capacity = (int) Math.max(1, Math.min(k, s.estimateSize()));
+            PriorityQueue<E> heap = new PriorityQueue<>(capacity, comparator);
+            s.forEachRemaining(e -> heap.offerBounded(e, k));
+            return heap;
+        }
+
+        // 把较小的堆并入较大的堆
+        @SuppressWarnings("unchecked")
+        private PriorityQueue<E> merge(PriorityQueue<E> a, PriorityQueue<E> b) {
+            if (a.size < b.size) {
+                PriorityQueue<E> t = a;
+                a = b;
+                b = t;
+            }
+            for (int i = 0; i < b.size; i++)
+                a.offerBounded((E) b.queue[i], k);
+            return a;
+        }
+    }
 }
 
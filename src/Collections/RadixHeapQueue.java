@@ -0,0 +1,276 @@
+package Collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * 单调的基数堆（radix heap），优先级为 long 类型的优先级队列。
+ *
+ * 事件时间、定时器到期时间这类优先级有一个特点：出队的优先级单调不减，
+ * 新加入元素的优先级不会小于最后一次出队的优先级。PriorityQueue 用
+ * Comparator 比较和 siftUp、siftDown 维护堆，不利用这一点；此类利用它
+ * 把入队和出队的均摊时间降到与元素个数无关：
+ *
+ * 记 last 为最后一次出队的优先级（初始为 Long.MIN_VALUE）。优先级为
+ * key 的元素放在第 bucketOf(key) 个桶中，即 key 与 last 的二进制表示中
+ * 不同的最高位的位置加一（key == last 时为 0 号桶），一共 65 个桶：
+ *
+ *   offer  计算桶号，追加到桶的末尾，O(1)；
+ *   poll   0 号桶非空时直接取出。否则找到第一个非空的桶 i，把其中最小的
+ *          优先级作为新的 last，桶 i 的元素按照新的 last 重新分配，全部
+ *          落到编号小于 i 的桶中（最小的落到 0 号桶）。
+ *
+ * 每个元素的桶号只会减小，一生中最多被重新分配 64 次，所以入队和出队的
+ * 均摊时间都是 O(1)（与优先级的位数有关，与元素个数无关）。
+ *
+ * 优先级由构造时传入的 keyExtractor 从元素中提取，只在 offer 时调用一次，
+ * 与元素一起保存在 long 数组中，之后的比较都是基本类型的比较。每个桶是
+ * 一对可扩容的数组，扩容后不会缩小，达到稳定容量之后 offer 和 poll 不再
+ * 分配对象。
+ *
+ * 与 LinkedList 相同，此类继承 java.util.AbstractQueue，可以作为
+ * java.util.Queue 使用。优先级相同的元素出队顺序不确定。offer 的优先级小于 last 时抛出
+ * IllegalArgumentException。不允许 null 元素。iterator 不保证任何顺序。
+ *
+ * 注意该实现不是同步的。
+ *
+ * @August peek 在 0 号桶为空时只扫描第一个非空的桶找出最小的元素，不
+ *         重新分配，以免影响正在进行的迭代；紧接着的 poll 才会重新分配。
+ *
+ * @param <E> the type of elements held in this queue
+ * @see PriorityQueue
+ */
+public class RadixHeapQueue<E> extends java.util.AbstractQueue<E> {
+
+    /**
+     * 桶的个数：0 号桶存放等于 last 的优先级，i 号桶存放与 last 不同的
+     * 最高位为 i - 1 的优先级。
+     */
+    private static final int BUCKETS = 65;
+
+    private static final int INITIAL_BUCKET_CAPACITY = 4;
+
+    private final ToLongFunction<? super E> keyExtractor;
+
+    /**
+     * 每个桶的元素、优先级和元素个数。
+     */
+    private final Object[][] elements = new Object[BUCKETS][];
+    private final long[][] keys = new long[BUCKETS][];
+    private final int[] counts = new int[BUCKETS];
+
+    /**
+     * 最后一次出队的优先级，也是 0 号桶中所有元素的优先级。
+     */
+    private long last = Long.MIN_VALUE;
+
+    private int size;
+
+    private int modCount;
+
+    /**
+     * 构造一个空队列。
+     *
+     * @param keyExtractor 从元素中提取优先级的函数
+     */
+    public RadixHeapQueue(ToLongFunction<? super E> keyExtractor) {
+        this.keyExtractor = Objects.requireNonNull(keyExtractor);
+        for (int i = 0; i < BUCKETS; i++) {
+            elements[i] = new Object[INITIAL_BUCKET_CAPACITY];
+            keys[i] = new long[INITIAL_BUCKET_CAPACITY];
+        }
+    }
+
+    /**
+     * 返回优先级为 key 的元素所在的桶。
+     */
+    private int bucketOf(long key) {
+        return (key == last) ? 0 : 64 - Long.numberOfLeadingZeros(key ^ last);
+    }
+
+    /**
+     * 把元素追加到第 b 个桶的末尾。
+     */
+    private void append(int b, Object e, long key) {
+        int n = counts[b];
+        if (n == elements[b].length) {
+            int newCapacity = n << 1;
+            if (newCapacity < 0)
+                throw new OutOfMemoryError();
+            elements[b] = Arrays.copyOf(elements[b], newCapacity);
+            keys[b] = Arrays.copyOf(keys[b], newCapacity);
+        }
+        elements[b][n] = e;
+        keys[b][n] = key;
+        counts[b] = n + 1;
+    }
+
+    /**
+     * 插入元素。
+     *
+     * @throws NullPointerException 如果 e 为 null
+     * @throws IllegalArgumentException 如果 e 的优先级小于最后一次出队
+     *         的优先级
+     */
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long key = keyExtractor.applyAsLong(e);
+        if (key < last)
+            throw new IllegalArgumentException("key " + key + " < last " + last);
+        modCount++;
+        append(bucketOf(key), e, key);
+        size++;
+        return true;
+    }
+
+    /**
+     * 删除并返回优先级最小的元素，队列为空时返回 null。
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        if (size == 0)
+            return null;
+        modCount++;
+        if (counts[0] == 0)
+            redistribute();
+        int n = --counts[0];
+        Object[] es = elements[0];
+        E e = (E) es[n];
+        es[n] = null;
+        size--;
+        return e;
+    }
+
+    /**
+     * 0 号桶为空时调用：找到第一个非空的桶，以其中最小的优先级作为新的
+     * last，把桶中的元素重新分配到编号更小的桶中。
+     */
+    private void redistribute() {
+        int b = 1;
+        while (counts[b] == 0)
+            b++;
+        Object[] es = elements[b];
+        long[] ks = keys[b];
+        int n = counts[b];
+        long min = ks[0];
+        for (int j = 1; j < n; j++)
+            if (ks[j] < min)
+                min = ks[j];
+        last = min;
+        // 与新的 last 不同的最高位一定低于 b - 1，不会再落入桶 b
+        counts[b] = 0;
+        for (int j = 0; j < n; j++) {
+            append(bucketOf(ks[j]), es[j], ks[j]);
+            es[j] = null;
+        }
+    }
+
+    /**
+     * 返回优先级最小的元素，队列为空时返回 null。
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        if (size == 0)
+            return null;
+        if (counts[0] != 0)
+            return (E) elements[0][counts[0] - 1];
+        int b = 1;
+        while (counts[b] == 0)
+            b++;
+        long[] ks = keys[b];
+        int n = counts[b], m = 0;
+        for (int j = 1; j < n; j++)
+            if (ks[j] < ks[m])
+                m = j;
+        return (E) elements[b][m];
+    }
+
+    /**
+     * 返回最后一次出队的优先级，新加入元素的优先级不能小于它。还没有
+     * 元素出队时返回 Long.MIN_VALUE。
+     */
+    public long lastKey() {
+        return last;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 删除所有元素，保留桶的容量，last 不变。
+     */
+    public void clear() {
+        modCount++;
+        for (int b = 0; b < BUCKETS; b++) {
+            Arrays.fill(elements[b], 0, counts[b], null);
+            counts[b] = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * 返回按照桶的顺序遍历元素的迭代器，元素的顺序不确定。
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * 按照桶号从小到大、桶内从后向前遍历。删除时把桶的最后一个元素
+     * （已经遍历过）移到被删除的位置，不影响还没有遍历的元素。
+     */
+    private final class Itr implements Iterator<E> {
+        private int bucket;
+        private int cursor;               // 当前桶中下一个元素的下标加一
+        private int lastBucket = -1;      // 上一个返回的元素所在的桶
+        private int lastIndex;
+        private int expectedModCount = modCount;
+
+        Itr() {
+            cursor = counts[0];
+            advance();
+        }
+
+        // 跳过空的桶
+        private void advance() {
+            while (cursor == 0 && ++bucket < BUCKETS)
+                cursor = counts[bucket];
+        }
+
+        public boolean hasNext() {
+            return bucket < BUCKETS;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (bucket >= BUCKETS)
+                throw new NoSuchElementException();
+            lastBucket = bucket;
+            lastIndex = --cursor;
+            E e = (E) elements[bucket][cursor];
+            advance();
+            return e;
+        }
+
+        public void remove() {
+            if (lastBucket < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int b = lastBucket, n = --counts[b];
+            elements[b][lastIndex] = elements[b][n];
+            keys[b][lastIndex] = keys[b][n];
+            elements[b][n] = null;
+            size--;
+            lastBucket = -1;
+            expectedModCount = ++modCount;
+        }
+    }
+}
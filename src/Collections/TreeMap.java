@@ -37,6 +37,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 
 /**
@@ -46,6 +47,14 @@ import java.util.function.Consumer;
  *
  * 此实现保证了 containsKey, get, put 和 remove 方法在 log(n) 的时间内完成。
  *
+ * 每个节点还记录以它为根的子树的节点个数（顺序统计树），插入、删除和
+ * 旋转时同时维护。因此 rankOf（key 的排名）、select（第 i 个映射）和
+ * 子映射视图的 size() 也是 O(log n)，不需要遍历。
+ *
+ * 使用 TreeMap(Comparator, identity, combiner) 创建时，每个节点还记录
+ * 子树中 value 的聚合值（例如和、最大值），aggregate 可以在 O(log n)
+ * 的时间内求出任意范围的聚合值。
+ *
  * 注意这个实现不是同步的。如果多个线程同时访问一个 Map，并且至少有一个
  * 线程在结构上修改了 Map，那么它必须从外部同步。（结构上的修改指的是
  * 添加，删除一个或多个键值对，仅仅改变已经存在的 key 对应的值不算结构上
@@ -111,11 +120,21 @@ public class TreeMap<K,V>
      */
     private transient int modCount = 0;
 
+    /**
+     * 区间聚合使用的幺半群：identity 为单位元，combiner 满足结合律。
+     * combiner 不为 null 时节点为 AggregateEntry，记录子树中所有 value
+     * 按 key 升序合并的结果。
+     */
+    private final V identity;
+    private final BinaryOperator<V> combiner;
+
     /**
      * 构造函数
      */
     public TreeMap() {
         comparator = null;
+        identity = null;
+        combiner = null;
     }
 
     /**
@@ -123,6 +142,27 @@ public class TreeMap<K,V>
      */
     public TreeMap(Comparator<? super K> comparator) {
         this.comparator = comparator;
+        identity = null;
+        combiner = null;
+    }
+
+    /**
+     * 构造函数，创建支持区间聚合的 TreeMap。每个节点记录其子树中所有
+     * value 按 key 升序用 combiner 合并的结果，插入、删除、修改 value
+     * 和旋转时同时维护，aggregate 方法因此是 O(log n)。
+     *
+     * combiner 必须满足结合律，identity 必须是它的单位元（例如求和时为
+     * 0 和加法，求最大值时为最小值和 max），不要求满足交换律。
+     *
+     * @param comparator 比较器，为 null 时使用 key 的自然顺序
+     * @param identity combiner 的单位元，空范围的聚合结果
+     * @param combiner 合并两个聚合值的函数
+     * @throws NullPointerException if combiner is null
+     */
+    public TreeMap(Comparator<? super K> comparator, V identity, BinaryOperator<V> combiner) {
+        this.comparator = comparator;
+        this.identity = identity;
+        this.combiner = Objects.requireNonNull(combiner);
     }
 
     /**
@@ -135,6 +175,8 @@ public class TreeMap<K,V>
      */
     public TreeMap(java.util.Map<? extends K, ? extends V> m) {
         comparator = null;
+        identity = null;
+        combiner = null;
         putAll(m);
     }
 
@@ -147,6 +189,8 @@ public class TreeMap<K,V>
      */
     public TreeMap(SortedMap<K, ? extends V> m) {
         comparator = m.comparator();
+        identity = null;
+        combiner = null;
         try {
             buildFromSorted(m.size(), m.entrySet().iterator(), null, null);
         } catch (java.io.IOException cannotHappen) {
@@ -479,7 +523,7 @@ public class TreeMap<K,V>
             // 对 key 是否为 null 进行检查 type
             compare(key, key); // type (and possibly null) check
             // 创建一个根节点，返回 null
-            root = new TreeMap.Entry<>(key, value, null);
+            root = newEntry(key, value, null);
             size = 1;
             modCount++;
             return null;
@@ -523,11 +567,15 @@ public class TreeMap<K,V>
         }
         // 如果原先不存在指定 key，那么创建一个新的节点，并将其父节点
         // 指针指向 parent
-        TreeMap.Entry<K,V> e = new TreeMap.Entry<>(key, value, parent);
+        TreeMap.Entry<K,V> e = newEntry(key, value, parent);
         if (cmp < 0)
             parent.left = e;
         else
             parent.right = e;
+        // 从父节点到根节点，每个祖先的子树都多了一个节点
+        for (TreeMap.Entry<K,V> q = parent; q != null; q = q.parent)
+            q.count++;
+        updateAggregates(parent);
         // 插入新节点后，为了保持红黑树平衡进行调整
         fixAfterInsertion(e);
         size++;
@@ -727,6 +775,298 @@ public class TreeMap<K,V>
         return keyOrNull(getHigherEntry(key));
     }
 
+    // Order statistics
+    // 顺序统计：每个 Entry 记录子树的节点个数，按排名查找和计算排名都
+    // 只需要从根节点向下走一条路径
+
+    /**
+     * 返回小于 key 的映射个数。key 存在时就是它在升序中的下标（从 0
+     * 开始），不存在时是它插入后的下标。O(log n)，原来需要遍历。
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public int rankOf(K key) {
+        return countBelow(key, false);
+    }
+
+    /**
+     * 返回升序中下标为 index 的映射（从 0 开始），O(log n)。与
+     * firstEntry 等方法相同，返回的 Entry 不支持 setValue。
+     *
+     * @throws IndexOutOfBoundsException 如果 index 小于 0 或者不小于 size()
+     */
+    public Map.Entry<K,V> select(int index) {
+        return exportEntry(getEntryByRank(index));
+    }
+
+    /**
+     * 返回小于 key（inclusive 为 true 时为不大于 key）的映射个数。
+     */
+    final int countBelow(Object key, boolean inclusive) {
+        int n = 0;
+        TreeMap.Entry<K,V> p = root;
+        while (p != null) {
+            int cmp = compare(key, p.key);
+            if (cmp < 0)
+                p = p.left;
+            else if (cmp > 0) {
+                // p 和它的左子树都小于 key
+                n += countOf(p.left) + 1;
+                p = p.right;
+            } else
+                return n + countOf(p.left) + (inclusive ? 1 : 0);
+        }
+        return n;
+    }
+
+    /**
+     * 返回升序中下标为 index 的 Entry。
+     */
+    final TreeMap.Entry<K,V> getEntryByRank(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        TreeMap.Entry<K,V> p = root;
+        for (;;) {
+            int l = countOf(p.left);
+            if (index < l)
+                p = p.left;
+            else if (index > l) {
+                index -= l + 1;
+                p = p.right;
+            } else
+                return p;
+        }
+    }
+
+    // Range aggregation
+    // 区间聚合：节点记录子树的聚合值，范围内的映射由 O(log n) 棵完整的
+    // 子树和路径上的节点组成
+
+    /**
+     * 返回所有 value 按 key 升序用 combiner 合并的结果，O(1)。
+     *
+     * @throws UnsupportedOperationException 如果此 Map 创建时没有指定 combiner
+     */
+    public V aggregate() {
+        if (combiner == null)
+            throw new UnsupportedOperationException();
+        return aggOf(root);
+    }
+
+    /**
+     * 返回 key 在 fromKey 到 toKey 之间的所有 value 按 key 升序合并的
+     * 结果，范围为空时返回 identity。等价于
+     * subMap(fromKey, fromInclusive, toKey, toInclusive) 的 aggregate，
+     * O(log n)，不需要遍历范围内的映射。
+     *
+     * @throws UnsupportedOperationException 如果此 Map 创建时没有指定 combiner
+     * @throws ClassCastException if fromKey and toKey cannot be compared
+     *         to one another or to the keys currently in the map
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException if fromKey is greater than toKey
+     */
+    public V aggregate(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return ((NavigableSubMap<K,V>) subMap(fromKey, fromInclusive, toKey, toInclusive)).aggregate();
+    }
+
+    // Bulk set operations
+    // 集合运算：两个有序的来源同时遍历一次，把结果放入数组，然后用
+    // buildFromSorted 在线性时间内重建整棵树，不需要逐个插入和调整平衡
+
+    private static final int UNION = 0, INTERSECT = 1, DIFFERENCE = 2, MERGE = 3;
+
+    /**
+     * 将 map 中的映射合并到此 Map 中，key 已经存在时使用 map 中的 value，
+     * 结果与 putAll 相同。map 是与此 Map 比较器相同的 SortedMap 时为
+     * O(n + m)，否则先将 map 复制到按此 Map 的比较器排序的 TreeMap 中。
+     *
+     * @return {@code true} 如果此 Map 因此发生了变化
+     * @throws ClassCastException if the class of a key in the specified
+     *         map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     */
+    public boolean union(java.util.Map<? extends K, ? extends V> map) {
+        SortedMap<? extends K, ? extends V> s = sortedByThis(map);
+        return mergeFromSorted(s.size(), s.entrySet().iterator(), null, UNION, null);
+    }
+
+    /**
+     * 只保留 key 同时存在于 map 中的映射，value 不变。
+     *
+     * @return {@code true} 如果此 Map 因此发生了变化
+     * @throws ClassCastException if a key in the specified map cannot be
+     *         compared with the keys currently in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public boolean intersect(java.util.Map<? extends K, ?> map) {
+        SortedMap<? extends K, ?> s = sortedByThis(map);
+        return mergeFromSorted(s.size(), s.entrySet().iterator(), null, INTERSECT, null);
+    }
+
+    /**
+     * 删除 key 存在于 map 中的映射。
+     *
+     * @return {@code true} 如果此 Map 因此发生了变化
+     * @throws ClassCastException if a key in the specified map cannot be
+     *         compared with the keys currently in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public boolean difference(java.util.Map<? extends K, ?> map) {
+        SortedMap<? extends K, ?> s = sortedByThis(map);
+        return mergeFromSorted(s.size(), s.entrySet().iterator(), null, DIFFERENCE, null);
+    }
+
+    /**
+     * 对 map 中的每个映射执行 merge(key, value, remappingFunction)：key
+     * 不存在时加入 map 中的映射，存在时 value 替换为 remappingFunction
+     * 的返回值，返回 null 时删除该映射。remappingFunction 的第一个参数
+     * 是此 Map 中原来的 value。
+     *
+     * 所有的 remappingFunction 调用完成后才会修改此 Map，如果
+     * remappingFunction 抛出异常，此 Map 不变。
+     *
+     * @return {@code true} 如果此 Map 因此发生了变化
+     * @throws ClassCastException if the class of a key in the specified
+     *         map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map or
+     *         remappingFunction is null, or the specified map contains a
+     *         null key and this map does not permit null keys
+     */
+    public boolean mergeWith(java.util.Map<? extends K, ? extends V> map,
+                             BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        SortedMap<? extends K, ? extends V> s = sortedByThis(map);
+        return mergeFromSorted(s.size(), s.entrySet().iterator(), null, MERGE, remappingFunction);
+    }
+
+    /**
+     * TreeSet 的 union、intersect 和 difference，set 的比较器必须与此
+     * Map 相同。
+     */
+    final boolean unionForTreeSet(SortedSet<? extends K> set, V defaultVal) {
+        return mergeFromSorted(set.size(), set.iterator(), defaultVal, UNION, null);
+    }
+
+    final boolean intersectForTreeSet(SortedSet<? extends K> set, V defaultVal) {
+        return mergeFromSorted(set.size(), set.iterator(), defaultVal, INTERSECT, null);
+    }
+
+    final boolean differenceForTreeSet(SortedSet<? extends K> set, V defaultVal) {
+        return mergeFromSorted(set.size(), set.iterator(), defaultVal, DIFFERENCE, null);
+    }
+
+    /**
+     * 比较器与此 Map 相同的 SortedMap 直接返回，否则复制到按此 Map 的
+     * 比较器排序的 TreeMap 中。
+     */
+    @SuppressWarnings("unchecked")
+    private <T> SortedMap<? extends K, ? extends T> sortedByThis(java.util.Map<? extends K, ? extends T> map) {
+        if (map instanceof SortedMap) {
+            Comparator<?> c = ((SortedMap<?,?>)map).comparator();
+            if (c == comparator || (c != null && c.equals(comparator)))
+                return (SortedMap<? extends K, ? extends T>) map;
+        }
+        TreeMap<K,T> t = new TreeMap<>(comparator);
+        t.putAll(map);
+        return t;
+    }
+
+    /**
+     * 集合运算的实现。it 按此 Map 的比较器升序返回 otherSize 个元素，
+     * 与 buildFromSorted 相同，defaultVal 为 null 时元素是 Map.Entry，
+     * 否则元素是 key，value 为 defaultVal。
+     *
+     * 保留的节点和新的映射先按顺序放入数组，value 改变的 key 使用新的
+     * Entry，所以遍历结束前不会修改此 Map。没有变化时不重建。
+     */
+    @SuppressWarnings("unchecked")
+    private boolean mergeFromSorted(int otherSize, Iterator<?> it, V defaultVal, int op,
+                                    BiFunction<? super V, ? super V, ? extends V> fn) {
+        int capacity = (op == INTERSECT) ? Math.min(size, otherSize) :
+                (op == DIFFERENCE) ? size : size + otherSize;
+        Object[] buf = new Object[capacity];
+        int n = 0;
+        boolean changed = false;
+        TreeMap.Entry<K,V> p = getFirstEntry();
+        K key = null;
+        V value = null;
+        boolean hasNext = it.hasNext();
+        if (hasNext) {
+            if (defaultVal == null) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) it.next();
+                key = (K) e.getKey();
+                value = (V) e.getValue();
+            } else {
+                key = (K) it.next();
+                value = defaultVal;
+            }
+        }
+        while (p != null || hasNext) {
+            if (p == null && (op == INTERSECT || op == DIFFERENCE))
+                break;
+            if (!hasNext && op == INTERSECT) {
+                changed = true;
+                break;
+            }
+            int cmp = (p == null) ? 1 : (!hasNext) ? -1 : compare(p.key, key);
+            if (cmp < 0) {
+                // 只在此 Map 中
+                if (op == INTERSECT)
+                    changed = true;
+                else
+                    buf[n++] = p;
+                p = successor(p);
+                continue;
+            }
+            if (cmp > 0) {
+                // 只在另一个来源中
+                if (op == UNION || op == MERGE) {
+                    if (key == null && comparator == null)
+                        throw new NullPointerException();
+                    buf[n++] = new TreeMap.Entry<>(key, value, null);
+                    changed = true;
+                }
+            } else {
+                // 两边都有，保留此 Map 中的 key
+                V v = (op == UNION) ? value : (op == MERGE) ? fn.apply(p.value, value) : p.value;
+                if (op == DIFFERENCE || (op == MERGE && v == null))
+                    changed = true;
+                else if (v == p.value)
+                    buf[n++] = p;
+                else {
+                    buf[n++] = new TreeMap.Entry<>(p.key, v, null);
+                    changed = true;
+                }
+                p = successor(p);
+            }
+            if (hasNext = it.hasNext()) {
+                if (defaultVal == null) {
+                    Map.Entry<?,?> e = (Map.Entry<?,?>) it.next();
+                    key = (K) e.getKey();
+                    value = (V) e.getValue();
+                } else
+                    key = (K) it.next();
+            }
+        }
+        if (!changed)
+            return false;
+        modCount++;
+        try {
+            buildFromSorted(n, Arrays.asList(buf).subList(0, n).iterator(), null, null);
+        } catch (java.io.IOException cannotHappen) {
+        } catch (ClassNotFoundException cannotHappen) {
+        }
+        return true;
+    }
+
     // Views
     // 视图
 
@@ -905,6 +1245,7 @@ public class TreeMap<K,V>
         TreeMap.Entry<K,V> p = getEntry(key);
         if (p!=null && Objects.equals(oldValue, p.value)) {
             p.value = newValue;
+            updateAggregates(p);
             return true;
         }
         return false;
@@ -918,6 +1259,7 @@ public class TreeMap<K,V>
         if (p!=null) {
             V oldValue = p.value;
             p.value = value;
+            updateAggregates(p);
             return oldValue;
         }
         return null;
@@ -949,6 +1291,8 @@ public class TreeMap<K,V>
                 throw new ConcurrentModificationException();
             }
         }
+        if (combiner != null)
+            recomputeAggregates(root);
     }
 
     // View class support
@@ -1394,6 +1738,29 @@ public class TreeMap<K,V>
             return (e == null || tooLow(e.key)) ? null : e;
         }
 
+        /**
+         * m 中排在范围之前的映射个数。
+         */
+        final int absLowRank() {
+            return fromStart ? 0 : m.countBelow(lo, !loInclusive);
+        }
+
+        /**
+         * m 中排在范围之前和范围之内的映射个数，low 为 absLowRank()。
+         */
+        final int absHighRank(int low) {
+            return Math.max(low, toEnd ? m.size() : m.countBelow(hi, hiInclusive));
+        }
+
+        /**
+         * 范围内小于 key（inclusive 为 true 时为不大于 key）的映射个数。
+         */
+        final int absCountBelow(Object key, boolean inclusive) {
+            int low = absLowRank();
+            int n = m.countBelow(key, inclusive);
+            return Math.min(Math.max(n, low), absHighRank(low)) - low;
+        }
+
         /** Returns the absolute high fence for ascending traversal */
         final TreeMap.Entry<K,V> absHighFence() {
             return (toEnd ? null : (hiInclusive ?
@@ -1418,6 +1785,12 @@ public class TreeMap<K,V>
         abstract TreeMap.Entry<K,V> subFloor(K key);
         abstract TreeMap.Entry<K,V> subLower(K key);
 
+        /** 按照子映射的顺序，排在 key 之前的映射个数 */
+        abstract int subRankOf(K key);
+
+        /** 按照子映射的顺序，下标为 index 的 Entry */
+        abstract TreeMap.Entry<K,V> subSelect(int index);
+
         /** Returns ascending iterator from the perspective of this submap */
         abstract Iterator<K> keyIterator();
 
@@ -1432,8 +1805,60 @@ public class TreeMap<K,V>
             return (fromStart && toEnd) ? m.isEmpty() : entrySet().isEmpty();
         }
 
+        /**
+         * 范围两端在 m 中的排名之差，O(log n)，不需要遍历。
+         */
         public int size() {
-            return (fromStart && toEnd) ? m.size() : entrySet().size();
+            if (fromStart && toEnd)
+                return m.size();
+            int low = absLowRank();
+            return absHighRank(low) - low;
+        }
+
+        /**
+         * 返回范围内所有 value 按 key 升序合并的结果，降序视图也按升序
+         * 合并。先找到第一个在范围内的节点 s，范围内的其他节点都在 s 的
+         * 子树中：s 左子树中不低于下界的部分和右子树中不高于上界的部分
+         * 各沿一条路径收集完整子树的聚合值，O(log n)。
+         *
+         * @throws UnsupportedOperationException 如果 m 创建时没有指定 combiner
+         */
+        public final V aggregate() {
+            if (m.combiner == null)
+                throw new UnsupportedOperationException();
+            TreeMap.Entry<K,V> s = m.root;
+            while (s != null) {
+                if (tooLow(s.key))
+                    s = s.right;
+                else if (tooHigh(s.key))
+                    s = s.left;
+                else
+                    break;
+            }
+            if (s == null)
+                return m.identity;
+            BinaryOperator<V> f = m.combiner;
+            // 左边收集到的节点越来越小，合并在结果的前面
+            V low = m.identity;
+            for (TreeMap.Entry<K,V> p = s.left; p != null; ) {
+                if (tooLow(p.key))
+                    p = p.right;
+                else {
+                    low = f.apply(f.apply(p.value, m.aggOf(p.right)), low);
+                    p = p.left;
+                }
+            }
+            // 右边收集到的节点越来越大，合并在结果的后面
+            V high = m.identity;
+            for (TreeMap.Entry<K,V> p = s.right; p != null; ) {
+                if (tooHigh(p.key))
+                    p = p.left;
+                else {
+                    high = f.apply(high, f.apply(m.aggOf(p.left), p.value));
+                    p = p.right;
+                }
+            }
+            return f.apply(f.apply(low, s.value), high);
         }
 
         public final boolean containsKey(Object key) {
@@ -1552,21 +1977,8 @@ public class TreeMap<K,V>
         // View classes
 
         abstract class EntrySetView extends AbstractSet<Entry<K,V>> {
-            private transient int size = -1, sizeModCount;
-
             public int size() {
-                if (fromStart && toEnd)
-                    return m.size();
-                if (size == -1 || sizeModCount != m.modCount) {
-                    sizeModCount = m.modCount;
-                    size = 0;
-                    Iterator<?> i = iterator();
-                    while (i.hasNext()) {
-                        size++;
-                        i.next();
-                    }
-                }
-                return size;
+                return NavigableSubMap.this.size();
             }
 
             public boolean isEmpty() {
@@ -1853,6 +2265,17 @@ public class TreeMap<K,V>
         TreeMap.Entry<K,V> subHigher(K key)  { return absHigher(key); }
         TreeMap.Entry<K,V> subFloor(K key)   { return absFloor(key); }
         TreeMap.Entry<K,V> subLower(K key)   { return absLower(key); }
+
+        int subRankOf(K key) {
+            return absCountBelow(key, false);
+        }
+
+        TreeMap.Entry<K,V> subSelect(int index) {
+            int low = absLowRank(), size = absHighRank(low) - low;
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return m.getEntryByRank(low + index);
+        }
     }
 
     /**
@@ -1938,6 +2361,18 @@ public class TreeMap<K,V>
         TreeMap.Entry<K,V> subHigher(K key)  { return absLower(key); }
         TreeMap.Entry<K,V> subFloor(K key)   { return absCeiling(key); }
         TreeMap.Entry<K,V> subLower(K key)   { return absHigher(key); }
+
+        // 降序时排在 key 之前的是范围内大于 key 的映射
+        int subRankOf(K key) {
+            return size() - absCountBelow(key, true);
+        }
+
+        TreeMap.Entry<K,V> subSelect(int index) {
+            int low = absLowRank(), high = absHighRank(low);
+            if (index < 0 || index >= high - low)
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (high - low));
+            return m.getEntryByRank(high - 1 - index);
+        }
     }
 
     /**
@@ -1979,7 +2414,7 @@ public class TreeMap<K,V>
      * 树中节点类
      */
 
-    static final class Entry<K,V> implements Map.Entry<K,V> {
+    static class Entry<K,V> implements Map.Entry<K,V> {
         K key;
         V value;
         TreeMap.Entry<K,V> left;
@@ -1987,6 +2422,13 @@ public class TreeMap<K,V>
         TreeMap.Entry<K,V> parent;
         boolean color = BLACK;
 
+        /**
+         * 以此节点为根的子树中的节点个数，用于 rankOf 和 select。压缩指针
+         * 时对象头 12 字节加上五个引用和 color 共 33 字节，对齐到 40 字节，
+         * 这个 int 正好放在对齐填充中，不增加 Entry 的大小。
+         */
+        int count = 1;
+
         /**
          * 构造函数
          */
@@ -2046,6 +2488,31 @@ public class TreeMap<K,V>
         }
     }
 
+    /**
+     * 支持区间聚合的 TreeMap 使用的节点，agg 为以此节点为根的子树中所有
+     * value 按 key 升序合并的结果。内部类持有所属的 TreeMap，通过
+     * entrySet 修改 value 时可以更新到根节点路径上的聚合值。
+     */
+    final class AggregateEntry extends TreeMap.Entry<K,V> {
+        V agg;
+
+        AggregateEntry(K key, V value, TreeMap.Entry<K,V> parent) {
+            super(key, value, parent);
+            agg = value;
+        }
+
+        // 由左右子节点的聚合值和自身的 value 重新计算
+        void recompute() {
+            agg = combiner.apply(combiner.apply(aggOf(left), value), aggOf(right));
+        }
+
+        public V setValue(V value) {
+            V oldValue = super.setValue(value);
+            updateAggregates(this);
+            return oldValue;
+        }
+    }
+
     /**
      * 返回 TreeMap 中的第一个 Entry（根据 TreeMap 的排序方法）。如果
      * TreeMap 为空返回 null。
@@ -2138,6 +2605,44 @@ public class TreeMap<K,V>
             p.color = c;
     }
 
+    // 返回以 p 为根的子树中的节点个数
+    private static <K,V> int countOf(TreeMap.Entry<K,V> p) {
+        return (p == null) ? 0 : p.count;
+    }
+
+    // 创建节点，支持区间聚合时为 AggregateEntry
+    private TreeMap.Entry<K,V> newEntry(K key, V value, TreeMap.Entry<K,V> parent) {
+        return (combiner == null) ? new TreeMap.Entry<>(key, value, parent) :
+                new AggregateEntry(key, value, parent);
+    }
+
+    // 返回以 p 为根的子树的聚合值
+    final V aggOf(TreeMap.Entry<K,V> p) {
+        return (p == null) ? identity : ((AggregateEntry) p).agg;
+    }
+
+    // p 的 value 或子树改变后，重新计算从 p 到根节点路径上的聚合值
+    private void updateAggregates(TreeMap.Entry<K,V> p) {
+        if (combiner != null)
+            for (; p != null; p = p.parent)
+                ((AggregateEntry) p).recompute();
+    }
+
+    // 旋转后 top 取代 p 成为子树的根，聚合值不变，p 的子树改变需要重新计算
+    private void rotateAggregates(TreeMap.Entry<K,V> p, TreeMap.Entry<K,V> top) {
+        ((AggregateEntry) top).agg = ((AggregateEntry) p).agg;
+        ((AggregateEntry) p).recompute();
+    }
+
+    // 后序遍历重新计算整棵子树的聚合值
+    private void recomputeAggregates(TreeMap.Entry<K,V> p) {
+        if (p != null) {
+            recomputeAggregates(p.left);
+            recomputeAggregates(p.right);
+            ((AggregateEntry) p).recompute();
+        }
+    }
+
     // 返回当前节点左子节点
     private static <K,V> TreeMap.Entry<K,V> leftOf(TreeMap.Entry<K,V> p) {
         return (p == null) ? null: p.left;
@@ -2165,6 +2670,11 @@ public class TreeMap<K,V>
                 p.parent.right = r;
             r.left = p;
             p.parent = r;
+            // r 取代 p 成为子树的根，子树的节点个数和聚合值不变
+            r.count = p.count;
+            p.count = countOf(p.left) + countOf(p.right) + 1;
+            if (combiner != null)
+                rotateAggregates(p, r);
         }
     }
 
@@ -2183,6 +2693,10 @@ public class TreeMap<K,V>
             else p.parent.left = l;
             l.right = p;
             p.parent = l;
+            l.count = p.count;
+            p.count = countOf(p.left) + countOf(p.right) + 1;
+            if (combiner != null)
+                rotateAggregates(p, l);
         }
     }
 
@@ -2244,6 +2758,13 @@ public class TreeMap<K,V>
             p = s;
         } // p has 2 children
 
+        // p 是实际被删除的节点，它的每个祖先的子树都少了一个节点。p 没有
+        // 子节点时暂时留在树中作为 fixAfterDeletion 的占位节点，旋转时
+        // 不能被计入
+        for (TreeMap.Entry<K,V> q = p.parent; q != null; q = q.parent)
+            q.count--;
+        p.count = 0;
+
         // Start fixup at replacement node, if it exists.
         TreeMap.Entry<K,V> replacement = (p.left != null ? p.left : p.right);
 
@@ -2259,6 +2780,7 @@ public class TreeMap<K,V>
 
             // Null out links so they are OK to use by fixAfterDeletion.
             p.left = p.right = p.parent = null;
+            updateAggregates(replacement.parent);
 
             // Fix replacement
             if (p.color == BLACK)
@@ -2266,6 +2788,11 @@ public class TreeMap<K,V>
         } else if (p.parent == null) { // return if we are the only node.
             root = null;
         } else { //  No children. Use self as phantom replacement and unlink.
+            // 与 count 相同，占位节点的聚合值为单位元
+            if (combiner != null) {
+                ((AggregateEntry) p).agg = identity;
+                updateAggregates(p.parent);
+            }
             if (p.color == BLACK)
                 fixAfterDeletion(p);
 
@@ -2501,7 +3028,8 @@ public class TreeMap<K,V>
             value = (defaultVal != null ? defaultVal : (V) str.readObject());
         }
 
-        TreeMap.Entry<K,V> middle =  new TreeMap.Entry<>(key, value, null);
+        TreeMap.Entry<K,V> middle =  newEntry(key, value, null);
+        middle.count = hi - lo + 1;
 
         // color nodes in non-full bottommost level red
         if (level == redLevel)
@@ -2518,6 +3046,8 @@ public class TreeMap<K,V>
             middle.right = right;
             right.parent = middle;
         }
+        if (combiner != null)
+            ((AggregateEntry) middle).recompute();
 
         return middle;
     }
@@ -314,6 +314,74 @@ public class TreeSet<E> extends AbstractSet<E>
         return super.addAll(c);
     }
 
+    /**
+     * 将 c 中的元素加入此集合，结果与 addAll 相同。此集合不是子集合视图
+     * 时，两个集合按顺序同时遍历一次，再由 TreeMap.buildFromSorted 重建，
+     * O(n + m)，而 addAll 逐个插入需要 O(m log(n + m))。c 不是比较器相同
+     * 的 SortedSet 时先复制到按此集合的比较器排序的 TreeSet 中。
+     *
+     * @return {@code true} if this set changed as a result of the call
+     * @throws ClassCastException if the elements provided cannot be compared
+     *         with the elements currently in the set
+     * @throws NullPointerException if the specified collection is null or
+     *         if any element is null and this set uses natural ordering, or
+     *         its comparator does not permit null elements
+     */
+    public boolean union(java.util.Collection<? extends E> c) {
+        SortedSet<? extends E> s = sortedByThis(c);
+        if (m instanceof TreeMap)
+            return ((TreeMap<E,Object>) m).unionForTreeSet(s, PRESENT);
+        return addAll(s);
+    }
+
+    /**
+     * 只保留同时存在于 c 中的元素，与 union 相同，O(n + m)。
+     *
+     * @return {@code true} if this set changed as a result of the call
+     * @throws ClassCastException if the elements provided cannot be compared
+     *         with the elements currently in the set
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean intersect(java.util.Collection<? extends E> c) {
+        SortedSet<? extends E> s = sortedByThis(c);
+        if (m instanceof TreeMap)
+            return ((TreeMap<E,Object>) m).intersectForTreeSet(s, PRESENT);
+        return retainAll(s);
+    }
+
+    /**
+     * 删除存在于 c 中的元素，与 union 相同，O(n + m)。
+     *
+     * @return {@code true} if this set changed as a result of the call
+     * @throws ClassCastException if the elements provided cannot be compared
+     *         with the elements currently in the set
+     * @throws NullPointerException if the specified collection is null
+     */
+    public boolean difference(java.util.Collection<? extends E> c) {
+        SortedSet<? extends E> s = sortedByThis(c);
+        if (m instanceof TreeMap)
+            return ((TreeMap<E,Object>) m).differenceForTreeSet(s, PRESENT);
+        return removeAll(s);
+    }
+
+    /**
+     * 比较器与此集合相同的 SortedSet 直接返回，否则复制到按此集合的
+     * 比较器排序的 TreeSet 中。
+     */
+    @SuppressWarnings("unchecked")
+    private SortedSet<? extends E> sortedByThis(java.util.Collection<? extends E> c) {
+        if (c instanceof SortedSet) {
+            Comparator<?> cc = ((SortedSet<? extends E>) c).comparator();
+            Comparator<? super E> mc = m.comparator();
+            if (cc==mc || (cc != null && cc.equals(mc)))
+                return (SortedSet<? extends E>) c;
+        }
+        TreeSet<E> t = new TreeSet<>(m.comparator());
+        for (E e : c)
+            t.add(e);
+        return t;
+    }
+
     /**
      * @throws ClassCastException {@inheritDoc}
      * @throws NullPointerException if {@code fromElement} or {@code toElement}
@@ -449,6 +517,36 @@ public class TreeSet<E> extends AbstractSet<E>
         return m.higherKey(e);
     }
 
+    /**
+     * 返回此集合中排在 e 之前的元素个数：升序时是小于 e 的元素个数，
+     * descendingSet 返回的降序集合中是大于 e 的元素个数。e 存在时就是它
+     * 的下标。由 TreeMap 中子树的节点个数计算，O(log n)。
+     *
+     * @throws ClassCastException if the specified element cannot be
+     *         compared with the elements currently in the set
+     * @throws NullPointerException if the specified element is null
+     *         and this set uses natural ordering, or its comparator
+     *         does not permit null elements
+     */
+    public int rankOf(E e) {
+        if (m instanceof TreeMap)
+            return ((TreeMap<E,Object>) m).rankOf(e);
+        else
+            return ((TreeMap.NavigableSubMap<E,Object>) m).subRankOf(e);
+    }
+
+    /**
+     * 返回此集合中下标为 index 的元素（从 0 开始），O(log n)。
+     *
+     * @throws IndexOutOfBoundsException 如果 index 小于 0 或者不小于 size()
+     */
+    public E select(int index) {
+        if (m instanceof TreeMap)
+            return ((TreeMap<E,Object>) m).getEntryByRank(index).key;
+        else
+            return ((TreeMap.NavigableSubMap<E,Object>) m).subSelect(index).key;
+    }
+
     /**
      * @since 1.6
      */
@@ -0,0 +1,1067 @@
+package Collections;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 每个节点存放一小段数组的双链表（unrolled linked list），实现了 List
+ * 和 Deque 接口，可以替代 LinkedList。允许所有元素（包括 null）。
+ *
+ * LinkedList 每个元素一个 Node（24 字节的对象头和三个引用），遍历时
+ * 每个元素都要跳到一个新的节点，节点在堆中分散，几乎每一步都是一次
+ * 缓存未命中。此类的每个节点最多存放 NODE_CAPACITY 个元素：
+ *
+ *   遍历   在一个节点内是连续的数组访问，每 NODE_CAPACITY 个元素才跳转
+ *          一次；
+ *   内存   每个元素只占数组中的一个引用，节点本身的开销被分摊；
+ *   按下标访问  仍然需要从较近的一端逐个节点查找，但是跳转次数只有
+ *          LinkedList 的 1 / NODE_CAPACITY 左右。
+ *
+ * 节点中的元素存放在 elements[lo, hi) 中，两端都可以留有空位：
+ *
+ *   addFirst、addLast 在首、尾节点的空位中放入元素，没有空位时链接一个
+ *   新节点，不移动已有元素；removeFirst、removeLast 只移动 lo 或 hi，
+ *   节点为空时把它删除。两端的操作都是 O(1)。
+ *
+ *   在中间插入（add(int, E)、ListIterator.add）时，移动节点内插入点
+ *   较短一侧的元素；节点已满时先把后一半移到一个新节点（分裂）。在中间
+ *   删除（remove(int)、remove(Object)、Iterator.remove）时，同样只移动
+ *   节点内较短一侧的元素；节点中的元素少于 NODE_CAPACITY / 4 时，与后
+ *   一个节点合并，或者从后一个节点借一部分元素，避免出现大量几乎为空
+ *   的节点。节点内移动的元素不超过 NODE_CAPACITY 个，通过迭代器插入和
+ *   删除仍然是 O(1) 的。
+ *
+ * 注意，这个实现不是同步（synchronized）的。此类的 iterator 和
+ * listIterator 方法返回的迭代器支持 fast-fail，与 LinkedList 相同。
+ *
+ * @August 首、尾节点可能只有很少的元素（例如只执行过少量 addFirst），
+ *         两端的操作不会为了填满节点而移动元素。
+ *
+ * @see     LinkedList
+ * @see     ArrayDeque
+ * @param <E> the type of elements held in this collection
+ */
+public class UnrolledLinkedList<E>
+        extends java.util.AbstractSequentialList<E>
+        implements java.util.List<E>, java.util.Deque<E>, Cloneable, java.io.Serializable
+{
+    /**
+     * 每个节点的数组长度。64 个引用在开启压缩指针时为 256 字节，即 4 条
+     * 缓存行。
+     */
+    static final int NODE_CAPACITY = 64;
+
+    /**
+     * 节点分裂时留在原节点中的元素个数。
+     */
+    static final int HALF = NODE_CAPACITY >>> 1;
+
+    /**
+     * 在中间删除后，节点中的元素少于这个值时与后一个节点合并或者从后
+     * 一个节点借元素。
+     */
+    static final int MIN_COUNT = NODE_CAPACITY >>> 2;
+
+    transient int size = 0;
+
+    /**
+     * 第一个节点。
+     * Invariant: (first == null && last == null) ||
+     *            (first.prev == null && first.lo < first.hi)
+     */
+    transient Node<E> first;
+
+    /**
+     * 最后一个节点。
+     * Invariant: (first == null && last == null) ||
+     *            (last.next == null && last.lo < last.hi)
+     */
+    transient Node<E> last;
+
+    /**
+     * 空列表的构造函数
+     */
+    public UnrolledLinkedList() {
+    }
+
+    /**
+     * 构造一个包括指定集合所有元素的列表，按照集合迭代器返回的顺序。
+     *
+     * @param  c the collection whose elements are to be placed into this list
+     * @throws NullPointerException if the specified collection is null
+     */
+    public UnrolledLinkedList(java.util.Collection<? extends E> c) {
+        this();
+        addAll(c);
+    }
+
+    // 节点类的定义，元素存放在 elements[lo, hi) 中
+    static final class Node<E> {
+        final Object[] elements = new Object[NODE_CAPACITY];
+        int lo, hi;
+        Node<E> prev, next;
+
+        Node(int lo) {
+            this.lo = this.hi = lo;
+        }
+
+        int count() {
+            return hi - lo;
+        }
+    }
+
+    /**
+     * 在节点 succ 之前链接节点 x，succ 为 null 时链接到表尾。
+     */
+    private void linkNodeBefore(Node<E> x, Node<E> succ) {
+        final Node<E> pred = (succ == null) ? last : succ.prev;
+        x.prev = pred;
+        x.next = succ;
+        if (pred == null)
+            first = x;
+        else
+            pred.next = x;
+        if (succ == null)
+            last = x;
+        else
+            succ.prev = x;
+    }
+
+    /**
+     * 删除节点 x，x 的 next 保持不变，迭代器可以通过它继续向后。
+     */
+    private void unlinkNode(Node<E> x) {
+        final Node<E> next = x.next;
+        final Node<E> prev = x.prev;
+        if (prev == null)
+            first = next;
+        else {
+            prev.next = next;
+            x.prev = null;
+        }
+        if (next == null)
+            last = prev;
+        else
+            next.prev = prev;
+    }
+
+    /**
+     * 在表头添加元素，首节点前面没有空位时链接一个新节点，元素从数组
+     * 末尾向前存放。
+     */
+    private void linkFirst(E e) {
+        Node<E> f = first;
+        if (f == null || f.lo == 0)
+            linkNodeBefore(f = new Node<>(NODE_CAPACITY), first);
+        f.elements[--f.lo] = e;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * 在表尾添加元素，尾节点后面没有空位时链接一个新节点。
+     */
+    void linkLast(E e) {
+        Node<E> l = last;
+        if (l == null || l.hi == NODE_CAPACITY)
+            linkNodeBefore(l = new Node<>(0), null);
+        l.elements[l.hi++] = e;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * 移除并返回第一个元素，首节点为空时删除它。
+     */
+    @SuppressWarnings("unchecked")
+    private E unlinkFirst(Node<E> f) {
+        // assert f == first && f != null;
+        final Object[] es = f.elements;
+        final E element = (E) es[f.lo];
+        es[f.lo++] = null; // help GC
+        if (f.lo == f.hi)
+            unlinkNode(f);
+        size--;
+        modCount++;
+        return element;
+    }
+
+    /**
+     * 移除并返回最后一个元素，尾节点为空时删除它。
+     */
+    @SuppressWarnings("unchecked")
+    private E unlinkLast(Node<E> l) {
+        // assert l == last && l != null;
+        final Object[] es = l.elements;
+        final E element = (E) es[--l.hi];
+        es[l.hi] = null; // help GC
+        if (l.lo == l.hi)
+            unlinkNode(l);
+        size--;
+        modCount++;
+        return element;
+    }
+
+    /**
+     * 在节点 x 中第 k 个元素（相对于 lo）之前插入 e，返回 e 所在的节点。
+     * x 已满时先分裂：后 NODE_CAPACITY - HALF 个元素移到新节点，插入点
+     * 落在新节点中时返回新节点，e 在其中的位置为 k - HALF。
+     */
+    Node<E> linkBefore(E e, Node<E> x, int k) {
+        // assert x != null && 0 <= k && k <= x.count();
+        if (x.hi - x.lo == NODE_CAPACITY) {
+            // 满节点的 lo 一定为 0
+            Node<E> y = new Node<>(0);
+            System.arraycopy(x.elements, HALF, y.elements, 0, NODE_CAPACITY - HALF);
+            Arrays.fill(x.elements, HALF, NODE_CAPACITY, null);
+            y.hi = NODE_CAPACITY - HALF;
+            x.hi = HALF;
+            linkNodeBefore(y, x.next);
+            if (k > HALF) {
+                x = y;
+                k -= HALF;
+            }
+        }
+        final Object[] es = x.elements;
+        final int lo = x.lo, hi = x.hi, n = hi - lo;
+        // 移动插入点较短的一侧，一侧没有空位时移动另一侧
+        if (hi < NODE_CAPACITY && (lo == 0 || k >= (n >>> 1))) {
+            System.arraycopy(es, lo + k, es, lo + k + 1, n - k);
+            es[lo + k] = e;
+            x.hi = hi + 1;
+        } else {
+            System.arraycopy(es, lo, es, lo - 1, k);
+            es[lo - 1 + k] = e;
+            x.lo = lo - 1;
+        }
+        size++;
+        modCount++;
+        return x;
+    }
+
+    /**
+     * 删除节点 x 中第 k 个元素（相对于 lo），返回被删除的元素。
+     *
+     * 删除后 x 中第 k 个之前的元素相对位置不变，之后的元素前移一位；x 为
+     * 空时被删除，否则如果需要，把后一个节点的元素移到 x 的末尾。因此
+     * 被删除元素的后继位于 x 中第 k 个（k 小于 x 的元素个数时）或者
+     * x.next 的第一个。
+     */
+    @SuppressWarnings("unchecked")
+    E unlink(Node<E> x, int k) {
+        final Object[] es = x.elements;
+        final int lo = x.lo, hi = x.hi, n = hi - lo;
+        final E element = (E) es[lo + k];
+        if (k < (n >>> 1)) {
+            System.arraycopy(es, lo, es, lo + 1, k);
+            es[lo] = null; // help GC
+            x.lo = lo + 1;
+        } else {
+            System.arraycopy(es, lo + k + 1, es, lo + k, n - k - 1);
+            es[hi - 1] = null; // help GC
+            x.hi = hi - 1;
+        }
+        size--;
+        modCount++;
+        if (n == 1)
+            unlinkNode(x);
+        else if (n - 1 < MIN_COUNT && x.next != null)
+            rebalance(x);
+        return element;
+    }
+
+    /**
+     * 节点 x 元素过少时，把后一个节点 y 的元素移到 x 的末尾：两个节点
+     * 的元素放得进一个节点时合并并删除 y，否则从 y 借一部分，使两个节点
+     * 的元素个数大致相等。x 中已有元素的相对位置不变。
+     */
+    private void rebalance(Node<E> x) {
+        final Node<E> y = x.next;
+        final Object[] es = x.elements, ys = y.elements;
+        int n = x.hi - x.lo, m = y.hi - y.lo;
+        // 把 x 的元素移到数组开头，为后面的元素留出空位
+        if (x.lo > 0) {
+            System.arraycopy(es, x.lo, es, 0, n);
+            Arrays.fill(es, n, x.hi, null);
+            x.lo = 0;
+            x.hi = n;
+        }
+        if (n + m <= NODE_CAPACITY) {
+            System.arraycopy(ys, y.lo, es, n, m);
+            x.hi = n + m;
+            unlinkNode(y);
+            y.next = null;
+        } else {
+            int t = (m - n) >>> 1;
+            System.arraycopy(ys, y.lo, es, n, t);
+            Arrays.fill(ys, y.lo, y.lo + t, null);
+            y.lo += t;
+            x.hi = n + t;
+        }
+    }
+
+    /**
+     * 返回列表的第一个元素。
+     *
+     * @return the first element in this list
+     * @throws NoSuchElementException if this list is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E getFirst() {
+        final Node<E> f = first;
+        if (f == null)
+            throw new NoSuchElementException();
+        return (E) f.elements[f.lo];
+    }
+
+    /**
+     * 返回列表的最后一个元素
+     *
+     * @return the last element in this list
+     * @throws NoSuchElementException if this list is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E getLast() {
+        final Node<E> l = last;
+        if (l == null)
+            throw new NoSuchElementException();
+        return (E) l.elements[l.hi - 1];
+    }
+
+    /**
+     * 移除并返回列表的第一个元素
+     *
+     * @return the first element from this list
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E removeFirst() {
+        final Node<E> f = first;
+        if (f == null)
+            throw new NoSuchElementException();
+        return unlinkFirst(f);
+    }
+
+    /**
+     * 移除并返回列表的最后一个元素
+     *
+     * @return the last element from this list
+     * @throws NoSuchElementException if this list is empty
+     */
+    public E removeLast() {
+        final Node<E> l = last;
+        if (l == null)
+            throw new NoSuchElementException();
+        return unlinkLast(l);
+    }
+
+    /**
+     * 在列表头添加指定元素
+     *
+     * @param e the element to add
+     */
+    public void addFirst(E e) {
+        linkFirst(e);
+    }
+
+    /**
+     * 在列表尾添加指定元素，等价于 add。
+     *
+     * @param e the element to add
+     */
+    public void addLast(E e) {
+        linkLast(e);
+    }
+
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 在列表尾部添加元素，等同于 addLast。
+     *
+     * @param e element to be appended to this list
+     * @return {@code true} (as specified by {@link Collection#add})
+     */
+    public boolean add(E e) {
+        linkLast(e);
+        return true;
+    }
+
+    /**
+     * 删除第一次出现的指定元素。
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean remove(Object o) {
+        for (Node<E> x = first; x != null; x = x.next) {
+            final Object[] es = x.elements;
+            for (int i = x.lo; i < x.hi; i++) {
+                if (o == null ? es[i] == null : o.equals(es[i])) {
+                    unlink(x, i - x.lo);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 删除所有元素。
+     */
+    public void clear() {
+        // 与 LinkedList 相同，断开节点之间的链接，帮助分代 GC
+        for (Node<E> x = first; x != null; ) {
+            Node<E> next = x.next;
+            x.next = x.prev = null;
+            x = next;
+        }
+        first = last = null;
+        size = 0;
+        modCount++;
+    }
+
+    // Positional Access Operations
+
+    /**
+     * 返回指定位置的元素。从较近的一端开始，按节点的元素个数跳过整个
+     * 节点。
+     *
+     * @param index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkElementIndex(index);
+        Node<E> x;
+        int k;
+        if (index < (size >> 1)) {
+            x = first;
+            k = index;
+            while (k >= x.hi - x.lo) {
+                k -= x.hi - x.lo;
+                x = x.next;
+            }
+        } else {
+            x = last;
+            k = size - index;
+            while (k > x.hi - x.lo) {
+                k -= x.hi - x.lo;
+                x = x.prev;
+            }
+            k = x.hi - x.lo - k;
+        }
+        return (E) x.elements[x.lo + k];
+    }
+
+    /**
+     * 用指定元素替换指定位置的元素，返回原来的元素。
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E set(int index, E element) {
+        checkElementIndex(index);
+        ListItr it = new ListItr(index);
+        E oldVal = it.next();
+        it.set(element);
+        return oldVal;
+    }
+
+    /**
+     * 在指定位置插入元素，index 为 0 或 size 时与 addFirst、addLast 相同。
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+        if (index == size)
+            linkLast(element);
+        else if (index == 0)
+            linkFirst(element);
+        else
+            new ListItr(index).add(element);
+    }
+
+    /**
+     * 删除并返回指定位置的元素，index 为 0 或 size - 1 时与 removeFirst、
+     * removeLast 相同。
+     *
+     * @param index the index of the element to be removed
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     */
+    public E remove(int index) {
+        checkElementIndex(index);
+        if (index == size - 1)
+            return unlinkLast(last);
+        if (index == 0)
+            return unlinkFirst(first);
+        ListItr it = new ListItr(index);
+        E e = it.next();
+        it.remove();
+        return e;
+    }
+
+    private boolean isElementIndex(int index) {
+        return index >= 0 && index < size;
+    }
+
+    private boolean isPositionIndex(int index) {
+        return index >= 0 && index <= size;
+    }
+
+    private String outOfBoundsMsg(int index) {
+        return "Index: "+index+", Size: "+size;
+    }
+
+    private void checkElementIndex(int index) {
+        if (!isElementIndex(index))
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    private void checkPositionIndex(int index) {
+        if (!isPositionIndex(index))
+            throw new IndexOutOfBoundsException(outOfBoundsMsg(index));
+    }
+
+    // Search Operations
+
+    public int indexOf(Object o) {
+        int index = 0;
+        for (Node<E> x = first; x != null; x = x.next) {
+            final Object[] es = x.elements;
+            for (int i = x.lo; i < x.hi; i++, index++) {
+                if (o == null ? es[i] == null : o.equals(es[i]))
+                    return index;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOf(Object o) {
+        int index = size;
+        for (Node<E> x = last; x != null; x = x.prev) {
+            final Object[] es = x.elements;
+            for (int i = x.hi - 1; i >= x.lo; i--) {
+                index--;
+                if (o == null ? es[i] == null : o.equals(es[i]))
+                    return index;
+            }
+        }
+        return -1;
+    }
+
+    // Queue operations.
+
+    public E peek() {
+        return (first == null) ? null : getFirst();
+    }
+
+    public E element() {
+        return getFirst();
+    }
+
+    public E poll() {
+        final Node<E> f = first;
+        return (f == null) ? null : unlinkFirst(f);
+    }
+
+    public E remove() {
+        return removeFirst();
+    }
+
+    public boolean offer(E e) {
+        return add(e);
+    }
+
+    // Deque operations
+
+    public boolean offerFirst(E e) {
+        addFirst(e);
+        return true;
+    }
+
+    public boolean offerLast(E e) {
+        addLast(e);
+        return true;
+    }
+
+    public E peekFirst() {
+        return (first == null) ? null : getFirst();
+    }
+
+    public E peekLast() {
+        return (last == null) ? null : getLast();
+    }
+
+    public E pollFirst() {
+        final Node<E> f = first;
+        return (f == null) ? null : unlinkFirst(f);
+    }
+
+    public E pollLast() {
+        final Node<E> l = last;
+        return (l == null) ? null : unlinkLast(l);
+    }
+
+    public void push(E e) {
+        addFirst(e);
+    }
+
+    public E pop() {
+        return removeFirst();
+    }
+
+    public boolean removeFirstOccurrence(Object o) {
+        return remove(o);
+    }
+
+    public boolean removeLastOccurrence(Object o) {
+        for (Node<E> x = last; x != null; x = x.prev) {
+            final Object[] es = x.elements;
+            for (int i = x.hi - 1; i >= x.lo; i--) {
+                if (o == null ? es[i] == null : o.equals(es[i])) {
+                    unlink(x, i - x.lo);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 返回列表的按序迭代器，从指定元素开始。遵守 List.listIterator(int)
+     * 的基本规范，支持 fail-fast。
+     *
+     * @param index index of the first element to be returned from the
+     *              list-iterator (by a call to {@code next})
+     * @return a ListIterator of the elements in this list (in proper
+     *         sequence), starting at the specified position in the list
+     * @throws IndexOutOfBoundsException {@inheritDoc}
+     * @see List#listIterator(int)
+     */
+    public ListIterator<E> listIterator(int index) {
+        checkPositionIndex(index);
+        return new ListItr(index);
+    }
+
+    // 列表迭代器，位置用（节点，相对于 lo 的偏移）表示
+    private class ListItr implements ListIterator<E> {
+        // 下一个元素所在的节点和偏移，next 为 null 表示已经到达末尾
+        private Node<E> next;
+        private int nextOff;
+        private int nextIndex;
+        // 最近一次返回的元素所在的节点和偏移，lastNode 为 null 表示没有
+        private Node<E> lastNode;
+        private int lastOff;
+        private int expectedModCount = modCount;
+
+        ListItr(int index) {
+            // assert isPositionIndex(index);
+            nextIndex = index;
+            if (index == size)
+                return;
+            Node<E> x;
+            int k;
+            if (index < (size >> 1)) {
+                x = first;
+                k = index;
+                while (k >= x.hi - x.lo) {
+                    k -= x.hi - x.lo;
+                    x = x.next;
+                }
+            } else {
+                x = last;
+                k = size - index;
+                while (k > x.hi - x.lo) {
+                    k -= x.hi - x.lo;
+                    x = x.prev;
+                }
+                k = x.hi - x.lo - k;
+            }
+            next = x;
+            nextOff = k;
+        }
+
+        // 把位置（x，k）设为下一个元素，k 等于 x 的元素个数时移到后一个节点
+        private void setNext(Node<E> x, int k) {
+            if (k == x.hi - x.lo) {
+                next = x.next;
+                nextOff = 0;
+            } else {
+                next = x;
+                nextOff = k;
+            }
+        }
+
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            checkForComodification();
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            final Node<E> x = next;
+            final int k = nextOff;
+            lastNode = x;
+            lastOff = k;
+            setNext(x, k + 1);
+            nextIndex++;
+            return (E) x.elements[x.lo + k];
+        }
+
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious())
+                throw new NoSuchElementException();
+
+            Node<E> x;
+            int k;
+            if (next != null && nextOff > 0) {
+                x = next;
+                k = nextOff - 1;
+            } else {
+                x = (next == null) ? last : next.prev;
+                k = x.hi - x.lo - 1;
+            }
+            next = lastNode = x;
+            nextOff = lastOff = k;
+            nextIndex--;
+            return (E) x.elements[x.lo + k];
+        }
+
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        // 删除最近一次返回的元素，它的后继成为下一个元素
+        public void remove() {
+            checkForComodification();
+            if (lastNode == null)
+                throw new IllegalStateException();
+
+            final Node<E> x = lastNode;
+            final int k = lastOff;
+            final Node<E> succ = x.next;
+            final boolean forward = (next != x || nextOff != k);
+            unlink(x, k);
+            if (x.lo == x.hi) {
+                // x 已经被删除
+                next = succ;
+                nextOff = 0;
+            } else
+                setNext(x, k);
+            if (forward)
+                nextIndex--;
+            lastNode = null;
+            expectedModCount = modCount;
+        }
+
+        public void set(E e) {
+            if (lastNode == null)
+                throw new IllegalStateException();
+            checkForComodification();
+            lastNode.elements[lastNode.lo + lastOff] = e;
+        }
+
+        // 在下一个元素之前插入
+        public void add(E e) {
+            checkForComodification();
+            lastNode = null;
+            if (next == null)
+                linkLast(e);
+            else {
+                Node<E> x = next;
+                int k = nextOff;
+                Node<E> y = linkBefore(e, x, k);
+                if (y != x)
+                    k -= HALF;
+                setNext(y, k + 1);
+            }
+            nextIndex++;
+            expectedModCount = modCount;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            Node<E> x = next;
+            int k = nextOff;
+            while (modCount == expectedModCount && x != null) {
+                final Object[] es = x.elements;
+                final int lo = x.lo, hi = x.hi;
+                for (int i = lo + k; i < hi && modCount == expectedModCount; i++) {
+                    action.accept((E) es[i]);
+                    nextIndex++;
+                }
+                lastNode = x;
+                lastOff = hi - lo - 1;
+                x = x.next;
+                k = 0;
+            }
+            next = x;
+            nextOff = k;
+            checkForComodification();
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * 返回按照降序排列的迭代器
+     */
+    public Iterator<E> descendingIterator() {
+        return new DescendingIterator();
+    }
+
+    /**
+     * 适配器通过 ListItr.previous 提供降序迭代器。
+     */
+    private class DescendingIterator implements Iterator<E> {
+        private final ListItr itr = new ListItr(size());
+        public boolean hasNext() {
+            return itr.hasPrevious();
+        }
+        public E next() {
+            return itr.previous();
+        }
+        public void remove() {
+            itr.remove();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private UnrolledLinkedList<E> superClone() {
+        try {
+            return (UnrolledLinkedList<E>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * 返回浅拷贝，元素本身没有拷贝，节点是新的节点。
+     *
+     * @return a shallow copy of this {@code UnrolledLinkedList} instance
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        UnrolledLinkedList<E> clone = superClone();
+
+        // Put clone into "virgin" state
+        clone.first = clone.last = null;
+        clone.size = 0;
+        clone.modCount = 0;
+
+        for (Node<E> x = first; x != null; x = x.next)
+            for (int i = x.lo; i < x.hi; i++)
+                clone.linkLast((E) x.elements[i]);
+
+        return clone;
+    }
+
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+        int i = 0;
+        for (Node<E> x = first; x != null; x = x.next) {
+            System.arraycopy(x.elements, x.lo, result, i, x.hi - x.lo);
+            i += x.hi - x.lo;
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        if (a.length < size)
+            a = (T[])java.lang.reflect.Array.newInstance(
+                    a.getClass().getComponentType(), size);
+        int i = 0;
+        for (Node<E> x = first; x != null; x = x.next) {
+            System.arraycopy(x.elements, x.lo, a, i, x.hi - x.lo);
+            i += x.hi - x.lo;
+        }
+
+        if (a.length > size)
+            a[size] = null;
+
+        return a;
+    }
+
+    private static final long serialVersionUID = -3107458823466375218L;
+
+    /**
+     * Saves the state of this {@code UnrolledLinkedList} instance to a
+     * stream (that is, serializes it).
+     *
+     * @serialData The size of the list (the number of elements it
+     *             contains) is emitted (int), followed by all of its
+     *             elements (each an Object) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+        s.defaultWriteObject();
+
+        s.writeInt(size);
+
+        for (Node<E> x = first; x != null; x = x.next)
+            for (int i = x.lo; i < x.hi; i++)
+                s.writeObject(x.elements[i]);
+    }
+
+    /**
+     * Reconstitutes this {@code UnrolledLinkedList} instance from a stream
+     * (that is, deserializes it).
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        int size = s.readInt();
+
+        for (int i = 0; i < size; i++)
+            linkLast((E)s.readObject());
+    }
+
+    /**
+     * 返回延迟绑定、快速失败的 Spliterator，拆分方式与 LinkedList 的
+     * LLSpliterator 相同（每次把一批元素复制到数组中），复制时按节点
+     * 整段复制。
+     *
+     * @return a {@code Spliterator} over the elements in this list
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new ULSpliterator<E>(this, -1, 0);
+    }
+
+    /** A customized variant of LinkedList.LLSpliterator */
+    static final class ULSpliterator<E> implements Spliterator<E> {
+        static final int BATCH_UNIT = 1 << 10;  // batch array size increment
+        static final int MAX_BATCH = 1 << 25;  // max batch array size;
+        final UnrolledLinkedList<E> list;
+        Node<E> current;      // current node; null until initialized
+        int offset;           // offset in current, relative to lo
+        int est;              // size estimate; -1 until first needed
+        int expectedModCount; // initialized when est set
+        int batch;            // batch size for splits
+
+        ULSpliterator(UnrolledLinkedList<E> list, int est, int expectedModCount) {
+            this.list = list;
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getEst() {
+            int s; // force initialization
+            if ((s = est) < 0) {
+                expectedModCount = list.modCount;
+                current = list.first;
+                offset = 0;
+                s = est = list.size;
+            }
+            return s;
+        }
+
+        public long estimateSize() { return (long) getEst(); }
+
+        public Spliterator<E> trySplit() {
+            Node<E> p;
+            int s = getEst();
+            if (s > 1 && (p = current) != null) {
+                int n = batch + BATCH_UNIT;
+                if (n > s)
+                    n = s;
+                if (n > MAX_BATCH)
+                    n = MAX_BATCH;
+                Object[] a = new Object[n];
+                int j = 0, k = offset;
+                while (p != null && j < n) {
+                    int c = Math.min(p.hi - p.lo - k, n - j);
+                    System.arraycopy(p.elements, p.lo + k, a, j, c);
+                    j += c;
+                    k += c;
+                    if (k == p.hi - p.lo) {
+                        p = p.next;
+                        k = 0;
+                    }
+                }
+                current = p;
+                offset = k;
+                batch = j;
+                est = s - j;
+                return Spliterators.spliterator(a, 0, j, Spliterator.ORDERED);
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            Node<E> p; int n;
+            if (action == null) throw new NullPointerException();
+            if ((n = getEst()) > 0 && (p = current) != null) {
+                int k = offset;
+                current = null;
+                est = 0;
+                do {
+                    final Object[] es = p.elements;
+                    int end = Math.min(p.hi, p.lo + k + n);
+                    for (int i = p.lo + k; i < end; i++, n--)
+                        action.accept((E) es[i]);
+                    p = p.next;
+                    k = 0;
+                } while (p != null && n > 0);
+            }
+            if (list.modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Node<E> p;
+            if (action == null) throw new NullPointerException();
+            if (getEst() > 0 && (p = current) != null) {
+                --est;
+                E e = (E) p.elements[p.lo + offset];
+                if (++offset == p.hi - p.lo) {
+                    current = p.next;
+                    offset = 0;
+                }
+                action.accept(e);
+                if (list.modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
@@ -34,6 +34,8 @@ package JUC.JUCCollections;
  * http://creativecommons.org/publicdomain/zero/1.0/
  */
 
+import Collections.HashTableStats;
+
 import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
@@ -361,6 +363,12 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
      */
     private transient volatile int transferIndex;
 
+    /**
+     * table 长度翻倍的次数，只用于 binStats。只有发起扩容的线程在创建
+     * nextTable 时修改它。
+     */
+    private transient volatile int resizeCount;
+
     /**
      * 自旋锁（通过 CAS 锁定），用于扩容和创建反单元格。
      */
@@ -1568,6 +1576,84 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
         return new KeySetView<K,V>(this, mappedValue);
     }
 
+    /**
+     * 扫描所有桶，返回桶分布的快照，用来判断 key 的 hashCode() 是否分布
+     * 良好。和迭代器一样是弱一致的：扫描期间的并发修改不一定能反映在
+     * 结果中。扫描不加锁，只在统计红黑树的高度时短暂获取树的读锁，不会
+     * 阻塞 get 操作。
+     *
+     * @return 桶分布的快照
+     * @see HashTableStats
+     */
+    public HashTableStats binStats() {
+        return binStats(Integer.MAX_VALUE);
+    }
+
+    /**
+     * 按固定步长扫描最多 maxBins 个桶，返回桶分布的快照。用于需要定期
+     * 采样的很大的表，代价与 maxBins 成正比。
+     *
+     * @param maxBins 最多扫描的桶数
+     * @return 桶分布的快照
+     * @throws IllegalArgumentException 如果 maxBins 不是正数
+     */
+    public HashTableStats binStats(int maxBins) {
+        if (maxBins <= 0)
+            throw new IllegalArgumentException("Illegal maxBins: " + maxBins);
+        HashTableStats.Recorder r = new HashTableStats.Recorder();
+        // 先读 nextTable 再读 table：扩容结束时先把 nextTable 置为 null 再
+        // 替换 table，所以 nt 不为 null 时 tab 要么是旧表，要么就是 nt
+        Node<K,V>[] nt = nextTable, tab = table;
+        boolean resizing = nt != null && tab != null && nt.length > tab.length;
+        Node<K,V>[] scan = resizing ? nt : tab;
+        int n = (scan == null) ? 0 : scan.length;
+        int step = 1;
+        while (n / step > maxBins)
+            step <<= 1;
+        for (int i = 0; i < n; i += step) {
+            if (resizing) {
+                // 扩容期间按照新表统计：旧桶已经迁移时读新表，否则新桶 i 中的
+                // 节点都在旧桶中，它们满足 (hash & oldCap) == (i & oldCap)
+                int oldCap = tab.length;
+                Node<K,V> f = tabAt(tab, i & (oldCap - 1));
+                if (f instanceof ForwardingNode)
+                    recordBin(r, tabAt(nt, i), i, 0, 0);
+                else
+                    recordBin(r, f, i, oldCap, i & oldCap);
+            }
+            else
+                recordBin(r, tabAt(scan, i), i, 0, 0);
+        }
+        return r.snapshot(n, mappingCount(), LOAD_FACTOR, resizeCount, resizing);
+    }
+
+    /**
+     * 统计以 f 开头的桶中满足 (hash & mask) == bits 的节点，i 为桶的下标。
+     */
+    static <K,V> void recordBin(HashTableStats.Recorder r, Node<K,V> f, int i,
+                                int mask, int bits) {
+        // 扫描开始后又开始了新的扩容，近似地统计新表中下标为 i 的桶
+        while (f instanceof ForwardingNode) {
+            Node<K,V>[] t = ((ForwardingNode<K,V>)f).nextTable;
+            f = tabAt(t, i & (t.length - 1));
+        }
+        if (f instanceof TreeBin)
+            ((TreeBin<K,V>)f).recordStats(r, mask, bits);
+        else {
+            int length = 0, maxDepth = 0;
+            long depthSum = 0L;
+            // ReservationNode 不包含映射，hash 为负数，不计入统计
+            for (int k = 1; f != null; f = f.next, ++k) {
+                if (f.hash >= 0 && (f.hash & mask) == bits) {
+                    ++length;
+                    depthSum += k;
+                    maxDepth = k;
+                }
+            }
+            r.recordBin(length, maxDepth, depthSum, false);
+        }
+    }
+
     /* ---------------- Special Nodes -------------- */
     // 特殊节点类
 
@@ -1870,6 +1956,7 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             }
             nextTable = nextTab;
             transferIndex = n;
+            resizeCount++;
         }
         int nextn = nextTab.length;
         // fwd 是标志节点。当一个节点为空或者被转移之后，就设置为 fwd 节点
@@ -2441,6 +2528,53 @@ public class ConcurrentHashMap<K,V> extends AbstractMap<K,V>
             return null;
         }
 
+        /**
+         * 统计树中满足 (hash & mask) == bits 的节点。和 find 一样先尝试获取
+         * 读锁再遍历树；有写线程持有或等待写锁时，find 会退化为沿 next 的
+         * 线性查找，此时按链表统计探测深度。
+         */
+        final void recordStats(HashTableStats.Recorder r, int mask, int bits) {
+            // acc[0] 为节点个数，acc[1] 为最大深度，acc[2] 为深度之和
+            long[] acc = new long[3];
+            int s;
+            if (((s = lockState) & (WAITER|WRITER)) == 0 &&
+                    U.compareAndSwapInt(this, LOCKSTATE, s, s + READER)) {
+                try {
+                    recordTree(root, 1, mask, bits, acc);
+                } finally {
+                    Thread w;
+                    if (U.getAndAddInt(this, LOCKSTATE, -READER) ==
+                            (READER|WAITER) && (w = waiter) != null)
+                        LockSupport.unpark(w);
+                }
+            }
+            else {
+                int k = 1;
+                for (Node<K,V> e = first; e != null; e = e.next, ++k) {
+                    if ((e.hash & mask) == bits) {
+                        ++acc[0];
+                        acc[2] += k;
+                        acc[1] = k;
+                    }
+                }
+            }
+            r.recordBin((int)acc[0], (int)acc[1], acc[2], true);
+        }
+
+        // 红黑树的高度不超过 2 * log(n)，递归深度有限
+        static <K,V> void recordTree(TreeNode<K,V> p, int depth, int mask,
+                                     int bits, long[] acc) {
+            for (; p != null; p = p.right, ++depth) {
+                if ((p.hash & mask) == bits) {
+                    ++acc[0];
+                    acc[2] += depth;
+                    if (depth > acc[1])
+                        acc[1] = depth;
+                }
+                recordTree(p.left, depth + 1, mask, bits, acc);
+            }
+        }
+
         /**
          * Finds or adds a node.
          * @return null if added
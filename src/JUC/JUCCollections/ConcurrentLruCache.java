@@ -0,0 +1,438 @@
+package JUC.JUCCollections;
+
+import Collections.CacheStats;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 支持多线程并发访问的有界 LRU 缓存。
+ *
+ * 访问顺序模式的 LinkedHashMap 在多线程下只能用一把全局锁保护：每次 get
+ * 都要把节点移到链表末尾，读操作也会修改链表，所有读写完全串行。此类
+ * 做了两点改变：
+ *
+ *   分段  按照 key 的 hash 值把缓存分成若干段（Segment），每段有自己的
+ *         锁、自己的访问顺序链表和自己的容量（maximumSize / 段数）。链表
+ *         的维护方式与 LinkedHashMap 相同：节点有 before、after 两个指针，
+ *         访问后移到末尾，淘汰时移除头部。不同段上的写操作互不影响。
+ *   读缓冲  get 通过 ConcurrentHashMap 无锁查找，不直接修改链表，而是把
+ *         命中的节点记录到当前线程自己的读缓冲中（每段一个，长度为
+ *         READ_BUFFER_SIZE）。缓冲满时用 tryLock 获取该段的锁，按记录的
+ *         顺序把节点批量移到链表末尾；锁正在被占用时直接丢弃这一批记录，
+ *         读线程永远不会阻塞。写操作持有锁时顺便处理当前线程的缓冲。
+ *
+ * 因此访问顺序是近似的：还在缓冲中或者被丢弃的访问没有反映到链表上，
+ * 淘汰的节点不一定是严格意义上最久没有访问的节点。大小限制也是按段
+ * 计算的，hash 分布不均匀时，总映射个数可能在达到 maximumSize 之前就
+ * 开始淘汰。
+ *
+ * 同一个 key 的所有写操作（put、remove、淘汰）都在它所在段的锁内完成，
+ * ConcurrentHashMap 中的映射和链表中的节点总是一致的。get 不加锁，
+ * 可能返回刚刚被并发淘汰或者删除的 value。
+ *
+ * key 和 value 都不能为 null。
+ *
+ * @August 读缓冲保存的是节点引用，已经被淘汰的节点在缓冲被覆盖之前不会
+ *         被回收；每个线程每段最多 READ_BUFFER_SIZE 个。
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ * @see Collections.LinkedHashMap
+ * @see Collections.BoundedCache
+ */
+public class ConcurrentLruCache<K,V> {
+
+    /**
+     * 默认的段数。
+     */
+    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * 最大段数。
+     */
+    static final int MAX_SEGMENTS = 1 << 16;
+
+    /**
+     * 每个线程每段的读缓冲长度。
+     */
+    static final int READ_BUFFER_SIZE = 32;
+
+    /**
+     * 缓存中的节点。value 可以在锁外读取，before、after 和 linked 只在所在
+     * 段的锁内访问。
+     */
+    static final class Node<K,V> {
+        final K key;
+        volatile V value;
+        Node<K,V> before, after;
+        // 是否还在链表中，已经被淘汰或者删除时为 false
+        boolean linked;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * 一段缓存：锁和访问顺序链表。
+     */
+    static final class Segment<K,V> extends ReentrantLock {
+        private static final long serialVersionUID = 2249069246763182397L;
+
+        final int capacity;
+        Node<K,V> head, tail;
+        int size;
+        long evictionCount;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        // 链表末尾添加节点
+        void linkLast(Node<K,V> p) {
+            Node<K,V> last = tail;
+            tail = p;
+            if (last == null)
+                head = p;
+            else {
+                p.before = last;
+                last.after = p;
+            }
+            p.linked = true;
+            size++;
+        }
+
+        // 从链表中删除节点
+        void unlink(Node<K,V> p) {
+            Node<K,V> b = p.before, a = p.after;
+            p.before = p.after = null;
+            if (b == null)
+                head = a;
+            else
+                b.after = a;
+            if (a == null)
+                tail = b;
+            else
+                a.before = b;
+            p.linked = false;
+            size--;
+        }
+
+        // 将节点移到链表末尾，与 LinkedHashMap.afterNodeAccess 相同
+        void moveToLast(Node<K,V> p) {
+            Node<K,V> last = tail;
+            if (last != p) {
+                Node<K,V> b = p.before, a = p.after;
+                p.after = null;
+                if (b == null)
+                    head = a;
+                else
+                    b.after = a;
+                // p 不是尾节点，a 一定不为 null
+                a.before = b;
+                p.before = last;
+                last.after = p;
+                tail = p;
+            }
+        }
+    }
+
+    /**
+     * 一个线程的读缓冲，每段一个数组。hits 和 misses 是还没有累加到
+     * hitCount、missCount 中的命中和未命中次数。
+     */
+    static final class ReadBuffer<K,V> {
+        final Node<K,V>[][] nodes;
+        final int[] counts;
+        int hits, misses;
+
+        @SuppressWarnings("unchecked")
+        ReadBuffer(int segments) {
+            nodes = (Node<K,V>[][]) new Node<?,?>[segments][READ_BUFFER_SIZE];
+            counts = new int[segments];
+        }
+    }
+
+    /**
+     * 所有映射，供 get 无锁查找。
+     */
+    final ConcurrentHashMap<K,Node<K,V>> data;
+
+    final Segment<K,V>[] segments;
+
+    /**
+     * 由 hash 值的高位选择段。
+     */
+    final int segmentShift;
+    final int segmentMask;
+
+    final long maximumSize;
+
+    final ThreadLocal<ReadBuffer<K,V>> readBuffers;
+
+    /**
+     * 命中和未命中次数。每个线程先在自己的 ReadBuffer 中计数，每满
+     * READ_BUFFER_SIZE 次累加一次，避免每次 get 都执行 CAS。
+     */
+    final LongAdder hitCount = new LongAdder();
+    final LongAdder missCount = new LongAdder();
+
+    /**
+     * 构造一个最多容纳 maximumSize 个映射的缓存，使用默认的段数（16）。
+     *
+     * @throws IllegalArgumentException 如果 maximumSize 小于 0
+     */
+    public ConcurrentLruCache(long maximumSize) {
+        this(maximumSize, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * 构造一个最多容纳 maximumSize 个映射的缓存。
+     *
+     * @param maximumSize 映射个数的上限
+     * @param concurrencyLevel 预计同时写缓存的线程数，段数为不小于它的
+     *        2 的幂，但是每段的容量至少为 1
+     * @throws IllegalArgumentException 如果 maximumSize 小于 0 或者
+     *         concurrencyLevel 不大于 0
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentLruCache(long maximumSize, int concurrencyLevel) {
+        if (maximumSize < 0 || concurrencyLevel <= 0)
+            throw new IllegalArgumentException();
+        int ssize = 1, sshift = 0;
+        while (ssize < concurrencyLevel && ssize < MAX_SEGMENTS &&
+               ((long) ssize << 1) <= Math.max(maximumSize, 1L)) {
+            ssize <<= 1;
+            ++sshift;
+        }
+        this.segmentShift = 32 - sshift;
+        this.segmentMask = ssize - 1;
+        this.maximumSize = maximumSize;
+        // 除不尽的部分分给前面的段，各段容量之和等于 maximumSize
+        long cap = maximumSize / ssize, rem = maximumSize % ssize;
+        Segment<K,V>[] ss = (Segment<K,V>[]) new Segment<?,?>[ssize];
+        for (int i = 0; i < ssize; i++)
+            ss[i] = new Segment<>((int) Math.min(cap + (i < rem ? 1 : 0), Integer.MAX_VALUE));
+        this.segments = ss;
+        this.data = new ConcurrentHashMap<>();
+        int n = ssize;
+        this.readBuffers = ThreadLocal.withInitial(() -> new ReadBuffer<>(n));
+    }
+
+    /**
+     * key 所在段的下标。乘以黄金分割常数后取高位，与 ConcurrentHashMap
+     * 使用的低位无关。
+     */
+    final int segmentIndex(Object key) {
+        return ((key.hashCode() * 0x9e3779b9) >>> segmentShift) & segmentMask;
+    }
+
+    /**
+     * 映射个数。
+     */
+    public int size() {
+        return data.size();
+    }
+
+    public long maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * 查找 key 对应的 value，没有命中时返回 null。不加锁。
+     *
+     * @throws NullPointerException 如果 key 为 null
+     */
+    public V get(Object key) {
+        Node<K,V> n = data.get(key);
+        ReadBuffer<K,V> b = readBuffers.get();
+        V v;
+        if (n == null || (v = n.value) == null) {
+            if (++b.misses == READ_BUFFER_SIZE) {
+                missCount.add(READ_BUFFER_SIZE);
+                b.misses = 0;
+            }
+            return null;
+        }
+        if (++b.hits == READ_BUFFER_SIZE) {
+            hitCount.add(READ_BUFFER_SIZE);
+            b.hits = 0;
+        }
+        recordRead(b, segmentIndex(key), n);
+        return v;
+    }
+
+    /**
+     * 查找 key 对应的 value，没有命中时调用 loader 计算 value 并放入缓存。
+     * loader 在锁外调用，多个线程同时未命中同一个 key 时 loader 可能被
+     * 调用多次，所有线程都返回最先放入缓存的 value。loader 返回 null 时
+     * 不放入缓存，返回 null。
+     *
+     * @throws NullPointerException 如果 key 或者 loader 为 null
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Objects.requireNonNull(loader);
+        V v = get(key);
+        if (v == null && (v = loader.apply(key)) != null) {
+            V prev = putIfAbsent(key, v);
+            if (prev != null)
+                v = prev;
+        }
+        return v;
+    }
+
+    /**
+     * key 是否在缓存中。不改变访问顺序，不计入命中统计。
+     */
+    public boolean containsKey(Object key) {
+        return data.containsKey(key);
+    }
+
+    /**
+     * 放入一个映射，返回 key 之前对应的 value。
+     *
+     * @throws NullPointerException 如果 key 或者 value 为 null
+     */
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * 如果 key 不在缓存中则放入映射，返回 key 当前对应的 value，没有时
+     * 返回 null。
+     *
+     * @throws NullPointerException 如果 key 或者 value 为 null
+     */
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(value);
+        int i = segmentIndex(key);
+        Segment<K,V> s = segments[i];
+        s.lock();
+        try {
+            drainReadBuffer(readBuffers.get(), i, s);
+            Node<K,V> n = new Node<>(key, value);
+            Node<K,V> p = data.putIfAbsent(key, n);
+            if (p != null) {
+                V oldValue = p.value;
+                if (!onlyIfAbsent)
+                    p.value = value;
+                s.moveToLast(p);
+                return oldValue;
+            }
+            s.linkLast(n);
+            while (s.size > s.capacity) {
+                Node<K,V> eldest = s.head;
+                s.unlink(eldest);
+                data.remove(eldest.key, eldest);
+                s.evictionCount++;
+            }
+            return null;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * 移除 key 对应的映射，返回之前的 value。不计入淘汰次数。
+     *
+     * @throws NullPointerException 如果 key 为 null
+     */
+    public V remove(Object key) {
+        int i = segmentIndex(key);
+        Segment<K,V> s = segments[i];
+        s.lock();
+        try {
+            Node<K,V> n = data.remove(key);
+            if (n == null)
+                return null;
+            s.unlink(n);
+            return n.value;
+        } finally {
+            s.unlock();
+        }
+    }
+
+    /**
+     * 移除所有映射，不计入淘汰次数，不清除命中统计。与并发的写操作一起
+     * 执行时，返回后缓存中可能仍有映射。
+     */
+    public void clear() {
+        for (Segment<K,V> s : segments) {
+            s.lock();
+            try {
+                for (Node<K,V> n = s.head, next; n != null; n = next) {
+                    next = n.after;
+                    data.remove(n.key, n);
+                    n.before = n.after = null;
+                    n.linked = false;
+                }
+                s.head = s.tail = null;
+                s.size = 0;
+            } finally {
+                s.unlock();
+            }
+        }
+    }
+
+    /**
+     * 返回命中统计的快照。各个计数分别读取，不是一个原子快照；每个线程
+     * 最近不到 READ_BUFFER_SIZE 次的命中和未命中还没有计入。
+     */
+    public CacheStats stats() {
+        long evictions = 0L;
+        for (Segment<K,V> s : segments) {
+            s.lock();
+            try {
+                evictions += s.evictionCount;
+            } finally {
+                s.unlock();
+            }
+        }
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictions, evictions);
+    }
+
+    // 记录一次命中，缓冲满时尝试批量处理
+    private void recordRead(ReadBuffer<K,V> b, int i, Node<K,V> n) {
+        Node<K,V>[] nodes = b.nodes[i];
+        int c = b.counts[i];
+        nodes[c++] = n;
+        b.counts[i] = c;
+        if (c == READ_BUFFER_SIZE) {
+            Segment<K,V> s = segments[i];
+            if (s.tryLock()) {
+                try {
+                    drainReadBuffer(b, i, s);
+                } finally {
+                    s.unlock();
+                }
+            } else {
+                // 其他线程正在写这一段，丢弃这一批访问记录
+                Arrays.fill(nodes, null);
+                b.counts[i] = 0;
+            }
+        }
+    }
+
+    // 持有段 s 的锁时，把当前线程缓冲中的节点按记录顺序移到链表末尾
+    private void drainReadBuffer(ReadBuffer<K,V> b, int i, Segment<K,V> s) {
+        Node<K,V>[] nodes = b.nodes[i];
+        int c = b.counts[i];
+        for (int j = 0; j < c; j++) {
+            Node<K,V> n = nodes[j];
+            nodes[j] = null;
+            if (n.linked)
+                s.moveToLast(n);
+        }
+        b.counts[i] = 0;
+    }
+}
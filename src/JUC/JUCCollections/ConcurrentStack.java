@@ -0,0 +1,251 @@
+package JUC.JUCCollections;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * 无锁的并发栈（Treiber 栈），可以替代 Collections.Stack 在多线程下使用。
+ *
+ * Stack 继承了 Vector，push、pop 都要获取同一个对象的监视器锁，竞争激烈
+ * 时线程大部分时间在阻塞和唤醒。此类用单向链表保存元素，top 指向栈顶
+ * 节点：
+ *
+ *   push  新建节点，next 指向当前的 top，再 CAS 把 top 替换成新节点；
+ *   pop   读取 top，CAS 把 top 替换成 top.next。
+ *
+ * CAS 失败说明有其他线程同时修改了栈，重新读取 top 后重试，任何时刻总有
+ * 一个线程能够成功。每次 push 都新建节点，节点不会被重复压入，因此不存在
+ * ABA 问题。
+ *
+ * 竞争激烈时所有线程都在同一个 top 上重试 CAS。消除数组（elimination
+ * array）用来缓解这一点：CAS 失败后，push 把节点放到消除数组中随机的
+ * 一个位置上，自旋等待一小段时间；同时 CAS 失败的 pop 在随机位置上发现
+ * 这个节点，就把它取走并直接返回其中的元素。一对 push 和 pop 相互抵消，
+ * 都不需要修改 top，效果等同于 push 之后立即 pop。等待超时没有被取走的
+ * 节点撤回后重新尝试 top。
+ *
+ * 只有一个 CPU 时自旋等待没有意义（另一个线程不可能同时运行），不使用
+ * 消除数组，与 Exchanger 相同。
+ *
+ * 不允许 null 元素，pop、peek 在栈为空时返回 null。size 需要遍历整个
+ * 链表，结果在并发修改时是不准确的。迭代器是弱一致的：从创建时的栈顶
+ * 开始遍历，不会抛出 ConcurrentModificationException，也不反映之后的
+ * 修改。
+ *
+ * @August 消除只在 CAS 失败之后尝试，没有竞争时与普通的 Treiber 栈完全
+ *         相同。
+ *
+ * @param <E> the type of elements held in this stack
+ * @see Collections.Stack
+ * @see ConcurrentLinkedDeque
+ */
+public class ConcurrentStack<E> implements java.lang.Iterable<E> {
+
+    /** CPU 个数，决定是否使用消除数组以及数组的长度 */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 消除数组的最大长度。
+     */
+    static final int MAX_ELIMINATION_SIZE = 32;
+
+    /**
+     * push 在消除数组中等待 pop 的自旋次数。
+     */
+    static final int SPINS = 1 << 7;
+
+    /**
+     * 链表节点。item 和 next 在节点通过 CAS 发布之后不再改变。
+     */
+    static final class Node<E> {
+        final E item;
+        Node<E> next;
+
+        Node(E item) {
+            this.item = item;
+        }
+    }
+
+    /**
+     * 栈顶节点，栈为空时为 null。
+     */
+    private volatile Node<E> top;
+
+    /**
+     * 消除数组，不使用消除时为 null。每个位置为 null 或者一个等待被
+     * pop 取走的节点。
+     */
+    private final AtomicReferenceArray<Node<E>> eliminationArray;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConcurrentStack, Node> TOP =
+        AtomicReferenceFieldUpdater.newUpdater(ConcurrentStack.class, Node.class, "top");
+
+    /**
+     * 构造一个空栈，多 CPU 时使用消除数组。
+     */
+    public ConcurrentStack() {
+        this(true);
+    }
+
+    /**
+     * 构造一个空栈。
+     *
+     * @param elimination 是否使用消除数组，只有一个 CPU 时忽略
+     */
+    public ConcurrentStack(boolean elimination) {
+        eliminationArray = (elimination && NCPU > 1)
+            ? new AtomicReferenceArray<>(Math.min(NCPU >>> 1, MAX_ELIMINATION_SIZE))
+            : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean casTop(Node<E> cmp, Node<E> val) {
+        return TOP.compareAndSet(this, cmp, val);
+    }
+
+    /**
+     * 将元素压到栈顶。
+     *
+     * @throws NullPointerException 如果 item 为 null
+     */
+    public void push(E item) {
+        Node<E> p = new Node<>(Objects.requireNonNull(item));
+        for (;;) {
+            Node<E> h = top;
+            p.next = h;
+            if (casTop(h, p) || (eliminationArray != null && offer(p)))
+                return;
+        }
+    }
+
+    /**
+     * 移除并返回栈顶元素。
+     *
+     * @return 栈顶元素，栈为空时返回 null
+     */
+    public E pop() {
+        for (;;) {
+            Node<E> h = top;
+            if (h == null)
+                return null;
+            if (casTop(h, h.next))
+                return h.item;
+            Node<E> q;
+            if (eliminationArray != null && (q = take()) != null)
+                return q.item;
+        }
+    }
+
+    /**
+     * 把节点放到消除数组的随机位置上等待 pop 取走。
+     *
+     * @return true 如果节点被 pop 取走，false 如果位置被占用或者等待超时
+     */
+    private boolean offer(Node<E> p) {
+        AtomicReferenceArray<Node<E>> a = eliminationArray;
+        int i = ThreadLocalRandom.current().nextInt(a.length());
+        if (!a.compareAndSet(i, null, p))
+            return false;
+        for (int spins = SPINS; spins > 0; --spins) {
+            if (a.get(i) != p)
+                return true;
+        }
+        // 超时撤回，CAS 失败说明刚刚被 pop 取走
+        return !a.compareAndSet(i, p, null);
+    }
+
+    /**
+     * 从消除数组的随机位置上取走一个等待中的节点。
+     *
+     * @return 取走的节点，没有时返回 null
+     */
+    private Node<E> take() {
+        AtomicReferenceArray<Node<E>> a = eliminationArray;
+        int i = ThreadLocalRandom.current().nextInt(a.length());
+        Node<E> q = a.get(i);
+        return (q != null && a.compareAndSet(i, q, null)) ? q : null;
+    }
+
+    /**
+     * 返回栈顶元素（不删除）。
+     *
+     * @return 栈顶元素，栈为空时返回 null
+     */
+    public E peek() {
+        Node<E> h = top;
+        return (h == null) ? null : h.item;
+    }
+
+    /**
+     * 一次原子操作取出栈中的全部元素，栈变为空。
+     *
+     * @return 按照出栈顺序（从栈顶到栈底）包含全部元素的列表
+     */
+    public List<E> popAll() {
+        @SuppressWarnings("unchecked")
+        Node<E> h = (Node<E>) TOP.getAndSet(this, null);
+        List<E> list = new ArrayList<>();
+        for (Node<E> p = h; p != null; p = p.next)
+            list.add(p.item);
+        return list;
+    }
+
+    public boolean isEmpty() {
+        return top == null;
+    }
+
+    /**
+     * 返回栈中元素的个数。需要遍历链表，并发修改时结果不准确。
+     */
+    public int size() {
+        int count = 0;
+        for (Node<E> p = top; p != null; p = p.next)
+            if (++count == Integer.MAX_VALUE)
+                break;
+        return count;
+    }
+
+    /**
+     * 返回从栈顶到栈底的弱一致迭代器，不支持 remove。
+     */
+    public Iterator<E> iterator() {
+        return new Itr<>(top);
+    }
+
+    private static final class Itr<E> implements Iterator<E> {
+        private Node<E> next;
+
+        Itr(Node<E> top) {
+            next = top;
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public E next() {
+            Node<E> p = next;
+            if (p == null)
+                throw new NoSuchElementException();
+            next = p.next;
+            return p.item;
+        }
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (Node<E> p = top; p != null; p = p.next) {
+            sb.append(p.item);
+            if (p.next != null)
+                sb.append(", ");
+        }
+        return sb.append(']').toString();
+    }
+}
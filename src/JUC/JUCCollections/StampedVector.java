@@ -0,0 +1,935 @@
+package JUC.JUCCollections;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * 与 Vector 接口兼容的线程安全列表，读操作不加锁。
+ *
+ * Vector 的每个方法都是 synchronized 的，get、size 以及迭代的每一步都要
+ * 获取监视器锁，多个线程同时读的时候也是完全串行的。此类用一个
+ * StampedLock 代替监视器锁：
+ *
+ *   读  先用 tryOptimisticRead 取得版本戳，不加锁地读取 elementData 和
+ *       elementCount，再用 validate 检查期间是否有写操作。没有写操作时
+ *       读到的就是一致的结果；否则获取读锁重新读取。读的过程中只读字段
+ *       和数组，不会修改任何共享状态，多个 CPU 上的读操作互不影响。
+ *   写  获取写锁，与 Vector 一样互斥，modCount 同样在写锁内修改。
+ *
+ * 乐观读期间数组可能正在被替换或者修改，读到的 elementData 和
+ * elementCount 可能不匹配，所以在 validate 之前只按两者中较小的范围访问
+ * 数组，不会越界。
+ *
+ * StampedLock 不可重入，持有写锁时再读同一个列表会死锁。因此所有调用
+ * 外部代码的方法（indexOf 中元素的 equals、forEach 的 action、sort 的
+ * comparator 等）都在锁外执行：
+ *
+ *   indexOf、contains 等  乐观读失败时在读锁内复制数组，在副本上查找；
+ *   forEach              在副本上执行，结束时检查 modCount；
+ *   remove(Object)       在锁外查找下标，写锁内确认期间没有其他修改后
+ *                        删除，否则重试；
+ *   sort、replaceAll、removeIf  在副本上计算，写锁内确认期间没有其他
+ *                        修改后替换数组，否则抛出
+ *                        ConcurrentModificationException。
+ *
+ * 迭代器是快速失败的：每次 next 都以乐观读的方式检查 modCount。subList
+ * 和 listIterator 沿用 AbstractList 的实现，通过 get、set 等方法访问
+ * 列表，单个操作是线程安全的，组合起来不是原子的。
+ *
+ * @August 写操作仍然互斥，写操作频繁时读操作会经常 validate 失败并退化
+ *         为加读锁，此时与 Vector 差别不大。
+ *
+ * @param <E> Type of component elements
+ * @see Collections.Vector
+ * @see CopyOnWriteArrayList
+ */
+public class StampedVector<E> extends AbstractList<E>
+        implements RandomAccess, Cloneable, java.io.Serializable {
+
+    private static final long serialVersionUID = -6174301442532427011L;
+
+    /**
+     * 存储元素的数组，只在写锁内修改。
+     */
+    private transient Object[] elementData;
+
+    /**
+     * 元素个数，只在写锁内修改。
+     */
+    private transient int elementCount;
+
+    /**
+     * 容量增长的步长，小于等于 0 时容量翻倍，与 Vector 相同。
+     *
+     * @serial
+     */
+    private final int capacityIncrement;
+
+    /**
+     * 保护 elementData、elementCount 和 modCount 的锁。
+     */
+    private transient StampedLock lock = new StampedLock();
+
+    /**
+     * 要分配的数组的最大大小。
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * 用指定的初始容量和容量增长步长构造一个空列表。
+     *
+     * @throws IllegalArgumentException 如果 initialCapacity 为负数
+     */
+    public StampedVector(int initialCapacity, int capacityIncrement) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        this.elementData = new Object[initialCapacity];
+        this.capacityIncrement = capacityIncrement;
+    }
+
+    /**
+     * 用指定的初始容量构造一个空列表，容量增长步长为 0。
+     */
+    public StampedVector(int initialCapacity) {
+        this(initialCapacity, 0);
+    }
+
+    /**
+     * 构造一个初始容量为 10 的空列表。
+     */
+    public StampedVector() {
+        this(10);
+    }
+
+    /**
+     * 按照 c 的迭代器顺序构造包含 c 中元素的列表。
+     */
+    public StampedVector(Collection<? extends E> c) {
+        Object[] a = c.toArray();
+        elementData = Arrays.copyOf(a, a.length, Object[].class);
+        elementCount = a.length;
+        capacityIncrement = 0;
+    }
+
+    // ------------------------------ 读操作 ------------------------------
+
+    public int size() {
+        StampedLock lock = this.lock;
+        long stamp = lock.tryOptimisticRead();
+        int n = elementCount;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                n = elementCount;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 返回数组的当前长度。
+     */
+    public int capacity() {
+        StampedLock lock = this.lock;
+        long stamp = lock.tryOptimisticRead();
+        int c = elementData.length;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                c = elementData.length;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return c;
+    }
+
+    /**
+     * 返回指定位置的元素。
+     *
+     * @throws ArrayIndexOutOfBoundsException 如果 index 越界
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        StampedLock lock = this.lock;
+        long stamp = lock.tryOptimisticRead();
+        Object[] a = elementData;
+        int n = elementCount;
+        // 验证之前 a 和 n 可能不匹配，两者都要检查
+        Object e = (index >= 0 && index < n && index < a.length) ? a[index] : null;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                n = elementCount;
+                e = (index >= 0 && index < n) ? elementData[index] : null;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (index < 0 || index >= n)
+            throw new ArrayIndexOutOfBoundsException(index);
+        return (E) e;
+    }
+
+    /**
+     * 与 get 相同。
+     */
+    public E elementAt(int index) {
+        return get(index);
+    }
+
+    /**
+     * 返回第一个元素。
+     *
+     * @throws NoSuchElementException 如果列表为空
+     */
+    public E firstElement() {
+        return edgeElement(true);
+    }
+
+    /**
+     * 返回最后一个元素。
+     *
+     * @throws NoSuchElementException 如果列表为空
+     */
+    public E lastElement() {
+        return edgeElement(false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E edgeElement(boolean first) {
+        StampedLock lock = this.lock;
+        long stamp = lock.tryOptimisticRead();
+        Object[] a = elementData;
+        int n = elementCount;
+        int i = first ? 0 : n - 1;
+        Object e = (n > 0 && i < a.length) ? a[i] : null;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                n = elementCount;
+                e = (n > 0) ? elementData[first ? 0 : n - 1] : null;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (n == 0)
+            throw new NoSuchElementException();
+        return (E) e;
+    }
+
+    /**
+     * 返回按顺序包含全部元素的数组。乐观读失败时在读锁内复制。
+     */
+    public Object[] toArray() {
+        StampedLock lock = this.lock;
+        long stamp = lock.tryOptimisticRead();
+        Object[] a = elementData;
+        Object[] r = Arrays.copyOf(a, Math.min(elementCount, a.length));
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                r = Arrays.copyOf(elementData, elementCount);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return r;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        Object[] r = toArray();
+        int n = r.length;
+        if (a.length < n)
+            return (T[]) Arrays.copyOf(r, n, a.getClass());
+        System.arraycopy(r, 0, a, 0, n);
+        if (a.length > n)
+            a[n] = null;
+        return a;
+    }
+
+    /**
+     * 将元素复制到 anArray 中。
+     *
+     * @throws IndexOutOfBoundsException 如果 anArray 不够大
+     */
+    public void copyInto(Object[] anArray) {
+        Object[] r = toArray();
+        System.arraycopy(r, 0, anArray, 0, r.length);
+    }
+
+    public boolean contains(Object o) {
+        return indexOf(o, 0) >= 0;
+    }
+
+    public int indexOf(Object o) {
+        return indexOf(o, 0);
+    }
+
+    /**
+     * 从 index 开始向后查找 o 第一次出现的位置，没有时返回 -1。
+     *
+     * @throws IndexOutOfBoundsException 如果 index 为负数
+     */
+    public int indexOf(Object o, int index) {
+        if (index < 0)
+            throw new IndexOutOfBoundsException("Index: " + index);
+        StampedLock lock = this.lock;
+        long stamp = lock.tryOptimisticRead();
+        Object[] a = elementData;
+        int i = indexOfRange(a, o, index, Math.min(elementCount, a.length));
+        if (!lock.validate(stamp))
+            i = indexOfRange(snapshot(), o, index, Integer.MAX_VALUE);
+        return i;
+    }
+
+    public int lastIndexOf(Object o) {
+        return lastIndexOf(o, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 从 index 开始向前查找 o 最后一次出现的位置，没有时返回 -1。
+     * index 不小于 size() 时从最后一个元素开始。
+     */
+    public int lastIndexOf(Object o, int index) {
+        StampedLock lock = this.lock;
+        long stamp = lock.tryOptimisticRead();
+        Object[] a = elementData;
+        int i = lastIndexOfRange(a, o, Math.min(index, Math.min(elementCount, a.length) - 1));
+        if (!lock.validate(stamp)) {
+            Object[] s = snapshot();
+            i = lastIndexOfRange(s, o, Math.min(index, s.length - 1));
+        }
+        return i;
+    }
+
+    private static int indexOfRange(Object[] a, Object o, int from, int to) {
+        to = Math.min(to, a.length);
+        if (o == null) {
+            for (int i = from; i < to; i++)
+                if (a[i] == null)
+                    return i;
+        } else {
+            for (int i = from; i < to; i++)
+                if (o.equals(a[i]))
+                    return i;
+        }
+        return -1;
+    }
+
+    private static int lastIndexOfRange(Object[] a, Object o, int from) {
+        if (o == null) {
+            for (int i = from; i >= 0; i--)
+                if (a[i] == null)
+                    return i;
+        } else {
+            for (int i = from; i >= 0; i--)
+                if (o.equals(a[i]))
+                    return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 在读锁内复制全部元素，供乐观读失败之后在锁外使用。
+     */
+    private Object[] snapshot() {
+        long stamp = lock.readLock();
+        try {
+            return Arrays.copyOf(elementData, elementCount);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 对每个元素执行 action。action 在当前元素的副本上执行，期间列表
+     * 被修改时在结束后抛出 ConcurrentModificationException。
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        Objects.requireNonNull(action);
+        StampedLock lock = this.lock;
+        long stamp = lock.tryOptimisticRead();
+        int expectedModCount = modCount;
+        Object[] a = elementData;
+        a = Arrays.copyOf(a, Math.min(elementCount, a.length));
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                expectedModCount = modCount;
+                a = Arrays.copyOf(elementData, elementCount);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        for (Object e : a)
+            action.accept((E) e);
+        if (modCountChanged(expectedModCount))
+            throw new ConcurrentModificationException();
+    }
+
+    private boolean modCountChanged(int expectedModCount) {
+        StampedLock lock = this.lock;
+        long stamp = lock.tryOptimisticRead();
+        int mc = modCount;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                mc = modCount;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return mc != expectedModCount;
+    }
+
+    // ------------------------------ 写操作 ------------------------------
+
+    /**
+     * 增加容量，只在写锁内调用。
+     */
+    private void ensureCapacityHelper(int minCapacity) {
+        // overflow-conscious code
+        if (minCapacity - elementData.length > 0)
+            grow(minCapacity);
+    }
+
+    private void grow(int minCapacity) {
+        int oldCapacity = elementData.length;
+        int newCapacity = oldCapacity + ((capacityIncrement > 0) ?
+                capacityIncrement : oldCapacity);
+        if (newCapacity - minCapacity < 0)
+            newCapacity = minCapacity;
+        if (newCapacity - MAX_ARRAY_SIZE > 0)
+            newCapacity = hugeCapacity(minCapacity);
+        elementData = Arrays.copyOf(elementData, newCapacity);
+    }
+
+    private static int hugeCapacity(int minCapacity) {
+        if (minCapacity < 0) // overflow
+            throw new OutOfMemoryError();
+        return (minCapacity > MAX_ARRAY_SIZE) ?
+                Integer.MAX_VALUE :
+                MAX_ARRAY_SIZE;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > 0) {
+            long stamp = lock.writeLock();
+            try {
+                modCount++;
+                ensureCapacityHelper(minCapacity);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    public void trimToSize() {
+        long stamp = lock.writeLock();
+        try {
+            modCount++;
+            if (elementCount < elementData.length)
+                elementData = Arrays.copyOf(elementData, elementCount);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 设置元素个数，变大时用 null 填充，变小时丢弃多余的元素。
+     *
+     * @throws ArrayIndexOutOfBoundsException 如果 newSize 为负数
+     */
+    public void setSize(int newSize) {
+        if (newSize < 0)
+            throw new ArrayIndexOutOfBoundsException(newSize);
+        long stamp = lock.writeLock();
+        try {
+            modCount++;
+            if (newSize > elementCount)
+                ensureCapacityHelper(newSize);
+            else
+                Arrays.fill(elementData, newSize, elementCount, null);
+            elementCount = newSize;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 替换指定位置的元素，返回原来的元素。
+     *
+     * @throws ArrayIndexOutOfBoundsException 如果 index 越界
+     */
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        long stamp = lock.writeLock();
+        try {
+            if (index < 0 || index >= elementCount)
+                throw new ArrayIndexOutOfBoundsException(index);
+            E oldValue = (E) elementData[index];
+            elementData[index] = element;
+            return oldValue;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 与 set 相同，不返回原来的元素。
+     */
+    public void setElementAt(E obj, int index) {
+        set(index, obj);
+    }
+
+    public boolean add(E e) {
+        long stamp = lock.writeLock();
+        try {
+            modCount++;
+            ensureCapacityHelper(elementCount + 1);
+            elementData[elementCount++] = e;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 与 add 相同。
+     */
+    public void addElement(E obj) {
+        add(obj);
+    }
+
+    /**
+     * 在指定位置插入元素。
+     *
+     * @throws ArrayIndexOutOfBoundsException 如果 index 越界
+     */
+    public void add(int index, E element) {
+        long stamp = lock.writeLock();
+        try {
+            if (index < 0 || index > elementCount)
+                throw new ArrayIndexOutOfBoundsException(index
+                                                         + " > " + elementCount);
+            modCount++;
+            ensureCapacityHelper(elementCount + 1);
+            System.arraycopy(elementData, index, elementData, index + 1,
+                             elementCount - index);
+            elementData[index] = element;
+            elementCount++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 与 add(index, obj) 相同。
+     */
+    public void insertElementAt(E obj, int index) {
+        add(index, obj);
+    }
+
+    /**
+     * 删除并返回指定位置的元素。
+     *
+     * @throws ArrayIndexOutOfBoundsException 如果 index 越界
+     */
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        long stamp = lock.writeLock();
+        try {
+            if (index < 0 || index >= elementCount)
+                throw new ArrayIndexOutOfBoundsException(index);
+            modCount++;
+            E oldValue = (E) elementData[index];
+            int numMoved = elementCount - index - 1;
+            if (numMoved > 0)
+                System.arraycopy(elementData, index + 1, elementData, index,
+                                 numMoved);
+            elementData[--elementCount] = null; // Let gc do its work
+            return oldValue;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 与 remove(index) 相同，不返回删除的元素。
+     */
+    public void removeElementAt(int index) {
+        remove(index);
+    }
+
+    /**
+     * 删除第一个与 o 相等的元素。在锁外查找下标，写锁内确认期间没有
+     * 其他修改后删除，否则重新查找。
+     */
+    public boolean remove(Object o) {
+        for (;;) {
+            StampedLock lock = this.lock;
+            long stamp = lock.tryOptimisticRead();
+            int expectedModCount = modCount;
+            Object[] a = elementData;
+            int i = indexOfRange(a, o, 0, Math.min(elementCount, a.length));
+            if (!lock.validate(stamp))
+                continue;
+            if (i < 0)
+                return false;
+            stamp = lock.writeLock();
+            try {
+                // 期间有修改时 i 不一定还是第一个相等的元素，重新查找
+                if (modCount == expectedModCount) {
+                    modCount++;
+                    int numMoved = elementCount - i - 1;
+                    if (numMoved > 0)
+                        System.arraycopy(elementData, i + 1, elementData, i, numMoved);
+                    elementData[--elementCount] = null;
+                    return true;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * 与 remove(Object) 相同。
+     */
+    public boolean removeElement(Object obj) {
+        return remove(obj);
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            modCount++;
+            Arrays.fill(elementData, 0, elementCount, null);
+            elementCount = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 与 clear 相同。
+     */
+    public void removeAllElements() {
+        clear();
+    }
+
+    public boolean addAll(Collection<? extends E> c) {
+        // c.toArray 可能调用外部代码，在锁外执行
+        Object[] a = c.toArray();
+        int numNew = a.length;
+        long stamp = lock.writeLock();
+        try {
+            modCount++;
+            ensureCapacityHelper(elementCount + numNew);
+            System.arraycopy(a, 0, elementData, elementCount, numNew);
+            elementCount += numNew;
+            return numNew != 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean addAll(int index, Collection<? extends E> c) {
+        Object[] a = c.toArray();
+        int numNew = a.length;
+        long stamp = lock.writeLock();
+        try {
+            if (index < 0 || index > elementCount)
+                throw new ArrayIndexOutOfBoundsException(index);
+            modCount++;
+            ensureCapacityHelper(elementCount + numNew);
+            int numMoved = elementCount - index;
+            if (numMoved > 0)
+                System.arraycopy(elementData, index, elementData, index + numNew,
+                                 numMoved);
+            System.arraycopy(a, 0, elementData, index, numNew);
+            elementCount += numNew;
+            return numNew != 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 删除 [fromIndex, toIndex) 之间的元素，供 subList 的 clear 使用。
+     */
+    protected void removeRange(int fromIndex, int toIndex) {
+        long stamp = lock.writeLock();
+        try {
+            modCount++;
+            int numMoved = elementCount - toIndex;
+            System.arraycopy(elementData, toIndex, elementData, fromIndex,
+                             numMoved);
+            int newElementCount = elementCount - (toIndex - fromIndex);
+            Arrays.fill(elementData, newElementCount, elementCount, null);
+            elementCount = newElementCount;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 删除满足 filter 的元素。filter 在锁外对副本执行。
+     *
+     * @throws ConcurrentModificationException 如果期间列表被其他操作修改
+     */
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        return update(a -> {
+            int j = 0;
+            for (Object e : a)
+                if (!filter.test((E) e))
+                    a[j++] = e;
+            return (j == a.length) ? null : Arrays.copyOf(a, j);
+        });
+    }
+
+    /**
+     * 用 operator 的结果替换每个元素。operator 在锁外对副本执行。
+     *
+     * @throws ConcurrentModificationException 如果期间列表被其他操作修改
+     */
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        update(a -> {
+            for (int i = 0; i < a.length; i++)
+                a[i] = operator.apply((E) a[i]);
+            return a;
+        });
+    }
+
+    /**
+     * 排序。在锁外对副本排序。
+     *
+     * @throws ConcurrentModificationException 如果期间列表被其他操作修改
+     */
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        update(a -> {
+            Arrays.sort((E[]) a, c);
+            return a;
+        });
+    }
+
+    /**
+     * 复制全部元素，在锁外由 f 计算新的元素数组，再在写锁内替换。f
+     * 返回 null 表示不需要修改。
+     *
+     * @return 是否替换了数组
+     */
+    private boolean update(UnaryOperator<Object[]> f) {
+        StampedLock lock = this.lock;
+        long stamp = lock.readLock();
+        int expectedModCount;
+        Object[] a;
+        try {
+            expectedModCount = modCount;
+            a = Arrays.copyOf(elementData, elementCount);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        Object[] r = f.apply(a);
+        if (r == null) {
+            if (modCountChanged(expectedModCount))
+                throw new ConcurrentModificationException();
+            return false;
+        }
+        stamp = lock.writeLock();
+        try {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            modCount++;
+            int n = r.length;
+            if (n > elementData.length)
+                elementData = r;
+            else {
+                System.arraycopy(r, 0, elementData, 0, n);
+                Arrays.fill(elementData, n, elementCount, null);
+            }
+            elementCount = n;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // ------------------------------ 迭代 ------------------------------
+
+    /**
+     * 返回快速失败的迭代器，next 以乐观读的方式读取元素并检查 modCount。
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * 返回全部元素的 Enumeration，与 Vector.elements 不同，这里是快速
+     * 失败的。
+     */
+    public Enumeration<E> elements() {
+        Iterator<E> it = iterator();
+        return new Enumeration<E>() {
+            public boolean hasMoreElements() {
+                return it.hasNext();
+            }
+
+            public E nextElement() {
+                return it.next();
+            }
+        };
+    }
+
+    private class Itr implements Iterator<E> {
+        int cursor;       // index of next element to return
+        int lastRet = -1; // index of last element returned; -1 if no such
+        int expectedModCount;
+
+        Itr() {
+            StampedLock lock = StampedVector.this.lock;
+            long stamp = lock.tryOptimisticRead();
+            expectedModCount = modCount;
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    expectedModCount = modCount;
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            // 与 Vector.Itr 相同，不加锁，修改在 next 中检查
+            return cursor != size();
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            StampedLock lock = StampedVector.this.lock;
+            int i = cursor;
+            long stamp = lock.tryOptimisticRead();
+            int mc = modCount, n = elementCount;
+            Object[] a = elementData;
+            Object e = (i < n && i < a.length) ? a[i] : null;
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    mc = modCount;
+                    n = elementCount;
+                    e = (i < n) ? elementData[i] : null;
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            if (mc != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (i >= n)
+                throw new NoSuchElementException();
+            cursor = i + 1;
+            lastRet = i;
+            return (E) e;
+        }
+
+        public void remove() {
+            if (lastRet == -1)
+                throw new IllegalStateException();
+            long stamp = lock.writeLock();
+            try {
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                modCount++;
+                int numMoved = elementCount - lastRet - 1;
+                if (numMoved > 0)
+                    System.arraycopy(elementData, lastRet + 1, elementData, lastRet,
+                                     numMoved);
+                elementData[--elementCount] = null;
+                expectedModCount = modCount;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            cursor = lastRet;
+            lastRet = -1;
+        }
+    }
+
+    // ------------------------------ 克隆和序列化 ------------------------------
+
+    /**
+     * 返回列表的克隆，元素本身不复制。
+     */
+    @SuppressWarnings("unchecked")
+    public StampedVector<E> clone() {
+        try {
+            StampedVector<E> v = (StampedVector<E>) super.clone();
+            v.elementData = toArray();
+            v.elementCount = v.elementData.length;
+            v.lock = new StampedLock();
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * 序列化。
+     *
+     * @serialData capacityIncrement（默认字段），元素个数（int），之后按
+     *             顺序写出每个元素（Object）。
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+        Object[] a = toArray();
+        s.defaultWriteObject();
+        s.writeInt(a.length);
+        for (Object e : a)
+            s.writeObject(e);
+    }
+
+    /**
+     * 反序列化。
+     */
+    private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n < 0)
+            throw new java.io.InvalidObjectException("Illegal size: " + n);
+        Object[] a = new Object[n];
+        for (int i = 0; i < n; i++)
+            a[i] = s.readObject();
+        elementData = a;
+        elementCount = n;
+        lock = new StampedLock();
+    }
+}